@@ -0,0 +1,170 @@
+package com.lightning.db;
+
+import com.lightning.model.Invoice;
+import com.lightning.model.Payment;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Persistence throughput of DatabaseManager against a scratch SQLite file.
+ *
+ * Every fork points lightning.db.path at a fresh temporary file before DatabaseManager is
+ * first touched, so the user's wallet database is never opened. Inserts use a new hash per
+ * operation so they measure inserts rather than updates of one row.
+ */
+public class DatabaseBenchmark {
+    
+    /**
+     * Open the singleton on a temporary database file
+     */
+    static DatabaseManager openScratchDatabase() throws IOException {
+        File file = Files.createTempFile("lightning-bench", ".db").toFile();
+        file.deleteOnExit();
+        System.setProperty("lightning.db.path", file.getAbsolutePath());
+        return DatabaseManager.getInstance();
+    }
+    
+    /**
+     * An invoice with a unique hash derived from a sequence number
+     */
+    static Invoice invoice(long sequence) {
+        Invoice invoice = new Invoice();
+        invoice.setRHash(String.format("%064x", sequence));
+        invoice.setPaymentRequest("lnbc" + sequence + "n1pbenchmark");
+        invoice.setMemo("Order #" + sequence);
+        invoice.setAmountSats(1000 + sequence % 100_000);
+        invoice.setSettled(sequence % 3 != 0);
+        invoice.setCreationDate(1_700_000_000L + sequence);
+        invoice.setSettleDate(invoice.isSettled() ? 1_700_000_030L + sequence : 0);
+        invoice.setAddIndex(sequence + 1);
+        invoice.setSettleIndex(invoice.isSettled() ? sequence + 1 : 0);
+        invoice.setExpiry(86400);
+        invoice.setState(invoice.isSettled() ? "SETTLED" : "OPEN");
+        return invoice;
+    }
+    
+    /**
+     * Single-row inserts, each in its own implicit transaction
+     */
+    @State(Scope.Benchmark)
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @Warmup(iterations = 2, time = 2)
+    @Measurement(iterations = 5, time = 2)
+    @Fork(1)
+    public static class Inserts {
+        private DatabaseManager database;
+        private long sequence;
+        
+        /**
+         * Open the scratch database
+         */
+        @Setup(Level.Trial)
+        public void setUp() throws IOException {
+            database = openScratchDatabase();
+        }
+        
+        /**
+         * Close the database
+         */
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            database.close();
+        }
+        
+        /**
+         * Insert one invoice
+         */
+        @Benchmark
+        public void saveInvoice() {
+            database.saveInvoice(invoice(sequence++));
+        }
+        
+        /**
+         * Insert one completed payment
+         */
+        @Benchmark
+        public void savePayment() {
+            long id = sequence++;
+            Payment payment = new Payment();
+            payment.setPaymentHash(String.format("%064x", id));
+            payment.setPaymentPreimage(String.format("%064x", ~id));
+            payment.setValueSat(1000 + id % 100_000);
+            payment.setFeeSat(id % 10);
+            payment.setDestination("02" + String.format("%064x", id % 50));
+            payment.setDescription("Order #" + id);
+            payment.setTimestamp(1_700_000_000L + id);
+            database.savePayment(payment, "Completed");
+        }
+    }
+    
+    /**
+     * Full scans of the invoices table through getAllInvoices()
+     */
+    @State(Scope.Benchmark)
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 2, time = 5)
+    @Measurement(iterations = 5, time = 5)
+    @Fork(1)
+    public static class Scans {
+        private static final int BATCH_SIZE = 10_000;
+        
+        @Param({"10000", "100000", "1000000"})
+        public int rows;
+        
+        private DatabaseManager database;
+        
+        /**
+         * Fill a scratch database with the requested number of invoices
+         */
+        @Setup(Level.Trial)
+        public void setUp() throws IOException, SQLException {
+            database = openScratchDatabase();
+            List<Invoice> batch = new ArrayList<>(BATCH_SIZE);
+            for (long i = 0; i < rows; i++) {
+                batch.add(invoice(i));
+                if (batch.size() == BATCH_SIZE) {
+                    database.upsertInvoices(batch);
+                    batch.clear();
+                }
+            }
+            database.upsertInvoices(batch);
+        }
+        
+        /**
+         * Close the database
+         */
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            database.close();
+        }
+        
+        /**
+         * Load every invoice, newest first
+         */
+        @Benchmark
+        public List<Invoice> getAllInvoices() {
+            return database.getAllInvoices();
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package com.lightning.network.json;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.lightning.model.Invoice;
+import com.lightning.model.InvoicePage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decoding of ListInvoices responses as returned by GET /v1/invoices.
+ *
+ * decodeTree is the Gson tree approach listInvoices() originally used (parse the whole body
+ * into a JsonObject, then copy fields out); decodeStreaming is the InvoicePageReader path it
+ * uses now. Payloads carry the fields LND actually sends, including HTLC and feature
+ * objects the wallet skips.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class InvoiceDecodeBenchmark {
+    private static final Gson GSON = new Gson();
+    
+    @Param({"100", "1000", "10000"})
+    public int invoices;
+    
+    private String payload;
+    
+    /**
+     * Build the response body once per trial
+     */
+    @Setup
+    public void setUp() {
+        payload = invoicesResponse(invoices, new Random(7));
+    }
+    
+    /**
+     * Parse into a JSON tree and map every element
+     */
+    @Benchmark
+    public List<Invoice> decodeTree() {
+        JsonObject json = GSON.fromJson(payload, JsonObject.class);
+        List<Invoice> result = new ArrayList<>();
+        json.getAsJsonArray("invoices").forEach(element -> {
+            JsonObject obj = element.getAsJsonObject();
+            Invoice invoice = new Invoice();
+            invoice.setPaymentRequest(obj.get("payment_request").getAsString());
+            invoice.setRHash(obj.get("r_hash").getAsString());
+            invoice.setMemo(obj.get("memo").getAsString());
+            invoice.setAmountSats(obj.get("value").getAsLong());
+            invoice.setSettled(obj.get("settled").getAsBoolean());
+            invoice.setCreationDate(obj.get("creation_date").getAsLong());
+            if (invoice.isSettled() && obj.has("settle_date")) {
+                invoice.setSettleDate(obj.get("settle_date").getAsLong());
+            }
+            result.add(invoice);
+        });
+        return result;
+    }
+    
+    /**
+     * Stream-decode and collect the page, as listInvoices() does
+     */
+    @Benchmark
+    public InvoicePage decodeStreaming() throws IOException {
+        return InvoicePageReader.read(new StringReader(payload));
+    }
+    
+    /**
+     * Stream-decode without collecting, as forEachInvoice() does
+     */
+    @Benchmark
+    public void decodeStreamingToConsumer(Blackhole blackhole) throws IOException {
+        InvoicePageReader.read(new StringReader(payload), blackhole::consume);
+    }
+    
+    /**
+     * A ListInvoices response body with the given number of invoices
+     */
+    static String invoicesResponse(int count, Random random) {
+        StringBuilder json = new StringBuilder(count * 1200).append("{\"invoices\":[");
+        Base64.Encoder base64 = Base64.getEncoder();
+        for (int i = 0; i < count; i++) {
+            byte[] hash = new byte[32];
+            byte[] preimage = new byte[32];
+            random.nextBytes(hash);
+            random.nextBytes(preimage);
+            boolean settled = random.nextInt(3) > 0;
+            long created = 1_700_000_000L + i * 60L;
+            long value = 1 + random.nextInt(500_000);
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"memo\":\"Order #").append(10_000 + i).append(" coffee and pastries\"")
+                    .append(",\"r_preimage\":\"").append(base64.encodeToString(preimage)).append('"')
+                    .append(",\"r_hash\":\"").append(base64.encodeToString(hash)).append('"')
+                    .append(",\"value\":\"").append(value).append('"')
+                    .append(",\"value_msat\":\"").append(value * 1000).append('"')
+                    .append(",\"settled\":").append(settled)
+                    .append(",\"creation_date\":\"").append(created).append('"')
+                    .append(",\"settle_date\":\"").append(settled ? created + 30 : 0).append('"')
+                    .append(",\"payment_request\":\"").append(paymentRequest(random)).append('"')
+                    .append(",\"description_hash\":null,\"expiry\":\"86400\",\"fallback_addr\":\"\"")
+                    .append(",\"cltv_expiry\":\"80\",\"route_hints\":[],\"private\":false")
+                    .append(",\"add_index\":\"").append(i + 1).append('"')
+                    .append(",\"settle_index\":\"").append(settled ? i + 1 : 0).append('"')
+                    .append(",\"amt_paid\":\"").append(settled ? value * 1000 : 0).append('"')
+                    .append(",\"amt_paid_sat\":\"").append(settled ? value : 0).append('"')
+                    .append(",\"amt_paid_msat\":\"").append(settled ? value * 1000 : 0).append('"')
+                    .append(",\"state\":\"").append(settled ? "SETTLED" : "OPEN").append('"')
+                    .append(",\"htlcs\":[");
+            if (settled) {
+                json.append("{\"chan_id\":\"").append(800_000L << 40 | i).append('"')
+                        .append(",\"htlc_index\":\"").append(i).append('"')
+                        .append(",\"amt_msat\":\"").append(value * 1000).append('"')
+                        .append(",\"accept_height\":820000,\"accept_time\":\"").append(created + 29).append('"')
+                        .append(",\"resolve_time\":\"").append(created + 30).append('"')
+                        .append(",\"expiry_height\":820080,\"state\":\"SETTLED\",\"custom_records\":{}")
+                        .append(",\"mpp_total_amt_msat\":\"").append(value * 1000).append("\"}");
+            }
+            json.append("],\"features\":{\"9\":{\"name\":\"tlv-onion\",\"is_required\":false,\"is_known\":true}")
+                    .append(",\"14\":{\"name\":\"payment-addr\",\"is_required\":true,\"is_known\":true}")
+                    .append(",\"17\":{\"name\":\"multi-path-payments\",\"is_required\":false,\"is_known\":true}}")
+                    .append(",\"is_keysend\":false,\"payment_addr\":\"").append(base64.encodeToString(preimage))
+                    .append("\",\"is_amp\":false}");
+        }
+        return json.append("],\"last_index_offset\":\"").append(count)
+                .append("\",\"first_index_offset\":\"1\"}").toString();
+    }
+    
+    /**
+     * A bech32-looking payment request of typical length
+     */
+    static String paymentRequest(Random random) {
+        String charset = "qpzry9x8gf2tvdw0s3jn54khce6mua7l";
+        StringBuilder pr = new StringBuilder("lnbc").append(1 + random.nextInt(9999)).append("n1p");
+        while (pr.length() < 270) {
+            pr.append(charset.charAt(random.nextInt(charset.length())));
+        }
+        return pr.toString();
+    }
+}
@@ -0,0 +1,177 @@
+package com.lightning.network.json;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.lightning.model.LightningInfo;
+import com.lightning.model.Payment;
+import com.lightning.model.WalletBalance;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import okio.Buffer;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decoding of the single-object responses the service reads most often: GetInfo,
+ * WalletBalance and a decoded payment request.
+ *
+ * decodeTree is what LightningNetworkService used to do (read the body into a String,
+ * parse a JsonObject, copy fields out); decodeStreaming is the TypeAdapter path reading
+ * from the body's byte stream through {@link Utf8SourceReader}. Both start from an Okio
+ * buffer holding the body, as OkHttp does. Run with -prof gc to compare allocation per call.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ResponseDecodeBenchmark {
+    private static final Gson GSON = new Gson();
+    private static final LightningInfoTypeAdapter INFO_ADAPTER = new LightningInfoTypeAdapter();
+    private static final WalletBalanceTypeAdapter BALANCE_ADAPTER = new WalletBalanceTypeAdapter();
+    private static final PaymentTypeAdapter PAYMENT_ADAPTER = new PaymentTypeAdapter();
+    
+    @Param({"getinfo", "balance", "payreq"})
+    public String response;
+    
+    private byte[] body;
+    
+    /**
+     * Build the response body once per trial
+     */
+    @Setup
+    public void setUp() {
+        switch (response) {
+            case "getinfo":
+                body = getInfoResponse().getBytes(StandardCharsets.UTF_8);
+                break;
+            case "balance":
+                body = balanceResponse().getBytes(StandardCharsets.UTF_8);
+                break;
+            default:
+                body = payReqResponse(new Random(7)).getBytes(StandardCharsets.UTF_8);
+                break;
+        }
+    }
+    
+    /**
+     * Body to String, JSON tree, then field by field
+     */
+    @Benchmark
+    public Object decodeTree() {
+        JsonObject json = GSON.fromJson(new Buffer().write(body).readUtf8(), JsonObject.class);
+        switch (response) {
+            case "getinfo":
+                LightningInfo info = new LightningInfo();
+                info.setIdentityPubkey(json.get("identity_pubkey").getAsString());
+                info.setAlias(json.get("alias").getAsString());
+                info.setNumActiveChannels(json.get("num_active_channels").getAsInt());
+                info.setNumPendingChannels(json.get("num_pending_channels").getAsInt());
+                info.setNumPeers(json.get("num_peers").getAsInt());
+                info.setBlockHeight(json.get("block_height").getAsInt());
+                info.setSyncedToChain(json.get("synced_to_chain").getAsBoolean());
+                return info;
+            case "balance":
+                WalletBalance balance = new WalletBalance();
+                balance.setTotalBalance(json.get("total_balance").getAsLong());
+                balance.setConfirmedBalance(json.get("confirmed_balance").getAsLong());
+                balance.setUnconfirmedBalance(json.get("unconfirmed_balance").getAsLong());
+                return balance;
+            default:
+                Payment payment = new Payment();
+                payment.setDestination(json.get("destination").getAsString());
+                payment.setPaymentHash(json.get("payment_hash").getAsString());
+                payment.setNumSatoshis(json.get("num_satoshis").getAsLong());
+                payment.setDescription(json.get("description").getAsString());
+                payment.setTimestamp(json.get("timestamp").getAsLong());
+                return payment;
+        }
+    }
+    
+    /**
+     * Stream-decode from the body bytes, as the service does now
+     */
+    @Benchmark
+    public Object decodeStreaming() throws IOException {
+        switch (response) {
+            case "getinfo":
+                return read(INFO_ADAPTER);
+            case "balance":
+                return read(BALANCE_ADAPTER);
+            default:
+                return read(PAYMENT_ADAPTER);
+        }
+    }
+    
+    /**
+     * Decode the body as the service does, from an Okio buffer like the one behind a response body
+     */
+    private <T> T read(TypeAdapter<T> adapter) throws IOException {
+        return adapter.read(new JsonReader(new Utf8SourceReader(new Buffer().write(body))));
+    }
+    
+    /**
+     * A GetInfo response of an LND 0.17 node with a few peers
+     */
+    static String getInfoResponse() {
+        return "{\"version\":\"0.17.0-beta commit=v0.17.0-beta\",\"commit_hash\":\"2fb150c8fe827df9df0520ded9b19ea2fc8a0b5f\","
+                + "\"identity_pubkey\":\"02b8b4b2c7a0f1b0c5f8e3a6d9c4e7f2a1b0c9d8e7f6a5b4c3d2e1f0a9b8c7d6e5\","
+                + "\"alias\":\"mock-lnd\",\"color\":\"#3399ff\",\"num_pending_channels\":1,"
+                + "\"num_active_channels\":12,\"num_inactive_channels\":2,\"num_peers\":15,"
+                + "\"block_height\":820000,\"block_hash\":\"00000000000000000002a7c4c1e48d76c5a37902165a270156b7a8d72728a054\","
+                + "\"best_header_timestamp\":\"1700000000\",\"synced_to_chain\":true,\"synced_to_graph\":true,"
+                + "\"testnet\":false,\"chains\":[{\"chain\":\"bitcoin\",\"network\":\"mainnet\"}],"
+                + "\"uris\":[\"02b8b4b2c7a0f1b0c5f8e3a6d9c4e7f2a1b0c9d8e7f6a5b4c3d2e1f0a9b8c7d6e5@203.0.113.7:9735\"],"
+                + "\"features\":{\"0\":{\"name\":\"data-loss-protect\",\"is_required\":true,\"is_known\":true},"
+                + "\"5\":{\"name\":\"upfront-shutdown-script\",\"is_required\":false,\"is_known\":true},"
+                + "\"7\":{\"name\":\"gossip-queries\",\"is_required\":false,\"is_known\":true},"
+                + "\"9\":{\"name\":\"tlv-onion\",\"is_required\":false,\"is_known\":true},"
+                + "\"12\":{\"name\":\"static-remote-key\",\"is_required\":true,\"is_known\":true},"
+                + "\"14\":{\"name\":\"payment-addr\",\"is_required\":true,\"is_known\":true},"
+                + "\"17\":{\"name\":\"multi-path-payments\",\"is_required\":false,\"is_known\":true}},"
+                + "\"require_htlc_interceptor\":false,\"store_final_htlc_resolutions\":false}";
+    }
+    
+    /**
+     * A WalletBalance response with one account
+     */
+    static String balanceResponse() {
+        return "{\"total_balance\":\"152000\",\"confirmed_balance\":\"150000\",\"unconfirmed_balance\":\"2000\","
+                + "\"locked_balance\":\"0\",\"reserved_balance_anchor_chan\":\"10000\","
+                + "\"account_balance\":{\"default\":{\"confirmed_balance\":\"150000\",\"unconfirmed_balance\":\"2000\"}}}";
+    }
+    
+    /**
+     * A PayReq response with one route hint
+     */
+    static String payReqResponse(Random random) {
+        return "{\"destination\":\"03e7156ae33b0a208d0744199163177e909e80176e55d97a2f221ede0f934dd9ad\","
+                + "\"payment_hash\":\"0001020304050607080900010203040506070809000102030405060708090102\","
+                + "\"num_satoshis\":\"2500\",\"timestamp\":\"1700000000\",\"expiry\":\"3600\","
+                + "\"description\":\"1 cup coffee\",\"description_hash\":\"\",\"fallback_addr\":\"\","
+                + "\"cltv_expiry\":\"80\",\"route_hints\":[{\"hop_hints\":[{\"node_id\":"
+                + "\"029e03a901b85534ff1e92c43c74431f7ce72046060fcf7a95c37e148f78c77255\","
+                + "\"chan_id\":\"" + (800_000L << 40 | random.nextInt(1000)) + "\",\"fee_base_msat\":1000,"
+                + "\"fee_proportional_millionths\":1,\"cltv_expiry_delta\":40}]}],"
+                + "\"payment_addr\":\"ERERERERERERERERERERERERERERERERERERERERERE=\",\"num_msat\":\"2500000\","
+                + "\"features\":{\"9\":{\"name\":\"tlv-onion\",\"is_required\":false,\"is_known\":true},"
+                + "\"14\":{\"name\":\"payment-addr\",\"is_required\":true,\"is_known\":true}},"
+                + "\"blinded_paths\":[]}";
+    }
+}
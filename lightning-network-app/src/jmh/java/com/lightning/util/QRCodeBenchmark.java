@@ -0,0 +1,78 @@
+package com.lightning.util;
+
+import javafx.application.Platform;
+import javafx.scene.image.Image;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * QR rendering of a typical BOLT11 payment request at the sizes the UI uses:
+ * 200px in the Swing panels and 200/250px in the JavaFX dashboard. The JavaFX variant needs
+ * a display (or a JavaFX build with the Monocle headless platform).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class QRCodeBenchmark {
+    private static final String PAYMENT_REQUEST = "lnbc2500u1pvjluezsp5zyg3zyg3zyg3zyg3zyg3zyg3zyg3zyg3zyg3zyg3zyg3"
+            + "zyg3zygspp5qqqsyqcyq5rqwzqfqqqsyqcyq5rqwzqfqqqsyqcyq5rqwzqfqypqdq5xysxxatsyp3k7enxv4jsxqzpu9qrsgquk0rl77nj"
+            + "30yxdy8j9vdx85fkpmdla2087ne0xh8nhedh8w27kyke0lp53ut353s06fv3qfegext0eh0ymjpf39tuven09sam30g4vgpfna3rh";
+    
+    @Param({"200", "250"})
+    public int size;
+    
+    /**
+     * The JavaFX toolkit, started once per fork and only for the JavaFX benchmark so the
+     * Swing one still runs on headless machines
+     */
+    @State(Scope.Benchmark)
+    public static class FxToolkit {
+        
+        /**
+         * Start the toolkit so WritableImage can be created
+         */
+        @Setup(Level.Trial)
+        public void setUp() throws InterruptedException {
+            CountDownLatch started = new CountDownLatch(1);
+            try {
+                Platform.startup(started::countDown);
+            } catch (IllegalStateException alreadyStarted) {
+                started.countDown();
+            }
+            started.await(10, TimeUnit.SECONDS);
+        }
+    }
+    
+    /**
+     * Swing rendering, as used by InvoicePanel and PaymentPanel
+     */
+    @Benchmark
+    public BufferedImage generateQRCode() {
+        return QRCodeGenerator.generateQRCode(PAYMENT_REQUEST, size, size);
+    }
+    
+    /**
+     * JavaFX rendering, as used by DashboardController
+     */
+    @Benchmark
+    public Image generateQRCodeFX(FxToolkit toolkit) {
+        return QRCodeGenerator.generateQRCodeFX(PAYMENT_REQUEST, size, size);
+    }
+}
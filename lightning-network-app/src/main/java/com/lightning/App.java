@@ -3,6 +3,7 @@ package com.lightning;
 import com.formdev.flatlaf.FlatLightLaf;
 import com.formdev.flatlaf.intellijthemes.FlatDarkPurpleIJTheme;
 import com.lightning.network.LightningNetworkService;
+import com.lightning.network.NodeRegistry;
 import com.lightning.ui.MainFrame;
 
 import javax.swing.*;
@@ -17,7 +18,8 @@ import java.util.logging.Logger;
 public class App {
     private static final Logger LOGGER = Logger.getLogger(App.class.getName());
     private LightningNetworkService lightningService;
-
+    private NodeRegistry nodeRegistry;
+    
     /**
      * Initializes and launches the Swing application
      */
@@ -60,14 +62,15 @@ public class App {
                 LOGGER.log(Level.SEVERE, "Failed to set system look and feel", ex);
             }
         }
-
-        // Initialize Lightning Network service
+        
+        // Initialize Lightning Network service, plus any further nodes listed in its configuration
         lightningService = new LightningNetworkService();
-
+        nodeRegistry = NodeRegistry.fromConfig(lightningService);
+        
         // Create and show the main window
         SwingUtilities.invokeLater(() -> {
             try {
-                MainFrame mainFrame = new MainFrame(lightningService);
+                MainFrame mainFrame = new MainFrame(lightningService, nodeRegistry);
                 mainFrame.setSize(900, 600);
                 mainFrame.setMinimumSize(new Dimension(750, 500));
                 mainFrame.setLocationRelativeTo(null); // Center on screen
@@ -78,8 +81,8 @@ public class App {
                 mainFrame.addWindowListener(new java.awt.event.WindowAdapter() {
                     @Override
                     public void windowClosing(java.awt.event.WindowEvent windowEvent) {
-                        if (lightningService != null) {
-                            lightningService.shutdown();
+                        if (nodeRegistry != null) {
+                            nodeRegistry.shutdown();
                         }
                     }
                 });
@@ -89,7 +92,7 @@ public class App {
             }
         });
     }
-
+    
     /**
      * Shows an error dialog for critical errors
      */
@@ -103,7 +106,7 @@ public class App {
             );
         });
     }
-
+    
     /**
      * Load the user's theme preference from the config file
      */
@@ -127,7 +130,7 @@ public class App {
         // Default theme if configuration can't be loaded
         return "Dark Purple";
     }
-
+    
     /**
      * Main method that launches the application
      */
@@ -9,10 +9,15 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import com.lightning.model.Channel;
+import com.lightning.model.HtlcAttempt;
 import com.lightning.model.Invoice;
 import com.lightning.model.Payment;
 import com.lightning.wallet.Transaction;
@@ -26,13 +31,56 @@ public class DatabaseManager {
     private static final String DB_PATH = getDbPath();
     private static final String URL = "jdbc:sqlite:" + DB_PATH;
     
+    // Invoices are keyed by payment hash; creation date and add index are never lost to a partial copy
+    private static final String UPSERT_INVOICE_SQL =
+            "INSERT INTO invoices (payment_request, r_hash, memo, amount_sats, settled, creation_date, settle_date, " +
+            "add_index, settle_index, expiry, state) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?) " +
+            "ON CONFLICT (r_hash) DO UPDATE SET " +
+            "payment_request = excluded.payment_request, " +
+            "memo = excluded.memo, " +
+            "amount_sats = excluded.amount_sats, " +
+            "settled = excluded.settled, " +
+            "creation_date = MAX(invoices.creation_date, excluded.creation_date), " +
+            "settle_date = excluded.settle_date, " +
+            "add_index = MAX(invoices.add_index, excluded.add_index), " +
+            "settle_index = MAX(invoices.settle_index, excluded.settle_index), " +
+            "expiry = excluded.expiry, " +
+            "state = excluded.state";
+    
+    private static final String INSERT_PAYMENT_SQL =
+            "INSERT INTO payments (payment_hash, payment_preimage, value_sat, fee_sat, status, timestamp, " +
+            "destination, description) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+    
+    private static final String UPDATE_PAYMENT_SQL =
+            "UPDATE payments SET payment_hash = ?, payment_preimage = ?, value_sat = ?, fee_sat = ?, status = ?, " +
+            "timestamp = ?, destination = ?, description = ? WHERE payment_hash = ?";
+    
+    // Attempts only move forward, so a late duplicate update simply rewrites the same row
+    private static final String UPSERT_ATTEMPT_SQL =
+            "INSERT INTO payment_attempts (payment_hash, attempt_id, status, amount_msat, fee_msat, hop_count, " +
+            "attempt_time_ns, resolve_time_ns, failure_code) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?) " +
+            "ON CONFLICT (payment_hash, attempt_id) DO UPDATE SET " +
+            "status = excluded.status, " +
+            "resolve_time_ns = excluded.resolve_time_ns, " +
+            "failure_code = excluded.failure_code";
+    
+    // Snapshot of the channel table, keyed by funding outpoint
+    private static final String UPSERT_CHANNEL_SQL =
+            "INSERT OR REPLACE INTO channels (channel_point, chan_id, remote_pubkey, capacity, local_balance, " +
+            "remote_balance, active, private, status, fee_base_msat, fee_rate_ppm) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    
     private static DatabaseManager instance;
     private Connection connection;
     
     /**
-     * Get the database file path
+     * Get the database file path, overridable with the lightning.db.path system property
      */
     private static String getDbPath() {
+        String override = System.getProperty("lightning.db.path");
+        if (override != null && !override.isEmpty()) {
+            return override;
+        }
         String userHome = System.getProperty("user.home");
         String dbDir = Paths.get(userHome, ".lightning-wallet").toString();
         File dir = new File(dbDir);
@@ -114,22 +162,84 @@ public class DatabaseManager {
                     "destination TEXT," +
                     "description TEXT)");
             
+            // Create payment attempts table, one row per HTLC attempt reported by the router
+            stmt.execute("CREATE TABLE IF NOT EXISTS payment_attempts (" +
+                    "id INTEGER PRIMARY KEY AUTOINCREMENT," +
+                    "payment_hash TEXT NOT NULL," +
+                    "attempt_id INTEGER NOT NULL," +
+                    "status TEXT NOT NULL," +
+                    "amount_msat INTEGER NOT NULL," +
+                    "fee_msat INTEGER NOT NULL," +
+                    "hop_count INTEGER NOT NULL," +
+                    "attempt_time_ns INTEGER NOT NULL," +
+                    "resolve_time_ns INTEGER NOT NULL," +
+                    "failure_code TEXT," +
+                    "UNIQUE (payment_hash, attempt_id))");
+            
+            // Create channels table, a snapshot of the node's channels for showing them before the node answers
+            stmt.execute("CREATE TABLE IF NOT EXISTS channels (" +
+                    "channel_point TEXT PRIMARY KEY," +
+                    "chan_id INTEGER NOT NULL," +
+                    "remote_pubkey TEXT," +
+                    "capacity INTEGER NOT NULL," +
+                    "local_balance INTEGER NOT NULL," +
+                    "remote_balance INTEGER NOT NULL," +
+                    "active INTEGER NOT NULL," +
+                    "private INTEGER NOT NULL," +
+                    "status TEXT NOT NULL," +
+                    "fee_base_msat INTEGER NOT NULL," +
+                    "fee_rate_ppm INTEGER NOT NULL)");
+            
             // Create settings table
             stmt.execute("CREATE TABLE IF NOT EXISTS settings (" +
                     "id INTEGER PRIMARY KEY AUTOINCREMENT," +
                     "key TEXT UNIQUE NOT NULL," +
                     "value TEXT)");
             
+            migrateInvoicesTable(stmt);
+            
             LOGGER.info("Database tables initialized");
         } catch (SQLException e) {
             LOGGER.log(Level.SEVERE, "Failed to initialize database tables", e);
         }
     }
     
+    /**
+     * Add the sync columns to older invoices tables and make r_hash unique so invoices can be upserted
+     */
+    private void migrateInvoicesTable(Statement stmt) throws SQLException {
+        Set<String> columns = new HashSet<>();
+        try (ResultSet rs = stmt.executeQuery("PRAGMA table_info(invoices)")) {
+            while (rs.next()) {
+                columns.add(rs.getString("name"));
+            }
+        }
+        
+        if (!columns.contains("add_index")) {
+            stmt.execute("ALTER TABLE invoices ADD COLUMN add_index INTEGER NOT NULL DEFAULT 0");
+        }
+        if (!columns.contains("settle_index")) {
+            stmt.execute("ALTER TABLE invoices ADD COLUMN settle_index INTEGER NOT NULL DEFAULT 0");
+        }
+        if (!columns.contains("expiry")) {
+            stmt.execute("ALTER TABLE invoices ADD COLUMN expiry INTEGER NOT NULL DEFAULT 0");
+        }
+        if (!columns.contains("state")) {
+            stmt.execute("ALTER TABLE invoices ADD COLUMN state TEXT");
+        }
+        
+        // Earlier versions inserted a new row on every save; keep only the latest copy of each invoice.
+        // Rows without a hash are not copies of each other, so they are left alone.
+        stmt.execute("DELETE FROM invoices WHERE r_hash IS NOT NULL AND id NOT IN "
+                + "(SELECT MAX(id) FROM invoices WHERE r_hash IS NOT NULL GROUP BY r_hash)");
+        stmt.execute("CREATE UNIQUE INDEX IF NOT EXISTS idx_invoices_r_hash ON invoices (r_hash)");
+        stmt.execute("CREATE INDEX IF NOT EXISTS idx_invoices_settled ON invoices (settled)");
+    }
+    
     /**
      * Save a transaction to the database
      */
-    public void saveTransaction(Transaction transaction, String type, long timestamp) {
+    public synchronized void saveTransaction(Transaction transaction, String type, long timestamp) {
         String sql = "INSERT INTO transactions (transaction_id, type, amount, status, timestamp) VALUES (?, ?, ?, ?, ?)";
         
         try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
@@ -146,20 +256,11 @@ public class DatabaseManager {
     }
     
     /**
-     * Save an invoice to the database
+     * Save an invoice to the database, replacing any stored copy with the same r_hash
      */
-    public void saveInvoice(Invoice invoice) {
-        String sql = "INSERT INTO invoices (payment_request, r_hash, memo, amount_sats, settled, creation_date, settle_date) " +
-                "VALUES (?, ?, ?, ?, ?, ?, ?)";
-        
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-            pstmt.setString(1, invoice.getPaymentRequest());
-            pstmt.setString(2, invoice.getRHash());
-            pstmt.setString(3, invoice.getMemo());
-            pstmt.setLong(4, invoice.getAmountSats());
-            pstmt.setInt(5, invoice.isSettled() ? 1 : 0);
-            pstmt.setLong(6, invoice.getCreationDate());
-            pstmt.setLong(7, invoice.isSettled() ? invoice.getSettleDate() : 0);
+    public synchronized void saveInvoice(Invoice invoice) {
+        try (PreparedStatement pstmt = connection.prepareStatement(UPSERT_INVOICE_SQL)) {
+            bindInvoice(pstmt, invoice);
             pstmt.executeUpdate();
             LOGGER.info("Invoice saved: " + invoice.getRHash());
         } catch (SQLException e) {
@@ -167,10 +268,79 @@ public class DatabaseManager {
         }
     }
     
+    /**
+     * Insert or update a batch of invoices in a single transaction.
+     * Writers share one connection, so they synchronize on this manager to keep out of each other's transactions.
+     */
+    public synchronized void upsertInvoices(List<Invoice> invoices) throws SQLException {
+        if (invoices.isEmpty()) {
+            return;
+        }
+        
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        try (PreparedStatement pstmt = connection.prepareStatement(UPSERT_INVOICE_SQL)) {
+            for (Invoice invoice : invoices) {
+                bindInvoice(pstmt, invoice);
+                pstmt.addBatch();
+            }
+            pstmt.executeBatch();
+            connection.commit();
+        } catch (SQLException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+    }
+    
+    /**
+     * Bind invoice fields to the upsert statement
+     */
+    private void bindInvoice(PreparedStatement pstmt, Invoice invoice) throws SQLException {
+        pstmt.setString(1, invoice.getPaymentRequest());
+        pstmt.setString(2, invoice.getRHash());
+        pstmt.setString(3, invoice.getMemo());
+        pstmt.setLong(4, invoice.getAmountSats());
+        pstmt.setInt(5, invoice.isSettled() ? 1 : 0);
+        pstmt.setLong(6, invoice.getCreationDate());
+        pstmt.setLong(7, invoice.isSettled() ? invoice.getSettleDate() : 0);
+        pstmt.setLong(8, invoice.getAddIndex());
+        pstmt.setLong(9, invoice.getSettleIndex());
+        pstmt.setLong(10, invoice.getExpiry());
+        pstmt.setString(11, invoice.getState());
+    }
+    
+    /**
+     * Get the r_hash of every invoice that is still open according to the local database
+     * and had not expired at the given time
+     * @param expiredBefore Unix time in seconds; invoices expiring earlier are left out
+     * @param defaultExpiry Expiry in seconds assumed for rows stored without one
+     */
+    public List<String> getOpenInvoiceHashes(long expiredBefore, long defaultExpiry) {
+        List<String> hashes = new ArrayList<>();
+        String sql = "SELECT r_hash FROM invoices WHERE settled = 0 AND (state IS NULL OR state IN ('OPEN', 'ACCEPTED'))"
+                + " AND creation_date + (CASE WHEN expiry > 0 THEN expiry ELSE ? END) >= ?";
+        
+        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+            pstmt.setLong(1, defaultExpiry);
+            pstmt.setLong(2, expiredBefore);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    hashes.add(rs.getString("r_hash"));
+                }
+            }
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Failed to get open invoices", e);
+        }
+        
+        return hashes;
+    }
+    
     /**
      * Update an invoice's settled status
      */
-    public void updateInvoiceSettled(String rHash, boolean settled, long settleDate) {
+    public synchronized void updateInvoiceSettled(String rHash, boolean settled, long settleDate) {
         String sql = "UPDATE invoices SET settled = ?, settle_date = ? WHERE r_hash = ?";
         
         try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
@@ -188,23 +358,108 @@ public class DatabaseManager {
      * Save a payment to the database
      */
     public void savePayment(Payment payment) {
-        String sql = "INSERT INTO payments (payment_hash, payment_preimage, value_sat, fee_sat, status, timestamp, destination, description) " +
-                "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+        savePayment(payment, "Completed");
+    }
+    
+    /**
+     * Save a payment to the database with the given status, e.g. Completed or Failed.
+     * A payment already recorded while in flight is updated rather than duplicated.
+     */
+    public void savePayment(Payment payment, String status) {
+        try {
+            savePaymentProgress(payment, status, Collections.emptyList());
+            LOGGER.info("Payment saved: " + payment.getPaymentHash() + " (" + status + ")");
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Failed to save payment", e);
+        }
+    }
+    
+    /**
+     * Record a payment's current state and its HTLC attempts in one transaction.
+     * The payment row is updated in place when one already exists for the payment hash.
+     */
+    public synchronized void savePaymentProgress(Payment payment, String status, List<HtlcAttempt> attempts)
+            throws SQLException {
+        long timestamp = payment.getTimestamp() > 0 ? payment.getTimestamp() : System.currentTimeMillis() / 1000;
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        try (PreparedStatement update = connection.prepareStatement(UPDATE_PAYMENT_SQL);
+             PreparedStatement attempt = connection.prepareStatement(UPSERT_ATTEMPT_SQL)) {
+            bindPayment(update, payment, status, timestamp);
+            update.setString(9, payment.getPaymentHash());
+            if (update.executeUpdate() == 0) {
+                try (PreparedStatement insert = connection.prepareStatement(INSERT_PAYMENT_SQL)) {
+                    bindPayment(insert, payment, status, timestamp);
+                    insert.executeUpdate();
+                }
+            }
+            
+            for (HtlcAttempt htlc : attempts) {
+                attempt.setString(1, payment.getPaymentHash());
+                attempt.setLong(2, htlc.getAttemptId());
+                attempt.setString(3, htlc.getStatus());
+                attempt.setLong(4, htlc.getAmountMsat());
+                attempt.setLong(5, htlc.getFeeMsat());
+                attempt.setInt(6, htlc.getHopCount());
+                attempt.setLong(7, htlc.getAttemptTimeNs());
+                attempt.setLong(8, htlc.getResolveTimeNs());
+                attempt.setString(9, htlc.getFailureCode());
+                attempt.addBatch();
+            }
+            attempt.executeBatch();
+            connection.commit();
+        } catch (SQLException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+    }
+    
+    /**
+     * Bind payment fields in column order to an insert or update statement
+     */
+    private void bindPayment(PreparedStatement pstmt, Payment payment, String status, long timestamp)
+            throws SQLException {
+        pstmt.setString(1, payment.getPaymentHash());
+        pstmt.setString(2, payment.getPaymentPreimage());
+        pstmt.setLong(3, payment.getValueSat());
+        pstmt.setLong(4, payment.getFeeSat());
+        pstmt.setString(5, status);
+        pstmt.setLong(6, timestamp);
+        pstmt.setString(7, payment.getDestination());
+        pstmt.setString(8, payment.getDescription());
+    }
+    
+    /**
+     * Get the recorded HTLC attempts of a payment in attempt order
+     */
+    public List<HtlcAttempt> getPaymentAttempts(String paymentHash) {
+        List<HtlcAttempt> attempts = new ArrayList<>();
+        String sql = "SELECT attempt_id, status, amount_msat, fee_msat, hop_count, attempt_time_ns, resolve_time_ns, " +
+                "failure_code FROM payment_attempts WHERE payment_hash = ? ORDER BY attempt_id";
         
         try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-            pstmt.setString(1, payment.getPaymentHash());
-            pstmt.setString(2, payment.getPaymentPreimage());
-            pstmt.setLong(3, payment.getValueSat());
-            pstmt.setLong(4, payment.getFeeSat());
-            pstmt.setString(5, "Completed");
-            pstmt.setLong(6, System.currentTimeMillis() / 1000);
-            pstmt.setString(7, payment.getDestination());
-            pstmt.setString(8, payment.getDescription());
-            pstmt.executeUpdate();
-            LOGGER.info("Payment saved: " + payment.getPaymentHash());
+            pstmt.setString(1, paymentHash);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    HtlcAttempt attempt = new HtlcAttempt();
+                    attempt.setAttemptId(rs.getLong("attempt_id"));
+                    attempt.setStatus(rs.getString("status"));
+                    attempt.setAmountMsat(rs.getLong("amount_msat"));
+                    attempt.setFeeMsat(rs.getLong("fee_msat"));
+                    attempt.setHopCount(rs.getInt("hop_count"));
+                    attempt.setAttemptTimeNs(rs.getLong("attempt_time_ns"));
+                    attempt.setResolveTimeNs(rs.getLong("resolve_time_ns"));
+                    attempt.setFailureCode(rs.getString("failure_code"));
+                    attempts.add(attempt);
+                }
+            }
         } catch (SQLException e) {
-            LOGGER.log(Level.SEVERE, "Failed to save payment", e);
+            LOGGER.log(Level.SEVERE, "Failed to get payment attempts", e);
         }
+        
+        return attempts;
     }
     
     /**
@@ -236,7 +491,8 @@ public class DatabaseManager {
      */
     public List<Invoice> getAllInvoices() {
         List<Invoice> invoices = new ArrayList<>();
-        String sql = "SELECT payment_request, r_hash, memo, amount_sats, settled, creation_date, settle_date FROM invoices ORDER BY creation_date DESC";
+        String sql = "SELECT payment_request, r_hash, memo, amount_sats, settled, creation_date, settle_date, " +
+                "add_index, settle_index, expiry, state FROM invoices ORDER BY creation_date DESC";
         
         try (Statement stmt = connection.createStatement();
              ResultSet rs = stmt.executeQuery(sql)) {
@@ -249,6 +505,10 @@ public class DatabaseManager {
                 invoice.setAmountSats(rs.getLong("amount_sats"));
                 invoice.setSettled(rs.getInt("settled") == 1);
                 invoice.setCreationDate(rs.getLong("creation_date"));
+                invoice.setAddIndex(rs.getLong("add_index"));
+                invoice.setSettleIndex(rs.getLong("settle_index"));
+                invoice.setExpiry(rs.getLong("expiry"));
+                invoice.setState(rs.getString("state"));
                 
                 if (invoice.isSettled()) {
                     invoice.setSettleDate(rs.getLong("settle_date"));
@@ -263,10 +523,102 @@ public class DatabaseManager {
         return invoices;
     }
     
+    /**
+     * Replace the stored channels with the given set in one transaction
+     */
+    public synchronized void replaceChannels(List<Channel> channels) throws SQLException {
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        try (Statement delete = connection.createStatement();
+             PreparedStatement pstmt = connection.prepareStatement(UPSERT_CHANNEL_SQL)) {
+            delete.execute("DELETE FROM channels");
+            for (Channel channel : channels) {
+                bindChannel(pstmt, channel);
+                pstmt.addBatch();
+            }
+            pstmt.executeBatch();
+            connection.commit();
+        } catch (SQLException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+    }
+    
+    /**
+     * Insert or update one stored channel
+     */
+    public synchronized void saveChannel(Channel channel) throws SQLException {
+        try (PreparedStatement pstmt = connection.prepareStatement(UPSERT_CHANNEL_SQL)) {
+            bindChannel(pstmt, channel);
+            pstmt.executeUpdate();
+        }
+    }
+    
+    /**
+     * Remove a stored channel by funding outpoint
+     */
+    public synchronized void deleteChannel(String channelPoint) throws SQLException {
+        try (PreparedStatement pstmt = connection.prepareStatement("DELETE FROM channels WHERE channel_point = ?")) {
+            pstmt.setString(1, channelPoint);
+            pstmt.executeUpdate();
+        }
+    }
+    
+    /**
+     * Bind channel fields to the upsert statement
+     */
+    private void bindChannel(PreparedStatement pstmt, Channel channel) throws SQLException {
+        pstmt.setString(1, channel.getChannelPoint());
+        pstmt.setLong(2, channel.getChanId());
+        pstmt.setString(3, channel.getRemotePubkey());
+        pstmt.setLong(4, channel.getCapacity());
+        pstmt.setLong(5, channel.getLocalBalance());
+        pstmt.setLong(6, channel.getRemoteBalance());
+        pstmt.setInt(7, channel.isActive() ? 1 : 0);
+        pstmt.setInt(8, channel.isPrivate() ? 1 : 0);
+        pstmt.setString(9, channel.getStatus());
+        pstmt.setLong(10, channel.getFeeBaseMsat());
+        pstmt.setLong(11, channel.getFeeRatePpm());
+    }
+    
+    /**
+     * Get the stored channel snapshot
+     */
+    public List<Channel> getChannels() {
+        List<Channel> channels = new ArrayList<>();
+        String sql = "SELECT channel_point, chan_id, remote_pubkey, capacity, local_balance, remote_balance, active, " +
+                "private, status, fee_base_msat, fee_rate_ppm FROM channels";
+        
+        try (Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            while (rs.next()) {
+                Channel channel = new Channel();
+                channel.setChannelPoint(rs.getString("channel_point"));
+                channel.setChanId(rs.getLong("chan_id"));
+                channel.setRemotePubkey(rs.getString("remote_pubkey"));
+                channel.setCapacity(rs.getLong("capacity"));
+                channel.setLocalBalance(rs.getLong("local_balance"));
+                channel.setRemoteBalance(rs.getLong("remote_balance"));
+                channel.setActive(rs.getInt("active") == 1);
+                channel.setPrivate(rs.getInt("private") == 1);
+                channel.setStatus(rs.getString("status"));
+                channel.setFeeBaseMsat(rs.getLong("fee_base_msat"));
+                channel.setFeeRatePpm(rs.getLong("fee_rate_ppm"));
+                channels.add(channel);
+            }
+        } catch (SQLException e) {
+            LOGGER.log(Level.SEVERE, "Failed to get channels", e);
+        }
+        
+        return channels;
+    }
+    
     /**
      * Save a setting to the database
      */
-    public void saveSetting(String key, String value) {
+    public synchronized void saveSetting(String key, String value) {
         String sql = "INSERT OR REPLACE INTO settings (key, value) VALUES (?, ?)";
         
         try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
@@ -301,9 +653,14 @@ public class DatabaseManager {
     }
     
     /**
-     * Close the database connection
+     * Close the database connection; the next {@link #getInstance()} opens a new one
      */
     public void close() {
+        synchronized (DatabaseManager.class) {
+            if (instance == this) {
+                instance = null;
+            }
+        }
         try {
             if (connection != null && !connection.isClosed()) {
                 connection.close();
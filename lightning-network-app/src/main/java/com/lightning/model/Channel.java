@@ -0,0 +1,156 @@
+package com.lightning.model;
+
+/**
+ * Model class for a Lightning channel: balances, fee policy and state
+ */
+public class Channel {
+    // Lifecycle states of a channel as seen by the wallet
+    public static final String STATUS_OPEN = "OPEN";
+    public static final String STATUS_PENDING_OPEN = "PENDING_OPEN";
+    public static final String STATUS_PENDING_CLOSE = "PENDING_CLOSE";
+    public static final String STATUS_FORCE_CLOSING = "FORCE_CLOSING";
+    
+    private String channelPoint;
+    private long chanId;
+    private String remotePubkey;
+    private long capacity;
+    private long localBalance;
+    private long remoteBalance;
+    private boolean active;
+    private boolean privateChannel;
+    private String status;
+    private long feeBaseMsat;
+    private long feeRatePpm;
+    
+    /**
+     * Funding outpoint as txid:index; known for pending channels too
+     */
+    public String getChannelPoint() {
+        return channelPoint;
+    }
+    
+    public void setChannelPoint(String channelPoint) {
+        this.channelPoint = channelPoint;
+    }
+    
+    /**
+     * Short channel id, or 0 while the funding transaction is unconfirmed
+     */
+    public long getChanId() {
+        return chanId;
+    }
+    
+    public void setChanId(long chanId) {
+        this.chanId = chanId;
+    }
+    
+    public String getRemotePubkey() {
+        return remotePubkey;
+    }
+    
+    public void setRemotePubkey(String remotePubkey) {
+        this.remotePubkey = remotePubkey;
+    }
+    
+    public long getCapacity() {
+        return capacity;
+    }
+    
+    public void setCapacity(long capacity) {
+        this.capacity = capacity;
+    }
+    
+    public long getLocalBalance() {
+        return localBalance;
+    }
+    
+    public void setLocalBalance(long localBalance) {
+        this.localBalance = localBalance;
+    }
+    
+    public long getRemoteBalance() {
+        return remoteBalance;
+    }
+    
+    public void setRemoteBalance(long remoteBalance) {
+        this.remoteBalance = remoteBalance;
+    }
+    
+    public boolean isActive() {
+        return active;
+    }
+    
+    public void setActive(boolean active) {
+        this.active = active;
+    }
+    
+    /**
+     * Whether the channel is not announced to the network
+     */
+    public boolean isPrivate() {
+        return privateChannel;
+    }
+    
+    public void setPrivate(boolean privateChannel) {
+        this.privateChannel = privateChannel;
+    }
+    
+    /**
+     * One of the STATUS_ constants
+     */
+    public String getStatus() {
+        return status;
+    }
+    
+    public void setStatus(String status) {
+        this.status = status;
+    }
+    
+    /**
+     * Base fee charged for forwarding over the channel
+     */
+    public long getFeeBaseMsat() {
+        return feeBaseMsat;
+    }
+    
+    public void setFeeBaseMsat(long feeBaseMsat) {
+        this.feeBaseMsat = feeBaseMsat;
+    }
+    
+    /**
+     * Proportional fee charged for forwarding, in parts per million
+     */
+    public long getFeeRatePpm() {
+        return feeRatePpm;
+    }
+    
+    public void setFeeRatePpm(long feeRatePpm) {
+        this.feeRatePpm = feeRatePpm;
+    }
+    
+    /**
+     * Whether the channel can carry payments now
+     */
+    public boolean isUsable() {
+        return active && STATUS_OPEN.equals(status);
+    }
+    
+    /**
+     * Copy of this channel, so a stored instance never has to be changed in place
+     */
+    public Channel copy() {
+        Channel channel = new Channel();
+        channel.channelPoint = channelPoint;
+        channel.chanId = chanId;
+        channel.remotePubkey = remotePubkey;
+        channel.capacity = capacity;
+        channel.localBalance = localBalance;
+        channel.remoteBalance = remoteBalance;
+        channel.active = active;
+        channel.privateChannel = privateChannel;
+        channel.status = status;
+        channel.feeBaseMsat = feeBaseMsat;
+        channel.feeRatePpm = feeRatePpm;
+        return channel;
+    }
+}
\ No newline at end of file
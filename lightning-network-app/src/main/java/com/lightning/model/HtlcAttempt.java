@@ -0,0 +1,100 @@
+package com.lightning.model;
+
+/**
+ * Model class for one HTLC attempt of a payment, as reported by the router
+ */
+public class HtlcAttempt {
+    // Attempt statuses reported by LND
+    public static final String STATUS_IN_FLIGHT = "IN_FLIGHT";
+    public static final String STATUS_SUCCEEDED = "SUCCEEDED";
+    public static final String STATUS_FAILED = "FAILED";
+    
+    private long attemptId;
+    private String status;
+    private long amountMsat;
+    private long feeMsat;
+    private int hopCount;
+    private long attemptTimeNs;
+    private long resolveTimeNs;
+    private String failureCode;
+    private String preimage;
+    
+    public long getAttemptId() {
+        return attemptId;
+    }
+    
+    public void setAttemptId(long attemptId) {
+        this.attemptId = attemptId;
+    }
+    
+    public String getStatus() {
+        return status;
+    }
+    
+    public void setStatus(String status) {
+        this.status = status;
+    }
+    
+    public long getAmountMsat() {
+        return amountMsat;
+    }
+    
+    public void setAmountMsat(long amountMsat) {
+        this.amountMsat = amountMsat;
+    }
+    
+    public long getFeeMsat() {
+        return feeMsat;
+    }
+    
+    public void setFeeMsat(long feeMsat) {
+        this.feeMsat = feeMsat;
+    }
+    
+    public int getHopCount() {
+        return hopCount;
+    }
+    
+    public void setHopCount(int hopCount) {
+        this.hopCount = hopCount;
+    }
+    
+    public long getAttemptTimeNs() {
+        return attemptTimeNs;
+    }
+    
+    public void setAttemptTimeNs(long attemptTimeNs) {
+        this.attemptTimeNs = attemptTimeNs;
+    }
+    
+    public long getResolveTimeNs() {
+        return resolveTimeNs;
+    }
+    
+    public void setResolveTimeNs(long resolveTimeNs) {
+        this.resolveTimeNs = resolveTimeNs;
+    }
+    
+    public String getFailureCode() {
+        return failureCode;
+    }
+    
+    public void setFailureCode(String failureCode) {
+        this.failureCode = failureCode;
+    }
+    
+    public String getPreimage() {
+        return preimage;
+    }
+    
+    public void setPreimage(String preimage) {
+        this.preimage = preimage;
+    }
+    
+    /**
+     * Time the attempt took to resolve, or 0 while it is in flight
+     */
+    public long getDurationNanos() {
+        return resolveTimeNs > 0 ? resolveTimeNs - attemptTimeNs : 0;
+    }
+}
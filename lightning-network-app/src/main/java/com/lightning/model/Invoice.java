@@ -17,6 +17,9 @@ public class Invoice {
     private long creationDate;
     private long settleDate;
     private long addIndex;
+    private long settleIndex;
+    private long expiry;
+    private String state;
     
     public String getPaymentRequest() {
         return paymentRequest;
@@ -82,6 +85,46 @@ public class Invoice {
         this.addIndex = addIndex;
     }
     
+    public long getSettleIndex() {
+        return settleIndex;
+    }
+    
+    public void setSettleIndex(long settleIndex) {
+        this.settleIndex = settleIndex;
+    }
+    
+    /**
+     * Expiry in seconds relative to the creation date
+     */
+    public long getExpiry() {
+        return expiry;
+    }
+    
+    public void setExpiry(long expiry) {
+        this.expiry = expiry;
+    }
+    
+    /**
+     * Node-side invoice state (OPEN, SETTLED, CANCELED or ACCEPTED), or null if unknown
+     */
+    public String getState() {
+        return state;
+    }
+    
+    public void setState(String state) {
+        this.state = state;
+    }
+    
+    /**
+     * Whether the invoice can still change state on the node
+     */
+    public boolean isOpen() {
+        if (settled) {
+            return false;
+        }
+        return state == null || "OPEN".equals(state) || "ACCEPTED".equals(state);
+    }
+    
     /**
      * Format creation date as human-readable string
      */
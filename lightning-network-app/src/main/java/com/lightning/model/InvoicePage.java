@@ -0,0 +1,58 @@
+package com.lightning.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One page of invoices returned by the node, with the cursors needed to fetch the next page
+ */
+public class InvoicePage {
+    private List<Invoice> invoices = new ArrayList<>();
+    private int count;
+    private long firstIndexOffset;
+    private long lastIndexOffset;
+    
+    /**
+     * Invoices on this page; empty when the page was streamed to a callback
+     */
+    public List<Invoice> getInvoices() {
+        return invoices;
+    }
+    
+    public void setInvoices(List<Invoice> invoices) {
+        this.invoices = invoices;
+    }
+    
+    /**
+     * Number of invoices decoded from this page
+     */
+    public int getCount() {
+        return count;
+    }
+    
+    public void setCount(int count) {
+        this.count = count;
+    }
+    
+    /**
+     * Add index of the first invoice on the page
+     */
+    public long getFirstIndexOffset() {
+        return firstIndexOffset;
+    }
+    
+    public void setFirstIndexOffset(long firstIndexOffset) {
+        this.firstIndexOffset = firstIndexOffset;
+    }
+    
+    /**
+     * Add index of the last invoice on the page; pass as index_offset to continue forward
+     */
+    public long getLastIndexOffset() {
+        return lastIndexOffset;
+    }
+    
+    public void setLastIndexOffset(long lastIndexOffset) {
+        this.lastIndexOffset = lastIndexOffset;
+    }
+}
@@ -0,0 +1,136 @@
+package com.lightning.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Model class for a payment status update from the router's payment stream
+ */
+public class PaymentUpdate {
+    // Payment statuses reported by LND
+    public static final String STATUS_IN_FLIGHT = "IN_FLIGHT";
+    public static final String STATUS_SUCCEEDED = "SUCCEEDED";
+    public static final String STATUS_FAILED = "FAILED";
+    
+    private String paymentHash;
+    private String paymentRequest;
+    private String status;
+    private long valueMsat;
+    private long feeMsat;
+    private String preimage;
+    private String failureReason;
+    private long creationTimeNs;
+    private List<HtlcAttempt> htlcs = new ArrayList<>();
+    
+    public String getPaymentHash() {
+        return paymentHash;
+    }
+    
+    public void setPaymentHash(String paymentHash) {
+        this.paymentHash = paymentHash;
+    }
+    
+    public String getPaymentRequest() {
+        return paymentRequest;
+    }
+    
+    public void setPaymentRequest(String paymentRequest) {
+        this.paymentRequest = paymentRequest;
+    }
+    
+    public String getStatus() {
+        return status;
+    }
+    
+    public void setStatus(String status) {
+        this.status = status;
+    }
+    
+    public long getValueMsat() {
+        return valueMsat;
+    }
+    
+    public void setValueMsat(long valueMsat) {
+        this.valueMsat = valueMsat;
+    }
+    
+    public long getFeeMsat() {
+        return feeMsat;
+    }
+    
+    public void setFeeMsat(long feeMsat) {
+        this.feeMsat = feeMsat;
+    }
+    
+    public String getPreimage() {
+        return preimage;
+    }
+    
+    public void setPreimage(String preimage) {
+        this.preimage = preimage;
+    }
+    
+    public String getFailureReason() {
+        return failureReason;
+    }
+    
+    public void setFailureReason(String failureReason) {
+        this.failureReason = failureReason;
+    }
+    
+    public long getCreationTimeNs() {
+        return creationTimeNs;
+    }
+    
+    public void setCreationTimeNs(long creationTimeNs) {
+        this.creationTimeNs = creationTimeNs;
+    }
+    
+    public List<HtlcAttempt> getHtlcs() {
+        return htlcs;
+    }
+    
+    public void setHtlcs(List<HtlcAttempt> htlcs) {
+        this.htlcs = htlcs;
+    }
+    
+    /**
+     * Whether the router has finished with the payment, successfully or not
+     */
+    public boolean isFinal() {
+        return STATUS_SUCCEEDED.equals(status) || STATUS_FAILED.equals(status);
+    }
+    
+    /**
+     * Whether the payment succeeded
+     */
+    public boolean isSucceeded() {
+        return STATUS_SUCCEEDED.equals(status);
+    }
+    
+    /**
+     * Attempts that are still waiting to resolve
+     */
+    public int getInFlightAttempts() {
+        int count = 0;
+        for (HtlcAttempt htlc : htlcs) {
+            if (HtlcAttempt.STATUS_IN_FLIGHT.equals(htlc.getStatus())) {
+                count++;
+            }
+        }
+        return count;
+    }
+    
+    /**
+     * Convert to the payment model used for storage and display
+     */
+    public Payment toPayment() {
+        Payment payment = new Payment();
+        payment.setPaymentHash(paymentHash);
+        payment.setPaymentPreimage(preimage);
+        payment.setValueSat(valueMsat / 1000);
+        payment.setFeeSat(feeMsat / 1000);
+        payment.setTimestamp(creationTimeNs / 1_000_000_000L);
+        return payment;
+    }
+}
@@ -0,0 +1,622 @@
+package com.lightning.network;
+
+import com.lightning.db.DatabaseManager;
+import com.lightning.model.Payment;
+import com.lightning.model.PaymentUpdate;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Pays many BOLT11 payment requests with bounded concurrency.
+ *
+ * All requests are decoded first (in parallel) to learn their destination and payment
+ * hash; duplicates of an already queued hash are skipped. Payments are then handed out
+ * round-robin across destinations, so one payee with thousands of invoices cannot starve
+ * the others, and no destination has more than a few payments in flight at once. Each
+ * result is written to the payments table as soon as it completes.
+ *
+ * Only a payment the router reports as failed, or that the node refused outright, counts
+ * as failed. When the outcome is unknown, e.g. after a timeout, the payment is recorded
+ * as in flight, since it may still settle and must not be paid again.
+ */
+public class BatchPaymentService {
+    private static final Logger LOGGER = Logger.getLogger(BatchPaymentService.class.getName());
+    
+    public static final int DEFAULT_MAX_CONCURRENCY = 8;
+    public static final int DEFAULT_MAX_PER_DESTINATION = 2;
+    
+    // Status values written to the payments table
+    static final String STATUS_COMPLETED = "Completed";
+    static final String STATUS_FAILED = "Failed";
+    static final String STATUS_IN_FLIGHT = "In Flight";
+    
+    /**
+     * Node operations used by the batch; decoding and paying one request at a time
+     */
+    interface PaymentGateway {
+        Payment decode(String paymentRequest) throws IOException;
+        
+        /**
+         * Send a payment and wait for its final state
+         * @return The final update, which may report a failed payment
+         * @throws IOException If the node refused the payment or its outcome is unknown
+         */
+        PaymentUpdate pay(String paymentRequest) throws IOException;
+        
+        /**
+         * Whether a failure from {@link #pay} means the payment was never made
+         */
+        boolean isRefused(IOException error);
+    }
+    
+    /**
+     * Stores a finished payment with its status
+     */
+    interface PaymentRecorder {
+        void record(Payment payment, String status);
+    }
+    
+    /**
+     * Receives each result as it completes; called on a payment thread
+     */
+    public interface Listener {
+        void paymentCompleted(Result result, int completed, int total);
+    }
+    
+    /**
+     * Outcome of one payment request
+     */
+    public enum Status {
+        SUCCEEDED, FAILED, SKIPPED,
+        // Sent, but the outcome is not known; it may still settle
+        UNKNOWN
+    }
+    
+    /**
+     * Outcome of one payment request in the batch
+     */
+    public static class Result {
+        private final String paymentRequest;
+        private final Status status;
+        private final Payment payment;
+        private final String error;
+        private final long latencyNanos;
+        
+        Result(String paymentRequest, Status status, Payment payment, String error, long latencyNanos) {
+            this.paymentRequest = paymentRequest;
+            this.status = status;
+            this.payment = payment;
+            this.error = error;
+            this.latencyNanos = latencyNanos;
+        }
+        
+        /**
+         * The payment request as submitted
+         */
+        public String getPaymentRequest() {
+            return paymentRequest;
+        }
+        
+        /**
+         * Whether the request was paid, failed, skipped or has an unknown outcome
+         */
+        public Status getStatus() {
+            return status;
+        }
+        
+        /**
+         * The payment as sent, or as decoded if it failed; null if the request could not be decoded
+         */
+        public Payment getPayment() {
+            return payment;
+        }
+        
+        /**
+         * Failure or skip reason, or null on success
+         */
+        public String getError() {
+            return error;
+        }
+        
+        /**
+         * Time spent paying this request, excluding time queued
+         */
+        public long getLatencyNanos() {
+            return latencyNanos;
+        }
+    }
+    
+    /**
+     * Aggregate outcome of a batch
+     */
+    public static class Report {
+        private final List<Result> results;
+        private final Duration elapsed;
+        private final int succeeded;
+        private final int failed;
+        private final int unknown;
+        private final int skipped;
+        private final long totalSentSat;
+        private final long totalFeeSat;
+        private final long[] sortedFees;
+        private final long[] sortedLatencies;
+        
+        Report(List<Result> results, Duration elapsed) {
+            this.results = Collections.unmodifiableList(results);
+            this.elapsed = elapsed;
+            
+            int ok = 0;
+            int bad = 0;
+            int pending = 0;
+            long sent = 0;
+            long fees = 0;
+            List<Long> feeSamples = new ArrayList<>();
+            List<Long> latencySamples = new ArrayList<>();
+            for (Result result : results) {
+                if (result.status == Status.SUCCEEDED) {
+                    ok++;
+                    sent += result.payment.getValueSat();
+                    fees += result.payment.getFeeSat();
+                    feeSamples.add(result.payment.getFeeSat());
+                    latencySamples.add(result.latencyNanos);
+                } else if (result.status == Status.FAILED) {
+                    bad++;
+                } else if (result.status == Status.UNKNOWN) {
+                    pending++;
+                }
+            }
+            this.succeeded = ok;
+            this.failed = bad;
+            this.unknown = pending;
+            this.skipped = results.size() - ok - bad - pending;
+            this.totalSentSat = sent;
+            this.totalFeeSat = fees;
+            this.sortedFees = feeSamples.stream().mapToLong(Long::longValue).sorted().toArray();
+            this.sortedLatencies = latencySamples.stream().mapToLong(Long::longValue).sorted().toArray();
+        }
+        
+        /**
+         * Per-request results in the order the requests were submitted
+         */
+        public List<Result> getResults() {
+            return results;
+        }
+        
+        /**
+         * Wall-clock time for the whole batch, including decoding
+         */
+        public Duration getElapsed() {
+            return elapsed;
+        }
+        
+        /**
+         * Number of requests paid
+         */
+        public int getSucceeded() {
+            return succeeded;
+        }
+        
+        /**
+         * Number of requests that could not be decoded or paid
+         */
+        public int getFailed() {
+            return failed;
+        }
+        
+        /**
+         * Number of payments whose outcome is unknown; they may still settle and must not be paid again
+         */
+        public int getUnknown() {
+            return unknown;
+        }
+        
+        /**
+         * Number of duplicate requests that were not paid
+         */
+        public int getSkipped() {
+            return skipped;
+        }
+        
+        /**
+         * Amount delivered by successful payments, excluding fees
+         */
+        public long getTotalSentSat() {
+            return totalSentSat;
+        }
+        
+        /**
+         * Routing fees paid across the batch
+         */
+        public long getTotalFeeSat() {
+            return totalFeeSat;
+        }
+        
+        /**
+         * Successful payments per second of wall-clock time
+         */
+        public double getThroughput() {
+            double seconds = elapsed.toNanos() / 1e9;
+            return seconds <= 0 ? 0 : succeeded / seconds;
+        }
+        
+        /**
+         * Total fees in parts per million of the amount sent
+         */
+        public double getFeeRatePpm() {
+            return totalSentSat == 0 ? 0 : totalFeeSat * 1_000_000.0 / totalSentSat;
+        }
+        
+        /**
+         * Mean fee per successful payment
+         */
+        public double getAverageFeeSat() {
+            return succeeded == 0 ? 0 : (double) totalFeeSat / succeeded;
+        }
+        
+        /**
+         * Fee percentile over successful payments, e.g. 0.95
+         */
+        public long getFeePercentileSat(double fraction) {
+            return percentile(sortedFees, fraction);
+        }
+        
+        /**
+         * Largest fee paid for a single payment
+         */
+        public long getMaxFeeSat() {
+            return sortedFees.length == 0 ? 0 : sortedFees[sortedFees.length - 1];
+        }
+        
+        /**
+         * Payment latency percentile over successful payments
+         */
+        public Duration getLatencyPercentile(double fraction) {
+            return Duration.ofNanos(percentile(sortedLatencies, fraction));
+        }
+        
+        @Override
+        public String toString() {
+            return String.format("%d succeeded, %d failed, %d unknown, %d skipped in %d ms (%.1f/s); "
+                            + "sent %d sat, fees %d sat (%.0f ppm, avg %.1f, p95 %d, max %d)",
+                    succeeded, failed, unknown, skipped, elapsed.toMillis(), getThroughput(),
+                    totalSentSat, totalFeeSat, getFeeRatePpm(), getAverageFeeSat(),
+                    getFeePercentileSat(0.95), getMaxFeeSat());
+        }
+        
+        /**
+         * Nearest-rank percentile of sorted samples
+         */
+        private static long percentile(long[] sorted, double fraction) {
+            if (sorted.length == 0) {
+                return 0;
+            }
+            int index = (int) Math.ceil(fraction * sorted.length) - 1;
+            return sorted[Math.min(sorted.length - 1, Math.max(0, index))];
+        }
+    }
+    
+    /**
+     * A decoded request waiting to be paid
+     */
+    private static final class Entry {
+        private final int index;
+        private final String paymentRequest;
+        private final Payment decoded;
+        
+        Entry(int index, String paymentRequest, Payment decoded) {
+            this.index = index;
+            this.paymentRequest = paymentRequest;
+            this.decoded = decoded;
+        }
+    }
+    
+    /**
+     * Hands out entries round-robin by destination, limiting payments in flight per destination
+     */
+    private static final class FairQueue {
+        private final Map<String, Deque<Entry>> byDestination = new LinkedHashMap<>();
+        private final Deque<String> rotation = new ArrayDeque<>();
+        private final Map<String, Integer> inFlight = new HashMap<>();
+        private final int maxPerDestination;
+        private int queued;
+        
+        FairQueue(int maxPerDestination) {
+            this.maxPerDestination = maxPerDestination;
+        }
+        
+        /**
+         * Queue an entry behind others for the same destination
+         */
+        synchronized void add(Entry entry) {
+            String destination = destinationOf(entry);
+            Deque<Entry> queue = byDestination.get(destination);
+            if (queue == null) {
+                queue = new ArrayDeque<>();
+                byDestination.put(destination, queue);
+                rotation.add(destination);
+            }
+            queue.add(entry);
+            queued++;
+        }
+        
+        /**
+         * Take the next entry from the first destination in rotation that has capacity
+         * @return The entry, or null once everything has been handed out
+         */
+        synchronized Entry take() throws InterruptedException {
+            while (queued > 0) {
+                for (int i = 0, n = rotation.size(); i < n; i++) {
+                    String destination = rotation.poll();
+                    int active = inFlight.getOrDefault(destination, 0);
+                    if (active >= maxPerDestination) {
+                        rotation.add(destination);
+                        continue;
+                    }
+                    
+                    Deque<Entry> queue = byDestination.get(destination);
+                    Entry entry = queue.poll();
+                    if (queue.isEmpty()) {
+                        byDestination.remove(destination);
+                    } else {
+                        rotation.add(destination);
+                    }
+                    inFlight.put(destination, active + 1);
+                    queued--;
+                    return entry;
+                }
+                // Every destination with work is at its limit
+                wait();
+            }
+            return null;
+        }
+        
+        /**
+         * Release the destination slot held by a finished entry
+         */
+        synchronized void done(Entry entry) {
+            inFlight.merge(destinationOf(entry), -1, Integer::sum);
+            notifyAll();
+        }
+        
+        /**
+         * Grouping key for an entry
+         */
+        private static String destinationOf(Entry entry) {
+            String destination = entry.decoded.getDestination();
+            return destination == null ? "" : destination;
+        }
+    }
+    
+    private final PaymentGateway gateway;
+    private final PaymentRecorder recorder;
+    private volatile int maxConcurrency = DEFAULT_MAX_CONCURRENCY;
+    private volatile int maxPerDestination = DEFAULT_MAX_PER_DESTINATION;
+    
+    /**
+     * Create a batch service that pays through the node's router and records to the local database
+     */
+    public BatchPaymentService(LightningNetworkService service) {
+        this(new PaymentGateway() {
+            @Override
+            public Payment decode(String paymentRequest) throws IOException {
+                return service.decodePaymentRequest(paymentRequest);
+            }
+            
+            @Override
+            public PaymentUpdate pay(String paymentRequest) throws IOException {
+                CompletableFuture<PaymentUpdate> sent = service.getPaymentEngine().send(paymentRequest, null);
+                try {
+                    return sent.get();
+                } catch (InterruptedException e) {
+                    sent.cancel(true);
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Payment interrupted; it may still complete on the node");
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof IOException) {
+                        throw (IOException) e.getCause();
+                    }
+                    throw new IOException("Failed to pay invoice: " + e.getCause().getMessage(), e.getCause());
+                }
+            }
+            
+            @Override
+            public boolean isRefused(IOException error) {
+                return PaymentEngine.isRefused(error);
+            }
+        }, (payment, status) -> DatabaseManager.getInstance().savePayment(payment, status));
+    }
+    
+    /**
+     * Create a batch service with explicit node operations and storage
+     */
+    BatchPaymentService(PaymentGateway gateway, PaymentRecorder recorder) {
+        this.gateway = gateway;
+        this.recorder = recorder;
+    }
+    
+    /**
+     * Set how many payments may be in flight at once
+     */
+    public void setMaxConcurrency(int maxConcurrency) {
+        this.maxConcurrency = Math.max(1, maxConcurrency);
+    }
+    
+    /**
+     * Set how many payments to a single destination may be in flight at once
+     */
+    public void setMaxPerDestination(int maxPerDestination) {
+        this.maxPerDestination = Math.max(1, maxPerDestination);
+    }
+    
+    /**
+     * Pay all requests and wait for the batch to finish
+     * @param paymentRequests BOLT11 payment requests
+     * @param listener Notified as each payment completes, or null
+     * @return Per-request results and aggregate statistics
+     */
+    public Report payAll(List<String> paymentRequests, Listener listener) throws IOException {
+        int total = paymentRequests.size();
+        Result[] results = new Result[total];
+        AtomicInteger completed = new AtomicInteger();
+        long start = System.nanoTime();
+        
+        int threads = Math.min(maxConcurrency, Math.max(1, total));
+        AtomicInteger threadCount = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "batch-payment-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        
+        try {
+            // Decode everything first so payments can be grouped by destination
+            List<Future<Payment>> decodes = new ArrayList<>(total);
+            for (String paymentRequest : paymentRequests) {
+                decodes.add(executor.submit(() -> gateway.decode(paymentRequest)));
+            }
+            
+            FairQueue queue = new FairQueue(maxPerDestination);
+            Set<String> seenHashes = new HashSet<>();
+            for (int i = 0; i < total; i++) {
+                String paymentRequest = paymentRequests.get(i);
+                Payment decoded;
+                try {
+                    decoded = decodes.get(i).get();
+                } catch (ExecutionException e) {
+                    results[i] = finish(new Result(paymentRequest, Status.FAILED, null,
+                            "Invalid payment request: " + e.getCause().getMessage(), 0), completed, total, listener);
+                    continue;
+                }
+                
+                String hash = decoded.getPaymentHash();
+                if (hash != null && !seenHashes.add(hash)) {
+                    results[i] = finish(new Result(paymentRequest, Status.SKIPPED, decoded,
+                            "Duplicate of an earlier request in this batch", 0), completed, total, listener);
+                    continue;
+                }
+                queue.add(new Entry(i, paymentRequest, decoded));
+            }
+            
+            List<Future<?>> workers = new ArrayList<>(threads);
+            for (int t = 0; t < threads; t++) {
+                workers.add(executor.submit(() -> {
+                    Entry entry;
+                    while ((entry = queue.take()) != null) {
+                        try {
+                            results[entry.index] = finish(pay(entry), completed, total, listener);
+                        } finally {
+                            queue.done(entry);
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> worker : workers) {
+                worker.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Batch payment interrupted after " + completed.get() + " of " + total);
+        } catch (ExecutionException e) {
+            throw new IOException("Batch payment failed: " + e.getCause().getMessage(), e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+        
+        Report report = new Report(Arrays.asList(results), Duration.ofNanos(System.nanoTime() - start));
+        LOGGER.info("Batch payment finished: " + report);
+        return report;
+    }
+    
+    /**
+     * Pay one decoded request and record the outcome
+     */
+    private Result pay(Entry entry) {
+        long start = System.nanoTime();
+        PaymentUpdate update;
+        try {
+            update = gateway.pay(entry.paymentRequest);
+        } catch (IOException | RuntimeException e) {
+            long latency = System.nanoTime() - start;
+            Payment attempted = entry.decoded;
+            attempted.setValueSat(attempted.getNumSatoshis());
+            if (e instanceof IOException && gateway.isRefused((IOException) e)) {
+                LOGGER.log(Level.WARNING, "Batch payment to " + attempted.getDestination() + " was refused", e);
+                record(attempted, STATUS_FAILED);
+                return new Result(entry.paymentRequest, Status.FAILED, attempted, e.getMessage(), latency);
+            }
+            
+            // A timeout or lost stream says nothing about the payment; it may still settle
+            LOGGER.log(Level.WARNING, "Outcome of batch payment " + attempted.getPaymentHash() + " is unknown", e);
+            record(attempted, STATUS_IN_FLIGHT);
+            return new Result(entry.paymentRequest, Status.UNKNOWN, attempted, e.getMessage(), latency);
+        }
+        long latency = System.nanoTime() - start;
+        
+        if (!update.isSucceeded()) {
+            Payment failed = entry.decoded;
+            failed.setValueSat(failed.getNumSatoshis());
+            record(failed, STATUS_FAILED);
+            return new Result(entry.paymentRequest, Status.FAILED, failed,
+                    "Payment failed: " + update.getFailureReason(), latency);
+        }
+        
+        // The router's update lacks the invoice details
+        Payment payment = update.toPayment();
+        if (payment.getPaymentHash() == null) {
+            payment.setPaymentHash(entry.decoded.getPaymentHash());
+        }
+        payment.setDestination(entry.decoded.getDestination());
+        payment.setDescription(entry.decoded.getDescription());
+        payment.setNumSatoshis(entry.decoded.getNumSatoshis());
+        record(payment, STATUS_COMPLETED);
+        return new Result(entry.paymentRequest, Status.SUCCEEDED, payment, null, latency);
+    }
+    
+    /**
+     * Persist a payment, logging rather than failing the batch if storage fails
+     */
+    private void record(Payment payment, String status) {
+        try {
+            recorder.record(payment, status);
+        } catch (RuntimeException e) {
+            LOGGER.log(Level.SEVERE, "Failed to record payment " + payment.getPaymentHash(), e);
+        }
+    }
+    
+    /**
+     * Count a finished request and notify the listener
+     */
+    private static Result finish(Result result, AtomicInteger completed, int total, Listener listener) {
+        int done = completed.incrementAndGet();
+        if (listener != null) {
+            try {
+                listener.paymentCompleted(result, done, total);
+            } catch (RuntimeException e) {
+                LOGGER.log(Level.WARNING, "Batch payment listener failed", e);
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,391 @@
+package com.lightning.network;
+
+import com.lightning.util.TokenBucket;
+
+import java.io.InterruptedIOException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Per-class concurrency and rate limits for calls to the node.
+ *
+ * Every {@link RequestClass} has its own lane with a fixed number of in-flight slots and a
+ * token bucket for the rate at which calls may start. Lanes never borrow from each other,
+ * so a saturated background lane cannot delay an interactive call. Calls that find their
+ * lane busy wait in FIFO order; waiting is asynchronous, so no thread is parked for async
+ * callers. A lane with too many waiters refuses new calls with {@link BulkheadFullException}.
+ */
+public class Bulkhead {
+    
+    // Longest a blocking caller waits for a slot
+    public static final Duration DEFAULT_MAX_WAIT = Duration.ofSeconds(NetworkConstants.CONNECTION_TIMEOUT);
+    
+    // Waiters per lane before new calls are refused outright
+    private static final int MAX_QUEUED = 64;
+    
+    /**
+     * A held slot; closing it frees the slot for the next waiter. Closing twice is harmless.
+     */
+    public static final class Permit implements AutoCloseable {
+        private final Lane lane;
+        private final AtomicBoolean released = new AtomicBoolean();
+        
+        private Permit(Lane lane) {
+            this.lane = lane;
+        }
+        
+        /**
+         * Class the slot belongs to
+         */
+        public RequestClass getRequestClass() {
+            return lane.requestClass;
+        }
+        
+        @Override
+        public void close() {
+            if (released.compareAndSet(false, true)) {
+                lane.release();
+            }
+        }
+    }
+    
+    /**
+     * Point-in-time view of one lane
+     */
+    public static final class Stats {
+        private final RequestClass requestClass;
+        private final int concurrency;
+        private final double ratePerSecond;
+        private final int inUse;
+        private final int queued;
+        private final long admitted;
+        private final long delayed;
+        private final long rejected;
+        
+        Stats(RequestClass requestClass, int concurrency, double ratePerSecond, int inUse, int queued,
+              long admitted, long delayed, long rejected) {
+            this.requestClass = requestClass;
+            this.concurrency = concurrency;
+            this.ratePerSecond = ratePerSecond;
+            this.inUse = inUse;
+            this.queued = queued;
+            this.admitted = admitted;
+            this.delayed = delayed;
+            this.rejected = rejected;
+        }
+        
+        /**
+         * Class of the lane
+         */
+        public RequestClass getRequestClass() {
+            return requestClass;
+        }
+        
+        /**
+         * Slots currently held
+         */
+        public int getInUse() {
+            return inUse;
+        }
+        
+        /**
+         * Calls currently waiting for a slot
+         */
+        public int getQueued() {
+            return queued;
+        }
+        
+        /**
+         * Calls given a slot so far
+         */
+        public long getAdmitted() {
+            return admitted;
+        }
+        
+        /**
+         * Calls that had to wait for a slot or a token before being admitted or refused
+         */
+        public long getDelayed() {
+            return delayed;
+        }
+        
+        /**
+         * Calls refused because the lane was full or the wait ran out
+         */
+        public long getRejected() {
+            return rejected;
+        }
+        
+        @Override
+        public String toString() {
+            return String.format("%s: %d/%d in use, %d queued, %.0f/s, admitted %d, delayed %d, rejected %d",
+                    requestClass.getConfigName(), inUse, concurrency, queued, ratePerSecond,
+                    admitted, delayed, rejected);
+        }
+    }
+    
+    /**
+     * Slots, rate limit and FIFO wait queue of one class
+     */
+    private static final class Lane {
+        private final RequestClass requestClass;
+        private final TokenBucket bucket;
+        private final ArrayDeque<CompletableFuture<Permit>> waiters = new ArrayDeque<>();
+        private int concurrency;
+        private int inUse;
+        private boolean drainScheduled;
+        private long admitted;
+        private long delayed;
+        private long rejected;
+        
+        Lane(RequestClass requestClass, TokenBucket bucket) {
+            this.requestClass = requestClass;
+            this.bucket = bucket;
+            this.concurrency = requestClass.getDefaultConcurrency();
+        }
+        
+        /**
+         * Take a slot now if the lane is idle enough, otherwise queue behind earlier callers
+         */
+        CompletableFuture<Permit> acquire() {
+            CompletableFuture<Permit> waiter;
+            synchronized (this) {
+                if (waiters.isEmpty() && inUse < concurrency && bucket.tryAcquire()) {
+                    inUse++;
+                    admitted++;
+                    return CompletableFuture.completedFuture(new Permit(this));
+                }
+                waiters.removeIf(CompletableFuture::isDone);
+                if (waiters.size() >= MAX_QUEUED) {
+                    rejected++;
+                    return CompletableFuture.failedFuture(new BulkheadFullException(requestClass,
+                            "Too many " + requestClass.getConfigName() + " calls waiting for the node"));
+                }
+                waiter = new CompletableFuture<>();
+                waiters.add(waiter);
+                delayed++;
+            }
+            drain();
+            return waiter;
+        }
+        
+        /**
+         * Give up waiting; a slot handed over in the meantime is returned
+         */
+        void abandon(CompletableFuture<Permit> waiter) {
+            synchronized (this) {
+                waiters.remove(waiter);
+            }
+            if (!waiter.cancel(false) && !waiter.isCompletedExceptionally()) {
+                waiter.join().close();
+            }
+        }
+        
+        /**
+         * Count a call whose wait ran out
+         */
+        synchronized void recordRejected() {
+            rejected++;
+        }
+        
+        void release() {
+            synchronized (this) {
+                inUse--;
+            }
+            drain();
+        }
+        
+        /**
+         * Hand free slots to waiters in order while tokens last; schedule another pass when the next token is due
+         */
+        void drain() {
+            List<CompletableFuture<Permit>> ready = new ArrayList<>();
+            long wait = 0;
+            synchronized (this) {
+                while (!waiters.isEmpty() && inUse < concurrency) {
+                    CompletableFuture<Permit> head = waiters.peek();
+                    if (head.isDone()) {
+                        waiters.poll();
+                        continue;
+                    }
+                    long nanos = bucket.nanosUntilAvailable();
+                    if (nanos > 0) {
+                        wait = nanos;
+                        break;
+                    }
+                    bucket.tryAcquire();
+                    waiters.poll();
+                    inUse++;
+                    admitted++;
+                    ready.add(head);
+                }
+                if (wait > 0 && !drainScheduled) {
+                    drainScheduled = true;
+                } else {
+                    wait = 0;
+                }
+            }
+            
+            if (wait > 0) {
+                CompletableFuture.delayedExecutor(wait, TimeUnit.NANOSECONDS).execute(() -> {
+                    synchronized (this) {
+                        drainScheduled = false;
+                    }
+                    drain();
+                });
+            }
+            for (CompletableFuture<Permit> waiter : ready) {
+                Permit permit = new Permit(this);
+                if (!waiter.complete(permit)) {
+                    // Cancelled between the check and now; pass the slot on
+                    permit.close();
+                }
+            }
+        }
+        
+        synchronized Stats stats() {
+            return new Stats(requestClass, concurrency, bucket.getRatePerSecond(), inUse, waiters.size(),
+                    admitted, delayed, rejected);
+        }
+    }
+    
+    private final Map<RequestClass, Lane> lanes = new EnumMap<>(RequestClass.class);
+    
+    /**
+     * Create lanes with each class's default limits
+     */
+    public Bulkhead() {
+        for (RequestClass requestClass : RequestClass.values()) {
+            lanes.put(requestClass, new Lane(requestClass,
+                    new TokenBucket(requestClass.getDefaultRatePerSecond(), requestClass.getDefaultBurst())));
+        }
+    }
+    
+    /**
+     * Change a lane's limits. Calls already in flight keep their slots.
+     * @param concurrency Calls allowed in flight at once
+     * @param ratePerSecond Calls started per second; zero or less for no rate limit
+     * @param burst Calls that may start back to back before the rate applies
+     */
+    public void configure(RequestClass requestClass, int concurrency, double ratePerSecond, int burst) {
+        Lane lane = lanes.get(requestClass);
+        synchronized (lane) {
+            lane.concurrency = Math.max(1, concurrency);
+            lane.bucket.setRate(ratePerSecond, burst);
+        }
+        lane.drain();
+    }
+    
+    /**
+     * Wait for a slot, up to {@link #DEFAULT_MAX_WAIT}
+     * @see #acquire(RequestClass, Duration)
+     */
+    public Permit acquire(RequestClass requestClass) throws BulkheadFullException, InterruptedIOException {
+        return acquire(requestClass, DEFAULT_MAX_WAIT);
+    }
+    
+    /**
+     * Block until the class has a free slot and a token
+     * @param maxWait Longest to wait before failing
+     * @return The slot, to be closed when the call has finished
+     * @throws BulkheadFullException If too many calls are already waiting or the wait runs out
+     */
+    public Permit acquire(RequestClass requestClass, Duration maxWait)
+            throws BulkheadFullException, InterruptedIOException {
+        Lane lane = lanes.get(requestClass);
+        CompletableFuture<Permit> waiter = lane.acquire();
+        try {
+            return waiter.get(maxWait.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            lane.abandon(waiter);
+            lane.recordRejected();
+            throw new BulkheadFullException(requestClass, "No " + requestClass.getConfigName()
+                    + " slot free within " + maxWait.toMillis() + " ms");
+        } catch (InterruptedException e) {
+            lane.abandon(waiter);
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a " + requestClass.getConfigName() + " slot");
+        } catch (ExecutionException e) {
+            throw (BulkheadFullException) e.getCause();
+        }
+    }
+    
+    /**
+     * Wait for a slot, up to {@link #DEFAULT_MAX_WAIT}, without blocking
+     * @see #acquireAsync(RequestClass, Duration)
+     */
+    public CompletableFuture<Permit> acquireAsync(RequestClass requestClass) {
+        return acquireAsync(requestClass, DEFAULT_MAX_WAIT);
+    }
+    
+    /**
+     * Wait for a slot without blocking. Cancelling the returned future gives up the place in the queue.
+     * @param maxWait Longest to wait before failing
+     * @return A future completed with the slot, or failed with {@link BulkheadFullException}
+     */
+    public CompletableFuture<Permit> acquireAsync(RequestClass requestClass, Duration maxWait) {
+        Lane lane = lanes.get(requestClass);
+        CompletableFuture<Permit> waiter = lane.acquire();
+        if (waiter.isDone()) {
+            return waiter;
+        }
+        CompletableFuture<Permit> result = new CompletableFuture<>();
+        CompletableFuture.delayedExecutor(maxWait.toNanos(), TimeUnit.NANOSECONDS).execute(() -> {
+            if (result.completeExceptionally(new BulkheadFullException(requestClass, "No "
+                    + requestClass.getConfigName() + " slot free within " + maxWait.toMillis() + " ms"))) {
+                lane.recordRejected();
+            }
+        });
+        waiter.whenComplete((permit, error) -> {
+            if (error != null) {
+                result.completeExceptionally(error);
+            } else if (!result.complete(permit)) {
+                permit.close();
+            }
+        });
+        result.whenComplete((permit, error) -> {
+            if (error != null) {
+                lane.abandon(waiter);
+            }
+        });
+        return result;
+    }
+    
+    /**
+     * Get the state of one lane
+     */
+    public Stats getStats(RequestClass requestClass) {
+        return lanes.get(requestClass).stats();
+    }
+    
+    /**
+     * Get the state of every lane, highest priority first
+     */
+    public List<Stats> getStats() {
+        List<Stats> stats = new ArrayList<>();
+        for (Lane lane : lanes.values()) {
+            stats.add(lane.stats());
+        }
+        return stats;
+    }
+    
+    /**
+     * One line per lane, for diagnostics
+     */
+    public String report() {
+        StringBuilder report = new StringBuilder();
+        for (Stats stats : getStats()) {
+            report.append(stats).append('\n');
+        }
+        return report.toString();
+    }
+}
@@ -0,0 +1,27 @@
+package com.lightning.network;
+
+import java.io.IOException;
+
+/**
+ * Thrown instead of making a call when its request class has no free slot in time
+ */
+public class BulkheadFullException extends IOException {
+    private final RequestClass requestClass;
+    
+    /**
+     * Create the exception
+     * @param requestClass Class whose lane was full
+     * @param message Why the call was refused
+     */
+    public BulkheadFullException(RequestClass requestClass, String message) {
+        super(message);
+        this.requestClass = requestClass;
+    }
+    
+    /**
+     * Get the class whose lane was full
+     */
+    public RequestClass getRequestClass() {
+        return requestClass;
+    }
+}
@@ -1,18 +1,721 @@
 package com.lightning.network;
 
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.lightning.db.DatabaseManager;
+import com.lightning.model.Channel;
+import com.lightning.network.json.ChannelTypeAdapter;
+import com.lightning.network.json.Utf8SourceReader;
+import okhttp3.Call;
+import okhttp3.Request;
+import okhttp3.Response;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * In-memory table of the node's channels, kept current by LND's channel event stream.
+ *
+ * The table is filled from the stored snapshot first, so channels show at once, then from
+ * listchannels, pendingchannels and the fee report each time the event stream (re)connects.
+ * While connected, opens, closes and active/inactive changes are applied from the stream
+ * (/v1/channels/subscribe) without listing again. Channels are indexed by funding outpoint,
+ * short channel id and peer, so every lookup is a hash lookup. Each change is written
+ * through to the channels table in SQLite.
+ *
+ * The event stream does not report balance changes; balances are those of the last
+ * listing and are refreshed with {@link #refresh()}. Every event is numbered, so a listing
+ * that was in flight while an event arrived leaves that event's channel as the event set it.
+ */
 public class ChannelManager {
-    public void openChannel(String nodeAddress) {
-        System.out.println("Opening channel to node: " + nodeAddress);
-        // Logic to open a channel
+    private static final Logger LOGGER = Logger.getLogger(ChannelManager.class.getName());
+    private static final ChannelTypeAdapter CHANNEL_ADAPTER = new ChannelTypeAdapter();
+    
+    // Reconnect backoff bounds in milliseconds
+    private static final long INITIAL_BACKOFF_MS = 1000;
+    private static final long MAX_BACKOFF_MS = 60_000;
+    
+    /**
+     * Notified after the channel table changed; called on the subscription thread
+     */
+    public interface Listener {
+        void channelsChanged();
     }
-
-    public void closeChannel(String channelId) {
-        System.out.println("Closing channel with ID: " + channelId);
-        // Logic to close a channel
+    
+    private final NodeTransport transport;
+    private final DatabaseManager database;
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    
+    // Writes hold the manager's lock; reads go straight to the maps
+    private final Map<String, Channel> byChannelPoint = new ConcurrentHashMap<>();
+    private final Map<Long, Channel> byChanId = new ConcurrentHashMap<>();
+    private final Map<String, List<Channel>> byPeer = new ConcurrentHashMap<>();
+    
+    // Number of the last event applied, the last event for each channel point, and the event
+    // number each listing in flight started after; guarded by this
+    private long eventSequence;
+    private final Map<String, Long> eventSequences = new HashMap<>();
+    private final List<Long> listings = new ArrayList<>();
+    
+    private volatile boolean running;
+    private volatile boolean connected;
+    private volatile Call currentCall;
+    private Thread worker;
+    
+    /**
+     * Create a channel manager
+     * @param transport Shared transport for the node
+     * @param database Local database holding the channel snapshot
+     */
+    public ChannelManager(NodeTransport transport, DatabaseManager database) {
+        this.transport = transport;
+        this.database = database;
     }
-
-    public void monitorChannels() {
-        System.out.println("Monitoring active channels...");
-        // Logic to monitor channels
+    
+    /**
+     * Register a listener for channel changes
+     */
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+    
+    /**
+     * Remove a previously registered listener
+     */
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+    
+    /**
+     * Load the stored snapshot and start following the node in the background; does nothing if already running
+     */
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        loadSnapshot();
+        worker = new Thread(this::run, "channel-subscription");
+        worker.setDaemon(true);
+        worker.start();
+    }
+    
+    /**
+     * Stop following the node and close the stream
+     */
+    public synchronized void stop() {
+        running = false;
+        Call call = currentCall;
+        if (call != null) {
+            call.cancel();
+        }
+        if (worker != null) {
+            worker.interrupt();
+            worker = null;
+        }
+        connected = false;
+    }
+    
+    /**
+     * Whether the event stream is open, so the table is current apart from balances
+     */
+    public boolean isConnected() {
+        return connected;
+    }
+    
+    /**
+     * Fill the table from the stored snapshot, without contacting the node
+     */
+    public void loadSnapshot() {
+        List<Channel> channels = database.getChannels();
+        synchronized (this) {
+            for (Channel channel : channels) {
+                index(channel);
+            }
+        }
+        LOGGER.info("Loaded " + channels.size() + " channels from the snapshot");
+        notifyListeners();
+    }
+    
+    /**
+     * Replace the table with the node's current channels, pending channels and fee policies
+     */
+    public void refresh() throws IOException {
+        Long listedAfter;
+        synchronized (this) {
+            listedAfter = eventSequence;
+            listings.add(listedAfter);
+        }
+        List<Channel> table;
+        try {
+            table = apply(list(), listedAfter);
+        } finally {
+            synchronized (this) {
+                listings.remove(listedAfter);
+                // Only listings still in flight need the event numbers
+                long oldest = listings.isEmpty() ? eventSequence : Collections.min(listings);
+                eventSequences.values().removeIf(sequence -> sequence <= oldest);
+            }
+        }
+        LOGGER.info("Channel table refreshed: " + table.size() + " channels");
+        notifyListeners();
+    }
+    
+    /**
+     * List the node's channels, pending channels and fee policies
+     */
+    private List<Channel> list() throws IOException {
+        List<Channel> channels = new ArrayList<>();
+        try (Response response = transport.execute(newRequest("/channels"))) {
+            readChannels(response, channels);
+        }
+        try (Response response = transport.execute(newRequest("/channels/pending"))) {
+            readPendingChannels(response, channels);
+        }
+        Map<String, long[]> fees;
+        try (Response response = transport.execute(newRequest("/fees"))) {
+            fees = readFeeReport(response);
+        }
+        for (Channel channel : channels) {
+            applyFees(channel, fees.get(channel.getChannelPoint()));
+        }
+        return channels;
+    }
+    
+    /**
+     * Replace the table and the snapshot with a listing, except for channels changed by events
+     * after the given event number, which the listing may predate
+     * @return The channels now in the table
+     */
+    private synchronized List<Channel> apply(List<Channel> channels, long listedAfter) {
+        Set<String> current = new HashSet<>();
+        for (Channel channel : channels) {
+            current.add(channel.getChannelPoint());
+            if (!changedSince(channel.getChannelPoint(), listedAfter)) {
+                index(channel);
+            }
+        }
+        for (String channelPoint : new ArrayList<>(byChannelPoint.keySet())) {
+            if (!current.contains(channelPoint) && !changedSince(channelPoint, listedAfter)) {
+                unindex(channelPoint);
+            }
+        }
+        
+        // Written under the lock so an event's write cannot land before this one
+        List<Channel> table = getChannels();
+        try {
+            database.replaceChannels(table);
+        } catch (SQLException e) {
+            LOGGER.log(Level.WARNING, "Failed to store the channel snapshot", e);
+        }
+        return table;
+    }
+    
+    /**
+     * Whether an event after the given event number touched a channel; the caller holds the lock
+     */
+    private boolean changedSince(String channelPoint, long listedAfter) {
+        Long sequence = eventSequences.get(channelPoint);
+        return sequence != null && sequence > listedAfter;
+    }
+    
+    /**
+     * Get a channel by its short channel id, or null
+     */
+    public Channel getChannel(long chanId) {
+        return byChanId.get(chanId);
+    }
+    
+    /**
+     * Get a channel by its funding outpoint (txid:index), or null
+     */
+    public Channel getChannelByPoint(String channelPoint) {
+        return byChannelPoint.get(channelPoint);
+    }
+    
+    /**
+     * Get every channel with a peer, open or pending; empty if there are none
+     */
+    public List<Channel> getChannelsByPeer(String remotePubkey) {
+        return byPeer.getOrDefault(remotePubkey, Collections.emptyList());
+    }
+    
+    /**
+     * Get every channel in the table
+     */
+    public List<Channel> getChannels() {
+        return new ArrayList<>(byChannelPoint.values());
+    }
+    
+    /**
+     * Number of channels in the table, pending ones included
+     */
+    public int size() {
+        return byChannelPoint.size();
+    }
+    
+    /**
+     * Sum of the local balances of channels that can carry payments now
+     */
+    public long getUsableLocalBalance() {
+        long balance = 0;
+        for (Channel channel : byChannelPoint.values()) {
+            if (channel.isUsable()) {
+                balance += channel.getLocalBalance();
+            }
+        }
+        return balance;
+    }
+    
+    private Request newRequest(String path) {
+        return RequestClass.BACKGROUND.tag(transport.newRequest(path)).build();
+    }
+    
+    /**
+     * Add or replace a channel in every index; the caller holds the lock
+     */
+    private void index(Channel channel) {
+        Channel previous = byChannelPoint.put(channel.getChannelPoint(), channel);
+        if (previous != null) {
+            removeSecondary(previous);
+        }
+        if (channel.getChanId() != 0) {
+            byChanId.put(channel.getChanId(), channel);
+        }
+        if (channel.getRemotePubkey() != null) {
+            List<Channel> peerChannels = new ArrayList<>(byPeer.getOrDefault(channel.getRemotePubkey(),
+                    Collections.emptyList()));
+            peerChannels.add(channel);
+            byPeer.put(channel.getRemotePubkey(), Collections.unmodifiableList(peerChannels));
+        }
+    }
+    
+    /**
+     * Remove a channel from every index; the caller holds the lock
+     * @return The removed channel, or null
+     */
+    private Channel unindex(String channelPoint) {
+        Channel previous = byChannelPoint.remove(channelPoint);
+        if (previous != null) {
+            removeSecondary(previous);
+        }
+        return previous;
+    }
+    
+    private void removeSecondary(Channel channel) {
+        if (channel.getChanId() != 0) {
+            byChanId.remove(channel.getChanId(), channel);
+        }
+        String peer = channel.getRemotePubkey();
+        List<Channel> peerChannels = peer == null ? null : byPeer.get(peer);
+        if (peerChannels != null) {
+            List<Channel> remaining = new ArrayList<>(peerChannels);
+            remaining.remove(channel);
+            if (remaining.isEmpty()) {
+                byPeer.remove(peer);
+            } else {
+                byPeer.put(peer, Collections.unmodifiableList(remaining));
+            }
+        }
+    }
+    
+    /**
+     * Connect, list, stream and reconnect until stopped
+     */
+    private void run() {
+        long backoff = INITIAL_BACKOFF_MS;
+        
+        while (running) {
+            try {
+                stream();
+            } catch (IOException e) {
+                if (running) {
+                    LOGGER.log(Level.WARNING, "Channel subscription dropped: " + e.getMessage());
+                }
+            } finally {
+                if (connected) {
+                    backoff = INITIAL_BACKOFF_MS;
+                }
+                connected = false;
+                currentCall = null;
+            }
+            
+            if (!running) {
+                break;
+            }
+            
+            try {
+                LOGGER.fine("Reconnecting channel subscription in " + backoff + " ms");
+                Thread.sleep(backoff);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            backoff = Math.min(backoff * 2, MAX_BACKOFF_MS);
+        }
+        
+        LOGGER.info("Channel subscription stopped");
+    }
+    
+    /**
+     * Open the stream, list the channels once it is accepted, then apply events until it ends
+     */
+    private void stream() throws IOException {
+        Call call = transport.newStreamingCall(transport.newRequest("/channels/subscribe").build());
+        currentCall = call;
+        if (!running) {
+            call.cancel();
+        }
+        
+        try (Response response = call.execute()) {
+            if (!response.isSuccessful()) {
+                throw new IOException("Failed to subscribe to channel events: " + response);
+            }
+            
+            // Listing after the stream is open means no change can fall between the two
+            refresh();
+            connected = true;
+            LOGGER.info("Channel subscription open");
+            
+            // The body is a sequence of JSON objects, which needs a lenient reader
+            JsonReader reader = new JsonReader(new Utf8SourceReader(response.body().source()));
+            reader.setLenient(true);
+            
+            while (running && reader.peek() != JsonToken.END_DOCUMENT) {
+                readEvent(reader);
+            }
+        }
+    }
+    
+    /**
+     * Read one {"result": ChannelEventUpdate} or {"error": ...} envelope and apply it
+     */
+    private void readEvent(JsonReader reader) throws IOException {
+        String error = null;
+        
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if ("result".equals(name) && reader.peek() == JsonToken.BEGIN_OBJECT) {
+                applyEvent(reader);
+            } else if ("error".equals(name) && reader.peek() == JsonToken.BEGIN_OBJECT) {
+                error = readErrorMessage(reader);
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        
+        if (error != null) {
+            throw new IOException("Channel stream error: " + error);
+        }
+    }
+    
+    /**
+     * Apply one ChannelEventUpdate to the table and the snapshot
+     */
+    private void applyEvent(JsonReader reader) throws IOException {
+        Channel opened = null;
+        String closed = null;
+        String activated = null;
+        String deactivated = null;
+        String pending = null;
+        
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (reader.peek() == JsonToken.NULL) {
+                reader.nextNull();
+                continue;
+            }
+            switch (name) {
+                case "open_channel":
+                    opened = CHANNEL_ADAPTER.read(reader);
+                    break;
+                case "closed_channel":
+                    closed = readField(reader, "channel_point");
+                    break;
+                case "fully_resolved_channel":
+                    closed = readOutpoint(reader);
+                    break;
+                case "active_channel":
+                    activated = readOutpoint(reader);
+                    break;
+                case "inactive_channel":
+                    deactivated = readOutpoint(reader);
+                    break;
+                case "pending_open_channel":
+                    pending = readOutpoint(reader);
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+            }
+        }
+        reader.endObject();
+        
+        Channel changed = null;
+        String removed = null;
+        synchronized (this) {
+            String touched = opened != null ? opened.getChannelPoint()
+                    : closed != null ? closed
+                    : activated != null ? activated
+                    : deactivated != null ? deactivated : pending;
+            if (touched != null && !listings.isEmpty()) {
+                eventSequences.put(touched, ++eventSequence);
+            }
+            if (opened != null) {
+                // Keeps the fee policy already known for the outpoint; a new channel gets it from the next listing
+                Channel previous = byChannelPoint.get(opened.getChannelPoint());
+                if (previous != null) {
+                    opened.setFeeBaseMsat(previous.getFeeBaseMsat());
+                    opened.setFeeRatePpm(previous.getFeeRatePpm());
+                }
+                index(opened);
+                changed = opened;
+            } else if (closed != null) {
+                if (unindex(closed) != null) {
+                    removed = closed;
+                }
+            } else if (activated != null || deactivated != null) {
+                Channel previous = byChannelPoint.get(activated != null ? activated : deactivated);
+                if (previous != null) {
+                    changed = previous.copy();
+                    changed.setActive(activated != null);
+                    index(changed);
+                }
+            } else if (pending != null && !byChannelPoint.containsKey(pending)) {
+                // Only the outpoint is known until the channel opens or the next listing
+                changed = new Channel();
+                changed.setChannelPoint(pending);
+                changed.setStatus(Channel.STATUS_PENDING_OPEN);
+                index(changed);
+            }
+            
+            try {
+                if (changed != null) {
+                    database.saveChannel(changed);
+                } else if (removed != null) {
+                    database.deleteChannel(removed);
+                }
+            } catch (SQLException e) {
+                LOGGER.log(Level.WARNING, "Failed to store a channel update", e);
+            }
+        }
+        if (changed != null || removed != null) {
+            notifyListeners();
+        }
+    }
+    
+    private void notifyListeners() {
+        for (Listener listener : listeners) {
+            try {
+                listener.channelsChanged();
+            } catch (RuntimeException e) {
+                LOGGER.log(Level.WARNING, "Channel listener failed", e);
+            }
+        }
+    }
+    
+    /**
+     * Read the channels array of a listchannels response
+     */
+    private static void readChannels(Response response, List<Channel> channels) throws IOException {
+        if (!response.isSuccessful()) {
+            throw new IOException("Failed to list channels: " + response);
+        }
+        JsonReader in = new JsonReader(new Utf8SourceReader(response.body().source()));
+        in.beginObject();
+        while (in.hasNext()) {
+            if ("channels".equals(in.nextName()) && in.peek() == JsonToken.BEGIN_ARRAY) {
+                in.beginArray();
+                while (in.hasNext()) {
+                    channels.add(CHANNEL_ADAPTER.read(in));
+                }
+                in.endArray();
+            } else {
+                in.skipValue();
+            }
+        }
+        in.endObject();
+    }
+    
+    /**
+     * Read the channel of every entry of a pendingchannels response, with its pending state
+     */
+    private static void readPendingChannels(Response response, List<Channel> channels) throws IOException {
+        if (!response.isSuccessful()) {
+            throw new IOException("Failed to list pending channels: " + response);
+        }
+        JsonReader in = new JsonReader(new Utf8SourceReader(response.body().source()));
+        in.beginObject();
+        while (in.hasNext()) {
+            String name = in.nextName();
+            String status;
+            switch (name) {
+                case "pending_open_channels":
+                    status = Channel.STATUS_PENDING_OPEN;
+                    break;
+                case "pending_closing_channels":
+                case "waiting_close_channels":
+                    status = Channel.STATUS_PENDING_CLOSE;
+                    break;
+                case "pending_force_closing_channels":
+                    status = Channel.STATUS_FORCE_CLOSING;
+                    break;
+                default:
+                    status = null;
+                    break;
+            }
+            if (status == null || in.peek() != JsonToken.BEGIN_ARRAY) {
+                in.skipValue();
+                continue;
+            }
+            in.beginArray();
+            while (in.hasNext()) {
+                in.beginObject();
+                while (in.hasNext()) {
+                    if ("channel".equals(in.nextName()) && in.peek() == JsonToken.BEGIN_OBJECT) {
+                        Channel channel = CHANNEL_ADAPTER.read(in);
+                        channel.setStatus(status);
+                        channels.add(channel);
+                    } else {
+                        in.skipValue();
+                    }
+                }
+                in.endObject();
+            }
+            in.endArray();
+        }
+        in.endObject();
+    }
+    
+    /**
+     * Read a fee report into base fee and fee rate by channel point
+     */
+    private static Map<String, long[]> readFeeReport(Response response) throws IOException {
+        if (!response.isSuccessful()) {
+            throw new IOException("Failed to get fee report: " + response);
+        }
+        Map<String, long[]> fees = new HashMap<>();
+        JsonReader in = new JsonReader(new Utf8SourceReader(response.body().source()));
+        in.beginObject();
+        while (in.hasNext()) {
+            if (!"channel_fees".equals(in.nextName()) || in.peek() != JsonToken.BEGIN_ARRAY) {
+                in.skipValue();
+                continue;
+            }
+            in.beginArray();
+            while (in.hasNext()) {
+                String channelPoint = null;
+                long[] policy = new long[2];
+                in.beginObject();
+                while (in.hasNext()) {
+                    switch (in.nextName()) {
+                        case "channel_point":
+                            channelPoint = in.nextString();
+                            break;
+                        case "base_fee_msat":
+                            policy[0] = in.nextLong();
+                            break;
+                        case "fee_per_mil":
+                            policy[1] = in.nextLong();
+                            break;
+                        default:
+                            in.skipValue();
+                            break;
+                    }
+                }
+                in.endObject();
+                if (channelPoint != null) {
+                    fees.put(channelPoint, policy);
+                }
+            }
+            in.endArray();
+        }
+        in.endObject();
+        return fees;
+    }
+    
+    private static void applyFees(Channel channel, long[] policy) {
+        if (policy != null) {
+            channel.setFeeBaseMsat(policy[0]);
+            channel.setFeeRatePpm(policy[1]);
+        }
+    }
+    
+    /**
+     * Read a ChannelPoint or PendingUpdate as txid:index. Transaction id bytes are sent in
+     * internal byte order and are reversed to the usual hex form.
+     */
+    static String readOutpoint(JsonReader in) throws IOException {
+        String txid = null;
+        long outputIndex = 0;
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "funding_txid_str":
+                    txid = in.nextString();
+                    break;
+                case "funding_txid_bytes":
+                case "txid":
+                    txid = reversedHex(Base64.getDecoder().decode(in.nextString()));
+                    break;
+                case "output_index":
+                    outputIndex = in.nextLong();
+                    break;
+                default:
+                    in.skipValue();
+                    break;
+            }
+        }
+        in.endObject();
+        return txid == null ? null : txid + ":" + outputIndex;
+    }
+    
+    private static String reversedHex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (int i = bytes.length - 1; i >= 0; i--) {
+            hex.append(Character.forDigit((bytes[i] >> 4) & 0xf, 16));
+            hex.append(Character.forDigit(bytes[i] & 0xf, 16));
+        }
+        return hex.toString();
+    }
+    
+    /**
+     * Read one string field of an object, skipping the rest
+     */
+    private static String readField(JsonReader in, String field) throws IOException {
+        String value = null;
+        in.beginObject();
+        while (in.hasNext()) {
+            if (field.equals(in.nextName()) && in.peek() == JsonToken.STRING) {
+                value = in.nextString();
+            } else {
+                in.skipValue();
+            }
+        }
+        in.endObject();
+        return value;
+    }
+    
+    /**
+     * Extract the message from a gateway error object
+     */
+    private static String readErrorMessage(JsonReader reader) throws IOException {
+        String message = readField(reader, "message");
+        return message == null ? "unknown error" : message;
     }
-}
\ No newline at end of file
+}
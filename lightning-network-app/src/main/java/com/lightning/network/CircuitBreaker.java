@@ -0,0 +1,207 @@
+package com.lightning.network;
+
+import java.time.Duration;
+import java.util.function.LongSupplier;
+
+/**
+ * Circuit breaker guarding calls to one node endpoint.
+ *
+ * After a run of consecutive failures the breaker opens and calls fail immediately
+ * instead of waiting for connect timeouts. Once the open period has passed, a single
+ * probe call is let through (half-open): success closes the breaker, failure opens it
+ * again for twice as long, up to a maximum. Successful calls also feed a moving average
+ * of latency used to rank endpoints.
+ */
+public class CircuitBreaker {
+    
+    /**
+     * Breaker states
+     */
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+    
+    // Weight of the newest sample in the latency moving average
+    private static final double LATENCY_SMOOTHING = 0.2;
+    
+    private final int failureThreshold;
+    private final long initialOpenNanos;
+    private final long maxOpenNanos;
+    private final LongSupplier clock;
+    
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openNanos;
+    private long openUntil;
+    private boolean probeInFlight;
+    private double averageLatencyNanos = -1;
+    private long successCount;
+    private long failureCount;
+    private long rejectedCount;
+    
+    /**
+     * Create a breaker
+     * @param failureThreshold Consecutive failures that open the breaker
+     * @param initialOpen How long the breaker stays open the first time
+     * @param maxOpen Upper bound for the open period after repeated failed probes
+     */
+    public CircuitBreaker(int failureThreshold, Duration initialOpen, Duration maxOpen) {
+        this(failureThreshold, initialOpen, maxOpen, System::nanoTime);
+    }
+    
+    /**
+     * Create a breaker with an explicit nanosecond clock
+     */
+    CircuitBreaker(int failureThreshold, Duration initialOpen, Duration maxOpen, LongSupplier clock) {
+        this.failureThreshold = failureThreshold;
+        this.initialOpenNanos = initialOpen.toNanos();
+        this.maxOpenNanos = maxOpen.toNanos();
+        this.openNanos = initialOpenNanos;
+        this.clock = clock;
+    }
+    
+    /**
+     * Ask to make a call. Returns false while open; after the open period, admits one probe.
+     * Every admitted call must be followed by exactly one of
+     * {@link #onSuccess(long)}, {@link #onFailure()} or {@link #onAbandoned()}.
+     */
+    public synchronized boolean tryAcquire() {
+        switch (state) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                if (clock.getAsLong() - openUntil < 0) {
+                    rejectedCount++;
+                    return false;
+                }
+                state = State.HALF_OPEN;
+                probeInFlight = true;
+                return true;
+            default:
+                if (probeInFlight) {
+                    rejectedCount++;
+                    return false;
+                }
+                probeInFlight = true;
+                return true;
+        }
+    }
+    
+    /**
+     * Whether a call would currently be admitted, without claiming the probe slot
+     */
+    public synchronized boolean isCallPermitted() {
+        switch (state) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                return clock.getAsLong() - openUntil >= 0;
+            default:
+                return !probeInFlight;
+        }
+    }
+    
+    /**
+     * Record a call that reached the endpoint
+     * @param latencyNanos How long the call took
+     */
+    public synchronized void onSuccess(long latencyNanos) {
+        successCount++;
+        consecutiveFailures = 0;
+        probeInFlight = false;
+        openNanos = initialOpenNanos;
+        state = State.CLOSED;
+        
+        averageLatencyNanos = averageLatencyNanos < 0 ? latencyNanos
+                : LATENCY_SMOOTHING * latencyNanos + (1 - LATENCY_SMOOTHING) * averageLatencyNanos;
+    }
+    
+    /**
+     * Record a call that could not reach the endpoint
+     */
+    public synchronized void onFailure() {
+        failureCount++;
+        consecutiveFailures++;
+        
+        if (state == State.HALF_OPEN) {
+            probeInFlight = false;
+            openNanos = Math.min(openNanos * 2, maxOpenNanos);
+            open();
+        } else if (state == State.CLOSED && consecutiveFailures >= failureThreshold) {
+            open();
+        }
+    }
+    
+    /**
+     * Record an admitted call that was cancelled before it had an outcome
+     */
+    public synchronized void onAbandoned() {
+        probeInFlight = false;
+    }
+    
+    /**
+     * Close the breaker and forget failures, e.g. after the user changed settings
+     */
+    public synchronized void reset() {
+        state = State.CLOSED;
+        consecutiveFailures = 0;
+        probeInFlight = false;
+        openNanos = initialOpenNanos;
+    }
+    
+    /**
+     * Current state; an open breaker whose period has passed reports HALF_OPEN
+     */
+    public synchronized State getState() {
+        if (state == State.OPEN && clock.getAsLong() - openUntil >= 0) {
+            return State.HALF_OPEN;
+        }
+        return state;
+    }
+    
+    /**
+     * Time until an open breaker admits a probe, or zero
+     */
+    public synchronized Duration getRetryAfter() {
+        if (state != State.OPEN) {
+            return Duration.ZERO;
+        }
+        return Duration.ofNanos(Math.max(0, openUntil - clock.getAsLong()));
+    }
+    
+    /**
+     * Moving average latency of successful calls in nanoseconds, or -1 before the first success
+     */
+    public synchronized double getAverageLatencyNanos() {
+        return averageLatencyNanos;
+    }
+    
+    /**
+     * Number of calls that reached the endpoint
+     */
+    public synchronized long getSuccessCount() {
+        return successCount;
+    }
+    
+    /**
+     * Number of calls that failed to reach the endpoint
+     */
+    public synchronized long getFailureCount() {
+        return failureCount;
+    }
+    
+    /**
+     * Number of calls failed fast while open
+     */
+    public synchronized long getRejectedCount() {
+        return rejectedCount;
+    }
+    
+    /**
+     * Move to OPEN for the current open period
+     */
+    private void open() {
+        state = State.OPEN;
+        openUntil = clock.getAsLong() + openNanos;
+    }
+}
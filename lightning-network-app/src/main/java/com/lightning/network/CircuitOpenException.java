@@ -0,0 +1,28 @@
+package com.lightning.network;
+
+import java.io.IOException;
+import java.time.Duration;
+
+/**
+ * Thrown instead of making a call when the endpoint's circuit breaker is open
+ */
+public class CircuitOpenException extends IOException {
+    private final Duration retryAfter;
+    
+    /**
+     * Create the exception
+     * @param message Description of the unavailable endpoint
+     * @param retryAfter Time until the next probe is allowed
+     */
+    public CircuitOpenException(String message, Duration retryAfter) {
+        super(message + " (retry in " + Math.max(1, retryAfter.toSeconds()) + "s)");
+        this.retryAfter = retryAfter;
+    }
+    
+    /**
+     * Get the time until the next probe is allowed
+     */
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+}
@@ -0,0 +1,273 @@
+package com.lightning.network;
+
+import com.lightning.model.LightningInfo;
+
+import java.net.InetAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Connection diagnostics run as a graph of concurrent probes.
+ *
+ * Independent checks (standard endpoints, the configured endpoint, the Bitcoin node)
+ * start together. Checks that depend on an earlier result chain onto it: port discovery
+ * and the host reachability test follow a failed endpoint probe, the API test follows a
+ * successful one. Each section is reported as soon as it completes, and the full report
+ * keeps the usual section order. The run takes about as long as the slowest chain.
+ */
+public class ConnectionDiagnostics {
+    private static final Logger LOGGER = Logger.getLogger(ConnectionDiagnostics.class.getName());
+    
+    // Default for Bitcoin Core RPC
+    private static final int BITCOIN_CORE_RPC_PORT = 8332;
+    
+    /**
+     * Receives report sections as their checks complete; called on a diagnostics thread
+     */
+    public interface Listener {
+        void onSectionCompleted(String section);
+    }
+    
+    private final LightningNetworkService service;
+    private final String host;
+    private final int port;
+    
+    /**
+     * Create diagnostics for the configured endpoint
+     * @param service Service used for probes, port discovery and the API test
+     * @param host Configured node host
+     * @param port Configured node port
+     */
+    public ConnectionDiagnostics(LightningNetworkService service, String host, int port) {
+        this.service = service;
+        this.host = host;
+        this.port = port;
+    }
+    
+    /**
+     * Start all checks
+     * @param listener Notified of each section as it completes, or null
+     * @return A future completed with the full report
+     */
+    public CompletableFuture<String> run(Listener listener) {
+        AtomicInteger threadCount = new AtomicInteger();
+        ExecutorService executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "diagnostics-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        
+        StringBuilder header = new StringBuilder();
+        header.append("Connection Diagnostics Report:\n");
+        header.append("------------------------\n");
+        header.append("Time: ").append(LocalDateTime.now()).append("\n");
+        header.append("Configured Host: ").append(host).append("\n");
+        header.append("Configured Port: ").append(port).append("\n\n");
+        
+        // Check standard endpoints
+        header.append("Testing standard endpoints:\n");
+        
+        CompletableFuture<String> bitcoinRpc = probe(executor, NetworkConstants.DEFAULT_BITCOIN_HOST,
+                NetworkConstants.DEFAULT_BITCOIN_PORT, 2000)
+                .thenApply(up -> "Bitcoin RPC (" + NetworkConstants.BITCOIN_RPC_URL + "): " + available(up) + "\n");
+        
+        CompletableFuture<String> lightningRpc = probe(executor, NetworkConstants.DEFAULT_LIGHTNING_HOST,
+                NetworkConstants.DEFAULT_LIGHTNING_RPC_PORT, 2000)
+                .thenApply(up -> "Lightning RPC (" + NetworkConstants.LIGHTNING_RPC_URL + "): " + available(up) + "\n");
+        
+        CompletableFuture<String> lightningRest = probe(executor, NetworkConstants.DEFAULT_LIGHTNING_HOST,
+                NetworkConstants.DEFAULT_LIGHTNING_REST_PORT, 2000)
+                .thenApply(up -> "Lightning REST API (" + NetworkConstants.LIGHTNING_REST_API_URL + "): "
+                        + available(up) + "\n\n");
+        
+        // Basic connectivity check with configured endpoint
+        CompletableFuture<Boolean> configured = probe(executor, host, port, 2000);
+        CompletableFuture<String> configuredLine = configured
+                .thenApply(up -> "Configured Endpoint Connectivity: " + (up ? "SUCCESS" : "FAILED") + "\n");
+        
+        // Check Bitcoin node status
+        CompletableFuture<String> bitcoinNode = probe(executor, NetworkConstants.DEFAULT_BITCOIN_HOST,
+                BITCOIN_CORE_RPC_PORT, 1000)
+                .thenApply(up -> "Checking Bitcoin Node...\nBitcoin Node Reachable: " + (up ? "YES" : "NO") + "\n");
+        
+        // Follow-up checks depend on whether the configured endpoint answered
+        CompletableFuture<String> followUp = configured.thenCompose(
+                up -> up ? testApi(executor) : discoverAlternatives(executor));
+        
+        // Request statistics are taken last so they include the API test
+        CompletableFuture<String> requestStats = followUp.thenApply(done -> "\nRequest Metrics:\n"
+                + service.getRequestMetrics().report()
+                + "Retries: " + service.getRetryMetrics() + "\n"
+                + "\nTraffic Classes:\n"
+                + service.getBulkhead().report());
+        
+        List<CompletableFuture<String>> sections = Arrays.asList(
+                bitcoinRpc, lightningRpc, lightningRest, configuredLine, bitcoinNode, followUp, requestStats);
+        
+        if (listener != null) {
+            notify(listener, header.toString());
+            for (CompletableFuture<String> section : sections) {
+                section.thenAccept(text -> notify(listener, text));
+            }
+        }
+        
+        CompletableFuture<String> report = CompletableFuture.allOf(sections.toArray(new CompletableFuture[0]))
+                .thenApply(done -> {
+                    StringBuilder diagnostics = new StringBuilder(header);
+                    for (CompletableFuture<String> section : sections) {
+                        diagnostics.append(section.join());
+                    }
+                    return diagnostics.toString();
+                });
+        report.whenComplete((text, error) -> executor.shutdown());
+        return report;
+    }
+    
+    /**
+     * Check TCP connectivity on a diagnostics thread
+     */
+    private CompletableFuture<Boolean> probe(ExecutorService executor, String probeHost, int probePort, int timeoutMs) {
+        return CompletableFuture.supplyAsync(() -> service.isNodeRunning(probeHost, probePort, timeoutMs), executor);
+    }
+    
+    /**
+     * Look for the node on other ports while checking whether the host answers at all
+     */
+    private CompletableFuture<String> discoverAlternatives(ExecutorService executor) {
+        CompletableFuture<Integer> discoveredPort = CompletableFuture.supplyAsync(
+                () -> service.discoverNodePort(host), executor);
+        CompletableFuture<String> hostReachability = CompletableFuture.supplyAsync(this::checkHostReachable, executor);
+        
+        return discoveredPort.thenCombine(hostReachability, (found, reachability) -> {
+            StringBuilder diagnostics = new StringBuilder("Attempting port discovery...\n");
+            if (found > 0) {
+                diagnostics.append("Found alternative port: ").append(found).append("\n");
+                diagnostics.append("Recommendation: Update configuration to use port ").append(found).append("\n");
+            } else {
+                diagnostics.append("No alternative ports found\n");
+                diagnostics.append(reachability);
+            }
+            return diagnostics.toString();
+        });
+    }
+    
+    /**
+     * Check if the host itself is reachable
+     */
+    private String checkHostReachable() {
+        StringBuilder diagnostics = new StringBuilder();
+        try {
+            InetAddress address = InetAddress.getByName(host);
+            boolean reachable = address.isReachable(2000);
+            diagnostics.append("Host Reachable: ").append(reachable ? "YES" : "NO").append("\n");
+            
+            if (!reachable) {
+                diagnostics.append("Recommendations:\n");
+                diagnostics.append("1. Check if Lightning node is running\n");
+                diagnostics.append("2. Verify host address is correct\n");
+                diagnostics.append("3. Check network connectivity and firewall settings\n");
+            }
+        } catch (Exception e) {
+            diagnostics.append("Host lookup failed: ").append(e.getMessage()).append("\n");
+            diagnostics.append("Recommendation: Verify the host address is correct\n");
+        }
+        return diagnostics.toString();
+    }
+    
+    /**
+     * Try an API call once connectivity is confirmed; bypasses the info cache so a down node cannot look healthy
+     */
+    private CompletableFuture<String> testApi(ExecutorService executor) {
+        return CompletableFuture.supplyAsync(() -> {
+            StringBuilder diagnostics = new StringBuilder();
+            try {
+                LightningInfo info = service.getInfo(NodeBackend.REST);
+                diagnostics.append("API Test: SUCCESS\n");
+                diagnostics.append("Node Alias: ").append(info.getAlias()).append("\n");
+                diagnostics.append("Pubkey: ").append(info.getIdentityPubkey()).append("\n");
+                diagnostics.append("Synced to Chain: ").append(info.isSyncedToChain() ? "YES" : "NO").append("\n");
+                diagnostics.append("Block Height: ").append(info.getBlockHeight()).append("\n");
+            } catch (Exception e) {
+                diagnostics.append("API Test: FAILED\n");
+                diagnostics.append("Error: ").append(e.getMessage()).append("\n");
+                
+                // Check for sync issues in the error message
+                if (isSyncError(e.getMessage())) {
+                    diagnostics.append("\nPossible Synchronization Issue Detected:\n");
+                    diagnostics.append("The Lightning node appears to be running but might be synchronizing with the Bitcoin blockchain.\n");
+                    diagnostics.append("This process can take some time and may cause connection resets or API failures.\n");
+                    diagnostics.append("Recommendation: Wait for the node to fully synchronize and try again later.\n");
+                    appendSyncLogLines(diagnostics);
+                } else {
+                    diagnostics.append("Recommendation: Lightning node may be running but API access is restricted\n");
+                }
+            }
+            return diagnostics.toString();
+        }, executor);
+    }
+    
+    /**
+     * Whether an API error looks like the node is still syncing
+     */
+    private static boolean isSyncError(String message) {
+        return message != null
+                && (message.contains("Connection reset")
+                || message.contains("sync")
+                || message.contains("height")
+                || message.contains("Block height out of range"));
+    }
+    
+    /**
+     * Append recent sync-related lines from the local Lightning node log, if present
+     */
+    private static void appendSyncLogLines(StringBuilder diagnostics) {
+        try {
+            String homeDir = System.getProperty("user.home");
+            Path logPath = Path.of(homeDir, "Developments", "java-dev", "java-lnp-wallet",
+                    "bitcoin-lightning-dev", "logs", "lightning", "lightning.log");
+            
+            if (Files.exists(logPath)) {
+                diagnostics.append("\nChecking Lightning node logs...\n");
+                List<String> logLines = Files.readAllLines(logPath);
+                
+                // Get the last few lines that might contain sync info
+                int startIndex = Math.max(0, logLines.size() - 10);
+                for (int i = startIndex; i < logLines.size(); i++) {
+                    String line = logLines.get(i);
+                    if (line.contains("sync") || line.contains("chain") || line.contains("block")) {
+                        diagnostics.append("Log: ").append(line).append("\n");
+                    }
+                }
+            }
+        } catch (Exception logEx) {
+            // Ignore log reading errors
+        }
+    }
+    
+    /**
+     * Hand a section to the listener, isolating listener failures
+     */
+    private static void notify(Listener listener, String section) {
+        try {
+            listener.onSectionCompleted(section);
+        } catch (RuntimeException e) {
+            LOGGER.log(Level.WARNING, "Diagnostics listener failed", e);
+        }
+    }
+    
+    /**
+     * Format an endpoint probe result
+     */
+    private static String available(boolean up) {
+        return up ? "AVAILABLE" : "NOT AVAILABLE";
+    }
+}
@@ -0,0 +1,187 @@
+package com.lightning.network;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * Health model for the REST endpoints a node may be reachable on.
+ *
+ * Each endpoint has its own circuit breaker. Endpoints are ranked by recorded
+ * outcomes: endpoints that have answered come first, fastest first, followed by
+ * untried endpoints in configuration order and then endpoints due for a half-open
+ * probe. Endpoints whose breaker is open are skipped entirely.
+ */
+public class EndpointHealth {
+    private static final Logger LOGGER = Logger.getLogger(EndpointHealth.class.getName());
+    
+    // Consecutive failures before an endpoint is taken out of rotation
+    private static final int FAILURE_THRESHOLD = 2;
+    private static final Duration INITIAL_OPEN = Duration.ofSeconds(5);
+    private static final Duration MAX_OPEN = Duration.ofSeconds(60);
+    
+    /**
+     * A candidate base URL and its breaker
+     */
+    public static final class Endpoint {
+        private final String baseUrl;
+        private final boolean https;
+        private final int port;
+        private final int priority;
+        private final CircuitBreaker breaker;
+        
+        Endpoint(String baseUrl, boolean https, int port, int priority, CircuitBreaker breaker) {
+            this.baseUrl = baseUrl;
+            this.https = https;
+            this.port = port;
+            this.priority = priority;
+            this.breaker = breaker;
+        }
+        
+        /**
+         * Base URL including the /v1 prefix
+         */
+        public String getBaseUrl() {
+            return baseUrl;
+        }
+        
+        /**
+         * Whether the endpoint uses TLS
+         */
+        public boolean isHttps() {
+            return https;
+        }
+        
+        /**
+         * Port of the endpoint, or -1 if unknown
+         */
+        public int getPort() {
+            return port;
+        }
+        
+        /**
+         * Breaker guarding this endpoint
+         */
+        public CircuitBreaker getBreaker() {
+            return breaker;
+        }
+        
+        @Override
+        public String toString() {
+            return baseUrl + " [" + breaker.getState() + "]";
+        }
+    }
+    
+    private volatile List<Endpoint> endpoints = new ArrayList<>();
+    
+    /**
+     * Replace the candidate endpoints. Breakers of endpoints that remain are kept,
+     * so reconfiguring does not forget a recent outage.
+     * @param urls Base URLs in order of preference
+     */
+    public synchronized void configure(List<String> urls) {
+        Map<String, Endpoint> existing = new LinkedHashMap<>();
+        for (Endpoint endpoint : endpoints) {
+            existing.put(endpoint.baseUrl, endpoint);
+        }
+        
+        List<Endpoint> updated = new ArrayList<>();
+        for (String url : urls) {
+            if (updated.stream().anyMatch(e -> e.baseUrl.equals(url))) {
+                continue;
+            }
+            Endpoint previous = existing.get(url);
+            CircuitBreaker breaker = previous != null ? previous.breaker
+                    : new CircuitBreaker(FAILURE_THRESHOLD, INITIAL_OPEN, MAX_OPEN);
+            updated.add(new Endpoint(url, url.startsWith(NetworkConstants.HTTPS_PREFIX), portOf(url),
+                    updated.size(), breaker));
+        }
+        endpoints = updated;
+        LOGGER.fine("Node endpoints: " + updated);
+    }
+    
+    /**
+     * Endpoints that may be called right now, best first
+     */
+    public List<Endpoint> candidates() {
+        List<Endpoint> available = new ArrayList<>();
+        for (Endpoint endpoint : endpoints) {
+            if (endpoint.breaker.isCallPermitted()) {
+                available.add(endpoint);
+            }
+        }
+        available.sort(Comparator.comparingInt(EndpointHealth::rank)
+                .thenComparingDouble(e -> e.breaker.getAverageLatencyNanos())
+                .thenComparingInt(e -> e.priority));
+        return available;
+    }
+    
+    /**
+     * Get all configured endpoints in configuration order
+     */
+    public List<Endpoint> getEndpoints() {
+        return endpoints;
+    }
+    
+    /**
+     * Find the breaker guarding a request URL, or null if it is not a known endpoint
+     */
+    public CircuitBreaker breakerFor(String url) {
+        for (Endpoint endpoint : endpoints) {
+            if (url.startsWith(endpoint.baseUrl)) {
+                return endpoint.breaker;
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * Shortest time until any endpoint admits a probe
+     */
+    public Duration getRetryAfter() {
+        Duration soonest = null;
+        for (Endpoint endpoint : endpoints) {
+            Duration retryAfter = endpoint.breaker.getRetryAfter();
+            if (soonest == null || retryAfter.compareTo(soonest) < 0) {
+                soonest = retryAfter;
+            }
+        }
+        return soonest == null ? Duration.ZERO : soonest;
+    }
+    
+    /**
+     * Close every breaker, e.g. when the user explicitly asks to reconnect
+     */
+    public void resetAll() {
+        for (Endpoint endpoint : endpoints) {
+            endpoint.breaker.reset();
+        }
+    }
+    
+    /**
+     * Healthy endpoints with a track record first, then untried ones, then half-open probes
+     */
+    private static int rank(Endpoint endpoint) {
+        CircuitBreaker.State state = endpoint.breaker.getState();
+        if (state == CircuitBreaker.State.HALF_OPEN) {
+            return 2;
+        }
+        return endpoint.breaker.getAverageLatencyNanos() >= 0 ? 0 : 1;
+    }
+    
+    /**
+     * Extract the port from a base URL such as https://host:8080/v1
+     */
+    private static int portOf(String url) {
+        try {
+            return URI.create(url).getPort();
+        } catch (IllegalArgumentException e) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,582 @@
+package com.lightning.network;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.lightning.network.graph.ChannelGraph;
+import com.lightning.network.graph.FeeEstimate;
+import com.lightning.network.graph.GraphStore;
+import com.lightning.network.graph.RouteFinder;
+import com.lightning.network.json.Utf8SourceReader;
+import okhttp3.Call;
+import okhttp3.Response;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Local copy of the public channel graph, for estimating fees before paying.
+ *
+ * The graph is loaded from describegraph (/v1/graph) each time LND's topology stream
+ * (/v1/graph/subscribe) (re)connects, and kept current from the stream's node updates,
+ * channel policy updates and closed channels in between. A load is parsed into a fresh
+ * {@link ChannelGraph} and swapped in whole, so fee estimates keep using the previous graph
+ * while a mainnet snapshot is downloading.
+ *
+ * With a {@link GraphStore}, every load is saved and every update appended to the store's file, and
+ * starting restores the saved graph before connecting. A saved graph that was current less than
+ * {@link #MAX_SAVED_AGE_MS} ago is kept when the stream opens instead of downloading describegraph again.
+ */
+public class GraphManager {
+    private static final Logger LOGGER = Logger.getLogger(GraphManager.class.getName());
+    
+    // Reconnect backoff bounds in milliseconds
+    private static final long INITIAL_BACKOFF_MS = 1000;
+    private static final long MAX_BACKOFF_MS = 60_000;
+    
+    // Oldest saved graph used as is on startup; older ones miss too many updates and are reloaded
+    static final long MAX_SAVED_AGE_MS = TimeUnit.HOURS.toMillis(6);
+    
+    private final NodeTransport transport;
+    private final GraphStore store;
+    
+    private volatile ChannelGraph graph = new ChannelGraph(16, 16);
+    private volatile boolean loaded;
+    private volatile boolean running;
+    private volatile boolean connected;
+    private volatile Call currentCall;
+    private Thread worker;
+    
+    // When the graph restored from the store was last current, until the stream first opens; 0 otherwise
+    private volatile long restoredAt;
+    
+    /**
+     * Create a graph manager
+     * @param transport Shared transport for the node
+     */
+    public GraphManager(NodeTransport transport) {
+        this(transport, null);
+    }
+    
+    /**
+     * Create a graph manager that keeps the graph in a file between runs
+     * @param transport Shared transport for the node
+     * @param store Store to restore the graph from and save it to, or null to keep it in memory only
+     */
+    public GraphManager(NodeTransport transport, GraphStore store) {
+        this.transport = transport;
+        this.store = store;
+    }
+    
+    /**
+     * Start following the node's graph in the background; does nothing if already running
+     */
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        worker = new Thread(this::run, "graph-subscription");
+        worker.setDaemon(true);
+        worker.start();
+    }
+    
+    /**
+     * Stop following the node and close the stream
+     */
+    public synchronized void stop() {
+        boolean current = connected;
+        running = false;
+        Call call = currentCall;
+        if (call != null) {
+            call.cancel();
+        }
+        if (worker != null) {
+            worker.interrupt();
+            worker = null;
+        }
+        // Closing marks the file current, which it only is while the stream is open
+        if (store != null && current) {
+            try {
+                store.close();
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "Failed to close the graph file", e);
+            }
+        }
+        connected = false;
+    }
+    
+    /**
+     * Whether the topology stream is open, so the graph is current
+     */
+    public boolean isConnected() {
+        return connected;
+    }
+    
+    /**
+     * Whether a full graph has been loaded; until then the graph is empty
+     */
+    public boolean isLoaded() {
+        return loaded;
+    }
+    
+    /**
+     * Get the current graph
+     */
+    public ChannelGraph getGraph() {
+        return graph;
+    }
+    
+    /**
+     * Replace the graph with the node's current view of the network
+     */
+    public void refresh() throws IOException {
+        long start = System.nanoTime();
+        ChannelGraph fresh = new ChannelGraph();
+        try (Response response = transport.execute(RequestClass.BULK.tag(transport.newRequest("/graph")).build())) {
+            if (!response.isSuccessful()) {
+                throw new IOException("Failed to describe graph: " + response);
+            }
+            readGraph(new JsonReader(new Utf8SourceReader(response.body().source())), fresh);
+        }
+        if (store != null) {
+            try {
+                store.save(fresh);
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "Failed to save the channel graph", e);
+            }
+        }
+        graph = fresh;
+        loaded = true;
+        LOGGER.info("Channel graph loaded: " + fresh.getNodeCount() + " nodes, " + fresh.getChannelCount()
+                + " channels in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+    }
+    
+    /**
+     * Load the graph saved by an earlier run, if there is one and nothing was loaded yet
+     * @return Whether a saved graph is now in use
+     */
+    public boolean restore() {
+        if (store == null || loaded) {
+            return false;
+        }
+        long start = System.nanoTime();
+        try {
+            ChannelGraph saved = store.load();
+            if (saved == null) {
+                return false;
+            }
+            restoredAt = store.getUpdatedAt();
+            graph = saved;
+            loaded = true;
+            LOGGER.info("Channel graph restored: " + saved.getNodeCount() + " nodes, " + saved.getChannelCount()
+                    + " channels in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+            return true;
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Ignoring unreadable graph file " + store.getPath(), e);
+            return false;
+        }
+    }
+    
+    /**
+     * Find the cheapest routes for a payment and the fees they would cost
+     * @param source Public key of the paying node
+     * @param localBalances Spendable msat by short channel id of the paying node's channels, or null if unknown
+     */
+    public FeeEstimate estimateFee(String source, String destination, long amountMsat, Map<Long, Long> localBalances) {
+        return new RouteFinder(graph, localBalances).estimate(source, destination, amountMsat);
+    }
+    
+    /**
+     * Connect, load, stream and reconnect until stopped
+     */
+    private void run() {
+        long backoff = INITIAL_BACKOFF_MS;
+        restore();
+        
+        while (running) {
+            try {
+                stream();
+            } catch (IOException e) {
+                if (running) {
+                    LOGGER.log(Level.WARNING, "Graph subscription dropped: " + e.getMessage());
+                }
+            } finally {
+                if (connected) {
+                    backoff = INITIAL_BACKOFF_MS;
+                }
+                connected = false;
+                currentCall = null;
+            }
+            
+            if (!running) {
+                break;
+            }
+            
+            try {
+                LOGGER.fine("Reconnecting graph subscription in " + backoff + " ms");
+                Thread.sleep(backoff);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            backoff = Math.min(backoff * 2, MAX_BACKOFF_MS);
+        }
+        
+        LOGGER.info("Graph subscription stopped");
+    }
+    
+    /**
+     * Open the stream, load the graph once it is accepted, then apply updates until it ends
+     */
+    private void stream() throws IOException {
+        Call call = transport.newStreamingCall(transport.newRequest("/graph/subscribe").build());
+        currentCall = call;
+        if (!running) {
+            call.cancel();
+        }
+        
+        try (Response response = call.execute()) {
+            if (!response.isSuccessful()) {
+                throw new IOException("Failed to subscribe to graph updates: " + response);
+            }
+            
+            // Loading after the stream is open means no update can fall between the two;
+            // a recently saved graph only misses the updates made while the wallet was closed
+            long savedAge = System.currentTimeMillis() - restoredAt;
+            restoredAt = 0;
+            if (savedAge > MAX_SAVED_AGE_MS) {
+                refresh();
+            } else {
+                LOGGER.info("Using the saved channel graph, current " + savedAge / 1000 + " s ago");
+            }
+            connected = true;
+            LOGGER.info("Graph subscription open");
+            
+            // The body is a sequence of JSON objects, which needs a lenient reader
+            JsonReader reader = new JsonReader(new Utf8SourceReader(response.body().source()));
+            reader.setLenient(true);
+            
+            while (running && reader.peek() != JsonToken.END_DOCUMENT) {
+                readUpdate(reader, graph);
+                persist();
+            }
+        }
+    }
+    
+    /**
+     * Append the updates just applied to the store, compacting its file when the journal has grown large
+     */
+    private void persist() {
+        if (store == null) {
+            return;
+        }
+        try {
+            store.flush();
+            if (store.needsCompaction()) {
+                store.save(graph);
+            }
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Failed to save graph updates", e);
+        }
+    }
+    
+    /**
+     * Read one {"result": GraphTopologyUpdate} or {"error": ...} envelope and apply it
+     */
+    static void readUpdate(JsonReader reader, ChannelGraph graph) throws IOException {
+        String error = null;
+        
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if ("result".equals(name) && reader.peek() == JsonToken.BEGIN_OBJECT) {
+                applyUpdate(reader, graph);
+            } else if ("error".equals(name) && reader.peek() == JsonToken.BEGIN_OBJECT) {
+                error = readErrorMessage(reader);
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        
+        if (error != null) {
+            throw new IOException("Graph stream error: " + error);
+        }
+    }
+    
+    /**
+     * Apply the node updates, channel updates and closed channels of a GraphTopologyUpdate
+     */
+    private static void applyUpdate(JsonReader in, ChannelGraph graph) throws IOException {
+        in.beginObject();
+        while (in.hasNext()) {
+            String name = in.nextName();
+            if (in.peek() != JsonToken.BEGIN_ARRAY) {
+                in.skipValue();
+                continue;
+            }
+            in.beginArray();
+            while (in.hasNext()) {
+                switch (name) {
+                    case "node_updates":
+                        readNode(in, graph, "identity_key");
+                        break;
+                    case "channel_updates":
+                        readChannelUpdate(in, graph);
+                        break;
+                    case "closed_chans":
+                        readClosedChannel(in, graph);
+                        break;
+                    default:
+                        in.skipValue();
+                        break;
+                }
+            }
+            in.endArray();
+        }
+        in.endObject();
+    }
+    
+    /**
+     * Read a ChannelGraph response (nodes and edges arrays) into a graph
+     */
+    static void readGraph(JsonReader in, ChannelGraph graph) throws IOException {
+        in.beginObject();
+        while (in.hasNext()) {
+            String name = in.nextName();
+            if ("nodes".equals(name) && in.peek() == JsonToken.BEGIN_ARRAY) {
+                in.beginArray();
+                while (in.hasNext()) {
+                    readNode(in, graph, "pub_key");
+                }
+                in.endArray();
+            } else if ("edges".equals(name) && in.peek() == JsonToken.BEGIN_ARRAY) {
+                in.beginArray();
+                while (in.hasNext()) {
+                    readEdge(in, graph);
+                }
+                in.endArray();
+            } else {
+                in.skipValue();
+            }
+        }
+        in.endObject();
+    }
+    
+    /**
+     * Read a LightningNode or NodeUpdate
+     * @param keyField Name of the public key field, which differs between the two
+     */
+    private static void readNode(JsonReader in, ChannelGraph graph, String keyField) throws IOException {
+        String pubkey = null;
+        String alias = null;
+        in.beginObject();
+        while (in.hasNext()) {
+            String name = in.nextName();
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+            } else if (keyField.equals(name)) {
+                pubkey = in.nextString();
+            } else if ("alias".equals(name)) {
+                alias = in.nextString();
+            } else {
+                in.skipValue();
+            }
+        }
+        in.endObject();
+        if (pubkey != null) {
+            graph.addNode(pubkey, alias);
+        }
+    }
+    
+    /**
+     * Read a ChannelEdge with the policies of both ends
+     */
+    private static void readEdge(JsonReader in, ChannelGraph graph) throws IOException {
+        long chanId = 0;
+        long capacity = 0;
+        String node1 = null;
+        String node2 = null;
+        Policy policy1 = null;
+        Policy policy2 = null;
+        in.beginObject();
+        while (in.hasNext()) {
+            String name = in.nextName();
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                continue;
+            }
+            switch (name) {
+                case "channel_id":
+                    chanId = Long.parseUnsignedLong(in.nextString());
+                    break;
+                case "capacity":
+                    capacity = in.nextLong();
+                    break;
+                case "node1_pub":
+                    node1 = in.nextString();
+                    break;
+                case "node2_pub":
+                    node2 = in.nextString();
+                    break;
+                case "node1_policy":
+                    policy1 = Policy.read(in);
+                    break;
+                case "node2_policy":
+                    policy2 = Policy.read(in);
+                    break;
+                default:
+                    in.skipValue();
+                    break;
+            }
+        }
+        in.endObject();
+        if (node1 == null || node2 == null) {
+            return;
+        }
+        graph.addChannel(chanId, node1, node2, capacity);
+        if (policy1 != null) {
+            policy1.apply(graph, chanId, node1);
+        }
+        if (policy2 != null) {
+            policy2.apply(graph, chanId, node2);
+        }
+    }
+    
+    /**
+     * Read a ChannelEdgeUpdate: one end's new policy, for a known or a newly announced channel
+     */
+    private static void readChannelUpdate(JsonReader in, ChannelGraph graph) throws IOException {
+        long chanId = 0;
+        long capacity = 0;
+        String advertising = null;
+        String connecting = null;
+        Policy policy = null;
+        in.beginObject();
+        while (in.hasNext()) {
+            String name = in.nextName();
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                continue;
+            }
+            switch (name) {
+                case "chan_id":
+                    chanId = Long.parseUnsignedLong(in.nextString());
+                    break;
+                case "capacity":
+                    capacity = in.nextLong();
+                    break;
+                case "advertising_node":
+                    advertising = in.nextString();
+                    break;
+                case "connecting_node":
+                    connecting = in.nextString();
+                    break;
+                case "routing_policy":
+                    policy = Policy.read(in);
+                    break;
+                default:
+                    in.skipValue();
+                    break;
+            }
+        }
+        in.endObject();
+        if (advertising == null || connecting == null) {
+            return;
+        }
+        graph.addChannel(chanId, advertising, connecting, capacity);
+        if (policy != null) {
+            policy.apply(graph, chanId, advertising);
+        }
+    }
+    
+    /**
+     * Read a ClosedChannelUpdate and drop the channel
+     */
+    private static void readClosedChannel(JsonReader in, ChannelGraph graph) throws IOException {
+        long chanId = 0;
+        in.beginObject();
+        while (in.hasNext()) {
+            if ("chan_id".equals(in.nextName()) && in.peek() != JsonToken.NULL) {
+                chanId = Long.parseUnsignedLong(in.nextString());
+            } else {
+                in.skipValue();
+            }
+        }
+        in.endObject();
+        graph.removeChannel(chanId);
+    }
+    
+    /**
+     * Extract the message from a gateway error object
+     */
+    private static String readErrorMessage(JsonReader reader) throws IOException {
+        String message = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if ("message".equals(reader.nextName()) && reader.peek() == JsonToken.STRING) {
+                message = reader.nextString();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return message == null ? "unknown error" : message;
+    }
+    
+    /**
+     * RoutingPolicy as read from the wire, before it is stored in the graph's arrays
+     */
+    private static final class Policy {
+        long baseFeeMsat;
+        long feeRatePpm;
+        int timeLockDelta;
+        long minHtlcMsat;
+        long maxHtlcMsat;
+        boolean disabled;
+        
+        static Policy read(JsonReader in) throws IOException {
+            Policy policy = new Policy();
+            in.beginObject();
+            while (in.hasNext()) {
+                String name = in.nextName();
+                if (in.peek() == JsonToken.NULL) {
+                    in.nextNull();
+                    continue;
+                }
+                switch (name) {
+                    case "fee_base_msat":
+                        policy.baseFeeMsat = in.nextLong();
+                        break;
+                    case "fee_rate_milli_msat":
+                        policy.feeRatePpm = in.nextLong();
+                        break;
+                    case "time_lock_delta":
+                        policy.timeLockDelta = in.nextInt();
+                        break;
+                    case "min_htlc":
+                        policy.minHtlcMsat = in.nextLong();
+                        break;
+                    case "max_htlc_msat":
+                        policy.maxHtlcMsat = in.nextLong();
+                        break;
+                    case "disabled":
+                        policy.disabled = in.nextBoolean();
+                        break;
+                    default:
+                        in.skipValue();
+                        break;
+                }
+            }
+            in.endObject();
+            return policy;
+        }
+        
+        void apply(ChannelGraph graph, long chanId, String from) {
+            graph.updatePolicy(chanId, from, baseFeeMsat, feeRatePpm, timeLockDelta, minHtlcMsat, maxHtlcMsat, disabled);
+        }
+    }
+}
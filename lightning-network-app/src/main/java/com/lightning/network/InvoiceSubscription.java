@@ -0,0 +1,233 @@
+package com.lightning.network;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.lightning.model.Invoice;
+import com.lightning.network.json.InvoiceTypeAdapter;
+import okhttp3.Call;
+import okhttp3.Request;
+import okhttp3.Response;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Long-lived subscription to the node's invoice stream (/v1/invoices/subscribe).
+ *
+ * The node pushes one JSON object per invoice event. Each event is written to the
+ * database and handed to the sync engine's listeners as soon as it arrives, so
+ * settlements show up without waiting for the next poll. The stream is resumed from
+ * the stored add_index and settle_index, which makes the node replay anything missed
+ * while disconnected. Dropped connections are retried with exponential backoff.
+ */
+public class InvoiceSubscription {
+    private static final Logger LOGGER = Logger.getLogger(InvoiceSubscription.class.getName());
+    private static final InvoiceTypeAdapter INVOICE_ADAPTER = new InvoiceTypeAdapter();
+    
+    // Reconnect backoff bounds in milliseconds
+    private static final long INITIAL_BACKOFF_MS = 1000;
+    private static final long MAX_BACKOFF_MS = 60_000;
+    
+    private final NodeTransport transport;
+    private final InvoiceSyncEngine syncEngine;
+    
+    private volatile boolean running;
+    private volatile boolean connected;
+    private volatile Call currentCall;
+    private Thread worker;
+    
+    // Bumped by every start and stop; a worker from an earlier generation exits without touching the state
+    private volatile long generation;
+    
+    /**
+     * Create a subscription
+     * @param transport Shared transport for the node
+     * @param syncEngine Engine that stores events and notifies listeners
+     */
+    public InvoiceSubscription(NodeTransport transport, InvoiceSyncEngine syncEngine) {
+        this.transport = transport;
+        this.syncEngine = syncEngine;
+    }
+    
+    /**
+     * Start streaming in the background; does nothing if already running
+     */
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        long current = ++generation;
+        worker = new Thread(() -> run(current), "invoice-subscription");
+        worker.setDaemon(true);
+        worker.start();
+    }
+    
+    /**
+     * Stop streaming and close the connection
+     */
+    public synchronized void stop() {
+        running = false;
+        generation++;
+        Call call = currentCall;
+        if (call != null) {
+            call.cancel();
+        }
+        if (worker != null) {
+            worker.interrupt();
+            worker = null;
+        }
+        connected = false;
+    }
+    
+    /**
+     * Whether the stream is currently open; while true, invoice polling is unnecessary
+     */
+    public boolean isConnected() {
+        return connected;
+    }
+    
+    /**
+     * Whether the subscription has been started
+     */
+    public boolean isRunning() {
+        return running;
+    }
+    
+    /**
+     * Whether a worker started in the given generation should keep going
+     */
+    private boolean isCurrent(long workerGeneration) {
+        return running && generation == workerGeneration;
+    }
+    
+    /**
+     * Connect, stream and reconnect until stopped
+     */
+    private void run(long workerGeneration) {
+        long backoff = INITIAL_BACKOFF_MS;
+        
+        while (isCurrent(workerGeneration)) {
+            try {
+                stream(workerGeneration);
+            } catch (IOException e) {
+                if (isCurrent(workerGeneration)) {
+                    LOGGER.log(Level.WARNING, "Invoice subscription dropped: " + e.getMessage());
+                }
+            }
+            
+            synchronized (this) {
+                if (!isCurrent(workerGeneration)) {
+                    break;
+                }
+                // Once the node has accepted a subscription, the next reconnect starts with a short delay
+                if (connected) {
+                    backoff = INITIAL_BACKOFF_MS;
+                }
+                connected = false;
+                currentCall = null;
+            }
+            
+            try {
+                LOGGER.fine("Reconnecting invoice subscription in " + backoff + " ms");
+                Thread.sleep(backoff);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            backoff = Math.min(backoff * 2, MAX_BACKOFF_MS);
+        }
+        
+        LOGGER.info("Invoice subscription stopped");
+    }
+    
+    /**
+     * Open the stream from the stored cursors and apply events until it ends
+     */
+    private void stream(long workerGeneration) throws IOException {
+        long addIndex = syncEngine.getAddIndex();
+        long settleIndex = syncEngine.getSettleIndex();
+        
+        Request request = transport.newRequest("/invoices/subscribe?add_index=" + addIndex
+                        + "&settle_index=" + settleIndex)
+                .build();
+        
+        Call call = transport.newStreamingCall(request);
+        synchronized (this) {
+            if (!isCurrent(workerGeneration)) {
+                return;
+            }
+            currentCall = call;
+        }
+        
+        try (Response response = call.execute()) {
+            if (!response.isSuccessful()) {
+                throw new IOException("Failed to subscribe to invoices: " + response);
+            }
+            
+            synchronized (this) {
+                if (!isCurrent(workerGeneration)) {
+                    return;
+                }
+                connected = true;
+            }
+            LOGGER.info("Invoice subscription open from add_index=" + addIndex + ", settle_index=" + settleIndex);
+            
+            // The body is a sequence of JSON objects, which needs a lenient reader
+            JsonReader reader = new JsonReader(response.body().charStream());
+            reader.setLenient(true);
+            
+            while (isCurrent(workerGeneration) && reader.peek() != JsonToken.END_DOCUMENT) {
+                Invoice invoice = readEvent(reader);
+                if (invoice != null) {
+                    syncEngine.apply(Collections.singletonList(invoice));
+                }
+            }
+        }
+    }
+    
+    /**
+     * Read one {"result": invoice} or {"error": ...} envelope
+     */
+    private Invoice readEvent(JsonReader reader) throws IOException {
+        Invoice invoice = null;
+        String error = null;
+        
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if ("result".equals(name)) {
+                invoice = INVOICE_ADAPTER.read(reader);
+            } else if ("error".equals(name) && reader.peek() == JsonToken.BEGIN_OBJECT) {
+                error = readErrorMessage(reader);
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        
+        if (error != null) {
+            throw new IOException("Invoice stream error: " + error);
+        }
+        return invoice;
+    }
+    
+    /**
+     * Extract the message from a gateway error object
+     */
+    private String readErrorMessage(JsonReader reader) throws IOException {
+        String message = "unknown error";
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if ("message".equals(reader.nextName()) && reader.peek() == JsonToken.STRING) {
+                message = reader.nextString();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return message;
+    }
+}
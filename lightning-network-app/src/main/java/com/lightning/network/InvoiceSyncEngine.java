@@ -0,0 +1,318 @@
+package com.lightning.network;
+
+import com.lightning.db.DatabaseManager;
+import com.lightning.model.Invoice;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Keeps the local invoices table in step with the node using LND's add and settle indexes.
+ *
+ * The highest add_index and settle_index seen are stored in the settings table. Each sync
+ * only pages through invoices added after the stored add_index. Settlements arrive through
+ * the invoice subscription, which replays everything settled after the stored settle_index;
+ * while it is not running, a sync looks up the invoices that are open locally and have not
+ * expired. Either way the cost of a sync follows what changed rather than the size of the
+ * history. Listeners receive the changed invoices so views can apply a delta instead of
+ * reloading everything.
+ */
+public class InvoiceSyncEngine {
+    private static final Logger LOGGER = Logger.getLogger(InvoiceSyncEngine.class.getName());
+    
+    // Settings keys for the persisted cursors
+    public static final String ADD_INDEX_KEY = "invoices.sync.add_index";
+    public static final String SETTLE_INDEX_KEY = "invoices.sync.settle_index";
+    
+    // Deltas larger than this are reported as truncated; listeners should reload from the database
+    private static final int MAX_REPORTED_CHANGES = 1000;
+    
+    // LND's expiry for invoices created without one, assumed for rows stored without an expiry
+    private static final long DEFAULT_EXPIRY_SECONDS = 3600;
+    
+    // Expired invoices are still looked up for this long, to pick up the node cancelling them
+    private static final long EXPIRY_GRACE_SECONDS = 3600;
+    
+    /**
+     * Receives the invoices changed by a sync
+     */
+    public interface Listener {
+        void invoicesChanged(SyncResult result);
+    }
+    
+    /**
+     * Outcome of a single sync run
+     */
+    public static class SyncResult {
+        private final List<Invoice> changed;
+        private final int changedCount;
+        private final boolean truncated;
+        
+        SyncResult(List<Invoice> changed, int changedCount, boolean truncated) {
+            this.changed = Collections.unmodifiableList(changed);
+            this.changedCount = changedCount;
+            this.truncated = truncated;
+        }
+        
+        /**
+         * New or updated invoices in ascending add-index order; empty when truncated
+         */
+        public List<Invoice> getChanged() {
+            return changed;
+        }
+        
+        /**
+         * Total number of invoices written to the database by this run
+         */
+        public int getChangedCount() {
+            return changedCount;
+        }
+        
+        /**
+         * True when the delta was too large to report and views should reload from the database
+         */
+        public boolean isTruncated() {
+            return truncated;
+        }
+        
+        /**
+         * Whether nothing changed
+         */
+        public boolean isEmpty() {
+            return changedCount == 0;
+        }
+    }
+    
+    private final LightningNetworkService service;
+    private final DatabaseManager database;
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private final int pageSize;
+    
+    /**
+     * Create a sync engine using the default page size
+     */
+    public InvoiceSyncEngine(LightningNetworkService service, DatabaseManager database) {
+        this(service, database, NetworkConstants.INVOICE_PAGE_SIZE);
+    }
+    
+    /**
+     * Create a sync engine
+     * @param service Service used to talk to the node
+     * @param database Local database holding invoices and the sync cursors
+     * @param pageSize Number of invoices requested per page
+     */
+    public InvoiceSyncEngine(LightningNetworkService service, DatabaseManager database, int pageSize) {
+        this.service = service;
+        this.database = database;
+        this.pageSize = pageSize;
+    }
+    
+    /**
+     * Register a listener for invoice changes
+     */
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+    
+    /**
+     * Remove a previously registered listener
+     */
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+    
+    /**
+     * Highest add_index stored locally
+     */
+    public long getAddIndex() {
+        return readCursor(ADD_INDEX_KEY);
+    }
+    
+    /**
+     * Highest settle_index stored locally
+     */
+    public long getSettleIndex() {
+        return readCursor(SETTLE_INDEX_KEY);
+    }
+    
+    /**
+     * Bring the local invoices table up to date with the node and notify listeners of the delta
+     */
+    public synchronized SyncResult sync() throws IOException {
+        Delta delta = new Delta(getAddIndex(), getSettleIndex());
+        
+        // Settles are checked first so only invoices already stored locally are re-examined
+        refreshOpenInvoices(delta);
+        fetchNewInvoices(delta);
+        
+        database.saveSetting(ADD_INDEX_KEY, String.valueOf(delta.addIndex));
+        database.saveSetting(SETTLE_INDEX_KEY, String.valueOf(delta.settleIndex));
+        
+        SyncResult result = delta.toResult();
+        if (!result.isEmpty()) {
+            LOGGER.info("Invoice sync applied " + result.getChangedCount() + " change(s), add_index="
+                    + delta.addIndex + ", settle_index=" + delta.settleIndex);
+            fireChanged(result);
+        }
+        return result;
+    }
+    
+    /**
+     * Apply invoices received from another source (such as a subscription) and notify listeners
+     */
+    public synchronized void apply(List<Invoice> invoices) throws IOException {
+        Delta delta = new Delta(getAddIndex(), getSettleIndex());
+        for (Invoice invoice : invoices) {
+            delta.add(invoice);
+        }
+        delta.flush();
+        
+        database.saveSetting(ADD_INDEX_KEY, String.valueOf(delta.addIndex));
+        database.saveSetting(SETTLE_INDEX_KEY, String.valueOf(delta.settleIndex));
+        
+        SyncResult result = delta.toResult();
+        if (!result.isEmpty()) {
+            fireChanged(result);
+        }
+    }
+    
+    /**
+     * Forget the stored cursors so the next sync walks the whole history again
+     */
+    public synchronized void reset() {
+        database.saveSetting(ADD_INDEX_KEY, "0");
+        database.saveSetting(SETTLE_INDEX_KEY, "0");
+    }
+    
+    /**
+     * Page through invoices added since the stored add_index, writing one page per transaction
+     */
+    private void fetchNewInvoices(Delta delta) throws IOException {
+        try {
+            service.forEachInvoice(delta.addIndex, pageSize, false, invoice -> {
+                delta.add(invoice);
+                if (delta.pending.size() >= pageSize) {
+                    try {
+                        delta.flush();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        delta.flush();
+    }
+    
+    /**
+     * Look up invoices that are open locally and may have settled since, unless the subscription
+     * is delivering settlements. Only invoices that have not expired can still settle.
+     */
+    private void refreshOpenInvoices(Delta delta) throws IOException {
+        if (service.getInvoiceSubscription().isRunning()) {
+            return;
+        }
+        
+        long now = System.currentTimeMillis() / 1000;
+        for (String rHash : database.getOpenInvoiceHashes(now - EXPIRY_GRACE_SECONDS, DEFAULT_EXPIRY_SECONDS)) {
+            try {
+                Invoice invoice = service.lookupInvoice(rHash);
+                if (invoice != null) {
+                    delta.add(invoice);
+                }
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "Failed to look up invoice " + rHash, e);
+            }
+        }
+        delta.flush();
+    }
+    
+    /**
+     * Read a cursor from the settings table
+     */
+    private long readCursor(String key) {
+        try {
+            return Long.parseLong(database.getSetting(key, "0"));
+        } catch (NumberFormatException e) {
+            LOGGER.warning("Ignoring invalid invoice sync cursor " + key);
+            return 0;
+        }
+    }
+    
+    /**
+     * Notify listeners, isolating them from each other's failures
+     */
+    private void fireChanged(SyncResult result) {
+        for (Listener listener : listeners) {
+            try {
+                listener.invoicesChanged(result);
+            } catch (RuntimeException e) {
+                LOGGER.log(Level.WARNING, "Invoice sync listener failed", e);
+            }
+        }
+    }
+    
+    /**
+     * Accumulates the changes and cursor movement of one sync run
+     */
+    private class Delta {
+        private final List<Invoice> pending = new ArrayList<>();
+        private final List<Invoice> changed = new ArrayList<>();
+        private long addIndex;
+        private long settleIndex;
+        private int changedCount;
+        private boolean truncated;
+        
+        Delta(long addIndex, long settleIndex) {
+            this.addIndex = addIndex;
+            this.settleIndex = settleIndex;
+        }
+        
+        /**
+         * Queue an invoice for writing and advance the cursors
+         */
+        void add(Invoice invoice) {
+            pending.add(invoice);
+            addIndex = Math.max(addIndex, invoice.getAddIndex());
+            settleIndex = Math.max(settleIndex, invoice.getSettleIndex());
+        }
+        
+        /**
+         * Write queued invoices in one transaction
+         */
+        void flush() throws IOException {
+            if (pending.isEmpty()) {
+                return;
+            }
+            try {
+                database.upsertInvoices(pending);
+            } catch (SQLException e) {
+                throw new IOException("Failed to store synced invoices", e);
+            }
+            
+            changedCount += pending.size();
+            if (!truncated && changed.size() + pending.size() <= MAX_REPORTED_CHANGES) {
+                changed.addAll(pending);
+            } else {
+                truncated = true;
+                changed.clear();
+            }
+            pending.clear();
+        }
+        
+        /**
+         * Build the result reported to callers and listeners
+         */
+        SyncResult toResult() {
+            return new SyncResult(changed, changedCount, truncated);
+        }
+    }
+}
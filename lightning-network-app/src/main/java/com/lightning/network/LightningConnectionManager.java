@@ -9,9 +9,11 @@ import java.net.Socket;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -22,6 +24,9 @@ import java.util.logging.Logger;
 public class LightningConnectionManager {
     private static final Logger LOGGER = Logger.getLogger(LightningConnectionManager.class.getName());
     
+    // Connect timeout for each discovery probe
+    private static final long DISCOVERY_TIMEOUT_MS = 300;
+    
     private final LightningNetworkService lightningService;
     private ConnectionStatus connectionStatus;
     private String lastErrorMessage;
@@ -136,12 +141,10 @@ public class LightningConnectionManager {
                     notifyListeners(ConnectionStatus.CONNECTED, "Connected to Lightning node");
                 }
             } else {
-                // Connection failed, run diagnostics
-                String diagnostics = lightningService.connectionDiagnostics();
-                result.setDiagnostics(diagnostics);
-                
-                // Try to auto-fix the connection
+                // Connection failed, run diagnostics while trying to auto-fix the connection
+                CompletableFuture<String> diagnostics = lightningService.connectionDiagnosticsAsync(null);
                 boolean fixed = lightningService.autoFixConnection();
+                result.setDiagnostics(diagnostics.join());
                 result.setFixed(fixed);
                 
                 if (fixed) {
@@ -222,18 +225,22 @@ public class LightningConnectionManager {
      * @return A list of discovered node addresses
      */
     public List<String> discoverNodes() {
+        return discoverNodes(null);
+    }
+    
+    /**
+     * Discover available Lightning nodes on the local network, reporting each one as soon as it is found
+     * @param listener Notified on the scanning thread for every open endpoint, or null
+     * @return A list of discovered node addresses
+     */
+    public List<String> discoverNodes(NodeDiscoveryScanner.Listener listener) {
         List<String> discoveredNodes = new ArrayList<>();
         
         try {
             // Try to discover on localhost first with different ports
             String localhost = "127.0.0.1";
-            int[] commonPorts = {8080, 10009, 9735, 3000, 8181, 9911};
-            
-            for (int port : commonPorts) {
-                if (testServer(localhost, port, 500)) {
-                    discoveredNodes.add(localhost + ":" + port);
-                }
-            }
+            List<InetSocketAddress> targets = new ArrayList<>(
+                    NodeDiscoveryScanner.hostTargets(localhost, NetworkConstants.COMMON_NODE_PORTS));
             
             // Try to discover on local network if configured
             String localNetworkSearch = lightningService.getSetting("network.discovery", "false");
@@ -244,14 +251,14 @@ public class LightningConnectionManager {
                 String prefix = hostAddress.substring(0, hostAddress.lastIndexOf('.') + 1);
                 
                 // Scan a range of IPs on the local network
-                for (int i = 1; i < 255; i++) {
-                    String host = prefix + i;
-                    for (int port : commonPorts) {
-                        if (testServer(host, port, 200)) {
-                            discoveredNodes.add(host + ":" + port);
-                        }
-                    }
-                }
+                targets.addAll(NodeDiscoveryScanner.subnetTargets(prefix, NetworkConstants.COMMON_NODE_PORTS));
+            }
+            
+            // All connects run concurrently, so the whole sweep takes a few timeouts
+            List<InetSocketAddress> found = new NodeDiscoveryScanner()
+                    .scan(targets, Duration.ofMillis(DISCOVERY_TIMEOUT_MS), listener);
+            for (InetSocketAddress address : found) {
+                discoveredNodes.add(address.getHostString() + ":" + address.getPort());
             }
         } catch (Exception e) {
             LOGGER.log(Level.WARNING, "Error discovering nodes", e);
@@ -2,18 +2,38 @@ package com.lightning.network;
 
 import com.google.gson.Gson;
 import com.google.gson.JsonObject;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
 import com.lightning.db.DatabaseManager;
+import com.lightning.model.Channel;
 import com.lightning.model.Invoice;
+import com.lightning.model.InvoicePage;
 import com.lightning.model.LightningInfo;
 import com.lightning.model.Payment;
 import com.lightning.model.WalletBalance;
+import com.lightning.network.graph.FeeEstimate;
+import com.lightning.network.graph.GraphStore;
+import com.lightning.network.grpc.LndGrpcClient;
+import com.lightning.network.json.InvoicePageReader;
+import com.lightning.network.json.InvoiceTypeAdapter;
+import com.lightning.network.json.LightningInfoTypeAdapter;
+import com.lightning.network.json.PaymentTypeAdapter;
+import com.lightning.network.json.Utf8SourceReader;
+import com.lightning.network.json.WalletBalanceTypeAdapter;
+import com.lightning.util.Bolt11Decoder;
+import com.lightning.util.Bolt11Invoice;
+import com.lightning.util.RefreshingCache;
+import com.lightning.util.SingleFlight;
+import io.grpc.ConnectivityState;
 import okhttp3.*;
 
 import javax.net.ssl.*;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.io.InputStream;
-import java.net.InetAddress;
+import java.io.Reader;
 import java.net.InetSocketAddress;
 import java.net.Socket;
 import java.nio.file.Files;
@@ -24,9 +44,22 @@ import java.security.cert.Certificate;
 import java.security.cert.CertificateFactory;
 import java.security.cert.X509Certificate;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.time.Duration;
 import java.util.Properties;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -38,59 +71,282 @@ public class LightningNetworkService {
     private static final String CONFIG_FILE = "lightning-config.properties";
     private static final String USER_CONFIG_DIR = ".lightning-wallet";
     private static final String USER_CONFIG_FILE = "lightning-config.properties";
+    private static final Duration DEFAULT_ASYNC_DEADLINE = Duration.ofSeconds(NetworkConstants.CONNECTION_TIMEOUT);
+    private static final InvoiceTypeAdapter INVOICE_ADAPTER = new InvoiceTypeAdapter();
+    private static final LightningInfoTypeAdapter INFO_ADAPTER = new LightningInfoTypeAdapter();
+    private static final WalletBalanceTypeAdapter BALANCE_ADAPTER = new WalletBalanceTypeAdapter();
+    private static final PaymentTypeAdapter PAYMENT_ADAPTER = new PaymentTypeAdapter();
+    
+    // Matches the REST gateway's default page size for a plain ListInvoices call
+    private static final int GRPC_DEFAULT_INVOICE_COUNT = 100;
+    
+    // Default cache freshness (seconds) for node info and on-chain balance
+    private static final long DEFAULT_INFO_TTL = 10;
+    private static final long DEFAULT_BALANCE_TTL = 15;
+    private static final long DEFAULT_CACHE_MAX_STALE = 120;
+    
+    // Always trust the node certificate; LND in Docker uses a self-signed cert
+    private static final X509TrustManager TRUST_ALL_MANAGER = new X509TrustManager() {
+        @Override
+        public void checkClientTrusted(X509Certificate[] chain, String authType) {
+        }
+        
+        @Override
+        public void checkServerTrusted(X509Certificate[] chain, String authType) {
+        }
+        
+        @Override
+        public X509Certificate[] getAcceptedIssuers() {
+            return new X509Certificate[]{};
+        }
+    };
     
-    private OkHttpClient client;
-    private String baseUrl;
     private final Gson gson;
-    private boolean useHttps = true;
+    private final NodeTransport transport;
+    
+    // Concurrent identical reads share one in-flight call
+    private final SingleFlight flights = new SingleFlight();
+    
+    // Read-through caches for getInfo()/getWalletBalance(); stale values are served while one refresh runs
+    private final ExecutorService cacheRefresher;
+    private final RefreshingCache<LightningInfo> infoCache;
+    private final RefreshingCache<WalletBalance> balanceCache;
+    
+    // Candidate REST endpoints, each guarded by a circuit breaker
+    private final EndpointHealth endpoints = new EndpointHealth();
     private Properties configProps;
     
+    // False when the service was given its configuration explicitly; nothing is written to the user config then,
+    // and the shared wallet database is left open for the service that loaded the user config
+    private final boolean persistConfig;
+    private InvoiceSyncEngine invoiceSync;
+    private InvoiceSubscription invoiceSubscription;
+    private ChannelManager channelManager;
+    private GraphManager graphManager;
+    
+    // Sends payments through the router and records each attempt as it resolves
+    private final PaymentEngine paymentEngine;
+    private NodeBackend defaultBackend;
+    private LndGrpcClient grpcClient;
+    
     /**
      * Initialize the Lightning Network service
      */
     public LightningNetworkService() {
+        this(null);
+    }
+    
+    /**
+     * Initialize the service with an explicit configuration instead of the user and bundled config files.
+     * Changes the service makes to this configuration (e.g. a working port it discovers) are not saved,
+     * and shutting the service down leaves the shared wallet database open.
+     * @param config Connection settings, or null to load them from the config files
+     */
+    public LightningNetworkService(Properties config) {
         gson = new Gson();
-        configProps = loadConfig();
+        persistConfig = config == null;
+        configProps = config == null ? loadConfig() : config;
+        
+        // The transport (connection pool, TLS sessions, dispatcher) is built once and lives as long as the service
+        transport = createTransport();
+        transport.setHealth(endpoints);
+        paymentEngine = new PaymentEngine(transport);
+        
+        cacheRefresher = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "node-cache-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+        infoCache = new RefreshingCache<>("getinfo", Duration.ofSeconds(DEFAULT_INFO_TTL),
+                Duration.ofSeconds(DEFAULT_CACHE_MAX_STALE), cacheRefresher);
+        balanceCache = new RefreshingCache<>("balance", Duration.ofSeconds(DEFAULT_BALANCE_TTL),
+                Duration.ofSeconds(DEFAULT_CACHE_MAX_STALE), cacheRefresher);
         
         initializeConnection();
     }
     
     /**
-     * Initialize or reinitialize the connection with current properties
+     * Backend used by calls that do not name one explicitly
+     */
+    public NodeBackend getDefaultBackend() {
+        return defaultBackend;
+    }
+    
+    /**
+     * Create the long-lived HTTP transport for this service
+     */
+    private NodeTransport createTransport() {
+        String tlsCertPath = configProps.getProperty("tls.cert.path", "");
+        SSLContext sslContext = configureTLS(tlsCertPath);
+        
+        String host = configProps.getProperty("host", NetworkConstants.DEFAULT_LIGHTNING_HOST);
+        String port = configProps.getProperty("port", String.valueOf(NetworkConstants.DEFAULT_LIGHTNING_REST_PORT));
+        String initialUrl = NetworkConstants.getLightningRestUrl(host, Integer.parseInt(port), sslContext != null);
+        
+        return new NodeTransport(sslContext, TRUST_ALL_MANAGER, initialUrl);
+    }
+    
+    /**
+     * Initialize or reinitialize the connection with current properties.
+     * Only the endpoint changes; pooled connections and TLS sessions are kept.
      */
     public void initializeConnection() {
         // Use Docker-friendly connection settings by default (for development)
         String host = configProps.getProperty("host", NetworkConstants.DEFAULT_LIGHTNING_HOST);
         String port = configProps.getProperty("port", String.valueOf(NetworkConstants.DEFAULT_LIGHTNING_REST_PORT));
-        String tlsCertPath = configProps.getProperty("tls.cert.path", "");
-        
-        // Try HTTPS first
-        useHttps = true;
-        baseUrl = NetworkConstants.getLightningRestUrl(host, Integer.parseInt(port), true);
         
-        OkHttpClient.Builder builder = new OkHttpClient.Builder()
-                .connectTimeout(NetworkConstants.CONNECTION_TIMEOUT, TimeUnit.SECONDS)
-                .readTimeout(NetworkConstants.CONNECTION_TIMEOUT, TimeUnit.SECONDS)
-                .writeTimeout(NetworkConstants.CONNECTION_TIMEOUT, TimeUnit.SECONDS)
-                .retryOnConnectionFailure(true);
-        
-        // Configure TLS for secure communication with the Lightning node
-        if (!configureTLS(builder, tlsCertPath)) {
-            // If TLS configuration fails, try HTTP instead
-            useHttps = false;
-            baseUrl = NetworkConstants.getLightningRestUrl(host, Integer.parseInt(port), false);
+        // Try HTTPS first unless plain HTTP was opted into explicitly (e.g. a local mock node);
+        // useHttps is not consulted because the automatic fallbacks used to write it
+        boolean https = transport.isTlsAvailable()
+                && !"true".equalsIgnoreCase(configProps.getProperty("plaintext.http", "false").trim());
+        if (!transport.isTlsAvailable()) {
+            // If TLS configuration failed, use HTTP instead
             LOGGER.warning("SSL configuration failed. Falling back to HTTP (insecure) connection.");
         }
+        String primaryUrl = NetworkConstants.getLightningRestUrl(host, Integer.parseInt(port), https);
+        switchEndpoint(primaryUrl);
+        configureEndpoints(primaryUrl, https);
+        transport.setMacaroon(loadMacaroonHex());
+        defaultBackend = NodeBackend.fromConfig(configProps.getProperty("node.backend"));
+        configureCaches();
+        configureRetries();
+        configureTraffic();
+        paymentEngine.setDefaults(
+                Duration.ofSeconds(getLongSetting("payments.router.timeout", NetworkConstants.PAYMENT_TIMEOUT)),
+                getLongSetting("payments.router.fee_limit_percent", PaymentEngine.DEFAULT_FEE_LIMIT_PERCENT),
+                (int) getLongSetting("payments.router.max_parts", PaymentEngine.DEFAULT_MAX_PARTS));
         
-        client = builder.build();
-        LOGGER.info("Lightning Network service initialized with URL: " + baseUrl);
+        LOGGER.info("Lightning Network service initialized with URL: " + transport.getBaseUrl());
+    }
+    
+    /**
+     * Apply cache TTLs from the configuration and drop values cached for a previous endpoint
+     */
+    private void configureCaches() {
+        long maxStale = getLongSetting("cache.max_stale", DEFAULT_CACHE_MAX_STALE);
+        infoCache.setPolicy(Duration.ofSeconds(getLongSetting("cache.info.ttl", DEFAULT_INFO_TTL)),
+                Duration.ofSeconds(maxStale));
+        balanceCache.setPolicy(Duration.ofSeconds(getLongSetting("cache.balance.ttl", DEFAULT_BALANCE_TTL)),
+                Duration.ofSeconds(maxStale));
+        infoCache.invalidate();
+        balanceCache.invalidate();
+    }
+    
+    /**
+     * Apply the retry policy from the configuration to regular calls and payment streams
+     */
+    private void configureRetries() {
+        RetryPolicy policy = new RetryPolicy(
+                (int) Math.max(1, getLongSetting("retry.max_attempts", RetryPolicy.DEFAULT.getMaxAttempts())),
+                Duration.ofMillis(getLongSetting("retry.initial_backoff_ms", RetryPolicy.DEFAULT.getInitialBackoff().toMillis())),
+                Duration.ofMillis(getLongSetting("retry.max_backoff_ms", RetryPolicy.DEFAULT.getMaxBackoff().toMillis())));
+        transport.setRetryPolicy(policy);
+        paymentEngine.setRetryPolicy(policy);
+    }
+    
+    /**
+     * Apply the traffic.<class>.concurrency, .rate and .burst settings to the bulkhead lanes
+     */
+    private void configureTraffic() {
+        for (RequestClass requestClass : RequestClass.values()) {
+            String prefix = "traffic." + requestClass.getConfigName() + ".";
+            transport.getBulkhead().configure(requestClass,
+                    (int) getLongSetting(prefix + "concurrency", requestClass.getDefaultConcurrency()),
+                    getLongSetting(prefix + "rate", (long) requestClass.getDefaultRatePerSecond()),
+                    (int) getLongSetting(prefix + "burst", requestClass.getDefaultBurst()));
+        }
+    }
+    
+    /**
+     * Get the per-class concurrency and rate limits of calls to the node
+     */
+    public Bulkhead getBulkhead() {
+        return transport.getBulkhead();
+    }
+    
+    /**
+     * Get per-endpoint latency histograms, error rates, byte counts and in-flight gauges
+     */
+    public RequestMetrics getRequestMetrics() {
+        return transport.getRequestMetrics();
+    }
+    
+    /**
+     * Get the retry counters for calls to the node
+     */
+    public RetryMetrics getRetryMetrics() {
+        return transport.getRetryMetrics();
+    }
+    
+    /**
+     * Read a configuration setting
+     * @param key Property name, e.g. network.discovery
+     * @param defaultValue Value returned when the setting is missing
+     */
+    public String getSetting(String key, String defaultValue) {
+        return configProps.getProperty(key, defaultValue);
+    }
+    
+    /**
+     * Copy of the current configuration, e.g. as the base for another node's settings
+     */
+    Properties copyConfig() {
+        Properties copy = new Properties();
+        for (String key : configProps.stringPropertyNames()) {
+            copy.setProperty(key, configProps.getProperty(key));
+        }
+        return copy;
+    }
+    
+    /**
+     * Read a numeric setting, falling back to the default when missing or malformed
+     */
+    private long getLongSetting(String key, long defaultValue) {
+        String value = configProps.getProperty(key, "").trim();
+        if (value.isEmpty()) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            LOGGER.warning("Invalid value for " + key + ": " + value);
+            return defaultValue;
+        }
+    }
+    
+    /**
+     * Point the shared transport at another endpoint without dropping warm connections
+     */
+    private void switchEndpoint(String url) {
+        transport.switchEndpoint(url);
+    }
+    
+    /**
+     * Register the endpoints the node may answer on, in order of preference: the configured endpoint,
+     * then the standard REST port. Failover never leaves HTTPS, since every request carries the macaroon;
+     * a plain HTTP node is only ever reached as the configured endpoint.
+     */
+    private void configureEndpoints(String primaryUrl, boolean https) {
+        List<String> urls = new ArrayList<>();
+        urls.add(primaryUrl);
+        if (https) {
+            urls.add(NetworkConstants.LIGHTNING_REST_API_URL + "/v1");
+        }
+        endpoints.configure(urls);
+    }
+    
+    /**
+     * Get the health model of the node endpoints, for diagnostics
+     */
+    public EndpointHealth getEndpointHealth() {
+        return endpoints;
     }
     
     /**
      * Configure TLS for secure communication with the Lightning node
-     * @return true if configuration was successful, false otherwise
+     * @return the SSL context to use, or null if configuration failed
      */
-    private boolean configureTLS(OkHttpClient.Builder builder, String certPath) {
+    private SSLContext configureTLS(String certPath) {
         try {
             if (certPath == null || certPath.isEmpty()) {
                 // If no cert path provided, try to find the certificate file in common locations
@@ -119,37 +375,15 @@ public class LightningNetworkService {
             // This is needed because the certificate in Docker may not match the hostname
             LOGGER.info("Using development-mode TLS configuration with all-trusting trust manager");
             
-            final TrustManager[] trustAllCerts = new TrustManager[]{
-                    new X509TrustManager() {
-                        @Override
-                        public void checkClientTrusted(X509Certificate[] chain, String authType) {
-                        }
-                        
-                        @Override
-                        public void checkServerTrusted(X509Certificate[] chain, String authType) {
-                        }
-                        
-                        @Override
-                        public X509Certificate[] getAcceptedIssuers() {
-                            return new X509Certificate[]{};
-                        }
-                    }
-            };
-            
-            // Install the all-trusting trust manager with supported protocols
+            // Install the all-trusting trust manager with supported protocols.
+            // The context is created once so its session cache can be used for TLS resumption.
             final SSLContext sslContext = SSLContext.getInstance("TLS");
-            sslContext.init(null, trustAllCerts, new java.security.SecureRandom());
-            
-            // Create an ssl socket factory with our all-trusting manager
-            final SSLSocketFactory sslSocketFactory = sslContext.getSocketFactory();
+            sslContext.init(null, new TrustManager[]{TRUST_ALL_MANAGER}, new java.security.SecureRandom());
             
-            builder.sslSocketFactory(sslSocketFactory, (X509TrustManager) trustAllCerts[0])
-                   .hostnameVerifier((hostname, session) -> true);
-            
-            return true;
+            return sslContext;
         } catch (Exception e) {
             LOGGER.log(Level.SEVERE, "Failed to set up TLS configuration", e);
-            return false;
+            return null;
         }
     }
     
@@ -159,94 +393,76 @@ public class LightningNetworkService {
      */
     public boolean testConnection() {
         try {
-            // First try current baseUrl
-            Request request = new Request.Builder()
-                    .url(baseUrl + "/getinfo")
-                    .build();
-            
-            Response response = client.newCall(request).execute();
-            if (response.isSuccessful()) {
-                LOGGER.info("Successfully connected to Lightning node using: " + baseUrl);
-                return true;
-            }
-            
-            // If that fails, try standard endpoints
-            
-            // 1. Try Lightning REST API
-            if (!baseUrl.equals(NetworkConstants.LIGHTNING_REST_API_URL + "/v1")) {
-                String host = configProps.getProperty("host", NetworkConstants.DEFAULT_LIGHTNING_HOST);
-                baseUrl = NetworkConstants.LIGHTNING_REST_API_URL + "/v1";
-                useHttps = true;
-                
-                // Reconfigure client for HTTPS
-                OkHttpClient.Builder builder = new OkHttpClient.Builder()
-                        .connectTimeout(NetworkConstants.CONNECTION_TIMEOUT, TimeUnit.SECONDS)
-                        .readTimeout(NetworkConstants.CONNECTION_TIMEOUT, TimeUnit.SECONDS)
-                        .writeTimeout(NetworkConstants.CONNECTION_TIMEOUT, TimeUnit.SECONDS);
-                
-                configureTLS(builder, configProps.getProperty("tls.cert.path", ""));
-                client = builder.build();
-                
-                request = new Request.Builder()
-                        .url(baseUrl + "/getinfo")
-                        .build();
-                
-                try {
-                    response = client.newCall(request).execute();
-                    if (response.isSuccessful()) {
-                        LOGGER.info("Successfully connected to Lightning node using standard REST API: " + baseUrl);
-                        
-                        // Update config with working connection
-                        configProps.setProperty("port", String.valueOf(NetworkConstants.DEFAULT_LIGHTNING_REST_PORT));
-                        saveConfig(configProps);
-                        
-                        return true;
-                    }
-                } catch (Exception e) {
-                    LOGGER.warning("Failed to connect using standard REST API: " + e.getMessage());
-                }
-            }
-            
-            // 2. Try Lightning RPC over HTTP
-            baseUrl = NetworkConstants.LIGHTNING_RPC_URL + "/v1";
-            useHttps = false;
-            
-            // Reconfigure client for HTTP
-            OkHttpClient.Builder builder = new OkHttpClient.Builder()
-                    .connectTimeout(NetworkConstants.CONNECTION_TIMEOUT, TimeUnit.SECONDS)
-                    .readTimeout(NetworkConstants.CONNECTION_TIMEOUT, TimeUnit.SECONDS)
-                    .writeTimeout(NetworkConstants.CONNECTION_TIMEOUT, TimeUnit.SECONDS);
-            
-            client = builder.build();
-            
-            request = new Request.Builder()
-                    .url(baseUrl + "/getinfo")
-                    .build();
-            
-            try {
-                response = client.newCall(request).execute();
-                if (response.isSuccessful()) {
-                    LOGGER.info("Successfully connected to Lightning node using RPC: " + baseUrl);
-                    
-                    // Update config with working connection
-                    configProps.setProperty("port", String.valueOf(NetworkConstants.DEFAULT_LIGHTNING_RPC_PORT));
-                    configProps.setProperty("useHttps", "false");
-                    saveConfig(configProps);
-                    
-                    return true;
-                }
-            } catch (Exception e) {
-                LOGGER.warning("Failed to connect using standard RPC: " + e.getMessage());
-            }
-            
-            LOGGER.severe("Failed to connect to Lightning node using any endpoint");
+            // Walks the endpoints by health; endpoints whose breaker is open are skipped without a network call
+            probeGetInfo();
+            LOGGER.info("Successfully connected to Lightning node using: " + transport.getBaseUrl());
+            rememberWorkingEndpoint();
+            return true;
+        } catch (CircuitOpenException e) {
+            LOGGER.fine("Lightning node still unavailable: " + e.getMessage());
             return false;
         } catch (Exception e) {
-            LOGGER.log(Level.SEVERE, "Error testing connection to Lightning node", e);
+            LOGGER.severe("Failed to connect to Lightning node using any endpoint: " + e.getMessage());
             return false;
         }
     }
     
+    /**
+     * Save the port of the endpoint that answered if it differs from the configured one.
+     * The transport only moves to an endpoint once it has answered, so its current endpoint is a working one.
+     * A plain HTTP fallback never turns HTTPS off in the saved configuration.
+     */
+    private void rememberWorkingEndpoint() {
+        for (EndpointHealth.Endpoint endpoint : endpoints.getEndpoints()) {
+            if (!endpoint.getBaseUrl().equals(transport.getBaseUrl())) {
+                continue;
+            }
+            String port = String.valueOf(endpoint.getPort());
+            if (endpoint.isHttps() && (!port.equals(configProps.getProperty("port"))
+                    || !"true".equals(configProps.getProperty("useHttps")))) {
+                // Update config with working connection
+                configProps.setProperty("port", port);
+                configProps.setProperty("useHttps", "true");
+                saveConfig(configProps);
+            }
+            return;
+        }
+    }
+    
+    /**
+     * Issue a /getinfo request, failing over between the endpoints
+     */
+    private LightningInfo probeGetInfo() throws IOException {
+        try {
+            // Joins a /getinfo already in flight, e.g. from a dashboard refresh
+            return flights.execute(restKey("getinfo"), () -> withFailover(this::fetchInfo));
+        } catch (IOException e) {
+            LOGGER.fine("getinfo probe failed: " + e.getMessage());
+            throw e;
+        }
+    }
+    
+    /**
+     * Coalescing key for a REST read against the current endpoint
+     */
+    private String restKey(String operation) {
+        return operation + " " + transport.getBaseUrl();
+    }
+    
+    /**
+     * Coalescing key for a gRPC read
+     */
+    private static String grpcKey(String operation) {
+        return operation + " grpc";
+    }
+    
+    /**
+     * Get the coalescing layer shared by read calls, for diagnostics
+     */
+    public SingleFlight getSingleFlight() {
+        return flights;
+    }
+    
     /**
      * Load configuration from properties file
      */
@@ -297,6 +513,11 @@ public class LightningNetworkService {
      * Save configuration to properties file in user's home directory
      */
     public void saveConfig(Properties props) {
+        if (!persistConfig) {
+            LOGGER.fine("Configuration was supplied explicitly; not saving it");
+            return;
+        }
+        
         // Create user config directory if it doesn't exist
         Path userConfigDir = Paths.get(System.getProperty("user.home"), USER_CONFIG_DIR);
         Path userConfigPath = userConfigDir.resolve(USER_CONFIG_FILE);
@@ -317,367 +538,805 @@ public class LightningNetworkService {
     }
     
     /**
-     * Get information about the Lightning Network node
+     * Get information about the Lightning Network node.
+     * Served from the in-memory cache while fresh; a stale value is returned immediately while it is refreshed.
+     */
+    public LightningInfo getInfo() throws IOException {
+        return infoCache.get(() -> getInfo(defaultBackend));
+    }
+    
+    /**
+     * Get information about the Lightning Network node over the given backend, bypassing the cache
+     */
+    public LightningInfo getInfo(NodeBackend backend) throws IOException {
+        if (backend == NodeBackend.GRPC) {
+            return flights.execute(grpcKey("getinfo"), () -> getGrpcClient().getInfo());
+        }
+        return flights.execute(restKey("getinfo"), this::getInfoWithFallback);
+    }
+    
+    /**
+     * Fetch /getinfo from the healthiest endpoint, failing over to the others
+     */
+    private LightningInfo getInfoWithFallback() throws IOException {
+        try {
+            return withFailover(this::fetchInfo);
+        } catch (CircuitOpenException e) {
+            throw e;
+        } catch (IOException e) {
+            LOGGER.log(Level.SEVERE, "Failed to get node info", e);
+            throw new IOException("Failed to get node info: " + e.getMessage(), e);
+        }
+    }
+    
+    /**
+     * Run a call against the healthiest endpoint, moving on to the next one if it fails.
+     * Each attempt is given its endpoint's base URL; the shared transport only moves to an endpoint that answered,
+     * so other callers never follow one caller's attempts to a fallback endpoint.
+     * Fails immediately with {@link CircuitOpenException} when every endpoint's breaker is open.
+     */
+    private <T> T withFailover(EndpointCall<T> call) throws IOException {
+        IOException lastError = null;
+        for (EndpointHealth.Endpoint endpoint : endpoints.candidates()) {
+            try {
+                T result = call.call(endpoint.getBaseUrl());
+                switchEndpoint(endpoint.getBaseUrl());
+                return result;
+            } catch (BulkheadFullException e) {
+                // Our own limit, not the endpoint's fault; another endpoint shares the same lanes
+                throw e;
+            } catch (IOException e) {
+                LOGGER.warning("Request to " + endpoint.getBaseUrl() + " failed: " + e.getMessage());
+                lastError = e;
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new IOException(e.getMessage(), e);
+            }
+        }
+        if (lastError != null) {
+            throw lastError;
+        }
+        throw new CircuitOpenException("Lightning node unavailable on all endpoints", endpoints.getRetryAfter());
+    }
+    
+    /**
+     * Fetch /getinfo from an endpoint
+     */
+    private LightningInfo fetchInfo(String endpointUrl) throws IOException {
+        Request request = transport.newRequest(endpointUrl, "/getinfo").build();
+        return execute(request, INFO_ADAPTER, "Failed to get node info");
+    }
+    
+    /**
+     * Execute a request on the shared transport and decode the JSON response body
+     */
+    private <T> T execute(Request request, TypeAdapter<T> adapter, String failureMessage) throws IOException {
+        try (Response response = transport.execute(request)) {
+            return read(response, adapter, failureMessage);
+        }
+    }
+    
+    /**
+     * Stream-decode the JSON body of a response, failing on non-2xx status codes
+     */
+    private static <T> T read(Response response, TypeAdapter<T> adapter, String failureMessage) throws IOException {
+        if (!response.isSuccessful()) {
+            throw new IOException(failureMessage + ": " + response);
+        }
+        return adapter.read(new JsonReader(new Utf8SourceReader(response.body().source())));
+    }
+    
+    /**
+     * Read a single string field of a JSON response, skipping everything else
+     */
+    private static String readString(Response response, String field, String failureMessage) throws IOException {
+        if (!response.isSuccessful()) {
+            throw new IOException(failureMessage + ": " + response);
+        }
+        JsonReader in = new JsonReader(new Utf8SourceReader(response.body().source()));
+        String value = null;
+        in.beginObject();
+        while (in.hasNext()) {
+            if (field.equals(in.nextName()) && in.peek() == JsonToken.STRING) {
+                value = in.nextString();
+            } else {
+                in.skipValue();
+            }
+        }
+        in.endObject();
+        if (value == null) {
+            throw new IOException(failureMessage + ": response has no " + field);
+        }
+        return value;
+    }
+    
+    /**
+     * Read the local balance of a channel balance response; older nodes only report the deprecated balance field
+     */
+    private static long readChannelBalance(Response response) throws IOException {
+        if (!response.isSuccessful()) {
+            throw new IOException("Failed to get channel balance: " + response);
+        }
+        JsonReader in = new JsonReader(new Utf8SourceReader(response.body().source()));
+        long balance = 0;
+        long localBalance = -1;
+        in.beginObject();
+        while (in.hasNext()) {
+            String name = in.nextName();
+            if ("balance".equals(name)) {
+                balance = in.nextLong();
+            } else if ("local_balance".equals(name) && in.peek() == JsonToken.BEGIN_OBJECT) {
+                in.beginObject();
+                while (in.hasNext()) {
+                    if ("sat".equals(in.nextName())) {
+                        localBalance = in.nextLong();
+                    } else {
+                        in.skipValue();
+                    }
+                }
+                in.endObject();
+            } else {
+                in.skipValue();
+            }
+        }
+        in.endObject();
+        return localBalance >= 0 ? localBalance : balance;
+    }
+    
+    /**
+     * Get the wallet balance with fallback to local cache if network fails.
+     * Served from the in-memory cache while fresh; a stale value is returned immediately while it is refreshed.
+     */
+    public WalletBalance getWalletBalance() throws IOException {
+        try {
+            return balanceCache.get(() -> fetchWalletBalance(defaultBackend));
+        } catch (Exception e) {
+            return walletBalanceFallback(e);
+        }
+    }
+    
+    /**
+     * Get the wallet balance over the given backend, bypassing the in-memory cache,
+     * with fallback to local cache if network fails
+     */
+    public WalletBalance getWalletBalance(NodeBackend backend) throws IOException {
+        try {
+            return fetchWalletBalance(backend);
+        } catch (Exception e) {
+            return walletBalanceFallback(e);
+        }
+    }
+    
+    /**
+     * Fetch the wallet balance from the node
+     */
+    private WalletBalance fetchWalletBalance(NodeBackend backend) throws IOException {
+        if (backend == NodeBackend.GRPC) {
+            return flights.execute(grpcKey("balance"), () -> cacheBalance(getGrpcClient().getWalletBalance()));
+        }
+        return flights.execute(restKey("balance"), () -> {
+            Request request = transport.newRequest("/balance/blockchain")
+                    .build();
+            return cacheBalance(execute(request, BALANCE_ADAPTER, "Failed to get wallet balance"));
+        });
+    }
+    
+    /**
+     * Cache the balance for offline mode and return it
+     */
+    private WalletBalance cacheBalance(WalletBalance balance) {
+        saveBalanceToCache(balance);
+        return balance;
+    }
+    
+    /**
+     * Get hit, miss and age statistics for the node info and balance caches
+     */
+    public List<RefreshingCache.Stats> getCacheStats() {
+        return Arrays.asList(infoCache.getStats(), balanceCache.getStats());
+    }
+    
+    /**
+     * Get the last known balance from the local cache, or an empty balance
+     */
+    private WalletBalance walletBalanceFallback(Throwable error) {
+        LOGGER.log(Level.WARNING, "Error getting wallet balance from network, trying local cache", error);
+        // Try to get last known balance from local cache
+        WalletBalance cachedBalance = getBalanceFromCache();
+        if (cachedBalance != null) {
+            return cachedBalance;
+        }
+        
+        // If no cached balance, return empty balance 
+        LOGGER.log(Level.WARNING, "No cached balance available, returning empty balance");
+        return new WalletBalance();
+    }
+    
+    /**
+     * Save balance to local cache for offline mode
+     */
+    private void saveBalanceToCache(WalletBalance balance) {
+        try {
+            // Create path for cache if it doesn't exist
+            Path cacheDir = Paths.get(System.getProperty("user.home"), USER_CONFIG_DIR, "cache");
+            if (!Files.exists(cacheDir)) {
+                Files.createDirectories(cacheDir);
+            }
+            
+            // Save balance to JSON file
+            Path balanceCachePath = cacheDir.resolve(balanceCacheFileName());
+            JsonObject json = new JsonObject();
+            json.addProperty("total_balance", balance.getTotalBalance());
+            json.addProperty("confirmed_balance", balance.getConfirmedBalance());
+            json.addProperty("unconfirmed_balance", balance.getUnconfirmedBalance());
+            json.addProperty("locked_balance", balance.getLockedBalance());
+            json.addProperty("cached_at", System.currentTimeMillis());
+            
+            Files.writeString(balanceCachePath, gson.toJson(json));
+            LOGGER.info("Saved balance to cache: " + balanceCachePath);
+        } catch (Exception e) {
+            LOGGER.log(Level.WARNING, "Failed to save balance to cache", e);
+        }
+    }
+    
+    /**
+     * Offline balance file; nodes other than the primary each get their own
+     */
+    private String balanceCacheFileName() {
+        String node = configProps.getProperty("node.name", "").trim();
+        return node.isEmpty() ? "balance-cache.json" : "balance-cache-" + node + ".json";
+    }
+    
+    /**
+     * Get balance from local cache for offline mode
+     */
+    private WalletBalance getBalanceFromCache() {
+        try {
+            Path cacheDir = Paths.get(System.getProperty("user.home"), USER_CONFIG_DIR, "cache");
+            Path balanceCachePath = cacheDir.resolve(balanceCacheFileName());
+            
+            if (Files.exists(balanceCachePath)) {
+                WalletBalance balance;
+                try (Reader reader = Files.newBufferedReader(balanceCachePath)) {
+                    balance = BALANCE_ADAPTER.fromJson(reader);
+                }
+                
+                LOGGER.info("Loaded balance from cache: " + balanceCachePath);
+                return balance;
+            }
+        } catch (Exception e) {
+            LOGGER.log(Level.WARNING, "Failed to load balance from cache", e);
+        }
+        return null;
+    }
+    
+    /**
+     * Create a new invoice
+     */
+    public Invoice createInvoice(long amountSats, String memo) throws IOException {
+        return createInvoice(amountSats, memo, defaultBackend);
+    }
+    
+    /**
+     * Create a new invoice over the given backend
+     */
+    public Invoice createInvoice(long amountSats, String memo, NodeBackend backend) throws IOException {
+        if (backend == NodeBackend.GRPC) {
+            return getGrpcClient().addInvoice(amountSats, memo);
+        }
+        
+        Request request = buildCreateInvoiceRequest(amountSats, memo);
+        return toCreatedInvoice(execute(request, INVOICE_ADAPTER, "Failed to create invoice"), amountSats, memo);
+    }
+    
+    /**
+     * Get all invoices
+     */
+    public List<Invoice> listInvoices() throws IOException {
+        if (defaultBackend == NodeBackend.GRPC) {
+            return listInvoicesViaGrpc();
+        }
+        
+        return flights.execute(restKey("invoices"), () -> {
+            Request request = transport.newRequest("/invoices")
+                    .build();
+            
+            try (Response response = transport.execute(request)) {
+                return readInvoicePage(response, "Failed to list invoices").getInvoices();
+            }
+        });
+    }
+    
+    /**
+     * Look up a single invoice by its payment hash
+     * @param rHash Payment hash, base64 as returned by the REST API or hex
+     */
+    public Invoice lookupInvoice(String rHash) throws IOException {
+        // Issued per changed invoice by the sync engine
+        Request request = RequestClass.BULK.tag(transport.newRequest("/invoice/" + toHexHash(rHash)))
+                .build();
+        
+        return execute(request, INVOICE_ADAPTER, "Failed to look up invoice");
+    }
+    
+    /**
+     * Fetch one page of invoices using LND's add-index cursor
+     * @param indexOffset Add index to start after (or before, when reversed); 0 for the beginning
+     * @param maxInvoices Maximum number of invoices to return
+     * @param reversed True to page backwards from the newest invoice
+     * @return The page with its first/last index offsets for the next request
+     */
+    public InvoicePage listInvoicesPage(long indexOffset, int maxInvoices, boolean reversed) throws IOException {
+        return listInvoicesPage(indexOffset, maxInvoices, reversed, defaultBackend);
+    }
+    
+    /**
+     * Fetch one page of invoices over the given backend
+     * @see #listInvoicesPage(long, int, boolean)
+     */
+    public InvoicePage listInvoicesPage(long indexOffset, int maxInvoices, boolean reversed,
+                                        NodeBackend backend) throws IOException {
+        String page = "invoices " + indexOffset + "/" + maxInvoices + "/" + reversed;
+        if (backend == NodeBackend.GRPC) {
+            return flights.execute(grpcKey(page),
+                    () -> getGrpcClient().listInvoices(indexOffset, maxInvoices, reversed, false));
+        }
+        
+        return flights.execute(restKey(page), () -> {
+            Request request = buildInvoicePageRequest(indexOffset, maxInvoices, reversed, false);
+            try (Response response = transport.execute(request)) {
+                return readInvoicePage(response, "Failed to list invoices");
+            }
+        });
+    }
+    
+    /**
+     * Walk the whole invoice history from the oldest invoice using the default page size
+     * @see #forEachInvoice(long, int, Consumer)
+     */
+    public long forEachInvoice(Consumer<Invoice> consumer) throws IOException {
+        return forEachInvoice(0, NetworkConstants.INVOICE_PAGE_SIZE, consumer);
+    }
+    
+    /**
+     * Walk the invoice history page by page, handing each invoice to the consumer as it is decoded.
+     *
+     * Invoices are never collected into a list, so memory use is bounded by the page
+     * buffer rather than by the size of the history.
+     *
+     * @param indexOffset Add index to start after; 0 for the beginning
+     * @param pageSize Number of invoices requested per page
+     * @param consumer Receives invoices in ascending add-index order
+     * @return The add index of the last invoice seen, usable as the next starting offset
+     */
+    public long forEachInvoice(long indexOffset, int pageSize, Consumer<Invoice> consumer) throws IOException {
+        return forEachInvoice(indexOffset, pageSize, false, consumer);
+    }
+    
+    /**
+     * Walk the invoice history page by page, optionally restricted to invoices that are still open
+     * @see #forEachInvoice(long, int, Consumer)
+     */
+    public long forEachInvoice(long indexOffset, int pageSize, boolean pendingOnly,
+                               Consumer<Invoice> consumer) throws IOException {
+        long offset = indexOffset;
+        while (true) {
+            InvoicePage page;
+            if (defaultBackend == NodeBackend.GRPC) {
+                // Protobuf pages are decoded whole, so memory is still bounded by the page size
+                page = getGrpcClient().listInvoices(offset, pageSize, false, pendingOnly);
+                page.getInvoices().forEach(consumer);
+            } else {
+                // History walks can run to many pages; keep them in the bulk lane
+                Request request = RequestClass.BULK.tag(
+                        buildInvoicePageRequest(offset, pageSize, false, pendingOnly).newBuilder()).build();
+                try (Response response = transport.execute(request)) {
+                    page = readInvoicePage(response, "Failed to list invoices", consumer);
+                }
+            }
+            
+            if (page.getCount() == 0 || page.getLastIndexOffset() <= offset) {
+                return offset;
+            }
+            offset = page.getLastIndexOffset();
+            
+            if (page.getCount() < pageSize) {
+                return offset;
+            }
+        }
+    }
+    
+    /**
+     * Pay a Lightning invoice
+     */
+    public Payment payInvoice(String paymentRequest) throws IOException {
+        return payInvoice(paymentRequest, defaultBackend);
+    }
+    
+    /**
+     * Pay a Lightning invoice over the given backend.
+     * Over REST the payment goes through the router, which records every attempt as it resolves.
+     * Over gRPC it is sent with SendPaymentSync; either way a payment hash already in flight is
+     * joined rather than sent again.
+     */
+    public Payment payInvoice(String paymentRequest, NodeBackend backend) throws IOException {
+        CompletableFuture<Payment> payment = backend == NodeBackend.GRPC
+                ? paymentEngine.pay(paymentRequest, request -> getGrpcClient().sendPayment(request))
+                : paymentEngine.pay(paymentRequest);
+        try {
+            return payment.get();
+        } catch (InterruptedException e) {
+            payment.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Payment interrupted; it may still complete on the node");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException("Failed to pay invoice: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+    
+    /**
+     * Get the engine that sends router payments, for following their progress
+     */
+    public PaymentEngine getPaymentEngine() {
+        return paymentEngine;
+    }
+    
+    /**
+     * Generate a new Bitcoin address for funding the wallet
+     */
+    public String getNewAddress() throws IOException {
+        return getNewAddress(defaultBackend);
+    }
+    
+    /**
+     * Generate a new Bitcoin address over the given backend
+     */
+    public String getNewAddress(NodeBackend backend) throws IOException {
+        if (backend == NodeBackend.GRPC) {
+            return getGrpcClient().getNewAddress();
+        }
+        
+        Request request = buildNewAddressRequest();
+        try (Response response = transport.execute(request)) {
+            return readString(response, "address", "Failed to get new address");
+        }
+    }
+    
+    /**
+     * Get detailed node information
+     */
+    public LightningInfo getNodeInfo() throws IOException {
+        return getInfo();
+    }
+    
+    /**
+     * Decode a payment request locally, without a node round-trip
+     * @throws IOException If the request is malformed or its signature is invalid
+     */
+    public Payment decodePaymentRequest(String paymentRequest) throws IOException {
+        try {
+            return toPayment(Bolt11Decoder.decode(paymentRequest));
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Invalid payment request: " + e.getMessage(), e);
+        }
+    }
+    
+    /**
+     * Decode a payment request by asking the node over the given backend
+     */
+    public Payment decodePaymentRequest(String paymentRequest, NodeBackend backend) throws IOException {
+        if (backend == NodeBackend.GRPC) {
+            return flights.execute(grpcKey("payreq " + paymentRequest),
+                    () -> getGrpcClient().decodePaymentRequest(paymentRequest));
+        }
+        
+        return flights.execute(restKey("payreq " + paymentRequest), () -> {
+            // The user is waiting to confirm a payment
+            Request request = RequestClass.INTERACTIVE.tag(transport.newRequest("/payreq/" + paymentRequest))
+                    .build();
+            return execute(request, PAYMENT_ADAPTER, "Failed to decode payment request");
+        });
+    }
+    
+    /**
+     * Get information about the node without blocking the calling thread
+     */
+    public CompletableFuture<LightningInfo> getInfoAsync() {
+        return getInfoAsync(DEFAULT_ASYNC_DEADLINE);
+    }
+    
+    /**
+     * Get information about the node without blocking the calling thread
+     * @param deadline Maximum time for the whole call; the HTTP call is cancelled when it expires
+     */
+    public CompletableFuture<LightningInfo> getInfoAsync(Duration deadline) {
+        // Callers joining an in-flight call share that call's deadline
+        return infoCache.getAsync(() -> flights.executeAsync(restKey("getinfo"),
+                () -> withFailoverAsync(endpointUrl -> transport.executeAsync(
+                        transport.newRequest(endpointUrl, "/getinfo").build(),
+                        response -> read(response, INFO_ADAPTER, "Failed to get node info"),
+                        deadline))));
+    }
+    
+    /**
+     * Get the wallet balance without blocking; falls back to the local cache like {@link #getWalletBalance()}
+     */
+    public CompletableFuture<WalletBalance> getWalletBalanceAsync() {
+        return getWalletBalanceAsync(DEFAULT_ASYNC_DEADLINE);
+    }
+    
+    /**
+     * Get the wallet balance without blocking; falls back to the local cache like {@link #getWalletBalance()}
+     * @param deadline Maximum time for the whole call
+     */
+    public CompletableFuture<WalletBalance> getWalletBalanceAsync(Duration deadline) {
+        CompletableFuture<WalletBalance> call = balanceCache.getAsync(() -> flights.executeAsync(restKey("balance"),
+                () -> transport.executeAsync(
+                        transport.newRequest("/balance/blockchain").build(),
+                        response -> cacheBalance(read(response, BALANCE_ADAPTER, "Failed to get wallet balance")),
+                        deadline)));
+        
+        CompletableFuture<WalletBalance> result = new CompletableFuture<>();
+        call.whenComplete((balance, error) -> {
+            if (error == null) {
+                result.complete(balance);
+            } else if (error instanceof CancellationException || error instanceof BulkheadFullException
+                    || error.getCause() instanceof BulkheadFullException) {
+                result.completeExceptionally(error);
+            } else {
+                result.complete(walletBalanceFallback(error));
+            }
+        });
+        propagateCancel(result, call);
+        return result;
+    }
+    
+    /**
+     * Get the spendable balance of the node's channels in satoshis without blocking the calling thread
+     */
+    public CompletableFuture<Long> getChannelBalanceAsync() {
+        return flights.executeAsync(restKey("channelbalance"), () -> transport.executeAsync(
+                transport.newRequest("/balance/channels").build(),
+                LightningNetworkService::readChannelBalance,
+                DEFAULT_ASYNC_DEADLINE));
+    }
+    
+    /**
+     * Create a new invoice without blocking the calling thread
+     */
+    public CompletableFuture<Invoice> createInvoiceAsync(long amountSats, String memo) {
+        return transport.executeAsync(
+                buildCreateInvoiceRequest(amountSats, memo),
+                response -> toCreatedInvoice(read(response, INVOICE_ADAPTER, "Failed to create invoice"), amountSats, memo),
+                DEFAULT_ASYNC_DEADLINE);
+    }
+    
+    /**
+     * List invoices without blocking the calling thread
+     */
+    public CompletableFuture<List<Invoice>> listInvoicesAsync() {
+        return listInvoicesAsync(DEFAULT_ASYNC_DEADLINE);
+    }
+    
+    /**
+     * List invoices without blocking the calling thread
+     * @param deadline Maximum time for the whole call
+     */
+    public CompletableFuture<List<Invoice>> listInvoicesAsync(Duration deadline) {
+        return flights.executeAsync(restKey("invoices"), () -> transport.executeAsync(
+                transport.newRequest("/invoices").build(),
+                response -> readInvoicePage(response, "Failed to list invoices").getInvoices(),
+                deadline));
+    }
+    
+    /**
+     * Fetch one page of invoices without blocking the calling thread
+     * @see #listInvoicesPage(long, int, boolean)
+     */
+    public CompletableFuture<InvoicePage> listInvoicesPageAsync(long indexOffset, int maxInvoices, boolean reversed) {
+        return transport.executeAsync(
+                buildInvoicePageRequest(indexOffset, maxInvoices, reversed, false),
+                response -> readInvoicePage(response, "Failed to list invoices"),
+                DEFAULT_ASYNC_DEADLINE);
+    }
+    
+    /**
+     * Pay a Lightning invoice without blocking the calling thread
+     */
+    public CompletableFuture<Payment> payInvoiceAsync(String paymentRequest) {
+        return payInvoiceAsync(paymentRequest, Duration.ofSeconds(NetworkConstants.PAYMENT_TIMEOUT));
+    }
+    
+    /**
+     * Pay a Lightning invoice without blocking the calling thread
+     * @param deadline Time the router may spend on the payment
+     */
+    public CompletableFuture<Payment> payInvoiceAsync(String paymentRequest, Duration deadline) {
+        return paymentEngine.pay(paymentRequest, deadline);
+    }
+    
+    /**
+     * Decode a payment request; decoding is local, so the future is already complete
+     */
+    public CompletableFuture<Payment> decodePaymentRequestAsync(String paymentRequest) {
+        try {
+            return CompletableFuture.completedFuture(decodePaymentRequest(paymentRequest));
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+    
+    /**
+     * Generate a new Bitcoin address without blocking the calling thread
+     */
+    public CompletableFuture<String> getNewAddressAsync() {
+        return transport.executeAsync(
+                buildNewAddressRequest(),
+                response -> readString(response, "address", "Failed to get new address"),
+                DEFAULT_ASYNC_DEADLINE);
+    }
+    
+    /**
+     * Run an async call against the healthiest endpoint, moving on to the next one if it fails (mirrors {@link #getInfo()})
+     */
+    private <T> CompletableFuture<T> withFailoverAsync(Function<String, CompletableFuture<T>> attempt) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        tryNextEndpoint(endpoints.candidates().iterator(), attempt, result, null);
+        return result;
+    }
+    
+    /**
+     * Attempt the call on the next candidate endpoint, completing the result on success or when none are left
+     */
+    private <T> void tryNextEndpoint(Iterator<EndpointHealth.Endpoint> remaining, Function<String, CompletableFuture<T>> attempt,
+                                     CompletableFuture<T> result, Throwable lastError) {
+        if (result.isDone()) {
+            return;
+        }
+        if (!remaining.hasNext()) {
+            result.completeExceptionally(lastError != null ? lastError
+                    : new CircuitOpenException("Lightning node unavailable on all endpoints", endpoints.getRetryAfter()));
+            return;
+        }
+        
+        EndpointHealth.Endpoint endpoint = remaining.next();
+        CompletableFuture<T> call = attempt.apply(endpoint.getBaseUrl());
+        propagateCancel(result, call);
+        call.whenComplete((value, error) -> {
+            if (error == null) {
+                switchEndpoint(endpoint.getBaseUrl());
+                result.complete(value);
+            } else if (error instanceof CancellationException || error instanceof BulkheadFullException
+                    || error.getCause() instanceof BulkheadFullException) {
+                result.completeExceptionally(error);
+            } else {
+                LOGGER.warning("Request to " + endpoint.getBaseUrl() + " failed: " + error.getMessage());
+                tryNextEndpoint(remaining, attempt, result, error);
+            }
+        });
+    }
+    
+    /**
+     * Cancel the inner call when the future handed to the caller is cancelled or times out
      */
-    public LightningInfo getInfo() throws IOException {
-        try {
-            Request request = new Request.Builder()
-                    .url(baseUrl + "/getinfo")
-                    .build();
-            
-            Response response = client.newCall(request).execute();
-            if (!response.isSuccessful()) {
-                if (useHttps) {
-                    // If HTTPS fails, try HTTP
-                    LOGGER.warning("HTTPS request failed. Trying HTTP...");
-                    useHttps = false;
-                    String host = configProps.getProperty("host", "localhost");
-                    String port = configProps.getProperty("port", "8080");
-                    baseUrl = String.format("http://%s:%s/v1", host, port);
-                    
-                    OkHttpClient.Builder builder = new OkHttpClient.Builder()
-                            .connectTimeout(30, TimeUnit.SECONDS)
-                            .readTimeout(30, TimeUnit.SECONDS)
-                            .writeTimeout(30, TimeUnit.SECONDS);
-                    
-                    client = builder.build();
-                    
-                    // Try again with HTTP
-                    request = new Request.Builder()
-                            .url(baseUrl + "/getinfo")
-                            .build();
-                    
-                    response = client.newCall(request).execute();
-                    if (!response.isSuccessful()) {
-                        throw new IOException("Failed to get node info: " + response);
-                    }
-                } else {
-                    throw new IOException("Failed to get node info: " + response);
-                }
-            }
-            
-            JsonObject json = gson.fromJson(response.body().string(), JsonObject.class);
-            
-            LightningInfo info = new LightningInfo();
-            info.setIdentityPubkey(json.get("identity_pubkey").getAsString());
-            info.setAlias(json.get("alias").getAsString());
-            info.setNumActiveChannels(json.get("num_active_channels").getAsInt());
-            info.setNumPendingChannels(json.get("num_pending_channels").getAsInt());
-            info.setNumPeers(json.get("num_peers").getAsInt());
-            info.setBlockHeight(json.get("block_height").getAsInt());
-            info.setSyncedToChain(json.get("synced_to_chain").getAsBoolean());
-            
-            return info;
-        } catch (Exception e) {
-            // If we're using HTTPS and get an error, try HTTP
-            if (useHttps) {
-                LOGGER.warning("HTTPS request failed with error. Trying HTTP...");
-                useHttps = false;
-                String host = configProps.getProperty("host", "localhost");
-                String port = configProps.getProperty("port", "8080");
-                baseUrl = String.format("http://%s:%s/v1", host, port);
-                
-                OkHttpClient.Builder builder = new OkHttpClient.Builder()
-                        .connectTimeout(30, TimeUnit.SECONDS)
-                        .readTimeout(30, TimeUnit.SECONDS)
-                        .writeTimeout(30, TimeUnit.SECONDS);
-                
-                client = builder.build();
-                
-                try {
-                    // Try again with HTTP
-                    Request request = new Request.Builder()
-                            .url(baseUrl + "/getinfo")
-                            .build();
-                    
-                    Response response = client.newCall(request).execute();
-                    if (!response.isSuccessful()) {
-                        throw new IOException("Failed to get node info: " + response);
-                    }
-                    
-                    JsonObject json = gson.fromJson(response.body().string(), JsonObject.class);
-                    
-                    LightningInfo info = new LightningInfo();
-                    info.setIdentityPubkey(json.get("identity_pubkey").getAsString());
-                    info.setAlias(json.get("alias").getAsString());
-                    info.setNumActiveChannels(json.get("num_active_channels").getAsInt());
-                    info.setNumPendingChannels(json.get("num_pending_channels").getAsInt());
-                    info.setNumPeers(json.get("num_peers").getAsInt());
-                    info.setBlockHeight(json.get("block_height").getAsInt());
-                    info.setSyncedToChain(json.get("synced_to_chain").getAsBoolean());
-                    
-                    return info;
-                } catch (Exception ex) {
-                    LOGGER.log(Level.SEVERE, "Failed to get node info via HTTP", ex);
-                    throw new IOException("Failed to get node info: " + ex.getMessage(), e);
-                }
+    private static void propagateCancel(CompletableFuture<?> outer, CompletableFuture<?> inner) {
+        outer.whenComplete((value, error) -> {
+            if (error != null) {
+                inner.cancel(true);
             }
-            throw new IOException("Failed to get node info: " + e.getMessage(), e);
-        }
+        });
     }
     
     /**
-     * Get the wallet balance with fallback to local cache if network fails
+     * Stream-decode a ListInvoices response and collect the invoices into the page
      */
-    public WalletBalance getWalletBalance() throws IOException {
-        try {
-            Request request = new Request.Builder()
-                    .url(baseUrl + "/balance/blockchain")
-                    .build();
-            
-            Response response = client.newCall(request).execute();
-            if (!response.isSuccessful()) {
-                throw new IOException("Failed to get wallet balance: " + response);
-            }
-            
-            JsonObject json = gson.fromJson(response.body().string(), JsonObject.class);
-            
-            WalletBalance balance = new WalletBalance();
-            balance.setTotalBalance(json.get("total_balance").getAsLong());
-            balance.setConfirmedBalance(json.get("confirmed_balance").getAsLong());
-            balance.setUnconfirmedBalance(json.get("unconfirmed_balance").getAsLong());
-            
-            // Cache the balance for offline mode
-            saveBalanceToCache(balance);
-            
-            return balance;
-        } catch (Exception e) {
-            LOGGER.log(Level.WARNING, "Error getting wallet balance from network, trying local cache", e);
-            // Try to get last known balance from local cache
-            WalletBalance cachedBalance = getBalanceFromCache();
-            if (cachedBalance != null) {
-                return cachedBalance;
-            }
-            
-            // If no cached balance, return empty balance 
-            LOGGER.log(Level.WARNING, "No cached balance available, returning empty balance");
-            return new WalletBalance();
+    private InvoicePage readInvoicePage(Response response, String failureMessage) throws IOException {
+        if (!response.isSuccessful()) {
+            throw new IOException(failureMessage + ": " + response);
         }
+        return InvoicePageReader.read(new Utf8SourceReader(response.body().source()));
     }
     
     /**
-     * Save balance to local cache for offline mode
+     * Stream-decode a ListInvoices response, handing each invoice to the consumer
      */
-    private void saveBalanceToCache(WalletBalance balance) {
-        try {
-            // Create path for cache if it doesn't exist
-            Path cacheDir = Paths.get(System.getProperty("user.home"), USER_CONFIG_DIR, "cache");
-            if (!Files.exists(cacheDir)) {
-                Files.createDirectories(cacheDir);
-            }
-            
-            // Save balance to JSON file
-            Path balanceCachePath = cacheDir.resolve("balance-cache.json");
-            JsonObject json = new JsonObject();
-            json.addProperty("total_balance", balance.getTotalBalance());
-            json.addProperty("confirmed_balance", balance.getConfirmedBalance());
-            json.addProperty("unconfirmed_balance", balance.getUnconfirmedBalance());
-            json.addProperty("locked_balance", balance.getLockedBalance());
-            json.addProperty("cached_at", System.currentTimeMillis());
-            
-            Files.writeString(balanceCachePath, gson.toJson(json));
-            LOGGER.info("Saved balance to cache: " + balanceCachePath);
-        } catch (Exception e) {
-            LOGGER.log(Level.WARNING, "Failed to save balance to cache", e);
+    private InvoicePage readInvoicePage(Response response, String failureMessage,
+                                        Consumer<Invoice> consumer) throws IOException {
+        if (!response.isSuccessful()) {
+            throw new IOException(failureMessage + ": " + response);
         }
+        return InvoicePageReader.read(new Utf8SourceReader(response.body().source()), consumer);
     }
     
     /**
-     * Get balance from local cache for offline mode
+     * Convert a payment hash to the hex form used in REST paths
      */
-    private WalletBalance getBalanceFromCache() {
-        try {
-            Path cacheDir = Paths.get(System.getProperty("user.home"), USER_CONFIG_DIR, "cache");
-            Path balanceCachePath = cacheDir.resolve("balance-cache.json");
-            
-            if (Files.exists(balanceCachePath)) {
-                String jsonStr = Files.readString(balanceCachePath);
-                JsonObject json = gson.fromJson(jsonStr, JsonObject.class);
-                
-                WalletBalance balance = new WalletBalance();
-                balance.setTotalBalance(json.get("total_balance").getAsLong());
-                balance.setConfirmedBalance(json.get("confirmed_balance").getAsLong());
-                balance.setUnconfirmedBalance(json.get("unconfirmed_balance").getAsLong());
-                
-                if (json.has("locked_balance")) {
-                    balance.setLockedBalance(json.get("locked_balance").getAsLong());
-                }
-                
-                LOGGER.info("Loaded balance from cache: " + balanceCachePath);
-                return balance;
-            }
-        } catch (Exception e) {
-            LOGGER.log(Level.WARNING, "Failed to load balance from cache", e);
+    private static String toHexHash(String rHash) {
+        if (rHash.matches("[0-9a-fA-F]{64}")) {
+            return rHash;
         }
-        return null;
+        
+        return toHex(Base64.getDecoder().decode(rHash));
     }
     
     /**
-     * Create a new invoice
+     * Hex-encode bytes
      */
-    public Invoice createInvoice(long amountSats, String memo) throws IOException {
-        JsonObject payload = new JsonObject();
-        payload.addProperty("value", amountSats);
-        payload.addProperty("memo", memo);
-        
-        RequestBody body = RequestBody.create(
-                MediaType.parse("application/json"), gson.toJson(payload));
-        
-        Request request = new Request.Builder()
-                .url(baseUrl + "/invoices")
-                .post(body)
-                .build();
-        
-        Response response = client.newCall(request).execute();
-        if (!response.isSuccessful()) {
-            throw new IOException("Failed to create invoice: " + response);
+    private static String toHex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            hex.append(String.format("%02x", b));
         }
-        
-        JsonObject json = gson.fromJson(response.body().string(), JsonObject.class);
-        
-        Invoice invoice = new Invoice();
-        invoice.setPaymentRequest(json.get("payment_request").getAsString());
-        invoice.setRHash(json.get("r_hash").getAsString());
-        invoice.setAddIndex(json.get("add_index").getAsLong());
-        invoice.setMemo(memo);
-        invoice.setAmountSats(amountSats);
-        invoice.setSettled(false);
-        
-        return invoice;
+        return hex.toString();
     }
     
     /**
-     * Get all invoices
+     * Build a cursor-based invoice listing request
      */
-    public List<Invoice> listInvoices() throws IOException {
-        Request request = new Request.Builder()
-                .url(baseUrl + "/invoices")
+    private Request buildInvoicePageRequest(long indexOffset, int maxInvoices, boolean reversed, boolean pendingOnly) {
+        return transport.newRequest("/invoices?index_offset=" + indexOffset
+                        + "&num_max_invoices=" + maxInvoices
+                        + "&reversed=" + reversed
+                        + "&pending_only=" + pendingOnly)
                 .build();
-        
-        Response response = client.newCall(request).execute();
-        if (!response.isSuccessful()) {
-            throw new IOException("Failed to list invoices: " + response);
-        }
-        
-        JsonObject json = gson.fromJson(response.body().string(), JsonObject.class);
-        
-        List<Invoice> invoices = new ArrayList<>();
-        json.getAsJsonArray("invoices").forEach(element -> {
-            JsonObject obj = element.getAsJsonObject();
-            
-            Invoice invoice = new Invoice();
-            invoice.setPaymentRequest(obj.get("payment_request").getAsString());
-            invoice.setRHash(obj.get("r_hash").getAsString());
-            invoice.setMemo(obj.get("memo").getAsString());
-            invoice.setAmountSats(obj.get("value").getAsLong());
-            invoice.setSettled(obj.get("settled").getAsBoolean());
-            invoice.setCreationDate(obj.get("creation_date").getAsLong());
-            
-            if (invoice.isSettled() && obj.has("settle_date")) {
-                invoice.setSettleDate(obj.get("settle_date").getAsLong());
-            }
-            
-            invoices.add(invoice);
-        });
-        
-        return invoices;
     }
     
     /**
-     * Pay a Lightning invoice
+     * Build the request that adds an invoice
      */
-    public Payment payInvoice(String paymentRequest) throws IOException {
+    private Request buildCreateInvoiceRequest(long amountSats, String memo) {
         JsonObject payload = new JsonObject();
-        payload.addProperty("payment_request", paymentRequest);
+        payload.addProperty("value", amountSats);
+        payload.addProperty("memo", memo);
         
         RequestBody body = RequestBody.create(
                 MediaType.parse("application/json"), gson.toJson(payload));
         
-        Request request = new Request.Builder()
-                .url(baseUrl + "/channels/transactions")
+        return transport.newRequest("/invoices")
                 .post(body)
                 .build();
-        
-        Response response = client.newCall(request).execute();
-        if (!response.isSuccessful()) {
-            throw new IOException("Failed to pay invoice: " + response);
-        }
-        
-        JsonObject json = gson.fromJson(response.body().string(), JsonObject.class);
-        
-        Payment payment = new Payment();
-        payment.setPaymentHash(json.get("payment_hash").getAsString());
-        payment.setPaymentPreimage(json.get("payment_preimage").getAsString());
-        payment.setPaymentRoute(json.get("payment_route").toString());
-        payment.setValueSat(json.getAsJsonObject("payment_route").get("total_amt").getAsLong());
-        payment.setFeeSat(json.getAsJsonObject("payment_route").get("total_fees").getAsLong());
-        
-        return payment;
     }
     
     /**
-     * Generate a new Bitcoin address for funding the wallet
+     * Build the request for a new native segwit address
      */
-    public String getNewAddress() throws IOException {
+    private Request buildNewAddressRequest() {
         JsonObject payload = new JsonObject();
         payload.addProperty("type", "p2wkh"); // Use native segwit
         
         RequestBody body = RequestBody.create(
                 MediaType.parse("application/json"), gson.toJson(payload));
         
-        Request request = new Request.Builder()
-                .url(baseUrl + "/newaddress")
+        return transport.newRequest("/newaddress")
                 .post(body)
                 .build();
-        
-        Response response = client.newCall(request).execute();
-        if (!response.isSuccessful()) {
-            throw new IOException("Failed to get new address: " + response);
-        }
-        
-        JsonObject json = gson.fromJson(response.body().string(), JsonObject.class);
-        return json.get("address").getAsString();
     }
     
     /**
-     * Get detailed node information
+     * Fill in what an add-invoice response leaves out (hash, request and add index are read from it)
      */
-    public LightningInfo getNodeInfo() throws IOException {
-        return getInfo();
+    private static Invoice toCreatedInvoice(Invoice invoice, long amountSats, String memo) {
+        invoice.setMemo(memo);
+        invoice.setAmountSats(amountSats);
+        invoice.setSettled(false);
+        
+        return invoice;
     }
     
     /**
-     * Decode a payment request
+     * Map a locally decoded payment request to the payment model
      */
-    public Payment decodePaymentRequest(String paymentRequest) throws IOException {
-        JsonObject payload = new JsonObject();
-        payload.addProperty("pay_req", paymentRequest);
-        
-        RequestBody body = RequestBody.create(
-                MediaType.parse("application/json"), gson.toJson(payload));
-        
-        Request request = new Request.Builder()
-                .url(baseUrl + "/payreq/" + paymentRequest)
-                .build();
-        
-        Response response = client.newCall(request).execute();
-        if (!response.isSuccessful()) {
-            throw new IOException("Failed to decode payment request: " + response);
-        }
-        
-        JsonObject json = gson.fromJson(response.body().string(), JsonObject.class);
-        
+    private static Payment toPayment(Bolt11Invoice invoice) {
         Payment payment = new Payment();
-        payment.setDestination(json.get("destination").getAsString());
-        payment.setPaymentHash(json.get("payment_hash").getAsString());
-        payment.setNumSatoshis(json.get("num_satoshis").getAsLong());
-        if (json.has("description")) {
-            payment.setDescription(json.get("description").getAsString());
-        }
-        if (json.has("timestamp")) {
-            payment.setTimestamp(json.get("timestamp").getAsLong());
-        }
-        
+        payment.setDestination(invoice.getDestination());
+        payment.setPaymentHash(invoice.getPaymentHash());
+        payment.setNumSatoshis(invoice.getAmountSat());
+        payment.setDescription(invoice.getDescription());
+        payment.setTimestamp(invoice.getTimestamp());
         return payment;
     }
     
@@ -701,6 +1360,9 @@ public class LightningNetworkService {
      */
     public boolean connect() throws IOException {
         try {
+            // An explicit connect always reaches out to the node, even during a known outage
+            endpoints.resetAll();
+            
             // First test the current connection configuration
             if (testConnection()) {
                 return true;
@@ -725,6 +1387,7 @@ public class LightningNetworkService {
         
         // Reinitialize connection with new settings
         initializeConnection();
+        closeGrpcClient();
         
         LOGGER.info("New settings applied");
     }
@@ -733,16 +1396,29 @@ public class LightningNetworkService {
      * Shutdown the Lightning Network service
      */
     public void shutdown() {
-        // Close database connection
-        DatabaseManager.getInstance().close();
-        
-        if (client != null && client.dispatcher() != null && 
-                client.dispatcher().executorService() != null) {
-            client.dispatcher().executorService().shutdown();
+        // Close the invoice, channel and payment streams before the database they write to
+        synchronized (this) {
+            if (invoiceSubscription != null) {
+                invoiceSubscription.stop();
+            }
+            if (channelManager != null) {
+                channelManager.stop();
+            }
+            if (graphManager != null) {
+                graphManager.stop();
+            }
         }
-        if (client != null && client.connectionPool() != null) {
-            client.connectionPool().evictAll();
+        paymentEngine.shutdown();
+        
+        // Only the service that owns the wallet database closes it; other services may still be writing to it
+        if (persistConfig) {
+            DatabaseManager.getInstance().close();
         }
+        
+        // Release the shared connection pool and dispatcher threads
+        transport.shutdown();
+        closeGrpcClient();
+        cacheRefresher.shutdownNow();
     }
     
     /**
@@ -766,6 +1442,67 @@ public class LightningNetworkService {
         return DatabaseManager.getInstance().getAllInvoices();
     }
     
+    /**
+     * Get the engine that incrementally syncs node invoices into the local database
+     */
+    public synchronized InvoiceSyncEngine getInvoiceSync() {
+        if (invoiceSync == null) {
+            invoiceSync = new InvoiceSyncEngine(this, DatabaseManager.getInstance());
+        }
+        return invoiceSync;
+    }
+    
+    /**
+     * Get the push subscription that streams invoice events into the sync engine
+     */
+    public synchronized InvoiceSubscription getInvoiceSubscription() {
+        if (invoiceSubscription == null) {
+            invoiceSubscription = new InvoiceSubscription(transport, getInvoiceSync());
+        }
+        return invoiceSubscription;
+    }
+    
+    /**
+     * Get the channel table, kept current by the node's channel event stream once started
+     */
+    public synchronized ChannelManager getChannelManager() {
+        if (channelManager == null) {
+            channelManager = new ChannelManager(transport, DatabaseManager.getInstance());
+        }
+        return channelManager;
+    }
+    
+    /**
+     * Get the local copy of the channel graph, kept current by the node's topology stream once started
+     * and saved in the wallet directory between runs
+     */
+    public synchronized GraphManager getGraphManager() {
+        if (graphManager == null) {
+            graphManager = new GraphManager(transport, new GraphStore(GraphStore.defaultPath()));
+        }
+        return graphManager;
+    }
+    
+    /**
+     * Estimate the routing fee of a payment from the local channel graph, without contacting the destination.
+     * The node's own channels are limited to their current local balance.
+     * @return The cheapest routes found; none if the graph has no route for the amount
+     */
+    public FeeEstimate estimateFee(String destination, long amountSats) throws IOException {
+        String source = getInfo().getIdentityPubkey();
+        Map<Long, Long> localBalances = null;
+        ChannelManager channels = getChannelManager();
+        if (channels.size() > 0) {
+            localBalances = new HashMap<>();
+            for (Channel channel : channels.getChannels()) {
+                if (channel.isUsable()) {
+                    localBalances.put(channel.getChanId(), channel.getLocalBalance() * 1000);
+                }
+            }
+        }
+        return getGraphManager().estimateFee(source, destination, amountSats * 1000, localBalances);
+    }
+    
     /**
      * Create a new invoice and save it to the database
      */
@@ -786,6 +1523,22 @@ public class LightningNetworkService {
         return payment;
     }
     
+    /**
+     * Pay a list of invoices with bounded concurrency, saving each payment as it completes
+     * @param paymentRequests BOLT11 payment requests
+     * @param listener Notified as each payment completes, or null
+     * @return Per-request results with throughput and fee statistics
+     */
+    public BatchPaymentService.Report payInvoicesBatch(List<String> paymentRequests,
+                                                       BatchPaymentService.Listener listener) throws IOException {
+        BatchPaymentService batch = new BatchPaymentService(this);
+        batch.setMaxConcurrency((int) getLongSetting("payments.batch.concurrency",
+                BatchPaymentService.DEFAULT_MAX_CONCURRENCY));
+        batch.setMaxPerDestination((int) getLongSetting("payments.batch.per_destination",
+                BatchPaymentService.DEFAULT_MAX_PER_DESTINATION));
+        return batch.payAll(paymentRequests, listener);
+    }
+    
     /**
      * Check if a Lightning node is running at the specified host and port
      * @param host The host address to check
@@ -822,11 +1575,18 @@ public class LightningNetworkService {
             8181   // Alternative REST port
         };
         
-        for (int port : commonPorts) {
-            if (isNodeRunning(host, port, 500)) {
-                LOGGER.info("Found Lightning node running on port " + port);
-                return port;
+        try {
+            // Probe all ports at once, then prefer them in the order listed above
+            List<InetSocketAddress> open = new NodeDiscoveryScanner()
+                    .scan(NodeDiscoveryScanner.hostTargets(host, commonPorts), Duration.ofMillis(500), null);
+            for (int port : commonPorts) {
+                if (open.stream().anyMatch(address -> address.getPort() == port)) {
+                    LOGGER.info("Found Lightning node running on port " + port);
+                    return port;
+                }
             }
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Port discovery failed", e);
         }
         
         LOGGER.warning("Could not discover Lightning node port automatically");
@@ -837,143 +1597,18 @@ public class LightningNetworkService {
      * Run connection diagnostics including all standard endpoints
      */
     public String connectionDiagnostics() {
-        StringBuilder diagnostics = new StringBuilder();
+        return connectionDiagnosticsAsync(null).join();
+    }
+    
+    /**
+     * Run connection diagnostics with independent checks in parallel
+     * @param listener Receives each report section as soon as its checks complete, or null
+     * @return A future completed with the full report
+     */
+    public CompletableFuture<String> connectionDiagnosticsAsync(ConnectionDiagnostics.Listener listener) {
         String host = configProps.getProperty("host", NetworkConstants.DEFAULT_LIGHTNING_HOST);
         int port = Integer.parseInt(configProps.getProperty("port", String.valueOf(NetworkConstants.DEFAULT_LIGHTNING_REST_PORT)));
-        
-        diagnostics.append("Connection Diagnostics Report:\n");
-        diagnostics.append("------------------------\n");
-        diagnostics.append("Time: ").append(java.time.LocalDateTime.now()).append("\n");
-        diagnostics.append("Configured Host: ").append(host).append("\n");
-        diagnostics.append("Configured Port: ").append(port).append("\n\n");
-        
-        // Check standard endpoints
-        diagnostics.append("Testing standard endpoints:\n");
-        
-        // Bitcoin RPC
-        boolean bitcoinRpcAvailable = isNodeRunning(
-            NetworkConstants.DEFAULT_BITCOIN_HOST, 
-            NetworkConstants.DEFAULT_BITCOIN_PORT, 
-            2000
-        );
-        diagnostics.append("Bitcoin RPC (").append(NetworkConstants.BITCOIN_RPC_URL).append("): ")
-                  .append(bitcoinRpcAvailable ? "AVAILABLE" : "NOT AVAILABLE").append("\n");
-        
-        // Lightning RPC
-        boolean lightningRpcAvailable = isNodeRunning(
-            NetworkConstants.DEFAULT_LIGHTNING_HOST, 
-            NetworkConstants.DEFAULT_LIGHTNING_RPC_PORT, 
-            2000
-        );
-        diagnostics.append("Lightning RPC (").append(NetworkConstants.LIGHTNING_RPC_URL).append("): ")
-                  .append(lightningRpcAvailable ? "AVAILABLE" : "NOT AVAILABLE").append("\n");
-        
-        // Lightning REST API
-        boolean lightningRestAvailable = isNodeRunning(
-            NetworkConstants.DEFAULT_LIGHTNING_HOST, 
-            NetworkConstants.DEFAULT_LIGHTNING_REST_PORT, 
-            2000
-        );
-        diagnostics.append("Lightning REST API (").append(NetworkConstants.LIGHTNING_REST_API_URL).append("): ")
-                  .append(lightningRestAvailable ? "AVAILABLE" : "NOT AVAILABLE").append("\n\n");
-        
-        // Basic connectivity check with configured endpoint
-        boolean basicConnectivity = isNodeRunning(host, port, 2000);
-        diagnostics.append("Configured Endpoint Connectivity: ").append(basicConnectivity ? "SUCCESS" : "FAILED").append("\n");
-        
-        // Check Bitcoin node status
-        diagnostics.append("Checking Bitcoin Node...\n");
-        boolean bitcoinNodeRunning = false;
-        try {
-            // Try to check if Bitcoin node is running on default port
-            int bitcoinPort = 8332; // Default for Bitcoin Core RPC
-            bitcoinNodeRunning = isNodeRunning(NetworkConstants.DEFAULT_BITCOIN_HOST, bitcoinPort, 1000);
-            diagnostics.append("Bitcoin Node Reachable: ").append(bitcoinNodeRunning ? "YES" : "NO").append("\n");
-        } catch (Exception e) {
-            diagnostics.append("Error checking Bitcoin node: ").append(e.getMessage()).append("\n");
-        }
-        
-        // If basic connectivity fails, try to discover port
-        if (!basicConnectivity) {
-            diagnostics.append("Attempting port discovery...\n");
-            int discoveredPort = discoverNodePort(host);
-            if (discoveredPort > 0) {
-                diagnostics.append("Found alternative port: ").append(discoveredPort).append("\n");
-                diagnostics.append("Recommendation: Update configuration to use port ").append(discoveredPort).append("\n");
-            } else {
-                diagnostics.append("No alternative ports found\n");
-                
-                // Check if the host itself is reachable
-                try {
-                    InetAddress address = InetAddress.getByName(host);
-                    boolean reachable = address.isReachable(2000);
-                    diagnostics.append("Host Reachable: ").append(reachable ? "YES" : "NO").append("\n");
-                    
-                    if (!reachable) {
-                        diagnostics.append("Recommendations:\n");
-                        diagnostics.append("1. Check if Lightning node is running\n");
-                        diagnostics.append("2. Verify host address is correct\n");
-                        diagnostics.append("3. Check network connectivity and firewall settings\n");
-                    }
-                } catch (Exception e) {
-                    diagnostics.append("Host lookup failed: ").append(e.getMessage()).append("\n");
-                    diagnostics.append("Recommendation: Verify the host address is correct\n");
-                }
-            }
-        } else {
-            // Try API call if connectivity is successful
-            try {
-                LightningInfo info = getInfo();
-                diagnostics.append("API Test: SUCCESS\n");
-                diagnostics.append("Node Alias: ").append(info.getAlias()).append("\n");
-                diagnostics.append("Pubkey: ").append(info.getIdentityPubkey()).append("\n");
-                diagnostics.append("Synced to Chain: ").append(info.isSyncedToChain() ? "YES" : "NO").append("\n");
-                diagnostics.append("Block Height: ").append(info.getBlockHeight()).append("\n");
-            } catch (Exception e) {
-                diagnostics.append("API Test: FAILED\n");
-                diagnostics.append("Error: ").append(e.getMessage()).append("\n");
-                
-                // Check for sync issues in the error message
-                if (e.getMessage() != null && 
-                    (e.getMessage().contains("Connection reset") || 
-                     e.getMessage().contains("sync") ||
-                     e.getMessage().contains("height") ||
-                     e.getMessage().contains("Block height out of range"))) {
-                    
-                    diagnostics.append("\nPossible Synchronization Issue Detected:\n");
-                    diagnostics.append("The Lightning node appears to be running but might be synchronizing with the Bitcoin blockchain.\n");
-                    diagnostics.append("This process can take some time and may cause connection resets or API failures.\n");
-                    diagnostics.append("Recommendation: Wait for the node to fully synchronize and try again later.\n");
-                    
-                    // Check logs if possible
-                    try {
-                        String homeDir = System.getProperty("user.home");
-                        Path logPath = Path.of(homeDir, "Developments", "java-dev", "java-lnp-wallet", 
-                                "bitcoin-lightning-dev", "logs", "lightning", "lightning.log");
-                        
-                        if (Files.exists(logPath)) {
-                            diagnostics.append("\nChecking Lightning node logs...\n");
-                            List<String> logLines = Files.readAllLines(logPath);
-                            
-                            // Get the last few lines that might contain sync info
-                            int startIndex = Math.max(0, logLines.size() - 10);
-                            for (int i = startIndex; i < logLines.size(); i++) {
-                                String line = logLines.get(i);
-                                if (line.contains("sync") || line.contains("chain") || line.contains("block")) {
-                                    diagnostics.append("Log: ").append(line).append("\n");
-                                }
-                            }
-                        }
-                    } catch (Exception logEx) {
-                        // Ignore log reading errors
-                    }
-                } else {
-                    diagnostics.append("Recommendation: Lightning node may be running but API access is restricted\n");
-                }
-            }
-        }
-        
-        return diagnostics.toString();
+        return new ConnectionDiagnostics(this, host, port).run(listener);
     }
     
     /**
@@ -1011,7 +1646,6 @@ public class LightningNetworkService {
             // Update config
             configProps.setProperty("host", NetworkConstants.DEFAULT_LIGHTNING_HOST);
             configProps.setProperty("port", String.valueOf(NetworkConstants.DEFAULT_LIGHTNING_RPC_PORT));
-            configProps.setProperty("useHttps", "false");
             saveConfig(configProps);
             
             // Reinitialize connection
@@ -1052,34 +1686,84 @@ public class LightningNetworkService {
     }
     
     /**
-     * Check if gRPC proxy is available
-     * @return true if gRPC proxy is available, false otherwise
+     * Check whether the gRPC channel to the node is connected.
+     * This reads the state of the long-lived channel instead of opening a probe socket;
+     * an idle channel is asked to connect so a later check can succeed.
+     * @return true if the gRPC channel is ready, false otherwise
      */
     public boolean isGrpcProxyAvailable() {
-        String host = configProps.getProperty("grpc.host", "127.0.0.1");
-        int port = Integer.parseInt(configProps.getProperty("grpc.port", "8080"));
-        
-        LOGGER.info("Checking if gRPC proxy is available at " + host + ":" + port);
-        
-        // Check if the gRPC proxy is running at the specified host and port
-        boolean isAvailable = isNodeRunning(host, port, 1000);
-        
-        if (isAvailable) {
-            LOGGER.info("gRPC proxy is available");
+        try {
+            return getGrpcClient().getState(true) == ConnectivityState.READY;
+        } catch (IOException e) {
+            LOGGER.log(Level.FINE, "gRPC channel unavailable", e);
+            return false;
+        }
+    }
+    
+    /**
+     * List invoices over LND's native gRPC interface
+     */
+    public List<Invoice> listInvoicesViaGrpc() throws IOException {
+        return getGrpcClient().listInvoices(0, GRPC_DEFAULT_INVOICE_COUNT, false, false).getInvoices();
+    }
+    
+    /**
+     * Get the gRPC client, creating its channel on first use
+     */
+    public synchronized LndGrpcClient getGrpcClient() throws IOException {
+        if (grpcClient == null) {
+            String host = configProps.getProperty("grpc.host", NetworkConstants.DEFAULT_LIGHTNING_HOST);
+            int port = Integer.parseInt(configProps.getProperty("grpc.port",
+                    String.valueOf(NetworkConstants.DEFAULT_LIGHTNING_RPC_PORT)));
+            grpcClient = new LndGrpcClient(host, port, configProps.getProperty("tls.cert.path", ""), loadMacaroonHex());
+        }
+        return grpcClient;
+    }
+    
+    /**
+     * Close the gRPC channel so the next call reconnects with current settings
+     */
+    private synchronized void closeGrpcClient() {
+        if (grpcClient != null) {
+            grpcClient.shutdown();
+            grpcClient = null;
+        }
+    }
+    
+    /**
+     * Load the macaroon used to authenticate with the node, hex encoded
+     * @return The macaroon, or null if none is configured or found (node runs with --no-macaroons)
+     */
+    private String loadMacaroonHex() {
+        List<Path> candidates = new ArrayList<>();
+        String configured = configProps.getProperty("macaroon.path", "");
+        if (!configured.isEmpty()) {
+            candidates.add(Paths.get(configured));
         } else {
-            LOGGER.info("gRPC proxy is not available");
+            Path chainDir = Paths.get(System.getProperty("user.home"), ".lnd", "data", "chain", "bitcoin");
+            for (String network : new String[]{"mainnet", "testnet", "signet", "regtest"}) {
+                candidates.add(chainDir.resolve(network).resolve("admin.macaroon"));
+            }
         }
         
-        return isAvailable;
+        for (Path path : candidates) {
+            if (Files.isRegularFile(path)) {
+                try {
+                    LOGGER.info("Using macaroon: " + path);
+                    return toHex(Files.readAllBytes(path));
+                } catch (IOException e) {
+                    LOGGER.log(Level.WARNING, "Failed to read macaroon: " + path, e);
+                }
+            }
+        }
+        return null;
     }
     
     /**
-     * List invoices using gRPC proxy
+     * A call made against one endpoint, given its base URL
      */
-    public List<Invoice> listInvoicesViaGrpc() throws IOException {
-        // For now, we'll use the REST API implementation
-        // In a full implementation, you would connect to the gRPC server and call the appropriate methods
-        LOGGER.info("Using gRPC proxy for listing invoices (via REST API bridge for now)");
-        return listInvoices();
+    @FunctionalInterface
+    private interface EndpointCall<T> {
+        T call(String endpointUrl) throws IOException;
     }
-}
\ No newline at end of file
+}
@@ -16,6 +16,12 @@ public class NetworkConstants {
     // Connection timeout in seconds
     public static final int CONNECTION_TIMEOUT = 30;
     
+    // Time to wait for a payment result in seconds
+    public static final int PAYMENT_TIMEOUT = 60;
+    
+    // Number of invoices requested per page when walking invoice history
+    public static final int INVOICE_PAGE_SIZE = 500;
+    
     // Default endpoints
     public static final String DEFAULT_BITCOIN_HOST = "localhost";
     public static final int DEFAULT_BITCOIN_PORT = 18443;
@@ -23,6 +29,9 @@ public class NetworkConstants {
     public static final int DEFAULT_LIGHTNING_RPC_PORT = 10009;
     public static final int DEFAULT_LIGHTNING_REST_PORT = 8080;
     
+    // Ports probed during node discovery: REST, gRPC, p2p and common REST plugin ports
+    public static final int[] COMMON_NODE_PORTS = {8080, 10009, 9735, 3000, 8181, 9911};
+    
     // Protocol prefixes
     public static final String HTTP_PREFIX = "http://";
     public static final String HTTPS_PREFIX = "https://";
@@ -0,0 +1,22 @@
+package com.lightning.network;
+
+/**
+ * Wire protocol used to talk to the Lightning node
+ */
+public enum NodeBackend {
+    /** LND REST gateway (JSON over HTTPS, port 8080 by default) */
+    REST,
+    
+    /** Native LND gRPC interface (protobuf over HTTP/2, port 10009 by default) */
+    GRPC;
+    
+    /**
+     * Parse a backend name from configuration, defaulting to REST
+     */
+    public static NodeBackend fromConfig(String value) {
+        if (value != null && value.trim().equalsIgnoreCase("grpc")) {
+            return GRPC;
+        }
+        return REST;
+    }
+}
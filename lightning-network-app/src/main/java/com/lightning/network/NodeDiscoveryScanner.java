@@ -0,0 +1,255 @@
+package com.lightning.network;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Finds open host:port pairs using non-blocking connects on a single selector thread.
+ *
+ * Up to a bounded number of connects are in flight at once; each one that completes,
+ * fails or times out is replaced by the next target. A /24 sweep over a handful of ports
+ * therefore takes a few connect timeouts rather than one per target. Open ports are
+ * reported to the listener as soon as they are found.
+ */
+public class NodeDiscoveryScanner {
+    private static final Logger LOGGER = Logger.getLogger(NodeDiscoveryScanner.class.getName());
+    
+    // Keeps well below typical per-process file descriptor limits
+    private static final int DEFAULT_MAX_CONCURRENT = 512;
+    
+    /**
+     * Receives open endpoints as they are found; called on the scanning thread
+     */
+    public interface Listener {
+        void onNodeFound(InetSocketAddress address);
+    }
+    
+    /**
+     * A connect in flight
+     */
+    private static final class Probe {
+        private final InetSocketAddress address;
+        private final long deadline;
+        
+        Probe(InetSocketAddress address, long deadline) {
+            this.address = address;
+            this.deadline = deadline;
+        }
+    }
+    
+    private final int maxConcurrent;
+    
+    /**
+     * Create a scanner with the default concurrency
+     */
+    public NodeDiscoveryScanner() {
+        this(DEFAULT_MAX_CONCURRENT);
+    }
+    
+    /**
+     * Create a scanner
+     * @param maxConcurrent Maximum number of connects in flight at once
+     */
+    public NodeDiscoveryScanner(int maxConcurrent) {
+        this.maxConcurrent = Math.max(1, maxConcurrent);
+    }
+    
+    /**
+     * Build the targets for every host in a /24 prefix, e.g. "192.168.1."
+     * @param prefix Address prefix up to and including the last dot
+     * @param ports Ports to probe on each host
+     */
+    public static List<InetSocketAddress> subnetTargets(String prefix, int[] ports) {
+        List<InetSocketAddress> targets = new ArrayList<>(254 * ports.length);
+        for (int i = 1; i < 255; i++) {
+            targets.addAll(hostTargets(prefix + i, ports));
+        }
+        return targets;
+    }
+    
+    /**
+     * Build the targets for a single host
+     */
+    public static List<InetSocketAddress> hostTargets(String host, int[] ports) {
+        List<InetSocketAddress> targets = new ArrayList<>(ports.length);
+        for (int port : ports) {
+            targets.add(new InetSocketAddress(host, port));
+        }
+        return targets;
+    }
+    
+    /**
+     * Probe all targets and return those that accepted a connection, in the order they were found
+     * @param targets Addresses to probe
+     * @param connectTimeout Time each connect may take
+     * @param listener Notified of each open address as it is found, or null
+     */
+    public List<InetSocketAddress> scan(List<InetSocketAddress> targets, Duration connectTimeout, Listener listener)
+            throws IOException {
+        List<InetSocketAddress> found = new ArrayList<>();
+        Deque<InetSocketAddress> pending = new ArrayDeque<>(targets);
+        long timeoutNanos = connectTimeout.toNanos();
+        long start = System.nanoTime();
+        int inFlight = 0;
+        
+        try (Selector selector = Selector.open()) {
+            try {
+                while (!pending.isEmpty() || inFlight > 0) {
+                    if (Thread.currentThread().isInterrupted()) {
+                        throw new InterruptedIOException("Node discovery interrupted");
+                    }
+                    
+                    // Top up the in-flight window
+                    while (!pending.isEmpty() && inFlight < maxConcurrent) {
+                        if (connect(selector, pending.poll(), timeoutNanos, found, listener)) {
+                            inFlight++;
+                        }
+                    }
+                    if (inFlight == 0) {
+                        continue;
+                    }
+                    
+                    selector.select(Math.max(1, millisUntilNextDeadline(selector)));
+                    
+                    Iterator<SelectionKey> selected = selector.selectedKeys().iterator();
+                    while (selected.hasNext()) {
+                        SelectionKey key = selected.next();
+                        selected.remove();
+                        Probe probe = (Probe) key.attachment();
+                        if (finishConnect(key)) {
+                            report(probe.address, found, listener);
+                        }
+                        inFlight--;
+                    }
+                    
+                    inFlight -= expire(selector);
+                }
+            } finally {
+                for (SelectionKey key : selector.keys()) {
+                    closeQuietly(key);
+                }
+            }
+        }
+        
+        LOGGER.info(String.format("Probed %d endpoints in %d ms, %d open",
+                targets.size(), Duration.ofNanos(System.nanoTime() - start).toMillis(), found.size()));
+        return found;
+    }
+    
+    /**
+     * Start a non-blocking connect
+     * @return true if the connect is pending and was registered with the selector
+     */
+    private boolean connect(Selector selector, InetSocketAddress address, long timeoutNanos,
+                            List<InetSocketAddress> found, Listener listener) {
+        if (address.isUnresolved()) {
+            return false;
+        }
+        
+        SocketChannel channel = null;
+        try {
+            channel = SocketChannel.open();
+            channel.configureBlocking(false);
+            if (channel.connect(address)) {
+                // Loopback connects can complete immediately
+                channel.close();
+                report(address, found, listener);
+                return false;
+            }
+            channel.register(selector, SelectionKey.OP_CONNECT, new Probe(address, System.nanoTime() + timeoutNanos));
+            return true;
+        } catch (IOException e) {
+            // Unreachable network, refused before registration, out of descriptors...
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (IOException ignored) {
+                    // Nothing else to release
+                }
+            }
+            return false;
+        }
+    }
+    
+    /**
+     * Complete a connect the selector reported as ready, closing the channel either way
+     * @return true if the connection was established
+     */
+    private boolean finishConnect(SelectionKey key) {
+        try {
+            return ((SocketChannel) key.channel()).finishConnect();
+        } catch (IOException e) {
+            return false;
+        } finally {
+            closeQuietly(key);
+        }
+    }
+    
+    /**
+     * Close connects that have passed their deadline
+     * @return The number of probes closed
+     */
+    private int expire(Selector selector) {
+        long now = System.nanoTime();
+        int expired = 0;
+        for (SelectionKey key : selector.keys()) {
+            if (key.isValid() && now - ((Probe) key.attachment()).deadline >= 0) {
+                closeQuietly(key);
+                expired++;
+            }
+        }
+        return expired;
+    }
+    
+    /**
+     * Milliseconds until the earliest pending connect times out
+     */
+    private long millisUntilNextDeadline(Selector selector) {
+        long now = System.nanoTime();
+        long earliest = Long.MAX_VALUE;
+        for (SelectionKey key : selector.keys()) {
+            if (key.isValid()) {
+                earliest = Math.min(earliest, ((Probe) key.attachment()).deadline - now);
+            }
+        }
+        return earliest == Long.MAX_VALUE ? 1 : Duration.ofNanos(Math.max(0, earliest)).toMillis() + 1;
+    }
+    
+    /**
+     * Record an open endpoint and notify the listener
+     */
+    private void report(InetSocketAddress address, List<InetSocketAddress> found, Listener listener) {
+        found.add(address);
+        if (listener != null) {
+            try {
+                listener.onNodeFound(address);
+            } catch (RuntimeException e) {
+                LOGGER.log(Level.WARNING, "Discovery listener failed", e);
+            }
+        }
+    }
+    
+    /**
+     * Cancel a key and close its channel
+     */
+    private static void closeQuietly(SelectionKey key) {
+        key.cancel();
+        try {
+            key.channel().close();
+        } catch (IOException ignored) {
+            // Nothing else to release
+        }
+    }
+}
@@ -0,0 +1,416 @@
+package com.lightning.network;
+
+import com.lightning.model.Invoice;
+import com.lightning.model.LightningInfo;
+import com.lightning.model.WalletBalance;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.logging.Logger;
+
+/**
+ * Named set of Lightning nodes, one service per LND instance.
+ *
+ * Every node has its own {@link LightningNetworkService} and so its own configuration, TLS
+ * context, macaroon and connection pool. Aggregate reads start the call on every node at
+ * once through the services' non-blocking APIs, so a refresh takes as long as the slowest
+ * node rather than the sum. A node that fails or runs out of time is reported in the view
+ * instead of failing it.
+ *
+ * Additional nodes are listed in the primary configuration as {@code nodes=alpha,beta};
+ * {@code nodes.alpha.host}, {@code nodes.alpha.port}, {@code nodes.alpha.tls.cert.path} and
+ * so on override the primary's settings for that node.
+ */
+public class NodeRegistry {
+    private static final Logger LOGGER = Logger.getLogger(NodeRegistry.class.getName());
+    
+    // Name of the node configured by the regular connection settings
+    public static final String PRIMARY = "primary";
+    
+    private static final Duration DEFAULT_DEADLINE = Duration.ofSeconds(NetworkConstants.CONNECTION_TIMEOUT);
+    
+    // Replaced as a whole on registration, so readers iterate a stable snapshot
+    private volatile Map<String, LightningNetworkService> nodes = Collections.emptyMap();
+    private PaymentDispatcher dispatcher;
+    
+    /**
+     * State of one node after a refresh
+     */
+    public static final class NodeStatus {
+        private final String name;
+        private final LightningInfo info;
+        private final WalletBalance balance;
+        private final Throwable error;
+        
+        NodeStatus(String name, LightningInfo info, WalletBalance balance, Throwable error) {
+            this.name = name;
+            this.info = info;
+            this.balance = balance;
+            this.error = error;
+        }
+        
+        public String getName() {
+            return name;
+        }
+        
+        /**
+         * Node info, or null if the node could not be reached
+         */
+        public LightningInfo getInfo() {
+            return info;
+        }
+        
+        /**
+         * On-chain balance; the last cached value if the node could not be reached
+         */
+        public WalletBalance getBalance() {
+            return balance;
+        }
+        
+        /**
+         * Why the node could not be reached, or null
+         */
+        public Throwable getError() {
+            return error;
+        }
+        
+        public boolean isReachable() {
+            return error == null;
+        }
+    }
+    
+    /**
+     * Node info and balances of every node, with totals across them
+     */
+    public static final class Overview {
+        private final List<NodeStatus> nodes;
+        private final long elapsedNanos;
+        
+        Overview(List<NodeStatus> nodes, long elapsedNanos) {
+            this.nodes = Collections.unmodifiableList(nodes);
+            this.elapsedNanos = elapsedNanos;
+        }
+        
+        /**
+         * Per-node results in registration order
+         */
+        public List<NodeStatus> getNodes() {
+            return nodes;
+        }
+        
+        /**
+         * Sum of the balances of all nodes
+         */
+        public WalletBalance getTotalBalance() {
+            WalletBalance total = new WalletBalance();
+            for (NodeStatus node : nodes) {
+                WalletBalance balance = node.getBalance();
+                if (balance != null) {
+                    total.setTotalBalance(total.getTotalBalance() + balance.getTotalBalance());
+                    total.setConfirmedBalance(total.getConfirmedBalance() + balance.getConfirmedBalance());
+                    total.setUnconfirmedBalance(total.getUnconfirmedBalance() + balance.getUnconfirmedBalance());
+                    total.setLockedBalance(total.getLockedBalance() + balance.getLockedBalance());
+                }
+            }
+            return total;
+        }
+        
+        /**
+         * Active channels across reachable nodes
+         */
+        public int getActiveChannels() {
+            int channels = 0;
+            for (NodeStatus node : nodes) {
+                if (node.getInfo() != null) {
+                    channels += node.getInfo().getNumActiveChannels();
+                }
+            }
+            return channels;
+        }
+        
+        /**
+         * Pending channels across reachable nodes
+         */
+        public int getPendingChannels() {
+            int channels = 0;
+            for (NodeStatus node : nodes) {
+                if (node.getInfo() != null) {
+                    channels += node.getInfo().getNumPendingChannels();
+                }
+            }
+            return channels;
+        }
+        
+        /**
+         * Number of nodes that answered
+         */
+        public int getReachableCount() {
+            int reachable = 0;
+            for (NodeStatus node : nodes) {
+                if (node.isReachable()) {
+                    reachable++;
+                }
+            }
+            return reachable;
+        }
+        
+        /**
+         * Wall-clock time of the refresh, roughly that of the slowest node
+         */
+        public Duration getElapsed() {
+            return Duration.ofNanos(elapsedNanos);
+        }
+    }
+    
+    /**
+     * Invoices of every node, by node and merged
+     */
+    public static final class InvoiceView {
+        private final Map<String, List<Invoice>> byNode;
+        private final Map<String, Throwable> failures;
+        
+        InvoiceView(Map<String, List<Invoice>> byNode, Map<String, Throwable> failures) {
+            this.byNode = Collections.unmodifiableMap(byNode);
+            this.failures = Collections.unmodifiableMap(failures);
+        }
+        
+        /**
+         * Invoices of each node that answered, in registration order
+         */
+        public Map<String, List<Invoice>> getByNode() {
+            return byNode;
+        }
+        
+        /**
+         * Nodes whose invoices could not be listed, with the reason
+         */
+        public Map<String, Throwable> getFailures() {
+            return failures;
+        }
+        
+        /**
+         * All invoices, newest first
+         */
+        public List<Invoice> getMerged() {
+            List<Invoice> merged = new ArrayList<>();
+            byNode.values().forEach(merged::addAll);
+            merged.sort(Comparator.comparingLong(Invoice::getCreationDate).reversed());
+            return merged;
+        }
+    }
+    
+    /**
+     * Create an empty registry
+     */
+    public NodeRegistry() {
+    }
+    
+    /**
+     * Create a registry with the primary service and every node listed in its nodes setting
+     */
+    public static NodeRegistry fromConfig(LightningNetworkService primary) {
+        NodeRegistry registry = new NodeRegistry();
+        registry.register(PRIMARY, primary);
+        
+        for (String name : primary.getSetting("nodes", "").split(",")) {
+            name = name.trim();
+            if (name.isEmpty() || name.equals(PRIMARY)) {
+                continue;
+            }
+            registry.register(name, new LightningNetworkService(nodeConfig(primary.copyConfig(), name)));
+        }
+        return registry;
+    }
+    
+    /**
+     * Derive a node's configuration: the primary settings overridden by its nodes.&lt;name&gt;.* settings
+     */
+    static Properties nodeConfig(Properties base, String name) {
+        Properties config = new Properties();
+        String prefix = "nodes." + name + ".";
+        for (String key : base.stringPropertyNames()) {
+            if (!key.startsWith("nodes.") && !key.equals("nodes")) {
+                config.setProperty(key, base.getProperty(key));
+            }
+        }
+        for (String key : base.stringPropertyNames()) {
+            if (key.startsWith(prefix)) {
+                config.setProperty(key.substring(prefix.length()), base.getProperty(key));
+            }
+        }
+        config.setProperty("node.name", name);
+        return config;
+    }
+    
+    /**
+     * Add a node, replacing any node of the same name
+     */
+    public synchronized void register(String name, LightningNetworkService service) {
+        Map<String, LightningNetworkService> updated = new LinkedHashMap<>(nodes);
+        updated.put(name, service);
+        nodes = Collections.unmodifiableMap(updated);
+        // The dispatcher models a fixed set of nodes; start over with the new one included
+        dispatcher = null;
+        LOGGER.info("Registered node " + name);
+    }
+    
+    /**
+     * Get a node's service, or null if there is no such node
+     */
+    public LightningNetworkService get(String name) {
+        return nodes.get(name);
+    }
+    
+    /**
+     * Get the primary node's service
+     */
+    public LightningNetworkService getPrimary() {
+        return nodes.get(PRIMARY);
+    }
+    
+    /**
+     * Names of all nodes in registration order
+     */
+    public List<String> getNames() {
+        return new ArrayList<>(nodes.keySet());
+    }
+    
+    /**
+     * Services of all nodes by name, in registration order
+     */
+    public Map<String, LightningNetworkService> getNodes() {
+        return nodes;
+    }
+    
+    public int size() {
+        return nodes.size();
+    }
+    
+    /**
+     * Get the dispatcher that picks a node for each outgoing payment
+     */
+    public synchronized PaymentDispatcher getDispatcher() {
+        if (dispatcher == null) {
+            dispatcher = new PaymentDispatcher(this);
+        }
+        return dispatcher;
+    }
+    
+    /**
+     * Fetch node info and balance from every node in parallel
+     * @see #refreshAll(Duration)
+     */
+    public CompletableFuture<Overview> refreshAll() {
+        return refreshAll(DEFAULT_DEADLINE);
+    }
+    
+    /**
+     * Fetch node info and balance from every node in parallel. Never completes exceptionally;
+     * unreachable nodes are reported in their status.
+     * @param deadline Maximum time for each node's calls
+     */
+    public CompletableFuture<Overview> refreshAll(Duration deadline) {
+        long start = System.nanoTime();
+        List<CompletableFuture<NodeStatus>> calls = new ArrayList<>();
+        for (Map.Entry<String, LightningNetworkService> node : nodes.entrySet()) {
+            String name = node.getKey();
+            LightningNetworkService service = node.getValue();
+            CompletableFuture<LightningInfo> info = service.getInfoAsync(deadline);
+            CompletableFuture<WalletBalance> balance = service.getWalletBalanceAsync(deadline);
+            calls.add(info.handle((value, error) -> value).thenCombine(
+                    balance.handle((value, error) -> value),
+                    (infoValue, balanceValue) -> new NodeStatus(name, infoValue, balanceValue,
+                            infoValue == null ? unwrap(info) : null)));
+        }
+        return allOf(calls).thenApply(statuses -> new Overview(statuses, System.nanoTime() - start));
+    }
+    
+    /**
+     * List the invoices of every node in parallel
+     * @see #listInvoicesAll(Duration)
+     */
+    public CompletableFuture<InvoiceView> listInvoicesAll() {
+        return listInvoicesAll(DEFAULT_DEADLINE);
+    }
+    
+    /**
+     * List the invoices of every node in parallel. Never completes exceptionally;
+     * nodes that fail are listed in the view's failures.
+     * @param deadline Maximum time for each node's call
+     */
+    public CompletableFuture<InvoiceView> listInvoicesAll(Duration deadline) {
+        Map<String, CompletableFuture<List<Invoice>>> calls = new LinkedHashMap<>();
+        for (Map.Entry<String, LightningNetworkService> node : nodes.entrySet()) {
+            calls.put(node.getKey(), node.getValue().listInvoicesAsync(deadline));
+        }
+        return CompletableFuture.allOf(calls.values().stream()
+                        .map(call -> call.handle((value, error) -> null))
+                        .toArray(CompletableFuture[]::new))
+                .thenApply(done -> {
+                    Map<String, List<Invoice>> byNode = new LinkedHashMap<>();
+                    Map<String, Throwable> failures = new LinkedHashMap<>();
+                    calls.forEach((name, call) -> {
+                        Throwable error = unwrap(call);
+                        if (error == null) {
+                            byNode.put(name, call.join());
+                        } else {
+                            failures.put(name, error);
+                        }
+                    });
+                    return new InvoiceView(byNode, failures);
+                });
+    }
+    
+    /**
+     * Shut down every node, the primary last since it owns the shared wallet database
+     */
+    public void shutdown() {
+        LightningNetworkService primary = getPrimary();
+        for (LightningNetworkService service : nodes.values()) {
+            if (service != primary) {
+                service.shutdown();
+            }
+        }
+        if (primary != null) {
+            primary.shutdown();
+        }
+    }
+    
+    /**
+     * Wait for every future and collect the results in order
+     */
+    private static <T> CompletableFuture<List<T>> allOf(List<CompletableFuture<T>> futures) {
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).thenApply(done -> {
+            List<T> results = new ArrayList<>(futures.size());
+            for (CompletableFuture<T> future : futures) {
+                results.add(future.join());
+            }
+            return results;
+        });
+    }
+    
+    /**
+     * Failure of a completed future, or null if it succeeded
+     */
+    private static Throwable unwrap(CompletableFuture<?> future) {
+        if (!future.isCompletedExceptionally()) {
+            return null;
+        }
+        try {
+            future.join();
+            return null;
+        } catch (CompletionException e) {
+            return e.getCause() != null ? e.getCause() : e;
+        } catch (RuntimeException e) {
+            return e;
+        }
+    }
+}
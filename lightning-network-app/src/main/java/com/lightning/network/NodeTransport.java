@@ -0,0 +1,613 @@
+package com.lightning.network;
+
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.BufferedSource;
+import okio.ForwardingSource;
+import okio.Okio;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSessionContext;
+import javax.net.ssl.X509TrustManager;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Logger;
+
+/**
+ * Long-lived HTTP transport shared by all calls to a Lightning node.
+ *
+ * The underlying OkHttpClient is built exactly once, so the connection pool,
+ * the TLS session cache and the dispatcher threads survive endpoint changes.
+ * Switching between HTTPS/HTTP or between ports only swaps the base URL;
+ * warm connections to the previous endpoint stay in the pool until they idle out.
+ */
+public class NodeTransport {
+    private static final Logger LOGGER = Logger.getLogger(NodeTransport.class.getName());
+    
+    // Pool sizing: a handful of idle connections is plenty for a single node
+    private static final int MAX_IDLE_CONNECTIONS = 8;
+    private static final long KEEP_ALIVE_MINUTES = 5;
+    
+    // Well above the bulkhead lanes, so calls a lane admits are never held back by the dispatcher
+    private static final int MAX_REQUESTS_PER_HOST = 64;
+    
+    // TLS session cache settings for session resumption
+    private static final int TLS_SESSION_CACHE_SIZE = 64;
+    private static final int TLS_SESSION_TIMEOUT_SECONDS = 24 * 60 * 60;
+    
+    /**
+     * Converts a successful or failed HTTP response into a result.
+     * The response is closed by the transport after the handler returns.
+     */
+    public interface ResponseHandler<T> {
+        T handle(Response response) throws IOException;
+    }
+    
+    // Each endpoint may retry while more than half of these tokens remain; a success returns a tenth
+    private static final double RETRY_BUDGET_TOKENS = 10;
+    private static final double RETRY_BUDGET_RATIO = 0.1;
+    
+    // Keepalive pings detect dead long-lived streams, which have no read timeout
+    private static final long STREAM_PING_INTERVAL_SECONDS = 30;
+    
+    private final OkHttpClient client;
+    private final OkHttpClient streamingClient;
+    private final boolean tlsAvailable;
+    private volatile String baseUrl;
+    private volatile String macaroonHex;
+    private volatile EndpointHealth health;
+    private volatile RetryPolicy retryPolicy = RetryPolicy.DEFAULT;
+    private final Map<String, RetryBudget> retryBudgets = new ConcurrentHashMap<>();
+    private final RetryMetrics retryMetrics = new RetryMetrics();
+    private final RequestMetrics requestMetrics = new RequestMetrics();
+    private final Bulkhead bulkhead = new Bulkhead();
+    
+    /**
+     * Create the transport
+     * @param sslContext SSL context used for HTTPS endpoints, or null if TLS could not be configured
+     * @param trustManager Trust manager matching the SSL context, or null
+     * @param baseUrl Initial base URL (e.g. https://localhost:8080/v1)
+     */
+    public NodeTransport(SSLContext sslContext, X509TrustManager trustManager, String baseUrl) {
+        this.baseUrl = baseUrl;
+        
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(MAX_REQUESTS_PER_HOST);
+        dispatcher.setMaxRequestsPerHost(MAX_REQUESTS_PER_HOST);
+        
+        OkHttpClient.Builder builder = new OkHttpClient.Builder()
+                .connectionPool(new ConnectionPool(MAX_IDLE_CONNECTIONS, KEEP_ALIVE_MINUTES, TimeUnit.MINUTES))
+                .dispatcher(dispatcher)
+                .protocols(Arrays.asList(Protocol.HTTP_2, Protocol.HTTP_1_1))
+                .connectTimeout(NetworkConstants.CONNECTION_TIMEOUT, TimeUnit.SECONDS)
+                .readTimeout(NetworkConstants.CONNECTION_TIMEOUT, TimeUnit.SECONDS)
+                .writeTimeout(NetworkConstants.CONNECTION_TIMEOUT, TimeUnit.SECONDS)
+                .retryOnConnectionFailure(true)
+                .addInterceptor(requestMetrics);
+        
+        if (sslContext != null && trustManager != null) {
+            // Reusing one SSL context keeps its client session cache alive,
+            // which lets reconnects resume TLS sessions instead of doing full handshakes
+            SSLSessionContext sessionContext = sslContext.getClientSessionContext();
+            if (sessionContext != null) {
+                sessionContext.setSessionCacheSize(TLS_SESSION_CACHE_SIZE);
+                sessionContext.setSessionTimeout(TLS_SESSION_TIMEOUT_SECONDS);
+            }
+            
+            // LND uses a self-signed certificate that rarely matches the hostname in Docker setups
+            builder.sslSocketFactory(sslContext.getSocketFactory(), trustManager)
+                   .hostnameVerifier((hostname, session) -> true);
+            tlsAvailable = true;
+        } else {
+            tlsAvailable = false;
+        }
+        
+        client = builder.build();
+        streamingClient = client.newBuilder()
+                .readTimeout(0, TimeUnit.SECONDS)
+                .pingInterval(STREAM_PING_INTERVAL_SECONDS, TimeUnit.SECONDS)
+                .build();
+        LOGGER.info("Node transport created for: " + baseUrl);
+    }
+    
+    /**
+     * Get the shared HTTP client
+     */
+    public OkHttpClient getClient() {
+        return client;
+    }
+    
+    /**
+     * Get the current base URL
+     */
+    public String getBaseUrl() {
+        return baseUrl;
+    }
+    
+    /**
+     * Whether HTTPS endpoints can be used with this transport
+     */
+    public boolean isTlsAvailable() {
+        return tlsAvailable;
+    }
+    
+    /**
+     * Point the transport at a different endpoint without rebuilding the client.
+     * Connections to the previous endpoint remain pooled and can be reused if we switch back.
+     * Requests built with {@link #newRequest(String)} go to this endpoint, so only switch to one that has answered.
+     */
+    public synchronized void switchEndpoint(String newBaseUrl) {
+        if (newBaseUrl == null || newBaseUrl.equals(baseUrl)) {
+            return;
+        }
+        LOGGER.info("Switching node endpoint: " + baseUrl + " -> " + newBaseUrl);
+        baseUrl = newBaseUrl;
+    }
+    
+    /**
+     * Set the hex-encoded macaroon sent with every request, or null to send none
+     */
+    public void setMacaroon(String macaroonHex) {
+        this.macaroonHex = macaroonHex;
+    }
+    
+    /**
+     * Guard calls with the circuit breakers of the given endpoints.
+     * Calls to an endpoint whose breaker is open fail immediately with {@link CircuitOpenException}.
+     */
+    public void setHealth(EndpointHealth health) {
+        this.health = health;
+    }
+    
+    /**
+     * Set the policy for retrying transient failures of regular calls
+     */
+    public void setRetryPolicy(RetryPolicy retryPolicy) {
+        this.retryPolicy = retryPolicy;
+    }
+    
+    /**
+     * Get the policy for retrying transient failures
+     */
+    public RetryPolicy getRetryPolicy() {
+        return retryPolicy;
+    }
+    
+    /**
+     * Get the retry counters of this transport
+     */
+    public RetryMetrics getRetryMetrics() {
+        return retryMetrics;
+    }
+    
+    /**
+     * Get the per-endpoint latency, error and byte statistics of this transport
+     */
+    public RequestMetrics getRequestMetrics() {
+        return requestMetrics;
+    }
+    
+    /**
+     * Get the per-class concurrency and rate limits applied to regular calls
+     */
+    public Bulkhead getBulkhead() {
+        return bulkhead;
+    }
+    
+    /**
+     * Create a request builder for a path relative to the current base URL
+     */
+    public Request.Builder newRequest(String path) {
+        return newRequest(baseUrl, path);
+    }
+    
+    /**
+     * Create a request builder for a path relative to a given endpoint, leaving the current base URL alone
+     * @param endpointUrl Base URL of the endpoint, including the /v1 prefix
+     */
+    public Request.Builder newRequest(String endpointUrl, String path) {
+        Request.Builder builder = new Request.Builder().url(endpointUrl + path);
+        String macaroon = macaroonHex;
+        if (macaroon != null) {
+            builder.header("Grpc-Metadata-macaroon", macaroon);
+        }
+        return builder;
+    }
+    
+    /**
+     * Create a request builder for a path outside the v1 API, e.g. /v2/router/send
+     */
+    public Request.Builder newRootRequest(String path) {
+        String root = baseUrl;
+        if (root.endsWith("/v1")) {
+            root = root.substring(0, root.length() - 3);
+        }
+        Request.Builder builder = new Request.Builder().url(root + path);
+        String macaroon = macaroonHex;
+        if (macaroon != null) {
+            builder.header("Grpc-Metadata-macaroon", macaroon);
+        }
+        return builder;
+    }
+    
+    /**
+     * Execute a request synchronously on the shared client, retrying transient failures
+     * according to the retry policy. The caller is responsible for closing the response.
+     */
+    public Response execute(Request request) throws IOException {
+        RetryPolicy policy = retryPolicy;
+        RetryBudget budget = budgetFor(request);
+        for (int attempt = 1; ; attempt++) {
+            Response response;
+            String reason;
+            try {
+                response = executeOnce(request);
+                if (!policy.isRetryableStatus(response.code()) || !policy.isIdempotent(request)) {
+                    recordCompleted(budget, attempt);
+                    return response;
+                }
+                reason = String.valueOf(response.code());
+            } catch (IOException e) {
+                if (!policy.isRetryable(request, e)) {
+                    throw e;
+                }
+                long delay = retryDelay(policy, budget, attempt, null);
+                if (delay < 0) {
+                    throw e;
+                }
+                retryMetrics.recordRetry(e.getClass().getSimpleName(), delay);
+                sleepBeforeRetry(delay);
+                continue;
+            }
+            
+            long delay = retryDelay(policy, budget, attempt, response);
+            if (delay < 0) {
+                return response;
+            }
+            response.close();
+            retryMetrics.recordRetry(reason, delay);
+            sleepBeforeRetry(delay);
+        }
+    }
+    
+    /**
+     * Make a single attempt within the request's bulkhead lane, reporting the outcome to the
+     * endpoint's circuit breaker. The lane slot is held until the response is closed.
+     */
+    private Response executeOnce(Request request) throws IOException {
+        Bulkhead.Permit permit = bulkhead.acquire(RequestClass.of(request));
+        CircuitBreaker breaker = null;
+        boolean handedOver = false;
+        try {
+            breaker = acquire(request);
+            long start = System.nanoTime();
+            Response response = client.newCall(request).execute();
+            recordSuccess(breaker, start);
+            handedOver = true;
+            return releaseOnClose(response, permit);
+        } catch (CircuitOpenException e) {
+            throw e;
+        } catch (IOException e) {
+            recordFailure(breaker);
+            throw e;
+        } catch (RuntimeException | Error e) {
+            if (breaker != null) {
+                breaker.onAbandoned();
+            }
+            throw e;
+        } finally {
+            if (!handedOver) {
+                permit.close();
+            }
+        }
+    }
+    
+    /**
+     * Wrap a response so closing it, or reading its body to the end and closing that, frees the lane slot
+     */
+    private static Response releaseOnClose(Response response, Bulkhead.Permit permit) {
+        ResponseBody body = response.body();
+        if (body == null) {
+            permit.close();
+            return response;
+        }
+        BufferedSource source = Okio.buffer(new ForwardingSource(body.source()) {
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    permit.close();
+                }
+            }
+        });
+        return response.newBuilder()
+                .body(ResponseBody.create(source, body.contentType(), body.contentLength()))
+                .build();
+    }
+    
+    /**
+     * Create a call for a long-lived streaming response.
+     * The call has no read timeout and shares the pool and TLS sessions with regular calls.
+     */
+    public Call newStreamingCall(Request request) {
+        return streamingClient.newCall(request);
+    }
+    
+    /**
+     * Execute a request asynchronously on the shared dispatcher.
+     *
+     * No thread is parked while the request is in flight or waiting to be retried. Cancelling
+     * or timing out the returned future cancels the underlying HTTP call. A positive deadline
+     * bounds the whole call, including retries and reading the response body.
+     *
+     * @param request The request to send
+     * @param handler Converts the response into a result; runs on an OkHttp dispatcher thread
+     * @param deadline Maximum duration for the complete call, or null/zero for the client defaults
+     * @return A future completed with the handler result or the failure
+     */
+    public <T> CompletableFuture<T> executeAsync(Request request, ResponseHandler<T> handler, Duration deadline) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        long deadlineAt = 0;
+        if (deadline != null && !deadline.isZero() && !deadline.isNegative()) {
+            deadlineAt = System.nanoTime() + deadline.toNanos();
+        }
+        AtomicReference<Call> currentCall = new AtomicReference<>();
+        
+        // Propagate cancellation (and any other early completion) to the HTTP call
+        future.whenComplete((result, error) -> {
+            Call call = currentCall.get();
+            if (error != null && call != null && !call.isCanceled()) {
+                call.cancel();
+            }
+        });
+        
+        attemptAsync(request, handler, future, currentCall, 1, deadlineAt);
+        return future;
+    }
+    
+    /**
+     * Wait for a slot in the request's bulkhead lane without blocking, then make the attempt
+     */
+    private <T> void attemptAsync(Request request, ResponseHandler<T> handler, CompletableFuture<T> future,
+                                  AtomicReference<Call> currentCall, int attempt, long deadlineAt) {
+        if (future.isDone()) {
+            return;
+        }
+        CompletableFuture<Bulkhead.Permit> slot = bulkhead.acquireAsync(RequestClass.of(request));
+        future.whenComplete((result, error) -> slot.cancel(false));
+        slot.whenComplete((permit, error) -> {
+            if (error != null) {
+                future.completeExceptionally(error instanceof CompletionException ? error.getCause() : error);
+            } else {
+                sendAsync(request, handler, future, currentCall, attempt, deadlineAt, permit);
+            }
+        });
+    }
+    
+    /**
+     * Enqueue one attempt of an async call and schedule the next one if it fails transiently.
+     * The lane slot is freed once the attempt has finished, before any retry waits for a new one.
+     */
+    private <T> void sendAsync(Request request, ResponseHandler<T> handler, CompletableFuture<T> future,
+                               AtomicReference<Call> currentCall, int attempt, long deadlineAt,
+                               Bulkhead.Permit permit) {
+        CircuitBreaker breaker;
+        try {
+            breaker = acquire(request);
+        } catch (CircuitOpenException e) {
+            permit.close();
+            future.completeExceptionally(e);
+            return;
+        }
+        long start = System.nanoTime();
+        
+        Call call = client.newCall(request);
+        if (deadlineAt != 0) {
+            call.timeout().timeout(Math.max(1, deadlineAt - start), TimeUnit.NANOSECONDS);
+        }
+        currentCall.set(call);
+        if (future.isDone()) {
+            call.cancel();
+        }
+        
+        RetryPolicy policy = retryPolicy;
+        RetryBudget budget = budgetFor(request);
+        call.enqueue(new Callback() {
+            @Override
+            public void onFailure(Call failedCall, IOException e) {
+                permit.close();
+                if (failedCall.isCanceled()) {
+                    if (breaker != null) {
+                        breaker.onAbandoned();
+                    }
+                    future.completeExceptionally(e);
+                    return;
+                }
+                recordFailure(breaker);
+                if (!policy.isRetryable(request, e)
+                        || !scheduleRetry(e.getClass().getSimpleName(), null)) {
+                    future.completeExceptionally(e);
+                }
+            }
+            
+            @Override
+            public void onResponse(Call successfulCall, Response response) {
+                recordSuccess(breaker, start);
+                if (policy.isRetryableStatus(response.code()) && policy.isIdempotent(request)
+                        && scheduleRetry(String.valueOf(response.code()), response)) {
+                    response.close();
+                    permit.close();
+                    return;
+                }
+                recordCompleted(budget, attempt);
+                try (Response body = response) {
+                    future.complete(handler.handle(body));
+                } catch (Exception e) {
+                    future.completeExceptionally(e);
+                } finally {
+                    permit.close();
+                }
+            }
+            
+            /**
+             * Schedule the next attempt unless attempts, budget or deadline are used up
+             */
+            private boolean scheduleRetry(String reason, Response response) {
+                long delay = retryDelay(policy, budget, attempt, response);
+                if (delay < 0) {
+                    return false;
+                }
+                if (deadlineAt != 0 && System.nanoTime() + delay - deadlineAt >= 0) {
+                    retryMetrics.recordExhausted();
+                    return false;
+                }
+                retryMetrics.recordRetry(reason, delay);
+                CompletableFuture.delayedExecutor(delay, TimeUnit.NANOSECONDS).execute(() ->
+                        attemptAsync(request, handler, future, currentCall, attempt + 1, deadlineAt));
+                return true;
+            }
+        });
+    }
+    
+    /**
+     * Decide whether a failed attempt is retried
+     * @param response The retryable response, or null if the attempt failed with an exception
+     * @return The delay in nanoseconds before the next attempt, or -1 if the call should fail now
+     */
+    private long retryDelay(RetryPolicy policy, RetryBudget budget, int attempt, Response response) {
+        if (attempt >= policy.getMaxAttempts()) {
+            if (policy.getMaxAttempts() > 1) {
+                retryMetrics.recordExhausted();
+            }
+            return -1;
+        }
+        if (!budget.tryRetry()) {
+            retryMetrics.recordThrottled();
+            return -1;
+        }
+        
+        long delay = policy.backoffNanos(attempt);
+        
+        // Honour a server-provided delay in seconds, within the policy's bound
+        String retryAfter = response == null ? null : response.header("Retry-After");
+        if (retryAfter != null) {
+            try {
+                long requested = TimeUnit.SECONDS.toNanos(Long.parseLong(retryAfter.trim()));
+                delay = Math.max(delay, Math.min(requested, policy.getMaxBackoff().toNanos()));
+            } catch (NumberFormatException e) {
+                // HTTP-date form; keep the policy's delay
+            }
+        }
+        return delay;
+    }
+    
+    /**
+     * Record an attempt that produced a final result
+     */
+    private void recordCompleted(RetryBudget budget, int attempt) {
+        budget.onSuccess();
+        if (attempt > 1) {
+            retryMetrics.recordRecovered();
+        }
+    }
+    
+    /**
+     * Wait before retrying a synchronous call
+     */
+    private static void sleepBeforeRetry(long delayNanos) throws InterruptedIOException {
+        try {
+            TimeUnit.NANOSECONDS.sleep(delayNanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting to retry");
+        }
+    }
+    
+    /**
+     * Retry budget of the request's endpoint
+     */
+    private RetryBudget budgetFor(Request request) {
+        return retryBudgets.computeIfAbsent(baseUrlOf(request),
+                url -> new RetryBudget(RETRY_BUDGET_TOKENS, RETRY_BUDGET_RATIO));
+    }
+    
+    /**
+     * Check the breaker for the request's endpoint
+     * @return The breaker to report the outcome to, or null if the endpoint is not tracked
+     */
+    private CircuitBreaker acquire(Request request) throws CircuitOpenException {
+        EndpointHealth endpoints = health;
+        CircuitBreaker breaker = endpoints == null ? null : endpoints.breakerFor(request.url().toString());
+        if (breaker != null && !breaker.tryAcquire()) {
+            throw new CircuitOpenException("Node endpoint unavailable: " + baseUrlOf(request), breaker.getRetryAfter());
+        }
+        return breaker;
+    }
+    
+    /**
+     * Any HTTP response, including an error status, means the endpoint is reachable
+     */
+    private static void recordSuccess(CircuitBreaker breaker, long start) {
+        if (breaker != null) {
+            breaker.onSuccess(System.nanoTime() - start);
+        }
+    }
+    
+    /**
+     * Record a connection-level failure
+     */
+    private static void recordFailure(CircuitBreaker breaker) {
+        if (breaker != null) {
+            breaker.onFailure();
+        }
+    }
+    
+    /**
+     * Scheme, host and port of a request, for error messages
+     */
+    private static String baseUrlOf(Request request) {
+        return request.url().scheme() + "://" + request.url().host() + ":" + request.url().port();
+    }
+    
+    /**
+     * Create a client view with a different timeout that still shares the pool, TLS sessions and dispatcher
+     */
+    public OkHttpClient withTimeout(long timeout, TimeUnit unit) {
+        return client.newBuilder()
+                .connectTimeout(timeout, unit)
+                .readTimeout(timeout, unit)
+                .writeTimeout(timeout, unit)
+                .build();
+    }
+    
+    /**
+     * Get the number of pooled connections (idle and in use)
+     */
+    public int getConnectionCount() {
+        return client.connectionPool().connectionCount();
+    }
+    
+    /**
+     * Release all resources held by the transport
+     */
+    public void shutdown() {
+        client.dispatcher().executorService().shutdown();
+        client.connectionPool().evictAll();
+    }
+}
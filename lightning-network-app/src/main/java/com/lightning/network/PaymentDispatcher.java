@@ -0,0 +1,548 @@
+package com.lightning.network;
+
+import com.lightning.model.Payment;
+import com.lightning.model.PaymentUpdate;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.LongSupplier;
+import java.util.logging.Logger;
+
+/**
+ * Sends each payment from whichever node is expected to route it cheapest and fastest.
+ *
+ * The dispatcher keeps an in-memory model of every node: outbound liquidity (the last
+ * channel balance, less what has been spent since and what is in flight) and moving
+ * averages of success rate, fee rate and payment time. Nodes are kept ranked by expected
+ * cost and the ranking is adjusted whenever one node's model changes, so choosing a node
+ * reads the head of the ranking instead of scoring every node; nodes without enough
+ * liquidity for the amount are skipped. Payments in flight add to a node's cost, so a burst
+ * of payouts spreads over the nodes instead of queueing behind the cheapest one.
+ *
+ * LND's channel balance leaves out payments held in HTLCs, so a payment that was in flight
+ * when a balance was fetched stops counting against the new balance; if it then fails, its
+ * amount is added back.
+ *
+ * A payment the router gave up on for lack of a route or balance is sent again from the
+ * next node. One whose outcome is unknown is not, since it may still settle.
+ */
+public class PaymentDispatcher {
+    private static final Logger LOGGER = Logger.getLogger(PaymentDispatcher.class.getName());
+    
+    // Channel balances older than this are refreshed in the background before the next payment
+    public static final Duration LIQUIDITY_MAX_AGE = Duration.ofMinutes(1);
+    
+    // Weight of the newest outcome in the moving averages
+    private static final double SMOOTHING = 0.2;
+    
+    // Expected cost of a payment, in parts per million of the amount
+    private static final double FAILURE_COST_PPM = 20_000;
+    private static final double LATENCY_COST_PPM_PER_MS = 0.1;
+    private static final double IN_FLIGHT_COST_PPM = 50;
+    
+    // Estimates for a node without history
+    private static final double INITIAL_FEE_PPM = 1_000;
+    private static final double INITIAL_LATENCY_MS = 1_000;
+    
+    private static final long UNKNOWN = -1;
+    
+    // Router failures that another node may not run into
+    private static final Set<String> NODE_FAILURES = Set.of(
+            "FAILURE_REASON_TIMEOUT",
+            "FAILURE_REASON_NO_ROUTE",
+            "FAILURE_REASON_ERROR",
+            "FAILURE_REASON_INSUFFICIENT_BALANCE");
+    private static final String INSUFFICIENT_BALANCE = "FAILURE_REASON_INSUFFICIENT_BALANCE";
+    
+    /**
+     * Payment operations of one node
+     */
+    interface NodeGateway {
+        /**
+         * Send a payment; completes with the final update, which may report a failed payment
+         */
+        CompletableFuture<PaymentUpdate> send(String paymentRequest);
+        
+        /**
+         * Spendable balance of the node's channels in satoshis
+         */
+        CompletableFuture<Long> fetchOutboundSat();
+    }
+    
+    /**
+     * Reads the amount and payee of a payment request
+     */
+    interface PaymentDecoder {
+        Payment decode(String paymentRequest) throws IOException;
+    }
+    
+    /**
+     * Point-in-time view of one node's model
+     */
+    public static final class NodeStats {
+        private final String name;
+        private final long outboundSat;
+        private final int inFlight;
+        private final double successRate;
+        private final double feePpm;
+        private final double latencyMs;
+        private final double cost;
+        
+        NodeStats(String name, long outboundSat, int inFlight, double successRate, double feePpm,
+                  double latencyMs, double cost) {
+            this.name = name;
+            this.outboundSat = outboundSat;
+            this.inFlight = inFlight;
+            this.successRate = successRate;
+            this.feePpm = feePpm;
+            this.latencyMs = latencyMs;
+            this.cost = cost;
+        }
+        
+        public String getName() {
+            return name;
+        }
+        
+        /**
+         * Satoshis available for new payments, or -1 if the channel balance is not known yet
+         */
+        public long getOutboundSat() {
+            return outboundSat;
+        }
+        
+        /**
+         * Payments currently being sent from the node
+         */
+        public int getInFlight() {
+            return inFlight;
+        }
+        
+        /**
+         * Moving average of payments that succeeded, between 0 and 1
+         */
+        public double getSuccessRate() {
+            return successRate;
+        }
+        
+        /**
+         * Moving average of fees paid, in parts per million of the amount
+         */
+        public double getFeePpm() {
+            return feePpm;
+        }
+        
+        /**
+         * Moving average of the time to settle a payment
+         */
+        public double getLatencyMs() {
+            return latencyMs;
+        }
+        
+        /**
+         * Expected cost of the next payment in parts per million; lower is preferred
+         */
+        public double getCost() {
+            return cost;
+        }
+        
+        @Override
+        public String toString() {
+            return String.format("%s: %s outbound, %d in flight, %.0f%% success, %.0f ppm fees, %.0f ms, cost %.0f",
+                    name, outboundSat == UNKNOWN ? "unknown" : outboundSat + " sats", inFlight,
+                    successRate * 100, feePpm, latencyMs, cost);
+        }
+    }
+    
+    /**
+     * Amount counted against a node while a payment is in flight; guarded by the dispatcher
+     */
+    private static final class Reservation {
+        final Node node;
+        final long amountSat;
+        // Set once a balance fetched after the payment went out is applied
+        boolean inBalance;
+        
+        Reservation(Node node, long amountSat) {
+            this.node = node;
+            this.amountSat = amountSat;
+        }
+    }
+    
+    /**
+     * Model of one node; guarded by the dispatcher
+     */
+    private static final class Node {
+        final String name;
+        final NodeGateway gateway;
+        final List<Reservation> reservations = new ArrayList<>();
+        long outboundSat = UNKNOWN;
+        // Reservations not yet reflected in outboundSat
+        long reservedSat;
+        int inFlight;
+        double successRate = 1;
+        double feePpm = INITIAL_FEE_PPM;
+        double latencyMs = INITIAL_LATENCY_MS;
+        double cost;
+        int rank;
+        
+        Node(String name, NodeGateway gateway) {
+            this.name = name;
+            this.gateway = gateway;
+            this.cost = computeCost();
+        }
+        
+        double computeCost() {
+            return feePpm + (1 - successRate) * FAILURE_COST_PPM + latencyMs * LATENCY_COST_PPM_PER_MS
+                    + inFlight * IN_FLIGHT_COST_PPM;
+        }
+        
+        long available() {
+            return outboundSat == UNKNOWN ? Long.MAX_VALUE : outboundSat - reservedSat;
+        }
+        
+        NodeStats stats() {
+            return new NodeStats(name, outboundSat == UNKNOWN ? UNKNOWN : Math.max(0, available()),
+                    inFlight, successRate, feePpm, latencyMs, cost);
+        }
+    }
+    
+    private final Map<String, Node> nodes = new LinkedHashMap<>();
+    private final PaymentDecoder decoder;
+    private final LongSupplier clock;
+    
+    // Nodes by ascending cost; guarded by this
+    private final Node[] ranking;
+    private long liquidityRefreshedAt;
+    private boolean liquidityRefreshing;
+    
+    /**
+     * Create a dispatcher over every node in the registry at this time
+     */
+    public PaymentDispatcher(NodeRegistry registry) {
+        this(gateways(registry), registry.getPrimary()::decodePaymentRequest, System::nanoTime);
+    }
+    
+    /**
+     * Create a dispatcher with explicit node operations and a nanosecond clock
+     */
+    PaymentDispatcher(Map<String, NodeGateway> gateways, PaymentDecoder decoder, LongSupplier clock) {
+        this.decoder = decoder;
+        this.clock = clock;
+        this.ranking = new Node[gateways.size()];
+        int rank = 0;
+        for (Map.Entry<String, NodeGateway> gateway : gateways.entrySet()) {
+            Node node = new Node(gateway.getKey(), gateway.getValue());
+            node.rank = rank;
+            ranking[rank++] = node;
+            nodes.put(node.name, node);
+        }
+        this.liquidityRefreshedAt = clock.getAsLong() - LIQUIDITY_MAX_AGE.toNanos() - 1;
+    }
+    
+    private static Map<String, NodeGateway> gateways(NodeRegistry registry) {
+        Map<String, NodeGateway> gateways = new LinkedHashMap<>();
+        registry.getNodes().forEach((name, service) -> gateways.put(name, new NodeGateway() {
+            @Override
+            public CompletableFuture<PaymentUpdate> send(String paymentRequest) {
+                return service.getPaymentEngine().send(paymentRequest, null);
+            }
+            
+            @Override
+            public CompletableFuture<Long> fetchOutboundSat() {
+                return service.getChannelBalanceAsync();
+            }
+        }));
+        return gateways;
+    }
+    
+    /**
+     * Pay a request from the node expected to route it best, moving on to the next node if the router gives up
+     * @return The settled payment; fails if no node could pay it
+     */
+    public CompletableFuture<Payment> pay(String paymentRequest) {
+        Payment decoded;
+        try {
+            decoded = decoder.decode(paymentRequest);
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        refreshLiquidityIfStale();
+        
+        CompletableFuture<Payment> result = new CompletableFuture<>();
+        attempt(paymentRequest, decoded, new ArrayList<>(), null, result);
+        return result;
+    }
+    
+    /**
+     * Send from the best node not tried yet
+     */
+    private void attempt(String paymentRequest, Payment decoded, List<Node> tried, String lastFailure,
+                         CompletableFuture<Payment> result) {
+        long amountSat = decoded.getNumSatoshis();
+        Reservation reservation = reserve(amountSat, tried);
+        if (reservation == null) {
+            result.completeExceptionally(new IOException(lastFailure == null
+                    ? "No node has " + amountSat + " sats of outbound liquidity"
+                    : "Payment failed: " + lastFailure));
+            return;
+        }
+        Node node = reservation.node;
+        tried.add(node);
+        
+        long start = clock.getAsLong();
+        CompletableFuture<PaymentUpdate> sent;
+        try {
+            sent = node.gateway.send(paymentRequest);
+        } catch (RuntimeException e) {
+            sent = CompletableFuture.failedFuture(e);
+        }
+        CompletableFuture<PaymentUpdate> call = sent;
+        result.whenComplete((payment, error) -> {
+            if (result.isCancelled()) {
+                call.cancel(true);
+            }
+        });
+        
+        call.whenComplete((update, error) -> {
+            long elapsedNanos = clock.getAsLong() - start;
+            if (error != null) {
+                recordUnknown(reservation);
+                Throwable cause = error instanceof CompletionException && error.getCause() != null
+                        ? error.getCause() : error;
+                result.completeExceptionally(cause);
+            } else if (update.isSucceeded()) {
+                recordSuccess(reservation, update, elapsedNanos);
+                Payment payment = update.toPayment();
+                payment.setDestination(decoded.getDestination());
+                payment.setDescription(decoded.getDescription());
+                payment.setNumSatoshis(amountSat);
+                result.complete(payment);
+            } else if (NODE_FAILURES.contains(update.getFailureReason())) {
+                recordFailure(reservation, update.getFailureReason());
+                LOGGER.info("Payment " + update.getPaymentHash() + " failed from node " + node.name + " ("
+                        + update.getFailureReason() + "); trying the next node");
+                attempt(paymentRequest, decoded, tried, update.getFailureReason(), result);
+            } else {
+                // The payee refused it or it was cancelled; no node would do better
+                release(reservation);
+                result.completeExceptionally(new IOException("Payment failed: " + update.getFailureReason()));
+            }
+        });
+    }
+    
+    /**
+     * Take the cheapest node that has not been tried and can carry the amount, and count the payment against it
+     */
+    private synchronized Reservation reserve(long amountSat, List<Node> tried) {
+        for (Node node : ranking) {
+            if (node.available() >= amountSat && !tried.contains(node)) {
+                Reservation reservation = new Reservation(node, amountSat);
+                node.reservations.add(reservation);
+                node.reservedSat += amountSat;
+                node.inFlight++;
+                rerank(node);
+                return reservation;
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * Stop counting a finished payment against its node; the caller holds the lock
+     */
+    private static void unreserve(Reservation reservation) {
+        Node node = reservation.node;
+        node.reservations.remove(reservation);
+        node.inFlight--;
+        if (!reservation.inBalance) {
+            node.reservedSat -= reservation.amountSat;
+        }
+    }
+    
+    /**
+     * A payment that failed after the balance was fetched returns its HTLC to the balance; the caller holds the lock
+     */
+    private static void returnToBalance(Reservation reservation) {
+        Node node = reservation.node;
+        if (reservation.inBalance && node.outboundSat != UNKNOWN) {
+            node.outboundSat += reservation.amountSat;
+        }
+    }
+    
+    private synchronized void recordSuccess(Reservation reservation, PaymentUpdate update, long elapsedNanos) {
+        Node node = reservation.node;
+        unreserve(reservation);
+        if (!reservation.inBalance && node.outboundSat != UNKNOWN) {
+            node.outboundSat = Math.max(0, node.outboundSat - reservation.amountSat - update.getFeeMsat() / 1000);
+        }
+        node.successRate = smooth(node.successRate, 1);
+        if (update.getValueMsat() > 0) {
+            node.feePpm = smooth(node.feePpm, update.getFeeMsat() * 1e6 / update.getValueMsat());
+        }
+        node.latencyMs = smooth(node.latencyMs, elapsedNanos / 1e6);
+        rerank(node);
+    }
+    
+    private synchronized void recordFailure(Reservation reservation, String reason) {
+        Node node = reservation.node;
+        unreserve(reservation);
+        returnToBalance(reservation);
+        if (INSUFFICIENT_BALANCE.equals(reason)) {
+            // The channels cannot carry this amount; assume no more than just under it until the next refresh
+            long cap = Math.max(0, reservation.amountSat - 1);
+            node.outboundSat = node.outboundSat == UNKNOWN ? cap : Math.min(node.outboundSat, cap);
+        }
+        node.successRate = smooth(node.successRate, 0);
+        rerank(node);
+    }
+    
+    /**
+     * The payment may still settle, so its amount stays spent until the next balance refresh
+     */
+    private synchronized void recordUnknown(Reservation reservation) {
+        Node node = reservation.node;
+        unreserve(reservation);
+        if (!reservation.inBalance && node.outboundSat != UNKNOWN) {
+            node.outboundSat = Math.max(0, node.outboundSat - reservation.amountSat);
+        }
+        node.successRate = smooth(node.successRate, 0);
+        rerank(node);
+    }
+    
+    private synchronized void release(Reservation reservation) {
+        unreserve(reservation);
+        returnToBalance(reservation);
+        rerank(reservation.node);
+    }
+    
+    /**
+     * Recompute a node's cost and move it to its place in the ranking; the caller holds the lock
+     */
+    private void rerank(Node node) {
+        node.cost = node.computeCost();
+        int i = node.rank;
+        while (i > 0 && ranking[i - 1].cost > node.cost) {
+            move(i - 1, i);
+            i--;
+        }
+        while (i < ranking.length - 1 && ranking[i + 1].cost < node.cost) {
+            move(i + 1, i);
+            i++;
+        }
+        ranking[i] = node;
+        node.rank = i;
+    }
+    
+    private void move(int from, int to) {
+        ranking[to] = ranking[from];
+        ranking[to].rank = to;
+    }
+    
+    private static double smooth(double average, double sample) {
+        return average + SMOOTHING * (sample - average);
+    }
+    
+    /**
+     * Fetch the channel balance of every node in parallel. Never completes exceptionally;
+     * a node that cannot be reached keeps its previous estimate.
+     */
+    public CompletableFuture<Void> refreshLiquidity() {
+        synchronized (this) {
+            liquidityRefreshing = true;
+        }
+        return fetchLiquidity();
+    }
+    
+    private void refreshLiquidityIfStale() {
+        synchronized (this) {
+            if (liquidityRefreshing || clock.getAsLong() - liquidityRefreshedAt <= LIQUIDITY_MAX_AGE.toNanos()) {
+                return;
+            }
+            // Claimed under the same lock as the check, so concurrent payments start a single refresh
+            liquidityRefreshing = true;
+        }
+        fetchLiquidity();
+    }
+    
+    /**
+     * Fetch every node's balance for a refresh already marked as running
+     */
+    private CompletableFuture<Void> fetchLiquidity() {
+        List<CompletableFuture<?>> calls = new ArrayList<>();
+        for (Node node : nodes.values()) {
+            // Payments already sent are held in HTLCs, outside the balance about to be fetched
+            List<Reservation> sent;
+            synchronized (this) {
+                sent = new ArrayList<>(node.reservations);
+            }
+            CompletableFuture<Long> call;
+            try {
+                call = node.gateway.fetchOutboundSat();
+            } catch (RuntimeException e) {
+                call = CompletableFuture.failedFuture(e);
+            }
+            calls.add(call.handle((outboundSat, error) -> {
+                if (error == null) {
+                    synchronized (this) {
+                        node.outboundSat = outboundSat;
+                        for (Reservation reservation : sent) {
+                            if (!reservation.inBalance && node.reservations.contains(reservation)) {
+                                reservation.inBalance = true;
+                                node.reservedSat -= reservation.amountSat;
+                            }
+                        }
+                    }
+                } else {
+                    LOGGER.fine("Could not refresh the channel balance of node " + node.name + ": " + error);
+                }
+                return null;
+            }));
+        }
+        return CompletableFuture.allOf(calls.toArray(new CompletableFuture[0])).thenRun(() -> {
+            synchronized (this) {
+                liquidityRefreshing = false;
+                liquidityRefreshedAt = clock.getAsLong();
+            }
+        });
+    }
+    
+    /**
+     * Get the model of every node, cheapest first
+     */
+    public synchronized List<NodeStats> getStats() {
+        List<NodeStats> stats = new ArrayList<>(ranking.length);
+        for (Node node : ranking) {
+            stats.add(node.stats());
+        }
+        return stats;
+    }
+    
+    /**
+     * Names of the nodes, cheapest first
+     */
+    public synchronized List<String> getRanking() {
+        List<String> names = new ArrayList<>(ranking.length);
+        for (Node node : ranking) {
+            names.add(node.name);
+        }
+        return names;
+    }
+    
+    /**
+     * One line per node, for diagnostics
+     */
+    public String report() {
+        StringBuilder report = new StringBuilder();
+        for (NodeStats stats : getStats()) {
+            report.append(stats).append('\n');
+        }
+        return report.toString();
+    }
+}
@@ -0,0 +1,708 @@
+package com.lightning.network;
+
+import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.lightning.db.DatabaseManager;
+import com.lightning.model.HtlcAttempt;
+import com.lightning.model.Payment;
+import com.lightning.model.PaymentUpdate;
+import com.lightning.network.json.PaymentUpdateTypeAdapter;
+import com.lightning.util.Bolt11Decoder;
+import com.lightning.util.Bolt11Invoice;
+import okhttp3.Call;
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Sends payments through the node's router (/v2/router/send) and follows their progress.
+ *
+ * The router streams the payment object each time an HTLC attempt is launched, settles or
+ * fails. Every update is written to the database and passed to listeners as it arrives,
+ * and the returned future completes once the payment reaches a final state. Unlike the
+ * legacy /channels/transactions call, the router splits payments into several parts and
+ * honours an explicit timeout and fee limit.
+ *
+ * Payments are idempotent by payment hash. Sending a hash that is already in flight joins
+ * that payment, and a dropped stream is resumed by tracking the hash (/v2/router/track)
+ * with backoff, so a retry can never pay an invoice twice. Payments made through another
+ * {@link Sender}, such as gRPC, are held to the same guard.
+ *
+ * Each stream is read by its own daemon thread, which is idle while the node is routing.
+ * The streams do not use the transport's dispatcher, so long payments never hold back
+ * regular calls, and over HTTP/2 they share the transport's few pooled connections.
+ */
+public class PaymentEngine {
+    private static final Logger LOGGER = Logger.getLogger(PaymentEngine.class.getName());
+    private static final PaymentUpdateTypeAdapter UPDATE_ADAPTER = new PaymentUpdateTypeAdapter();
+    private static final MediaType JSON = MediaType.parse("application/json");
+    
+    static final Duration DEFAULT_TIMEOUT = Duration.ofSeconds(NetworkConstants.PAYMENT_TIMEOUT);
+    static final long DEFAULT_FEE_LIMIT_PERCENT = 1;
+    static final int DEFAULT_MAX_PARTS = 16;
+    
+    // Small payments get at least this fee budget, or a percentage limit would leave no route
+    private static final long MIN_FEE_LIMIT_SAT = 10;
+    
+    // Time beyond the payment timeout for the node to report the final state
+    private static final Duration CALL_GRACE = Duration.ofSeconds(30);
+    
+    /**
+     * Receives every update of the payments sent through the engine
+     */
+    public interface Listener {
+        void paymentUpdated(PaymentUpdate update);
+    }
+    
+    /**
+     * Persists the latest state of a payment and its attempts
+     */
+    interface PaymentStore {
+        void save(Payment payment, String status, List<HtlcAttempt> attempts) throws SQLException;
+    }
+    
+    /**
+     * Sends a payment by other means than the router stream, such as LND's gRPC SendPaymentSync
+     */
+    @FunctionalInterface
+    public interface Sender {
+        
+        /**
+         * Send the payment and wait for it to settle
+         * @throws IOException If the payment failed or its outcome is unknown
+         */
+        Payment send(String paymentRequest) throws IOException;
+    }
+    
+    /**
+     * A payment being followed, shared by every caller that sends the same payment hash
+     */
+    private static class Session {
+        private final CompletableFuture<PaymentUpdate> future = new CompletableFuture<>();
+        private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+        private volatile Call currentCall;
+        
+        Session(Listener listener) {
+            addListener(listener);
+        }
+        
+        /**
+         * Add a caller's listener, if any
+         */
+        void addListener(Listener listener) {
+            if (listener != null) {
+                listeners.add(listener);
+            }
+        }
+    }
+    
+    /**
+     * The router refused a request or reported an error on the stream
+     */
+    private static class RouterException extends IOException {
+        
+        RouterException(String message) {
+            super("Payment failed: " + message);
+        }
+        
+        /**
+         * Whether the payment hash was already used by a payment that succeeded or is in flight
+         */
+        boolean isAlreadyStarted() {
+            String message = getMessage();
+            return message.contains("already paid") || message.contains("in transition")
+                    || message.contains("already in flight");
+        }
+        
+        /**
+         * Whether the node has no payment for the hash
+         */
+        boolean isNotInitiated() {
+            return getMessage().contains("isn't initiated");
+        }
+    }
+    
+    private final NodeTransport transport;
+    private final PaymentStore store;
+    private final ExecutorService streamReaders;
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private final Set<Call> activeCalls = ConcurrentHashMap.newKeySet();
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+    
+    private volatile Duration timeout = DEFAULT_TIMEOUT;
+    private volatile long feeLimitPercent = DEFAULT_FEE_LIMIT_PERCENT;
+    private volatile int maxParts = DEFAULT_MAX_PARTS;
+    private volatile RetryPolicy retryPolicy = RetryPolicy.DEFAULT;
+    
+    /**
+     * Create an engine that sends through the given transport and records to the local database
+     */
+    public PaymentEngine(NodeTransport transport) {
+        this(transport, (payment, status, attempts) ->
+                DatabaseManager.getInstance().savePaymentProgress(payment, status, attempts));
+    }
+    
+    /**
+     * Create an engine with explicit storage
+     */
+    PaymentEngine(NodeTransport transport, PaymentStore store) {
+        this.transport = transport;
+        this.store = store;
+        this.streamReaders = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "payment-stream");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+    
+    /**
+     * Set the limits used when a payment does not specify its own
+     * @param timeout Time the router may spend finding a route
+     * @param feeLimitPercent Fee limit as a percentage of the amount, at least 10 sat
+     * @param maxParts Maximum number of parts a payment may be split into
+     */
+    public void setDefaults(Duration timeout, long feeLimitPercent, int maxParts) {
+        this.timeout = timeout;
+        this.feeLimitPercent = feeLimitPercent;
+        this.maxParts = maxParts;
+    }
+    
+    /**
+     * Set the policy for reconnecting dropped payment streams
+     */
+    public void setRetryPolicy(RetryPolicy retryPolicy) {
+        this.retryPolicy = retryPolicy;
+    }
+    
+    /**
+     * Register a listener for updates of all payments
+     */
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+    
+    /**
+     * Remove a previously registered listener
+     */
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+    
+    /**
+     * Number of payments currently being followed
+     */
+    public int getInFlightCount() {
+        return sessions.size();
+    }
+    
+    /**
+     * Pay a request with the default limits, failing if the payment fails
+     * @return The settled payment, including preimage and fee
+     */
+    public CompletableFuture<Payment> pay(String paymentRequest) {
+        return pay(paymentRequest, timeout);
+    }
+    
+    /**
+     * Pay a request with the given router timeout, failing if the payment fails
+     * @return The settled payment, including preimage and fee
+     */
+    public CompletableFuture<Payment> pay(String paymentRequest, Duration timeout) {
+        Bolt11Invoice invoice;
+        try {
+            invoice = decode(paymentRequest);
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        
+        return settled(send(invoice, timeout, defaultFeeLimit(invoice), maxParts, null), invoice);
+    }
+    
+    /**
+     * Pay a request with another sender, under the same payment hash guard as router payments.
+     * If the hash is already in flight here, the caller joins that payment instead of sending it
+     * again, and router payments of the hash join this one until it completes.
+     * @return The settled payment, including preimage and fee
+     */
+    public CompletableFuture<Payment> pay(String paymentRequest, Sender sender) {
+        Bolt11Invoice invoice;
+        try {
+            invoice = decode(paymentRequest);
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        
+        String paymentHash = invoice.getPaymentHash();
+        Session session = new Session(null);
+        Session existing = sessions.putIfAbsent(paymentHash, session);
+        if (existing != null) {
+            LOGGER.info("Payment " + paymentHash + " already in flight; following it instead of sending again");
+            return settled(existing.future.thenApply(update -> update), invoice);
+        }
+        session.future.whenComplete((update, error) -> sessions.remove(paymentHash, session));
+        
+        CompletableFuture<Payment> result = new CompletableFuture<>();
+        try {
+            streamReaders.execute(() -> {
+                try {
+                    Payment sent = sender.send(paymentRequest);
+                    PaymentUpdate update = toUpdate(sent, invoice, paymentRequest);
+                    publish(update, invoice, session);
+                    Payment payment = toPayment(update, invoice);
+                    payment.setPaymentRoute(sent.getPaymentRoute());
+                    result.complete(payment);
+                    session.future.complete(update);
+                } catch (IOException | RuntimeException e) {
+                    result.completeExceptionally(e);
+                    session.future.completeExceptionally(e);
+                }
+            });
+        } catch (RuntimeException e) {
+            IOException shutDown = new IOException("Payment engine is shut down", e);
+            result.completeExceptionally(shutDown);
+            session.future.completeExceptionally(shutDown);
+        }
+        return result;
+    }
+    
+    /**
+     * Complete with the payment once the final update reports success, failing otherwise.
+     * Cancelling the result cancels the update future.
+     */
+    private static CompletableFuture<Payment> settled(CompletableFuture<PaymentUpdate> sent, Bolt11Invoice invoice) {
+        CompletableFuture<Payment> result = sent.thenCompose(update -> update.isSucceeded()
+                ? CompletableFuture.completedFuture(toPayment(update, invoice))
+                : CompletableFuture.failedFuture(new IOException("Payment failed: " + update.getFailureReason())));
+        result.whenComplete((payment, error) -> {
+            if (result.isCancelled()) {
+                sent.cancel(true);
+            }
+        });
+        return result;
+    }
+    
+    /**
+     * Send a payment with the default limits
+     * @param listener Receives this payment's updates before the global listeners, or null
+     * @return Completes with the final update, which may report a failed payment
+     */
+    public CompletableFuture<PaymentUpdate> send(String paymentRequest, Listener listener) {
+        try {
+            Bolt11Invoice invoice = decode(paymentRequest);
+            return send(invoice, timeout, defaultFeeLimit(invoice), maxParts, listener);
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+    
+    /**
+     * Send a payment with explicit limits
+     * @param timeout Time the router may spend finding a route
+     * @param feeLimitSat Maximum total fee in satoshis
+     * @param maxParts Maximum number of parts the payment may be split into
+     * @param listener Receives this payment's updates before the global listeners, or null
+     * @return Completes with the final update, which may report a failed payment
+     */
+    public CompletableFuture<PaymentUpdate> send(String paymentRequest, Duration timeout, long feeLimitSat,
+                                                 int maxParts, Listener listener) {
+        try {
+            return send(decode(paymentRequest), timeout, feeLimitSat, maxParts, listener);
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+    
+    /**
+     * Start a payment, or join the one already in flight for the same payment hash.
+     * Cancelling the returned future closes the stream; the node may still complete the payment.
+     */
+    private CompletableFuture<PaymentUpdate> send(Bolt11Invoice invoice, Duration timeout, long feeLimitSat,
+                                                  int maxParts, Listener listener) {
+        String paymentHash = invoice.getPaymentHash();
+        Session session = new Session(listener);
+        Session existing = sessions.putIfAbsent(paymentHash, session);
+        if (existing != null) {
+            LOGGER.info("Payment " + paymentHash + " already in flight; following it instead of sending again");
+            existing.addListener(listener);
+            return existing.future.thenApply(update -> update);
+        }
+        
+        session.future.whenComplete((update, error) -> {
+            sessions.remove(paymentHash, session);
+            Call call = session.currentCall;
+            if (session.future.isCancelled() && call != null) {
+                call.cancel();
+            }
+        });
+        
+        try {
+            streamReaders.execute(() -> {
+                try {
+                    session.future.complete(run(session, invoice, timeout, feeLimitSat, maxParts));
+                } catch (IOException | RuntimeException e) {
+                    session.future.completeExceptionally(e);
+                }
+            });
+        } catch (RuntimeException e) {
+            session.future.completeExceptionally(new IOException("Payment engine is shut down", e));
+        }
+        return session.future;
+    }
+    
+    /**
+     * Follow a payment to its final state, reconnecting when the stream drops.
+     *
+     * A payment is never sent twice: after a dropped stream, or when the node reports that the
+     * payment hash was already used, the existing payment is tracked instead. It is only sent
+     * again once the node confirms it never started it.
+     */
+    private PaymentUpdate run(Session session, Bolt11Invoice invoice, Duration timeout, long feeLimitSat,
+                              int maxParts) throws IOException {
+        RetryPolicy policy = retryPolicy;
+        RetryMetrics metrics = transport.getRetryMetrics();
+        boolean tracking = false;
+        boolean joinedExisting = false;
+        
+        for (int attempt = 1; ; attempt++) {
+            Call call = tracking ? newTrackCall(invoice, timeout) : newSendCall(invoice, timeout, feeLimitSat, maxParts);
+            session.currentCall = call;
+            if (session.future.isDone()) {
+                call.cancel();
+            }
+            activeCalls.add(call);
+            try {
+                return stream(call, invoice, session);
+            } catch (RouterException e) {
+                if (!tracking && !joinedExisting && e.isAlreadyStarted()) {
+                    // Paid or in flight from an earlier attempt; report that payment's outcome
+                    LOGGER.info("Payment " + invoice.getPaymentHash() + " was already sent (" + e.getMessage()
+                            + "); tracking it");
+                    tracking = true;
+                    joinedExisting = true;
+                    attempt--;
+                    continue;
+                }
+                if (tracking && e.isNotInitiated() && attempt < policy.getMaxAttempts()) {
+                    // The node never received the payment, so sending it is safe
+                    tracking = false;
+                    continue;
+                }
+                throw e;
+            } catch (IOException e) {
+                if (session.future.isDone() || streamReaders.isShutdown()) {
+                    throw e;
+                }
+                if (attempt >= policy.getMaxAttempts()) {
+                    if (policy.getMaxAttempts() > 1) {
+                        metrics.recordExhausted();
+                    }
+                    throw new IOException("Lost the payment stream; payment " + invoice.getPaymentHash()
+                            + " may still be in flight: " + e.getMessage(), e);
+                }
+                
+                long delay = policy.backoffNanos(attempt);
+                metrics.recordRetry("payment stream", delay);
+                LOGGER.warning("Payment stream for " + invoice.getPaymentHash() + " failed (" + e.getMessage()
+                        + "); tracking it in " + TimeUnit.NANOSECONDS.toMillis(delay) + " ms");
+                try {
+                    TimeUnit.NANOSECONDS.sleep(delay);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while reconnecting payment stream");
+                }
+                
+                // The node may have accepted the payment before the stream dropped
+                tracking = true;
+            } finally {
+                activeCalls.remove(call);
+            }
+        }
+    }
+    
+    /**
+     * Create the call that sends a payment
+     */
+    private Call newSendCall(Bolt11Invoice invoice, Duration timeout, long feeLimitSat, int maxParts) {
+        JsonObject payload = new JsonObject();
+        payload.addProperty("payment_request", invoice.getPaymentRequest());
+        payload.addProperty("timeout_seconds", Math.max(1, timeout.getSeconds()));
+        payload.addProperty("fee_limit_sat", feeLimitSat);
+        payload.addProperty("max_parts", maxParts);
+        payload.addProperty("no_inflight_updates", false);
+        
+        Request request = transport.newRootRequest("/v2/router/send")
+                .post(RequestBody.create(JSON, payload.toString()))
+                .build();
+        Call call = transport.newStreamingCall(request);
+        call.timeout().timeout(timeout.plus(CALL_GRACE).toMillis(), TimeUnit.MILLISECONDS);
+        return call;
+    }
+    
+    /**
+     * Create the call that follows an existing payment by its hash
+     */
+    private Call newTrackCall(Bolt11Invoice invoice, Duration timeout) {
+        Request request = transport.newRootRequest("/v2/router/track/" + toBase64Url(invoice.getPaymentHash()))
+                .build();
+        Call call = transport.newStreamingCall(request);
+        call.timeout().timeout(timeout.plus(CALL_GRACE).toMillis(), TimeUnit.MILLISECONDS);
+        return call;
+    }
+    
+    /**
+     * Read updates until the payment reaches a final state
+     */
+    private PaymentUpdate stream(Call call, Bolt11Invoice invoice, Session session) throws IOException {
+        try (Response response = call.execute()) {
+            if (!response.isSuccessful()) {
+                String message = readResponseMessage(response);
+                RouterException rejected = new RouterException(message == null ? response.toString() : message);
+                // Anything the router recognised, and client errors other than rate limiting, are final
+                if (rejected.isAlreadyStarted() || rejected.isNotInitiated()
+                        || (response.code() < 500 && response.code() != 429)) {
+                    throw rejected;
+                }
+                throw new IOException("Payment stream failed: " + response);
+            }
+            
+            // The body is a sequence of JSON objects, which needs a lenient reader
+            JsonReader reader = new JsonReader(response.body().charStream());
+            reader.setLenient(true);
+            
+            while (reader.peek() != JsonToken.END_DOCUMENT) {
+                PaymentUpdate update = readEvent(reader);
+                if (update == null) {
+                    continue;
+                }
+                publish(update, invoice, session);
+                if (update.isFinal()) {
+                    LOGGER.info("Payment " + update.getPaymentHash() + " " + update.getStatus() + " after "
+                            + update.getHtlcs().size() + " attempt(s)");
+                    return update;
+                }
+            }
+        }
+        throw new IOException("Payment stream closed before a final state");
+    }
+    
+    /**
+     * Record an update and notify the payment's listeners, then the global listeners
+     */
+    private void publish(PaymentUpdate update, Bolt11Invoice invoice, Session session) {
+        try {
+            store.save(toPayment(update, invoice), statusLabel(update.getStatus()), update.getHtlcs());
+        } catch (SQLException e) {
+            LOGGER.log(Level.WARNING, "Failed to record payment update " + update.getPaymentHash(), e);
+        }
+        
+        for (Listener each : session.listeners) {
+            notify(each, update);
+        }
+        for (Listener each : listeners) {
+            notify(each, update);
+        }
+    }
+    
+    /**
+     * Notify one listener, isolating the stream from its failures
+     */
+    private void notify(Listener listener, PaymentUpdate update) {
+        try {
+            listener.paymentUpdated(update);
+        } catch (RuntimeException e) {
+            LOGGER.log(Level.WARNING, "Payment listener failed", e);
+        }
+    }
+    
+    /**
+     * Read one {"result": payment} or {"error": ...} envelope
+     */
+    private PaymentUpdate readEvent(JsonReader reader) throws IOException {
+        PaymentUpdate update = null;
+        String error = null;
+        
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if ("result".equals(name)) {
+                update = UPDATE_ADAPTER.read(reader);
+            } else if ("error".equals(name) && reader.peek() == JsonToken.BEGIN_OBJECT) {
+                error = readErrorMessage(reader);
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        
+        if (error != null) {
+            throw new RouterException(error);
+        }
+        return update;
+    }
+    
+    /**
+     * Extract the message from a gateway error object
+     */
+    private String readErrorMessage(JsonReader reader) throws IOException {
+        String message = "unknown error";
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if ("message".equals(reader.nextName()) && reader.peek() == JsonToken.STRING) {
+                message = reader.nextString();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return message;
+    }
+    
+    /**
+     * Extract the error message from a rejected request's body, in either gateway format
+     */
+    private String readResponseMessage(Response response) {
+        try {
+            JsonReader reader = new JsonReader(response.body().charStream());
+            reader.setLenient(true);
+            String message = null;
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String name = reader.nextName();
+                if ("message".equals(name) && reader.peek() == JsonToken.STRING) {
+                    message = reader.nextString();
+                } else if ("error".equals(name) && reader.peek() == JsonToken.BEGIN_OBJECT) {
+                    message = readErrorMessage(reader);
+                } else {
+                    reader.skipValue();
+                }
+            }
+            return message;
+        } catch (IOException | IllegalStateException e) {
+            return null;
+        }
+    }
+    
+    /**
+     * Encode a hex payment hash for use in a URL path
+     */
+    private static String toBase64Url(String hex) {
+        byte[] bytes = new byte[hex.length() / 2];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) Integer.parseInt(hex.substring(i * 2, i * 2 + 2), 16);
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+    
+    /**
+     * Hex form of a 32-byte value given as hex or base64
+     */
+    private static String toHex(String value) {
+        if (value == null || value.matches("[0-9a-fA-F]{64}")) {
+            return value;
+        }
+        StringBuilder hex = new StringBuilder(64);
+        for (byte b : Base64.getDecoder().decode(value)) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+    
+    /**
+     * Fee limit for a payment without an explicit one
+     */
+    private long defaultFeeLimit(Bolt11Invoice invoice) {
+        return Math.max(MIN_FEE_LIMIT_SAT, invoice.getAmountSat() * feeLimitPercent / 100);
+    }
+    
+    /**
+     * Decode the request locally for its amount, destination and description
+     */
+    private static Bolt11Invoice decode(String paymentRequest) throws IOException {
+        try {
+            return Bolt11Decoder.decode(paymentRequest);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Invalid payment request: " + e.getMessage(), e);
+        }
+    }
+    
+    /**
+     * Map an update to the payment model, filling in what only the request carries
+     */
+    private static Payment toPayment(PaymentUpdate update, Bolt11Invoice invoice) {
+        Payment payment = update.toPayment();
+        if (payment.getPaymentHash() == null) {
+            payment.setPaymentHash(invoice.getPaymentHash());
+        }
+        payment.setDestination(invoice.getDestination());
+        payment.setDescription(invoice.getDescription());
+        payment.setNumSatoshis(invoice.getAmountSat());
+        return payment;
+    }
+    
+    /**
+     * Final update for a payment settled by a {@link Sender}, keyed by the invoice's hex hash
+     * like router payments; gRPC reports the hash and preimage as base64
+     */
+    private static PaymentUpdate toUpdate(Payment payment, Bolt11Invoice invoice, String paymentRequest) {
+        PaymentUpdate update = new PaymentUpdate();
+        update.setPaymentHash(invoice.getPaymentHash());
+        update.setPaymentRequest(paymentRequest);
+        update.setStatus(PaymentUpdate.STATUS_SUCCEEDED);
+        update.setPreimage(toHex(payment.getPaymentPreimage()));
+        update.setValueMsat(payment.getValueSat() * 1000);
+        update.setFeeMsat(payment.getFeeSat() * 1000);
+        update.setCreationTimeNs(TimeUnit.SECONDS.toNanos(payment.getTimestamp()));
+        return update;
+    }
+    
+    /**
+     * Whether a send failed because the node answered with an error, so the payment is known not to be
+     * in flight. Other failures, such as a lost stream or a timeout, leave the outcome unknown.
+     */
+    static boolean isRefused(Throwable error) {
+        return error instanceof RouterException;
+    }
+    
+    /**
+     * Status stored in the payments table for a router status
+     */
+    static String statusLabel(String status) {
+        if (PaymentUpdate.STATUS_SUCCEEDED.equals(status)) {
+            return "Completed";
+        }
+        if (PaymentUpdate.STATUS_FAILED.equals(status)) {
+            return "Failed";
+        }
+        return "In Flight";
+    }
+    
+    /**
+     * Close all open payment streams and stop the reader threads.
+     * Payments already handed to the node are not affected.
+     */
+    public void shutdown() {
+        streamReaders.shutdownNow();
+        for (Call call : activeCalls) {
+            call.cancel();
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.lightning.network;
+
+import okhttp3.Request;
+
+/**
+ * Priority class of a call to the node, each with its own bulkhead lane.
+ *
+ * Calls carry their class as an OkHttp request tag; untagged GETs are background
+ * reads and untagged writes are interactive. Defaults are sized for a small LND
+ * instance and can be changed with traffic.&lt;class&gt;.* settings.
+ */
+public enum RequestClass {
+    /** User actions the UI is waiting on: creating invoices, addresses, decoding a request to pay */
+    INTERACTIVE("interactive", 8, 50, 20),
+    /** Periodic refreshes of node info, balance and invoice lists */
+    BACKGROUND("background", 4, 20, 10),
+    /** Diagnostics and invoice history walks that may issue many requests */
+    BULK("bulk", 2, 10, 5);
+    
+    private final String configName;
+    private final int defaultConcurrency;
+    private final double defaultRatePerSecond;
+    private final int defaultBurst;
+    
+    RequestClass(String configName, int defaultConcurrency, double defaultRatePerSecond, int defaultBurst) {
+        this.configName = configName;
+        this.defaultConcurrency = defaultConcurrency;
+        this.defaultRatePerSecond = defaultRatePerSecond;
+        this.defaultBurst = defaultBurst;
+    }
+    
+    /**
+     * Name used in settings, e.g. traffic.background.concurrency
+     */
+    public String getConfigName() {
+        return configName;
+    }
+    
+    /**
+     * Calls of this class allowed in flight at once
+     */
+    public int getDefaultConcurrency() {
+        return defaultConcurrency;
+    }
+    
+    /**
+     * Calls of this class started per second over the long run
+     */
+    public double getDefaultRatePerSecond() {
+        return defaultRatePerSecond;
+    }
+    
+    /**
+     * Calls of this class that may start back to back before the rate applies
+     */
+    public int getDefaultBurst() {
+        return defaultBurst;
+    }
+    
+    /**
+     * Tag a request with this class
+     */
+    public Request.Builder tag(Request.Builder builder) {
+        return builder.tag(RequestClass.class, this);
+    }
+    
+    /**
+     * Class of a request: its tag, otherwise background for reads and interactive for writes
+     */
+    public static RequestClass of(Request request) {
+        RequestClass tagged = request.tag(RequestClass.class);
+        if (tagged != null) {
+            return tagged;
+        }
+        return "GET".equals(request.method()) ? BACKGROUND : INTERACTIVE;
+    }
+}
@@ -0,0 +1,239 @@
+package com.lightning.network;
+
+import com.lightning.util.LatencyHistogram;
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import okio.ForwardingSource;
+import okio.Okio;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * OkHttp interceptor that keeps per-endpoint request statistics.
+ *
+ * Endpoints are keyed by method and path, with the /v1 prefix dropped and identifiers
+ * such as payment hashes and payment requests replaced by {id}, so /invoice/abcd... and
+ * /invoice/ef01... share one entry. Latency is measured until the response headers arrive,
+ * which for streaming calls is the time to the first byte. Body bytes are counted as the
+ * caller reads them, so they include streamed responses.
+ */
+public class RequestMetrics implements Interceptor {
+    
+    // Path segments at least this long are treated as identifiers
+    private static final int ID_SEGMENT_LENGTH = 20;
+    
+    /**
+     * Statistics of one endpoint
+     */
+    public static class EndpointStats {
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final LongAdder requests = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder clientErrors = new LongAdder();
+        private final LongAdder bytesSent = new LongAdder();
+        private final LongAdder bytesReceived = new LongAdder();
+        private final AtomicInteger inFlight = new AtomicInteger();
+        
+        /**
+         * Latency until response headers, for requests that got a response
+         */
+        public LatencyHistogram getLatency() {
+            return latency;
+        }
+        
+        /**
+         * Requests started, including those still in flight
+         */
+        public long getRequests() {
+            return requests.sum();
+        }
+        
+        /**
+         * Requests that failed with an I/O error or a 5xx status
+         */
+        public long getErrors() {
+            return errors.sum();
+        }
+        
+        /**
+         * Requests answered with a 4xx status
+         */
+        public long getClientErrors() {
+            return clientErrors.sum();
+        }
+        
+        /**
+         * Fraction of requests that failed, between 0 and 1
+         */
+        public double getErrorRate() {
+            long total = requests.sum();
+            return total == 0 ? 0 : (double) errors.sum() / total;
+        }
+        
+        /**
+         * Request body bytes sent
+         */
+        public long getBytesSent() {
+            return bytesSent.sum();
+        }
+        
+        /**
+         * Response body bytes read
+         */
+        public long getBytesReceived() {
+            return bytesReceived.sum();
+        }
+        
+        /**
+         * Requests waiting for response headers
+         */
+        public int getInFlight() {
+            return inFlight.get();
+        }
+        
+        @Override
+        public String toString() {
+            return getRequests() + " calls, "
+                    + String.format("%.1f%% errors", getErrorRate() * 100)
+                    + ", p50 " + formatMillis(latency.getPercentile(50))
+                    + ", p99 " + formatMillis(latency.getPercentile(99))
+                    + ", max " + formatMillis(latency.getMax())
+                    + ", " + getInFlight() + " in flight"
+                    + ", " + getBytesSent() + " B sent"
+                    + ", " + getBytesReceived() + " B received";
+        }
+    }
+    
+    private final Map<String, EndpointStats> endpoints = new ConcurrentHashMap<>();
+    
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        EndpointStats stats = statsFor(request);
+        stats.requests.increment();
+        RequestBody body = request.body();
+        if (body != null && body.contentLength() > 0) {
+            stats.bytesSent.add(body.contentLength());
+        }
+        
+        stats.inFlight.incrementAndGet();
+        long start = System.nanoTime();
+        Response response;
+        try {
+            response = chain.proceed(request);
+        } catch (IOException | RuntimeException e) {
+            stats.errors.increment();
+            throw e;
+        } finally {
+            stats.inFlight.decrementAndGet();
+        }
+        
+        stats.latency.recordNanos(System.nanoTime() - start);
+        if (response.code() >= 500) {
+            stats.errors.increment();
+        } else if (response.code() >= 400) {
+            stats.clientErrors.increment();
+        }
+        return countReceived(response, stats);
+    }
+    
+    /**
+     * Statistics of the endpoint a request goes to
+     */
+    private EndpointStats statsFor(Request request) {
+        return endpoints.computeIfAbsent(endpointKey(request.method(), request.url().encodedPath()),
+                key -> new EndpointStats());
+    }
+    
+    /**
+     * Wrap the response body so bytes are counted as the caller reads them
+     */
+    private static Response countReceived(Response response, EndpointStats stats) {
+        ResponseBody body = response.body();
+        if (body == null) {
+            return response;
+        }
+        ForwardingSource counting = new ForwardingSource(body.source()) {
+            @Override
+            public long read(Buffer sink, long byteCount) throws IOException {
+                long read = super.read(sink, byteCount);
+                if (read > 0) {
+                    stats.bytesReceived.add(read);
+                }
+                return read;
+            }
+        };
+        return response.newBuilder()
+                .body(ResponseBody.create(Okio.buffer(counting), body.contentType(), body.contentLength()))
+                .build();
+    }
+    
+    /**
+     * Endpoint key for a method and path, e.g. "GET /invoice/{id}"
+     */
+    static String endpointKey(String method, String path) {
+        String trimmed = path.startsWith("/v1/") ? path.substring(3) : path;
+        StringBuilder key = new StringBuilder(method).append(' ');
+        for (String segment : trimmed.split("/")) {
+            if (segment.isEmpty()) {
+                continue;
+            }
+            key.append('/');
+            key.append(segment.length() >= ID_SEGMENT_LENGTH || segment.chars().allMatch(Character::isDigit)
+                    ? "{id}" : segment);
+        }
+        return key.toString();
+    }
+    
+    /**
+     * Get the statistics of one endpoint, or null if it has not been called
+     * @param endpoint Key such as "GET /getinfo"
+     */
+    public EndpointStats get(String endpoint) {
+        return endpoints.get(endpoint);
+    }
+    
+    /**
+     * Get the statistics of every endpoint called so far, sorted by key
+     */
+    public Map<String, EndpointStats> getEndpoints() {
+        return new TreeMap<>(endpoints);
+    }
+    
+    /**
+     * Forget all statistics
+     */
+    public void reset() {
+        endpoints.clear();
+    }
+    
+    /**
+     * One line per endpoint, for diagnostics reports
+     */
+    public String report() {
+        Map<String, EndpointStats> snapshot = getEndpoints();
+        if (snapshot.isEmpty()) {
+            return "No requests recorded\n";
+        }
+        StringBuilder report = new StringBuilder();
+        snapshot.forEach((endpoint, stats) -> report.append(endpoint).append(": ").append(stats).append("\n"));
+        return report.toString();
+    }
+    
+    /**
+     * Format a duration as milliseconds with one decimal
+     */
+    private static String formatMillis(Duration duration) {
+        return String.format("%.1f ms", duration.toNanos() / 1_000_000.0);
+    }
+}
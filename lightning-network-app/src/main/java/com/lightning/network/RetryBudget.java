@@ -0,0 +1,61 @@
+package com.lightning.network;
+
+/**
+ * Limits retries to one endpoint while it is failing broadly.
+ *
+ * The budget holds up to a fixed number of tokens. Every failed attempt costs one token
+ * and every success returns a fraction of one; retries are only allowed while more than
+ * half the tokens remain. A few isolated failures are retried freely, but once most calls
+ * fail the endpoint only sees first attempts, so retries cannot multiply the load on an
+ * overloaded node.
+ */
+public class RetryBudget {
+    private final double maxTokens;
+    private final double tokenRatio;
+    private double tokens;
+    private long deniedCount;
+    
+    /**
+     * Create a full budget
+     * @param maxTokens Tokens held when full
+     * @param tokenRatio Tokens returned by each success
+     */
+    public RetryBudget(double maxTokens, double tokenRatio) {
+        this.maxTokens = maxTokens;
+        this.tokenRatio = tokenRatio;
+        this.tokens = maxTokens;
+    }
+    
+    /**
+     * Record a successful attempt
+     */
+    public synchronized void onSuccess() {
+        tokens = Math.min(maxTokens, tokens + tokenRatio);
+    }
+    
+    /**
+     * Record a failed attempt and decide whether it may be retried
+     */
+    public synchronized boolean tryRetry() {
+        tokens = Math.max(0, tokens - 1);
+        if (tokens > maxTokens / 2) {
+            return true;
+        }
+        deniedCount++;
+        return false;
+    }
+    
+    /**
+     * Tokens currently available
+     */
+    public synchronized double getTokens() {
+        return tokens;
+    }
+    
+    /**
+     * Number of retries refused by the budget
+     */
+    public synchronized long getDeniedCount() {
+        return deniedCount;
+    }
+}
@@ -0,0 +1,104 @@
+package com.lightning.network;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters for retried node calls, shared by the transport and the payment engine
+ */
+public class RetryMetrics {
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder recovered = new LongAdder();
+    private final LongAdder exhausted = new LongAdder();
+    private final LongAdder throttled = new LongAdder();
+    private final LongAdder backoffNanos = new LongAdder();
+    private final Map<String, LongAdder> retriesByReason = new ConcurrentHashMap<>();
+    
+    /**
+     * Record a retry about to be made
+     * @param reason Status code or exception type that caused it
+     * @param delayNanos Backoff before the retry
+     */
+    public void recordRetry(String reason, long delayNanos) {
+        retries.increment();
+        backoffNanos.add(delayNanos);
+        retriesByReason.computeIfAbsent(reason, key -> new LongAdder()).increment();
+    }
+    
+    /**
+     * Record a call that succeeded after at least one retry
+     */
+    public void recordRecovered() {
+        recovered.increment();
+    }
+    
+    /**
+     * Record a call that failed after using all its attempts
+     */
+    public void recordExhausted() {
+        exhausted.increment();
+    }
+    
+    /**
+     * Record a retry refused by the endpoint's budget
+     */
+    public void recordThrottled() {
+        throttled.increment();
+    }
+    
+    /**
+     * Total retries made
+     */
+    public long getRetries() {
+        return retries.sum();
+    }
+    
+    /**
+     * Calls that succeeded after retrying
+     */
+    public long getRecovered() {
+        return recovered.sum();
+    }
+    
+    /**
+     * Calls that failed with attempts used up
+     */
+    public long getExhausted() {
+        return exhausted.sum();
+    }
+    
+    /**
+     * Retries refused by a retry budget
+     */
+    public long getThrottled() {
+        return throttled.sum();
+    }
+    
+    /**
+     * Total time spent waiting between attempts
+     */
+    public Duration getTotalBackoff() {
+        return Duration.ofNanos(backoffNanos.sum());
+    }
+    
+    /**
+     * Retries per reason, sorted by reason
+     */
+    public Map<String, Long> getRetriesByReason() {
+        Map<String, Long> snapshot = new TreeMap<>();
+        retriesByReason.forEach((reason, count) -> snapshot.put(reason, count.sum()));
+        return snapshot;
+    }
+    
+    @Override
+    public String toString() {
+        return "retries=" + getRetries() + " " + getRetriesByReason()
+                + ", recovered=" + getRecovered()
+                + ", exhausted=" + getExhausted()
+                + ", throttled=" + getThrottled()
+                + ", backoff=" + getTotalBackoff().toMillis() + " ms";
+    }
+}
@@ -0,0 +1,137 @@
+package com.lightning.network;
+
+import okhttp3.Request;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Decides whether and when a failed node call is retried.
+ *
+ * Only calls that are safe to repeat are retried: idempotent methods on any transient
+ * failure, and any method when the connection was never established. The delay before
+ * retry n is drawn uniformly from [0, min(maxBackoff, initialBackoff * 2^(n-1))] ("full
+ * jitter"), so clients that failed together do not retry together.
+ */
+public class RetryPolicy {
+    
+    /**
+     * Three attempts, starting at 200 ms and capped at 5 s
+     */
+    public static final RetryPolicy DEFAULT = new RetryPolicy(3, Duration.ofMillis(200), Duration.ofSeconds(5));
+    
+    /**
+     * A single attempt
+     */
+    public static final RetryPolicy NONE = new RetryPolicy(1, Duration.ZERO, Duration.ZERO);
+    
+    // Statuses a proxy or an overloaded node returns before doing any work
+    private static final int TOO_MANY_REQUESTS = 429;
+    private static final int BAD_GATEWAY = 502;
+    private static final int SERVICE_UNAVAILABLE = 503;
+    private static final int GATEWAY_TIMEOUT = 504;
+    
+    private final int maxAttempts;
+    private final long initialBackoffNanos;
+    private final long maxBackoffNanos;
+    
+    /**
+     * Create a policy
+     * @param maxAttempts Total attempts including the first, at least 1
+     * @param initialBackoff Upper bound of the delay before the first retry
+     * @param maxBackoff Upper bound of any delay
+     */
+    public RetryPolicy(int maxAttempts, Duration initialBackoff, Duration maxBackoff) {
+        if (maxAttempts < 1) {
+            throw new IllegalArgumentException("maxAttempts must be at least 1");
+        }
+        this.maxAttempts = maxAttempts;
+        this.initialBackoffNanos = initialBackoff.toNanos();
+        this.maxBackoffNanos = Math.max(initialBackoffNanos, maxBackoff.toNanos());
+    }
+    
+    /**
+     * Total attempts including the first
+     */
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+    
+    /**
+     * Upper bound of the delay before the first retry
+     */
+    public Duration getInitialBackoff() {
+        return Duration.ofNanos(initialBackoffNanos);
+    }
+    
+    /**
+     * Upper bound of any delay
+     */
+    public Duration getMaxBackoff() {
+        return Duration.ofNanos(maxBackoffNanos);
+    }
+    
+    /**
+     * Random delay before the given retry
+     * @param retry 1 for the first retry
+     */
+    public long backoffNanos(int retry) {
+        return backoffNanos(retry, ThreadLocalRandom.current().nextDouble());
+    }
+    
+    /**
+     * Delay before the given retry for a uniform random value in [0, 1)
+     */
+    long backoffNanos(int retry, double random) {
+        long ceiling = initialBackoffNanos;
+        for (int i = 1; i < retry && ceiling < maxBackoffNanos; i++) {
+            ceiling *= 2;
+        }
+        return (long) (Math.min(ceiling, maxBackoffNanos) * random);
+    }
+    
+    /**
+     * Whether an HTTP status indicates a transient failure worth retrying
+     */
+    public boolean isRetryableStatus(int code) {
+        return code == TOO_MANY_REQUESTS || code == BAD_GATEWAY || code == SERVICE_UNAVAILABLE
+                || code == GATEWAY_TIMEOUT;
+    }
+    
+    /**
+     * Whether the request may be repeated once the server could have acted on it
+     */
+    public boolean isIdempotent(Request request) {
+        String method = request.method();
+        return "GET".equals(method) || "HEAD".equals(method) || "OPTIONS".equals(method);
+    }
+    
+    /**
+     * Whether a call that failed with the given exception may be retried
+     */
+    public boolean isRetryable(Request request, IOException e) {
+        // The node was never contacted; another attempt would only queue for the same slot
+        if (e instanceof CircuitOpenException || e instanceof BulkheadFullException) {
+            return false;
+        }
+        // The request never left this machine
+        if (e instanceof ConnectException) {
+            return true;
+        }
+        // Cancellation and interruption are deliberate; read timeouts are transient
+        if (e instanceof InterruptedIOException && !(e instanceof SocketTimeoutException)) {
+            return false;
+        }
+        return isIdempotent(request);
+    }
+    
+    @Override
+    public String toString() {
+        return maxAttempts + " attempts, backoff " + initialBackoffNanos / 1_000_000 + "-"
+                + maxBackoffNanos / 1_000_000 + " ms";
+    }
+}
@@ -0,0 +1,553 @@
+package com.lightning.network.graph;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Public channel graph of the Lightning Network held in primitive arrays.
+ *
+ * Nodes get dense int ids in the order they are first seen. Each channel takes a slot, and
+ * slot s owns the two directed edges 2s (node1 to node2, under node1's policy) and 2s + 1
+ * (node2 to node1, under node2's policy). Edge attributes live in parallel arrays indexed by
+ * edge; slots of closed channels are reused by later channels.
+ *
+ * The route finder walks incoming edges, so it reads a compressed index in which each
+ * node's incoming edges sit next to each other, with the sender and the policy copied
+ * alongside: a search then scans memory in order instead of chasing edge ids. Policy
+ * updates are written through to the index; adding or removing channels marks it stale
+ * and it is rebuilt before the next search. A mainnet graph of ~15k nodes and ~50k
+ * channels takes a few megabytes and no per-edge objects.
+ *
+ * Updates take the write lock; the route finder holds the read lock for a whole search.
+ * A graph followed by a {@link GraphStore} records each change it applies to the store's journal.
+ */
+public class ChannelGraph {
+    static final int NONE = -1;
+    
+    // Edge flags
+    static final byte OPEN = 1;
+    static final byte HAS_POLICY = 2;
+    static final byte DISABLED = 4;
+    
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    
+    // Nodes by id
+    private final Map<String, Integer> nodeIds = new HashMap<>();
+    String[] pubkeys;
+    String[] aliases;
+    int nodeCount;
+    
+    // Channels by slot
+    private final LongIntMap slotsByChanId;
+    long[] chanIds;
+    long[] capacities;
+    int[] node1;
+    int[] node2;
+    int slotCount;
+    private int[] freeSlots = new int[16];
+    private int freeCount;
+    
+    // Directed edges, two per slot
+    int[] feeBaseMsat;
+    int[] feeRatePpm;
+    int[] timeLockDelta;
+    long[] minHtlcMsat;
+    long[] maxHtlcMsat;
+    byte[] flags;
+    
+    // Incoming edges grouped by target: node n's are at positions inStart[n] until inStart[n + 1]
+    int[] inStart;
+    int[] inEdge;
+    int[] inSender;
+    int[] inBaseMsat;
+    int[] inRatePpm;
+    int[] inTimeLockDelta;
+    long[] inMinMsat;
+    // Largest amount the edge can carry, or -1 if it carries none
+    long[] inMaxMsat;
+    private int[] inPosition;
+    private boolean indexStale = true;
+    
+    // Store that records changes, or null
+    private GraphStore journal;
+    
+    /**
+     * Create an empty graph sized for a mainnet snapshot
+     */
+    public ChannelGraph() {
+        this(16_384, 65_536);
+    }
+    
+    /**
+     * Create an empty graph
+     * @param expectedNodes Nodes to allocate room for up front
+     * @param expectedChannels Channels to allocate room for up front
+     */
+    public ChannelGraph(int expectedNodes, int expectedChannels) {
+        int nodes = Math.max(16, expectedNodes);
+        int slots = Math.max(16, expectedChannels);
+        pubkeys = new String[nodes];
+        aliases = new String[nodes];
+        slotsByChanId = new LongIntMap(slots);
+        chanIds = new long[slots];
+        capacities = new long[slots];
+        node1 = new int[slots];
+        node2 = new int[slots];
+        allocateEdges(slots * 2);
+    }
+    
+    /**
+     * Add a node, or update the alias of a known one
+     * @return The node's id
+     */
+    public int addNode(String pubkey, String alias) {
+        Lock write = lock.writeLock();
+        write.lock();
+        try {
+            int known = nodeCount;
+            int id = internNode(pubkey);
+            boolean renamed = alias != null && !alias.isEmpty() && !alias.equals(aliases[id]);
+            if (renamed) {
+                aliases[id] = alias;
+            }
+            if (journal != null && (id == known || renamed)) {
+                journal.recordNode(pubkey, aliases[id]);
+            }
+            return id;
+        } finally {
+            write.unlock();
+        }
+    }
+    
+    /**
+     * Get a node's id, or -1 if it is not in the graph
+     */
+    public int getNodeId(String pubkey) {
+        Lock read = lock.readLock();
+        read.lock();
+        try {
+            Integer id = nodeIds.get(pubkey);
+            return id == null ? NONE : id;
+        } finally {
+            read.unlock();
+        }
+    }
+    
+    /**
+     * Get a node's public key by id
+     */
+    public String getPubkey(int nodeId) {
+        Lock read = lock.readLock();
+        read.lock();
+        try {
+            return pubkeys[nodeId];
+        } finally {
+            read.unlock();
+        }
+    }
+    
+    /**
+     * Get a node's alias by id, or null if it never announced one
+     */
+    public String getAlias(int nodeId) {
+        Lock read = lock.readLock();
+        read.lock();
+        try {
+            return aliases[nodeId];
+        } finally {
+            read.unlock();
+        }
+    }
+    
+    /**
+     * Add a channel between two nodes, adding the nodes if needed. A known channel only has its capacity updated.
+     * Both directions start without a policy and carry no payments until one is set.
+     */
+    public void addChannel(long chanId, String node1Pubkey, String node2Pubkey, long capacitySat) {
+        Lock write = lock.writeLock();
+        write.lock();
+        try {
+            int slot = slotsByChanId.get(chanId);
+            if (slot != NONE) {
+                if (capacities[slot] != capacitySat) {
+                    capacities[slot] = capacitySat;
+                    indexPolicy(slot * 2);
+                    indexPolicy(slot * 2 + 1);
+                    if (journal != null) {
+                        journal.recordChannel(chanId, pubkeys[node1[slot]], pubkeys[node2[slot]], capacitySat);
+                    }
+                }
+                return;
+            }
+            int from = internNode(node1Pubkey);
+            int to = internNode(node2Pubkey);
+            slot = allocateSlot();
+            slotsByChanId.put(chanId, slot);
+            chanIds[slot] = chanId;
+            capacities[slot] = capacitySat;
+            node1[slot] = from;
+            node2[slot] = to;
+            flags[slot * 2] = OPEN;
+            flags[slot * 2 + 1] = OPEN;
+            indexStale = true;
+            if (journal != null) {
+                journal.recordChannel(chanId, node1Pubkey, node2Pubkey, capacitySat);
+            }
+        } finally {
+            write.unlock();
+        }
+    }
+    
+    /**
+     * Set the routing policy one end of a channel applies to payments it forwards over the channel
+     * @param fromPubkey The node that announced the policy
+     * @return False if the channel is unknown or the node is not one of its ends
+     */
+    public boolean updatePolicy(long chanId, String fromPubkey, long baseFeeMsat, long feeRatePpm,
+                                int timeLockDelta, long minHtlcMsat, long maxHtlcMsat, boolean disabled) {
+        Lock write = lock.writeLock();
+        write.lock();
+        try {
+            int slot = slotsByChanId.get(chanId);
+            Integer from = nodeIds.get(fromPubkey);
+            if (slot == NONE || from == null) {
+                return false;
+            }
+            int edge;
+            if (node1[slot] == from) {
+                edge = slot * 2;
+            } else if (node2[slot] == from) {
+                edge = slot * 2 + 1;
+            } else {
+                return false;
+            }
+            setPolicy(edge, baseFeeMsat, feeRatePpm, timeLockDelta, minHtlcMsat, maxHtlcMsat, disabled);
+            return true;
+        } finally {
+            write.unlock();
+        }
+    }
+    
+    /**
+     * Set the policy of one direction of a channel, as replayed from a store's journal
+     * @param direction 0 for node1's policy, 1 for node2's
+     * @return False if the channel is unknown
+     */
+    boolean updatePolicy(long chanId, int direction, long baseFeeMsat, long feeRatePpm,
+                         int timeLockDelta, long minHtlcMsat, long maxHtlcMsat, boolean disabled) {
+        Lock write = lock.writeLock();
+        write.lock();
+        try {
+            int slot = slotsByChanId.get(chanId);
+            if (slot == NONE) {
+                return false;
+            }
+            setPolicy(slot * 2 + (direction & 1), baseFeeMsat, feeRatePpm, timeLockDelta, minHtlcMsat, maxHtlcMsat, disabled);
+            return true;
+        } finally {
+            write.unlock();
+        }
+    }
+    
+    /**
+     * Remove a closed channel
+     * @return False if the channel was not in the graph
+     */
+    public boolean removeChannel(long chanId) {
+        Lock write = lock.writeLock();
+        write.lock();
+        try {
+            int slot = slotsByChanId.remove(chanId);
+            if (slot == NONE) {
+                return false;
+            }
+            flags[slot * 2] = 0;
+            flags[slot * 2 + 1] = 0;
+            indexStale = true;
+            freeSlot(slot);
+            if (journal != null) {
+                journal.recordClose(chanId);
+            }
+            return true;
+        } finally {
+            write.unlock();
+        }
+    }
+    
+    /**
+     * Whether a channel is in the graph
+     */
+    public boolean hasChannel(long chanId) {
+        Lock read = lock.readLock();
+        read.lock();
+        try {
+            return slotsByChanId.get(chanId) != NONE;
+        } finally {
+            read.unlock();
+        }
+    }
+    
+    public int getNodeCount() {
+        Lock read = lock.readLock();
+        read.lock();
+        try {
+            return nodeCount;
+        } finally {
+            read.unlock();
+        }
+    }
+    
+    public int getChannelCount() {
+        Lock read = lock.readLock();
+        read.lock();
+        try {
+            return slotsByChanId.size();
+        } finally {
+            read.unlock();
+        }
+    }
+    
+    /**
+     * Take the read lock for a consistent view of the arrays
+     * @return The held read lock, to be released by the caller
+     */
+    Lock lockRead() {
+        Lock read = lock.readLock();
+        read.lock();
+        return read;
+    }
+    
+    /**
+     * Start or stop recording changes to a store's journal
+     * @param store The store to record to, or null to stop
+     */
+    void setJournal(GraphStore store) {
+        Lock write = lock.writeLock();
+        write.lock();
+        try {
+            journal = store;
+        } finally {
+            write.unlock();
+        }
+    }
+    
+    /**
+     * Rebuild the lookups by public key and channel id after the arrays of a new graph were filled in directly
+     * @param nodes Number of nodes in the arrays
+     * @param slots Number of channel slots in the arrays; slots without an open edge become free
+     */
+    void rebuildLookups(int nodes, int slots) {
+        Lock write = lock.writeLock();
+        write.lock();
+        try {
+            nodeCount = nodes;
+            slotCount = slots;
+            nodeIds.clear();
+            for (int id = 0; id < nodes; id++) {
+                nodeIds.put(pubkeys[id], id);
+            }
+            freeCount = 0;
+            for (int slot = 0; slot < slots; slot++) {
+                if ((flags[slot * 2] & OPEN) != 0) {
+                    slotsByChanId.put(chanIds[slot], slot);
+                } else {
+                    freeSlot(slot);
+                }
+            }
+            indexStale = true;
+        } finally {
+            write.unlock();
+        }
+    }
+    
+    /**
+     * Take the read lock with the incoming-edge index current, rebuilding it first if needed
+     * @return The held read lock, to be released by the caller
+     */
+    Lock lockIndex() {
+        while (true) {
+            Lock read = lock.readLock();
+            read.lock();
+            if (!indexStale) {
+                return read;
+            }
+            read.unlock();
+            
+            Lock write = lock.writeLock();
+            write.lock();
+            try {
+                if (indexStale) {
+                    rebuildIndex();
+                }
+            } finally {
+                write.unlock();
+            }
+        }
+    }
+    
+    /**
+     * Node at the far end of an edge
+     */
+    int target(int edge) {
+        int slot = edge >> 1;
+        return (edge & 1) == 0 ? node2[slot] : node1[slot];
+    }
+    
+    /**
+     * Node whose policy applies to an edge
+     */
+    int source(int edge) {
+        int slot = edge >> 1;
+        return (edge & 1) == 0 ? node1[slot] : node2[slot];
+    }
+    
+    /**
+     * Id of a node, adding it if new; the caller holds the write lock
+     */
+    private int internNode(String pubkey) {
+        Integer known = nodeIds.get(pubkey);
+        if (known != null) {
+            return known;
+        }
+        if (nodeCount == pubkeys.length) {
+            int capacity = nodeCount + (nodeCount >> 1);
+            pubkeys = Arrays.copyOf(pubkeys, capacity);
+            aliases = Arrays.copyOf(aliases, capacity);
+        }
+        int id = nodeCount++;
+        pubkeys[id] = pubkey;
+        nodeIds.put(pubkey, id);
+        indexStale = true;
+        return id;
+    }
+    
+    /**
+     * Reuse a freed slot or take a new one; the caller holds the write lock
+     */
+    private int allocateSlot() {
+        if (freeCount > 0) {
+            return freeSlots[--freeCount];
+        }
+        if (slotCount == chanIds.length) {
+            int capacity = slotCount + (slotCount >> 1);
+            chanIds = Arrays.copyOf(chanIds, capacity);
+            capacities = Arrays.copyOf(capacities, capacity);
+            node1 = Arrays.copyOf(node1, capacity);
+            node2 = Arrays.copyOf(node2, capacity);
+            growEdges(capacity * 2);
+        }
+        return slotCount++;
+    }
+    
+    private void freeSlot(int slot) {
+        if (freeCount == freeSlots.length) {
+            freeSlots = Arrays.copyOf(freeSlots, freeCount * 2);
+        }
+        freeSlots[freeCount++] = slot;
+    }
+    
+    /**
+     * Store a policy on an edge and in the index; the caller holds the write lock
+     */
+    private void setPolicy(int edge, long baseFeeMsat, long feeRatePpm, int timeLockDelta,
+                           long minHtlcMsat, long maxHtlcMsat, boolean disabled) {
+        this.feeBaseMsat[edge] = (int) Math.min(Integer.MAX_VALUE, Math.max(0, baseFeeMsat));
+        this.feeRatePpm[edge] = (int) Math.min(Integer.MAX_VALUE, Math.max(0, feeRatePpm));
+        this.timeLockDelta[edge] = Math.max(0, timeLockDelta);
+        this.minHtlcMsat[edge] = minHtlcMsat;
+        this.maxHtlcMsat[edge] = maxHtlcMsat;
+        flags[edge] = (byte) (OPEN | HAS_POLICY | (disabled ? DISABLED : 0));
+        indexPolicy(edge);
+        if (journal != null) {
+            journal.recordPolicy(chanIds[edge >> 1], edge & 1, baseFeeMsat, feeRatePpm, timeLockDelta,
+                    minHtlcMsat, maxHtlcMsat, disabled);
+        }
+    }
+    
+    /**
+     * Lay out the incoming edges of every node side by side (counting sort by target); the caller holds the write lock
+     */
+    private void rebuildIndex() {
+        int edges = slotCount * 2;
+        inStart = new int[nodeCount + 1];
+        for (int edge = 0; edge < edges; edge++) {
+            if ((flags[edge] & OPEN) != 0) {
+                inStart[target(edge) + 1]++;
+            }
+        }
+        for (int node = 0; node < nodeCount; node++) {
+            inStart[node + 1] += inStart[node];
+        }
+        
+        int size = inStart[nodeCount];
+        inEdge = new int[size];
+        inSender = new int[size];
+        inBaseMsat = new int[size];
+        inRatePpm = new int[size];
+        inTimeLockDelta = new int[size];
+        inMinMsat = new long[size];
+        inMaxMsat = new long[size];
+        if (inPosition == null || inPosition.length < flags.length) {
+            inPosition = new int[flags.length];
+        }
+        int[] fill = Arrays.copyOf(inStart, nodeCount);
+        for (int edge = 0; edge < edges; edge++) {
+            if ((flags[edge] & OPEN) != 0) {
+                int position = fill[target(edge)]++;
+                inEdge[position] = edge;
+                inSender[position] = source(edge);
+                inPosition[edge] = position;
+            }
+        }
+        indexStale = false;
+        for (int edge = 0; edge < edges; edge++) {
+            indexPolicy(edge);
+        }
+    }
+    
+    /**
+     * Copy an edge's policy into the index, unless the index is about to be rebuilt anyway
+     */
+    private void indexPolicy(int edge) {
+        if (indexStale || (flags[edge] & OPEN) == 0) {
+            return;
+        }
+        int position = inPosition[edge];
+        inBaseMsat[position] = feeBaseMsat[edge];
+        inRatePpm[position] = feeRatePpm[edge];
+        inTimeLockDelta[position] = timeLockDelta[edge];
+        inMinMsat[position] = minHtlcMsat[edge];
+        
+        long max = -1;
+        if ((flags[edge] & (HAS_POLICY | DISABLED)) == HAS_POLICY) {
+            long capacity = capacities[edge >> 1];
+            max = maxHtlcMsat[edge] > 0 ? maxHtlcMsat[edge] : Long.MAX_VALUE;
+            if (capacity > 0) {
+                max = Math.min(max, capacity * 1000);
+            }
+        }
+        inMaxMsat[position] = max;
+    }
+    
+    private void allocateEdges(int edges) {
+        feeBaseMsat = new int[edges];
+        feeRatePpm = new int[edges];
+        timeLockDelta = new int[edges];
+        minHtlcMsat = new long[edges];
+        maxHtlcMsat = new long[edges];
+        flags = new byte[edges];
+    }
+    
+    private void growEdges(int edges) {
+        feeBaseMsat = Arrays.copyOf(feeBaseMsat, edges);
+        feeRatePpm = Arrays.copyOf(feeRatePpm, edges);
+        timeLockDelta = Arrays.copyOf(timeLockDelta, edges);
+        minHtlcMsat = Arrays.copyOf(minHtlcMsat, edges);
+        maxHtlcMsat = Arrays.copyOf(maxHtlcMsat, edges);
+        flags = Arrays.copyOf(flags, edges);
+    }
+}
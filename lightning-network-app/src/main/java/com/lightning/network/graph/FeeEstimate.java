@@ -0,0 +1,74 @@
+package com.lightning.network.graph;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Cheapest routes found for a payment, from which the likely fee is read
+ */
+public final class FeeEstimate {
+    private final long amountMsat;
+    private final List<Route> routes;
+    private final long elapsedNanos;
+    
+    FeeEstimate(long amountMsat, List<Route> routes, long elapsedNanos) {
+        this.amountMsat = amountMsat;
+        this.routes = Collections.unmodifiableList(routes);
+        this.elapsedNanos = elapsedNanos;
+    }
+    
+    public long getAmountMsat() {
+        return amountMsat;
+    }
+    
+    /**
+     * Routes found, cheapest first; empty if the destination cannot be reached
+     */
+    public List<Route> getRoutes() {
+        return routes;
+    }
+    
+    /**
+     * Whether at least one route was found
+     */
+    public boolean isRoutable() {
+        return !routes.isEmpty();
+    }
+    
+    /**
+     * Cheapest route, or null if there is none
+     */
+    public Route getBestRoute() {
+        return routes.isEmpty() ? null : routes.get(0);
+    }
+    
+    /**
+     * Lowest fee over the routes found, or 0 if there are none
+     */
+    public long getMinFeeMsat() {
+        long min = Long.MAX_VALUE;
+        for (Route route : routes) {
+            min = Math.min(min, route.getFeeMsat());
+        }
+        return routes.isEmpty() ? 0 : min;
+    }
+    
+    /**
+     * Highest fee over the routes found, what the payment costs if the cheaper routes fail
+     */
+    public long getMaxFeeMsat() {
+        long max = 0;
+        for (Route route : routes) {
+            max = Math.max(max, route.getFeeMsat());
+        }
+        return max;
+    }
+    
+    /**
+     * Time the search took
+     */
+    public Duration getElapsed() {
+        return Duration.ofNanos(elapsedNanos);
+    }
+}
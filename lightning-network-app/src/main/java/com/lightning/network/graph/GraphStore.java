@@ -0,0 +1,454 @@
+package com.lightning.network.graph;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.locks.Lock;
+import java.util.logging.Logger;
+
+/**
+ * Binary file keeping a channel graph between runs, so startup does not have to download and parse describegraph.
+ *
+ * The file is a snapshot followed by a journal. The snapshot holds the graph's arrays column by column: loading
+ * maps the file and copies each column straight into a new graph's arrays, and only the public keys and aliases
+ * are decoded. Changes to the graph the store follows are appended to the journal as small records and replayed
+ * on load. Saving writes a new snapshot with the journal folded in and the slots of closed channels dropped.
+ *
+ * <pre>
+ * header   "LNGR", version, updated at (epoch ms), node count, slot count, journal offset; 64 bytes
+ * columns  chanIds, capacities (long per slot), minHtlcMsat, maxHtlcMsat (long per edge), node1, node2 (int per slot),
+ *          feeBaseMsat, feeRatePpm, timeLockDelta (int per edge), flags (byte per edge)
+ * nodes    public key and alias of each node, as UTF-8 with an unsigned short length
+ * journal  node, channel, policy and close records, until the end of the file
+ * </pre>
+ * Numbers are big-endian. A file of another version is ignored and replaced by the next save; a record cut
+ * short by a crash ends the journal.
+ *
+ * Changes are recorded by the graph under its write lock, so the store never takes a graph lock while holding its own.
+ */
+public class GraphStore implements Closeable {
+    private static final Logger LOGGER = Logger.getLogger(GraphStore.class.getName());
+    
+    static final int MAGIC = 0x4C4E4752;
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 64;
+    private static final int UPDATED_AT_OFFSET = 8;
+    
+    // Journal record types
+    private static final byte NODE = 1;
+    private static final byte CHANNEL = 2;
+    private static final byte POLICY = 3;
+    private static final byte CLOSE = 4;
+    
+    // A journal is compacted once it passes half the snapshot, but never below this size
+    private static final long MIN_COMPACT_BYTES = 256 * 1024;
+    
+    private final Path file;
+    private FileChannel channel;
+    private long journalStart;
+    private long journalEnd;
+    private long updatedAt;
+    private ByteBuffer pending = ByteBuffer.allocate(4096);
+    private ChannelGraph followed;
+    
+    /**
+     * Create a store; nothing is read or written until the graph is loaded or saved
+     */
+    public GraphStore(Path file) {
+        this.file = file;
+    }
+    
+    /**
+     * Get the graph file in the wallet directory, overridable with the lightning.graph.path system property
+     */
+    public static Path defaultPath() {
+        String override = System.getProperty("lightning.graph.path");
+        if (override != null && !override.isEmpty()) {
+            return Paths.get(override);
+        }
+        return Paths.get(System.getProperty("user.home"), ".lightning-wallet", "graph.bin");
+    }
+    
+    public Path getPath() {
+        return file;
+    }
+    
+    /**
+     * When the file last matched the node's graph: its last save or appended update, or 0 if nothing was loaded or saved
+     */
+    public synchronized long getUpdatedAt() {
+        return updatedAt;
+    }
+    
+    /**
+     * Load the saved graph with its journal replayed, and follow it
+     * @return The graph, or null if there is no file or it has another format version
+     */
+    public ChannelGraph load() throws IOException {
+        ChannelGraph graph;
+        synchronized (this) {
+            closeChannel();
+            if (!Files.exists(file)) {
+                return null;
+            }
+            try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+                long size = in.size();
+                if (size < HEADER_SIZE) {
+                    throw new IOException("Graph file is truncated: " + file);
+                }
+                MappedByteBuffer map = in.map(FileChannel.MapMode.READ_ONLY, 0, size);
+                if (map.getInt(0) != MAGIC) {
+                    throw new IOException("Not a graph file: " + file);
+                }
+                int version = map.getInt(4);
+                if (version != VERSION) {
+                    LOGGER.info("Ignoring graph file of format version " + version + ": " + file);
+                    return null;
+                }
+                int nodes = map.getInt(16);
+                int slots = map.getInt(20);
+                long start = map.getLong(24);
+                // Every slot takes 82 bytes of columns and every node at least 4 of strings
+                if (nodes < 0 || slots < 0 || start > size || HEADER_SIZE + slots * 82L + nodes * 4L > start) {
+                    throw new IOException("Graph file header is corrupt: " + file);
+                }
+                
+                graph = new ChannelGraph(nodes + nodes / 4, slots + slots / 4);
+                map.position(HEADER_SIZE);
+                try {
+                    readSnapshot(map, graph, nodes, slots);
+                } catch (BufferUnderflowException | IllegalArgumentException e) {
+                    throw new IOException("Graph file snapshot is corrupt: " + file, e);
+                }
+                if (map.position() != start) {
+                    throw new IOException("Graph file snapshot is corrupt: " + file);
+                }
+                updatedAt = map.getLong(UPDATED_AT_OFFSET);
+                journalStart = start;
+                journalEnd = replay(map, graph);
+                pending.clear();
+            }
+        }
+        follow(graph);
+        return graph;
+    }
+    
+    /**
+     * Write a graph as a new snapshot, replacing the file and its journal, and follow it
+     */
+    public void save(ChannelGraph graph) throws IOException {
+        // Changes from here on are recorded; earlier ones are part of the snapshot
+        follow(graph);
+        Lock read = graph.lockRead();
+        try {
+            synchronized (this) {
+                writeSnapshot(graph);
+            }
+        } finally {
+            read.unlock();
+        }
+    }
+    
+    /**
+     * Append the changes recorded since the last flush and mark the file current
+     */
+    public synchronized void flush() throws IOException {
+        if (followed == null) {
+            return;
+        }
+        openChannel();
+        pending.flip();
+        while (pending.hasRemaining()) {
+            journalEnd += channel.write(pending, journalEnd);
+        }
+        pending.clear();
+        
+        long now = System.currentTimeMillis();
+        ByteBuffer stamp = ByteBuffer.allocate(Long.BYTES).putLong(now);
+        stamp.flip();
+        channel.write(stamp, UPDATED_AT_OFFSET);
+        updatedAt = now;
+    }
+    
+    /**
+     * Whether the journal has grown enough that saving a new snapshot would pay off
+     */
+    public synchronized boolean needsCompaction() {
+        long journal = journalEnd - journalStart + pending.position();
+        return journal > MIN_COMPACT_BYTES && journal > journalStart / 2;
+    }
+    
+    /**
+     * Flush and close the file; it is reopened by the next change
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            closeChannel();
+        }
+    }
+    
+    /**
+     * Size of the journal in bytes, recorded changes not yet flushed excluded
+     */
+    synchronized long getJournalSize() {
+        return journalEnd - journalStart;
+    }
+    
+    synchronized void recordNode(String pubkey, String alias) {
+        byte[] key = encode(pubkey);
+        byte[] name = encode(alias);
+        reserve(1 + 2 + key.length + 2 + name.length);
+        pending.put(NODE);
+        putString(pending, key);
+        putString(pending, name);
+    }
+    
+    synchronized void recordChannel(long chanId, String node1Pubkey, String node2Pubkey, long capacitySat) {
+        byte[] key1 = encode(node1Pubkey);
+        byte[] key2 = encode(node2Pubkey);
+        reserve(1 + 16 + 2 + key1.length + 2 + key2.length);
+        pending.put(CHANNEL).putLong(chanId).putLong(capacitySat);
+        putString(pending, key1);
+        putString(pending, key2);
+    }
+    
+    synchronized void recordPolicy(long chanId, int direction, long baseFeeMsat, long feeRatePpm,
+                                   int timeLockDelta, long minHtlcMsat, long maxHtlcMsat, boolean disabled) {
+        reserve(1 + 8 + 1 + 8 + 8 + 4 + 8 + 8 + 1);
+        pending.put(POLICY).putLong(chanId).put((byte) direction)
+                .putLong(baseFeeMsat).putLong(feeRatePpm).putInt(timeLockDelta)
+                .putLong(minHtlcMsat).putLong(maxHtlcMsat).put((byte) (disabled ? 1 : 0));
+    }
+    
+    synchronized void recordClose(long chanId) {
+        reserve(1 + 8);
+        pending.put(CLOSE).putLong(chanId);
+    }
+    
+    /**
+     * Record the changes of a graph from now on, and stop recording those of the previous one
+     */
+    private void follow(ChannelGraph graph) {
+        ChannelGraph previous;
+        synchronized (this) {
+            previous = followed;
+            followed = graph;
+        }
+        if (previous != null && previous != graph) {
+            previous.setJournal(null);
+        }
+        graph.setJournal(this);
+    }
+    
+    /**
+     * Copy the columns and node strings into a new graph's arrays
+     */
+    private static void readSnapshot(ByteBuffer map, ChannelGraph graph, int nodes, int slots) {
+        int edges = slots * 2;
+        readLongs(map, graph.chanIds, slots);
+        readLongs(map, graph.capacities, slots);
+        readLongs(map, graph.minHtlcMsat, edges);
+        readLongs(map, graph.maxHtlcMsat, edges);
+        readInts(map, graph.node1, slots);
+        readInts(map, graph.node2, slots);
+        readInts(map, graph.feeBaseMsat, edges);
+        readInts(map, graph.feeRatePpm, edges);
+        readInts(map, graph.timeLockDelta, edges);
+        map.get(graph.flags, 0, edges);
+        
+        byte[] scratch = new byte[0xFFFF];
+        for (int id = 0; id < nodes; id++) {
+            graph.pubkeys[id] = getString(map, scratch);
+            String alias = getString(map, scratch);
+            graph.aliases[id] = alias.isEmpty() ? null : alias;
+        }
+        graph.rebuildLookups(nodes, slots);
+    }
+    
+    /**
+     * Apply the journal to a graph
+     * @return Offset after the last complete record
+     */
+    private long replay(ByteBuffer map, ChannelGraph graph) {
+        byte[] scratch = new byte[0xFFFF];
+        int end = map.position();
+        int records = 0;
+        try {
+            while (map.hasRemaining()) {
+                byte type = map.get();
+                if (type == NODE) {
+                    String pubkey = getString(map, scratch);
+                    graph.addNode(pubkey, getString(map, scratch));
+                } else if (type == CHANNEL) {
+                    long chanId = map.getLong();
+                    long capacity = map.getLong();
+                    String node1 = getString(map, scratch);
+                    graph.addChannel(chanId, node1, getString(map, scratch), capacity);
+                } else if (type == POLICY) {
+                    graph.updatePolicy(map.getLong(), map.get(), map.getLong(), map.getLong(), map.getInt(),
+                            map.getLong(), map.getLong(), map.get() != 0);
+                } else if (type == CLOSE) {
+                    graph.removeChannel(map.getLong());
+                } else {
+                    LOGGER.warning("Unknown graph journal record " + type + " at offset " + end + "; ignoring the rest");
+                    break;
+                }
+                end = map.position();
+                records++;
+            }
+        } catch (BufferUnderflowException e) {
+            LOGGER.warning("Graph journal ends in a partial record at offset " + end + "; ignoring it");
+        }
+        LOGGER.fine("Replayed " + records + " graph journal records");
+        return end;
+    }
+    
+    /**
+     * Write the graph's open channels and all its nodes to a new file and move it over the old one;
+     * the caller holds the graph's read lock
+     */
+    private void writeSnapshot(ChannelGraph graph) throws IOException {
+        closeChannel();
+        
+        int[] live = new int[graph.slotCount];
+        int slots = 0;
+        for (int slot = 0; slot < graph.slotCount; slot++) {
+            if ((graph.flags[slot * 2] & ChannelGraph.OPEN) != 0) {
+                live[slots++] = slot;
+            }
+        }
+        int nodes = graph.nodeCount;
+        byte[][] strings = new byte[nodes * 2][];
+        long stringBytes = 0;
+        for (int id = 0; id < nodes; id++) {
+            strings[id * 2] = encode(graph.pubkeys[id]);
+            strings[id * 2 + 1] = encode(graph.aliases[id]);
+            stringBytes += 4 + strings[id * 2].length + strings[id * 2 + 1].length;
+        }
+        long size = HEADER_SIZE + slots * 82L + stringBytes;
+        
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        long now = System.currentTimeMillis();
+        try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer map = out.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            map.putInt(MAGIC).putInt(VERSION).putLong(now).putInt(nodes).putInt(slots).putLong(size);
+            map.position(HEADER_SIZE);
+            
+            for (int i = 0; i < slots; i++) {
+                map.putLong(graph.chanIds[live[i]]);
+            }
+            for (int i = 0; i < slots; i++) {
+                map.putLong(graph.capacities[live[i]]);
+            }
+            for (int i = 0; i < slots * 2; i++) {
+                map.putLong(graph.minHtlcMsat[live[i >> 1] * 2 + (i & 1)]);
+            }
+            for (int i = 0; i < slots * 2; i++) {
+                map.putLong(graph.maxHtlcMsat[live[i >> 1] * 2 + (i & 1)]);
+            }
+            for (int i = 0; i < slots; i++) {
+                map.putInt(graph.node1[live[i]]);
+            }
+            for (int i = 0; i < slots; i++) {
+                map.putInt(graph.node2[live[i]]);
+            }
+            for (int i = 0; i < slots * 2; i++) {
+                map.putInt(graph.feeBaseMsat[live[i >> 1] * 2 + (i & 1)]);
+            }
+            for (int i = 0; i < slots * 2; i++) {
+                map.putInt(graph.feeRatePpm[live[i >> 1] * 2 + (i & 1)]);
+            }
+            for (int i = 0; i < slots * 2; i++) {
+                map.putInt(graph.timeLockDelta[live[i >> 1] * 2 + (i & 1)]);
+            }
+            for (int i = 0; i < slots * 2; i++) {
+                map.put(graph.flags[live[i >> 1] * 2 + (i & 1)]);
+            }
+            for (byte[] string : strings) {
+                putString(map, string);
+            }
+            map.force();
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        
+        journalStart = size;
+        journalEnd = size;
+        updatedAt = now;
+        pending.clear();
+    }
+    
+    /**
+     * Open the file for appending, cutting off any partial record after the journal
+     */
+    private void openChannel() throws IOException {
+        if (channel == null) {
+            channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            channel.truncate(journalEnd);
+        }
+    }
+    
+    private void closeChannel() throws IOException {
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+    }
+    
+    private void reserve(int bytes) {
+        if (pending.remaining() < bytes) {
+            ByteBuffer larger = ByteBuffer.allocate(Math.max(pending.capacity() * 2, pending.position() + bytes));
+            pending.flip();
+            larger.put(pending);
+            pending = larger;
+        }
+    }
+    
+    private static void readLongs(ByteBuffer map, long[] into, int count) {
+        map.asLongBuffer().get(into, 0, count);
+        map.position(map.position() + count * Long.BYTES);
+    }
+    
+    private static void readInts(ByteBuffer map, int[] into, int count) {
+        map.asIntBuffer().get(into, 0, count);
+        map.position(map.position() + count * Integer.BYTES);
+    }
+    
+    /**
+     * UTF-8 bytes of a string, at most 65535 of them; empty for null
+     */
+    private static byte[] encode(String value) {
+        if (value == null) {
+            return new byte[0];
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        return bytes.length <= 0xFFFF ? bytes : Arrays.copyOf(bytes, 0xFFFF);
+    }
+    
+    private static void putString(ByteBuffer buffer, byte[] bytes) {
+        buffer.putShort((short) bytes.length).put(bytes);
+    }
+    
+    private static String getString(ByteBuffer buffer, byte[] scratch) {
+        int length = buffer.getShort() & 0xFFFF;
+        buffer.get(scratch, 0, length);
+        return new String(scratch, 0, length, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,114 @@
+package com.lightning.network.graph;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing map from long keys to non-negative int values, without boxing.
+ *
+ * Used to find a channel's slot by its short channel id; a mainnet graph has tens of
+ * thousands of channels, which as a HashMap&lt;Long, Integer&gt; would cost three objects each.
+ * Linear probing with backward-shift deletion, so removals leave no tombstones.
+ */
+final class LongIntMap {
+    private static final int MISSING = -1;
+    
+    private long[] keys;
+    private int[] values;
+    private int size;
+    private int mask;
+    
+    LongIntMap(int expected) {
+        int capacity = Integer.highestOneBit(Math.max(4, expected * 2 - 1)) << 1;
+        allocate(capacity);
+    }
+    
+    int size() {
+        return size;
+    }
+    
+    /**
+     * Value for a key, or -1 if absent
+     */
+    int get(long key) {
+        for (int i = slot(key); ; i = (i + 1) & mask) {
+            int value = values[i];
+            if (value == MISSING) {
+                return MISSING;
+            }
+            if (keys[i] == key) {
+                return value;
+            }
+        }
+    }
+    
+    void put(long key, int value) {
+        if ((size + 1) * 4 > values.length * 3) {
+            grow();
+        }
+        for (int i = slot(key); ; i = (i + 1) & mask) {
+            if (values[i] == MISSING) {
+                keys[i] = key;
+                values[i] = value;
+                size++;
+                return;
+            }
+            if (keys[i] == key) {
+                values[i] = value;
+                return;
+            }
+        }
+    }
+    
+    /**
+     * Remove a key
+     * @return Its value, or -1 if absent
+     */
+    int remove(long key) {
+        int i = slot(key);
+        while (values[i] != MISSING && keys[i] != key) {
+            i = (i + 1) & mask;
+        }
+        int removed = values[i];
+        if (removed == MISSING) {
+            return MISSING;
+        }
+        
+        // Shift later entries of the probe run back so lookups never stop at a hole
+        int hole = i;
+        for (int j = (hole + 1) & mask; values[j] != MISSING; j = (j + 1) & mask) {
+            int home = slot(keys[j]);
+            if (((j - home) & mask) >= ((j - hole) & mask)) {
+                keys[hole] = keys[j];
+                values[hole] = values[j];
+                hole = j;
+            }
+        }
+        values[hole] = MISSING;
+        size--;
+        return removed;
+    }
+    
+    private int slot(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+    
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new int[capacity];
+        Arrays.fill(values, MISSING);
+        mask = capacity - 1;
+    }
+    
+    private void grow() {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(oldValues.length * 2);
+        size = 0;
+        for (int i = 0; i < oldValues.length; i++) {
+            if (oldValues[i] != MISSING) {
+                put(oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.lightning.network.graph;
+
+import java.util.Arrays;
+
+/**
+ * Binary min-heap of node ids keyed by long distance, with decrease-key.
+ *
+ * Positions are tracked per node, so a node is queued at most once and improving its
+ * distance moves it in place instead of queueing a duplicate.
+ */
+final class NodeHeap {
+    private final int[] heap;
+    private final int[] position;
+    private final long[] key;
+    private int size;
+    
+    NodeHeap(int nodes) {
+        heap = new int[nodes];
+        position = new int[nodes];
+        key = new long[nodes];
+        Arrays.fill(position, -1);
+    }
+    
+    boolean isEmpty() {
+        return size == 0;
+    }
+    
+    /**
+     * Queue a node, or lower its key if it is queued with a higher one
+     */
+    void offer(int node, long distance) {
+        int i = position[node];
+        if (i < 0) {
+            i = size++;
+            heap[i] = node;
+            position[node] = i;
+        } else if (distance >= key[node]) {
+            return;
+        }
+        key[node] = distance;
+        siftUp(i);
+    }
+    
+    /**
+     * Drop every queued node
+     */
+    void clear() {
+        for (int i = 0; i < size; i++) {
+            position[heap[i]] = -1;
+        }
+        size = 0;
+    }
+    
+    /**
+     * Remove and return the node with the lowest key
+     */
+    int poll() {
+        int top = heap[0];
+        position[top] = -1;
+        int last = heap[--size];
+        if (size > 0) {
+            heap[0] = last;
+            position[last] = 0;
+            siftDown(0);
+        }
+        return top;
+    }
+    
+    private void siftUp(int i) {
+        int node = heap[i];
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (key[heap[parent]] <= key[node]) {
+                break;
+            }
+            heap[i] = heap[parent];
+            position[heap[i]] = i;
+            i = parent;
+        }
+        heap[i] = node;
+        position[node] = i;
+    }
+    
+    private void siftDown(int i) {
+        int node = heap[i];
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && key[heap[child + 1]] < key[heap[child]]) {
+                child++;
+            }
+            if (key[heap[child]] >= key[node]) {
+                break;
+            }
+            heap[i] = heap[child];
+            position[heap[i]] = i;
+            i = child;
+        }
+        heap[i] = node;
+        position[node] = i;
+    }
+}
@@ -0,0 +1,72 @@
+package com.lightning.network.graph;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Path through the channel graph with the fees the forwarding nodes would charge
+ */
+public final class Route {
+    private final List<String> hops;
+    private final List<Long> channelIds;
+    private final long amountMsat;
+    private final long feeMsat;
+    private final int timeLockDelta;
+    private final long cost;
+    
+    Route(List<String> hops, List<Long> channelIds, long amountMsat, long feeMsat, int timeLockDelta, long cost) {
+        this.hops = Collections.unmodifiableList(hops);
+        this.channelIds = Collections.unmodifiableList(channelIds);
+        this.amountMsat = amountMsat;
+        this.feeMsat = feeMsat;
+        this.timeLockDelta = timeLockDelta;
+        this.cost = cost;
+    }
+    
+    /**
+     * Public keys of the nodes after the sender, ending with the destination
+     */
+    public List<String> getHops() {
+        return hops;
+    }
+    
+    /**
+     * Short channel ids of the channels used, in payment order
+     */
+    public List<Long> getChannelIds() {
+        return channelIds;
+    }
+    
+    /**
+     * Amount delivered to the destination
+     */
+    public long getAmountMsat() {
+        return amountMsat;
+    }
+    
+    /**
+     * Sum of the fees of every forwarding node
+     */
+    public long getFeeMsat() {
+        return feeMsat;
+    }
+    
+    /**
+     * Blocks of timelock added by the forwarding nodes, not counting the destination's final delta
+     */
+    public int getTimeLockDelta() {
+        return timeLockDelta;
+    }
+    
+    /**
+     * Fee plus the time value of the locked amount, the weight routes are ranked by
+     */
+    long getCost() {
+        return cost;
+    }
+    
+    @Override
+    public String toString() {
+        return hops.size() + " hops, fee " + feeMsat + " msat, timelock " + timeLockDelta;
+    }
+}
@@ -0,0 +1,368 @@
+package com.lightning.network.graph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * Cheapest-route search over a {@link ChannelGraph}.
+ *
+ * Dijkstra runs backwards from the destination, as LND's pathfinding does, so the amount
+ * each hop must forward is known when its fee is computed: a node forwarding x msat over a
+ * channel charges base + x * rate / 1e6, and the sender pays no fee on its own channel.
+ * Edges are weighted by that fee plus the time value of the amount locked for the hop's
+ * timelock delta, and an edge is only used if it is enabled and the amount fits its
+ * capacity and HTLC limits. Yen's algorithm then finds the next cheapest loop-free routes,
+ * whose fees bound what the payment is likely to cost if the cheapest route fails; as in
+ * Lawler's variant, a route only branches at or after the hop where it left its parent.
+ *
+ * A finder reuses its search arrays between searches and resets only the entries a search
+ * touched, so it must not be shared between threads.
+ */
+public class RouteFinder {
+    // Routes returned by estimate()
+    public static final int DEFAULT_ROUTES = 3;
+    
+    // LND's default cost of locking funds: 15 parts per billion of the amount per block
+    private static final long RISK_FACTOR_PPB = 15;
+    
+    // Onion packets have room for 20 hops
+    private static final int MAX_HOPS = 20;
+    
+    private final ChannelGraph graph;
+    private final Map<Long, Long> localBalances;
+    
+    // Search state by node id, grown with the graph; touched lists the ids to reset
+    private long[] cost = new long[0];
+    private long[] amount;
+    private int[] hops;
+    private int[] next;
+    private boolean[] settled;
+    private int[] touched;
+    private int touchedCount;
+    private NodeHeap heap;
+    
+    /**
+     * Create a route finder that trusts the advertised capacity of the sender's channels
+     */
+    public RouteFinder(ChannelGraph graph) {
+        this(graph, null);
+    }
+    
+    /**
+     * Create a route finder that knows the sender's spendable balances
+     * @param localBalances Spendable msat by short channel id of the sender's channels; a
+     *                      channel not listed cannot be used as the first hop. Null to use
+     *                      the graph's capacity and policy instead.
+     */
+    public RouteFinder(ChannelGraph graph, Map<Long, Long> localBalances) {
+        this.graph = graph;
+        this.localBalances = localBalances;
+    }
+    
+    /**
+     * Find the cheapest route
+     * @return The route, or null if the destination cannot be reached with the amount
+     */
+    public Route findRoute(String source, String destination, long amountMsat) {
+        List<Route> routes = findRoutes(source, destination, amountMsat, 1);
+        return routes.isEmpty() ? null : routes.get(0);
+    }
+    
+    /**
+     * Find the {@link #DEFAULT_ROUTES} cheapest routes and time the search
+     */
+    public FeeEstimate estimate(String source, String destination, long amountMsat) {
+        long start = System.nanoTime();
+        List<Route> routes = findRoutes(source, destination, amountMsat, DEFAULT_ROUTES);
+        return new FeeEstimate(amountMsat, routes, System.nanoTime() - start);
+    }
+    
+    /**
+     * Find up to count loop-free routes, cheapest first (Yen's k shortest paths)
+     * @return The routes; empty if either node is unknown or no route can carry the amount
+     */
+    public List<Route> findRoutes(String source, String destination, long amountMsat, int count) {
+        Lock read = graph.lockIndex();
+        try {
+            int payer = graph.getNodeId(source);
+            int target = graph.getNodeId(destination);
+            List<Route> routes = new ArrayList<>();
+            if (payer == ChannelGraph.NONE || target == ChannelGraph.NONE || payer == target || count < 1) {
+                return routes;
+            }
+            
+            int[] first = search(payer, payer, target, amountMsat, null, null, Long.MAX_VALUE);
+            if (first == null) {
+                return routes;
+            }
+            List<int[]> accepted = new ArrayList<>();
+            accepted.add(first);
+            routes.add(toRoute(payer, first, amountMsat));
+            
+            // Hop at which each path left the path it was branched from
+            List<Integer> deviations = new ArrayList<>();
+            List<int[]> candidates = new ArrayList<>();
+            List<Route> candidateRoutes = new ArrayList<>();
+            List<Integer> candidateDeviations = new ArrayList<>();
+            deviations.add(0);
+            while (accepted.size() < count) {
+                int[] previous = accepted.get(accepted.size() - 1);
+                // Branches before the deviation were already tried from the parent path
+                for (int i = deviations.get(deviations.size() - 1); i < previous.length; i++) {
+                    // Keep the first i hops, and branch off at the node they lead to
+                    int spur = graph.source(previous[i]);
+                    BitSet blockedEdges = new BitSet();
+                    for (int[] path : accepted) {
+                        if (path.length > i && Arrays.equals(path, 0, i, previous, 0, i)) {
+                            blockedEdges.set(path[i]);
+                        }
+                    }
+                    BitSet blockedNodes = new BitSet();
+                    for (int j = 0; j < i; j++) {
+                        blockedNodes.set(graph.source(previous[j]));
+                    }
+                    
+                    int[] tail = search(payer, spur, target, amountMsat, blockedNodes, blockedEdges,
+                            costBound(candidateRoutes, count - accepted.size()));
+                    if (tail == null || i + tail.length > MAX_HOPS) {
+                        continue;
+                    }
+                    int[] path = Arrays.copyOf(previous, i + tail.length);
+                    System.arraycopy(tail, 0, path, i, tail.length);
+                    if (!contains(accepted, path) && !contains(candidates, path)) {
+                        candidates.add(path);
+                        candidateRoutes.add(toRoute(payer, path, amountMsat));
+                        candidateDeviations.add(i);
+                    }
+                }
+                if (candidates.isEmpty()) {
+                    break;
+                }
+                
+                int best = 0;
+                for (int i = 1; i < candidates.size(); i++) {
+                    if (candidateRoutes.get(i).getCost() < candidateRoutes.get(best).getCost()) {
+                        best = i;
+                    }
+                }
+                accepted.add(candidates.remove(best));
+                routes.add(candidateRoutes.remove(best));
+                deviations.add(candidateDeviations.remove(best));
+            }
+            return routes;
+        } finally {
+            read.unlock();
+        }
+    }
+    
+    /**
+     * Cheapest path from one node to the target that avoids the blocked nodes and edges;
+     * the caller holds the read lock
+     * @param payer Sender of the payment, which charges itself no fee
+     * @param from Node the path starts at
+     * @param maxCost Give up once every remaining path costs more than this
+     * @return Edge indexes in payment order, or null if the target cannot be reached
+     */
+    private int[] search(int payer, int from, int target, long amountMsat, BitSet blockedNodes, BitSet blockedEdges,
+                         long maxCost) {
+        reset(graph.nodeCount);
+        
+        touch(target);
+        cost[target] = 0;
+        amount[target] = amountMsat;
+        hops[target] = 0;
+        next[target] = ChannelGraph.NONE;
+        heap.offer(target, 0);
+        
+        while (!heap.isEmpty()) {
+            int node = heap.poll();
+            if (cost[node] > maxCost) {
+                break;
+            }
+            settled[node] = true;
+            if (node == from) {
+                break;
+            }
+            if (hops[node] >= MAX_HOPS) {
+                continue;
+            }
+            long forwarded = amount[node];
+            for (int position = graph.inStart[node], end = graph.inStart[node + 1]; position < end; position++) {
+                int sender = graph.inSender[position];
+                if (settled[sender]
+                        || (blockedNodes != null && blockedNodes.get(sender))
+                        || (blockedEdges != null && blockedEdges.get(graph.inEdge[position]))) {
+                    continue;
+                }
+                long fee = 0;
+                long weight = 0;
+                if (sender == payer) {
+                    if (!canSend(position, forwarded)) {
+                        continue;
+                    }
+                } else {
+                    if (forwarded < graph.inMinMsat[position] || forwarded > graph.inMaxMsat[position]) {
+                        continue;
+                    }
+                    fee = addCapped(graph.inBaseMsat[position], scale(forwarded, graph.inRatePpm[position], 1_000_000));
+                    // A hop charging more than it forwards is never worth it, and skipping it keeps the sums bounded
+                    if (fee > forwarded) {
+                        continue;
+                    }
+                    weight = addCapped(fee, scale(forwarded, graph.inTimeLockDelta[position] * RISK_FACTOR_PPB, 1_000_000_000));
+                }
+                long total = addCapped(cost[node], weight);
+                if (total == Long.MAX_VALUE) {
+                    continue;
+                }
+                if (cost[sender] == Long.MAX_VALUE) {
+                    touch(sender);
+                }
+                if (total < cost[sender]) {
+                    cost[sender] = total;
+                    amount[sender] = forwarded + fee;
+                    hops[sender] = hops[node] + 1;
+                    next[sender] = graph.inEdge[position];
+                    heap.offer(sender, total);
+                }
+            }
+        }
+        
+        if (!settled[from]) {
+            return null;
+        }
+        int[] path = new int[hops[from]];
+        int node = from;
+        for (int i = 0; i < path.length; i++) {
+            path[i] = next[node];
+            node = graph.target(path[i]);
+        }
+        return path;
+    }
+    
+    /**
+     * Cost a new candidate must beat to matter: once enough candidates are queued to fill
+     * the remaining places, a branch costing more than the last of them is never taken.
+     * The part of a branch after the spur node costs no more than the whole, so the spur
+     * search can stop there.
+     */
+    private static long costBound(List<Route> candidates, int needed) {
+        if (candidates.size() < needed) {
+            return Long.MAX_VALUE;
+        }
+        long[] costs = new long[candidates.size()];
+        for (int i = 0; i < costs.length; i++) {
+            costs[i] = candidates.get(i).getCost();
+        }
+        Arrays.sort(costs);
+        return costs[needed - 1];
+    }
+    
+    /**
+     * Clear what the last search touched, growing the arrays if the graph has grown
+     */
+    private void reset(int nodes) {
+        if (cost.length < nodes) {
+            cost = new long[nodes];
+            Arrays.fill(cost, Long.MAX_VALUE);
+            amount = new long[nodes];
+            hops = new int[nodes];
+            next = new int[nodes];
+            settled = new boolean[nodes];
+            touched = new int[nodes];
+            heap = new NodeHeap(nodes);
+        } else {
+            for (int i = 0; i < touchedCount; i++) {
+                int node = touched[i];
+                cost[node] = Long.MAX_VALUE;
+                settled[node] = false;
+            }
+            heap.clear();
+        }
+        touchedCount = 0;
+    }
+    
+    private void touch(int node) {
+        touched[touchedCount++] = node;
+    }
+    
+    /**
+     * Whether one of the sender's own channels can send an amount: its balance if known, otherwise its policy and capacity
+     */
+    private boolean canSend(int position, long amountMsat) {
+        if (localBalances == null) {
+            return amountMsat >= graph.inMinMsat[position] && amountMsat <= graph.inMaxMsat[position];
+        }
+        Long balance = localBalances.get(graph.chanIds[graph.inEdge[position] >> 1]);
+        return balance != null && balance >= amountMsat;
+    }
+    
+    private long fee(int edge, long amountMsat) {
+        return addCapped(graph.feeBaseMsat[edge], scale(amountMsat, graph.feeRatePpm[edge], 1_000_000));
+    }
+    
+    private long risk(int edge, long amountMsat) {
+        return scale(amountMsat, graph.timeLockDelta[edge] * RISK_FACTOR_PPB, 1_000_000_000);
+    }
+    
+    /**
+     * amount * factor / divisor for non-negative operands, or Long.MAX_VALUE if the product overflows;
+     * advertised fee rates and timelocks go up to Integer.MAX_VALUE
+     */
+    static long scale(long amount, long factor, long divisor) {
+        long product = amount * factor;
+        if (Math.multiplyHigh(amount, factor) != 0 || product < 0) {
+            return Long.MAX_VALUE;
+        }
+        return product / divisor;
+    }
+    
+    /**
+     * Sum of two non-negative values, or Long.MAX_VALUE if it overflows
+     */
+    static long addCapped(long a, long b) {
+        long sum = a + b;
+        return sum < 0 ? Long.MAX_VALUE : sum;
+    }
+    
+    /**
+     * Fees, timelock and cost of a path, computed backwards from the amount delivered
+     */
+    private Route toRoute(int payer, int[] path, long amountMsat) {
+        long forwarded = amountMsat;
+        long fees = 0;
+        long cost = 0;
+        int timeLock = 0;
+        for (int i = path.length - 1; i >= 0; i--) {
+            int edge = path[i];
+            if (graph.source(edge) != payer) {
+                long fee = fee(edge, forwarded);
+                cost = addCapped(cost, addCapped(fee, risk(edge, forwarded)));
+                fees = addCapped(fees, fee);
+                timeLock = (int) Math.min(Integer.MAX_VALUE, (long) timeLock + graph.timeLockDelta[edge]);
+                forwarded = addCapped(forwarded, fee);
+            }
+        }
+        
+        List<String> hops = new ArrayList<>(path.length);
+        List<Long> channelIds = new ArrayList<>(path.length);
+        for (int edge : path) {
+            hops.add(graph.pubkeys[graph.target(edge)]);
+            channelIds.add(graph.chanIds[edge >> 1]);
+        }
+        return new Route(hops, channelIds, amountMsat, fees, timeLock, cost);
+    }
+    
+    private static boolean contains(List<int[]> paths, int[] path) {
+        for (int[] known : paths) {
+            if (Arrays.equals(known, path)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
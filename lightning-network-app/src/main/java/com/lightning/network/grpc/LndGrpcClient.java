@@ -0,0 +1,200 @@
+package com.lightning.network.grpc;
+
+import com.lightning.model.Invoice;
+import com.lightning.model.InvoicePage;
+import com.lightning.model.LightningInfo;
+import com.lightning.model.Payment;
+import com.lightning.model.WalletBalance;
+import com.lightning.network.NetworkConstants;
+import io.grpc.CallOptions;
+import io.grpc.Channel;
+import io.grpc.ClientInterceptor;
+import io.grpc.ClientInterceptors;
+import io.grpc.ConnectivityState;
+import io.grpc.ManagedChannel;
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+import io.grpc.StatusRuntimeException;
+import io.grpc.netty.shaded.io.grpc.netty.GrpcSslContexts;
+import io.grpc.netty.shaded.io.grpc.netty.NettyChannelBuilder;
+import io.grpc.netty.shaded.io.netty.handler.ssl.SslContext;
+import io.grpc.netty.shaded.io.netty.handler.ssl.util.InsecureTrustManagerFactory;
+import io.grpc.stub.ClientCalls;
+import io.grpc.stub.MetadataUtils;
+
+import javax.net.ssl.SSLException;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Client for LND's native gRPC interface (lnrpc.Lightning).
+ *
+ * One ManagedChannel is kept for the lifetime of the client. All calls are multiplexed
+ * as HTTP/2 streams over that channel, so concurrent requests share a single TLS connection.
+ */
+public class LndGrpcClient {
+    private static final Logger LOGGER = Logger.getLogger(LndGrpcClient.class.getName());
+    
+    // ListInvoices responses can be large on busy nodes
+    private static final int MAX_INBOUND_MESSAGE_BYTES = 64 * 1024 * 1024;
+    private static final long KEEP_ALIVE_SECONDS = 30;
+    
+    private static final Metadata.Key<String> MACAROON_KEY =
+            Metadata.Key.of("macaroon", Metadata.ASCII_STRING_MARSHALLER);
+    
+    private final ManagedChannel channel;
+    private final Channel authenticatedChannel;
+    private final String target;
+    
+    /**
+     * Connect to an LND gRPC endpoint
+     * @param host Node host
+     * @param port gRPC port (10009 by default)
+     * @param certPath Path to LND's tls.cert; if empty or missing, the server certificate is not verified
+     * @param macaroonHex Hex-encoded macaroon sent with every call, or null when macaroons are disabled
+     */
+    public LndGrpcClient(String host, int port, String certPath, String macaroonHex) throws IOException {
+        this.target = host + ":" + port;
+        
+        SslContext sslContext;
+        try {
+            File certFile = certPath == null || certPath.isEmpty() ? null : new File(certPath);
+            if (certFile != null && certFile.isFile()) {
+                sslContext = GrpcSslContexts.forClient().trustManager(certFile).build();
+            } else {
+                // Same development-mode trust as the REST transport
+                LOGGER.warning("No TLS certificate for gRPC; server certificate will not be verified");
+                sslContext = GrpcSslContexts.forClient().trustManager(InsecureTrustManagerFactory.INSTANCE).build();
+            }
+        } catch (SSLException e) {
+            throw new IOException("Failed to configure gRPC TLS", e);
+        }
+        
+        channel = NettyChannelBuilder.forAddress(host, port)
+                .sslContext(sslContext)
+                .maxInboundMessageSize(MAX_INBOUND_MESSAGE_BYTES)
+                .keepAliveTime(KEEP_ALIVE_SECONDS, TimeUnit.SECONDS)
+                .build();
+        
+        if (macaroonHex != null && !macaroonHex.isEmpty()) {
+            Metadata headers = new Metadata();
+            headers.put(MACAROON_KEY, macaroonHex);
+            ClientInterceptor auth = MetadataUtils.newAttachHeadersInterceptor(headers);
+            authenticatedChannel = ClientInterceptors.intercept(channel, auth);
+        } else {
+            authenticatedChannel = channel;
+        }
+        
+        LOGGER.info("gRPC channel created for: " + target);
+    }
+    
+    /**
+     * Get information about the node
+     */
+    public LightningInfo getInfo() throws IOException {
+        return call(LndProto.GET_INFO, LndProto.EMPTY, NetworkConstants.CONNECTION_TIMEOUT);
+    }
+    
+    /**
+     * Get the on-chain wallet balance
+     */
+    public WalletBalance getWalletBalance() throws IOException {
+        return call(LndProto.WALLET_BALANCE, LndProto.EMPTY, NetworkConstants.CONNECTION_TIMEOUT);
+    }
+    
+    /**
+     * Fetch one page of invoices using the add-index cursor
+     */
+    public InvoicePage listInvoices(long indexOffset, int maxInvoices, boolean reversed, boolean pendingOnly)
+            throws IOException {
+        return call(LndProto.LIST_INVOICES,
+                LndProto.listInvoicesRequest(indexOffset, maxInvoices, reversed, pendingOnly),
+                NetworkConstants.CONNECTION_TIMEOUT);
+    }
+    
+    /**
+     * Add an invoice
+     */
+    public Invoice addInvoice(long amountSats, String memo) throws IOException {
+        Invoice invoice = call(LndProto.ADD_INVOICE, LndProto.addInvoiceRequest(amountSats, memo),
+                NetworkConstants.CONNECTION_TIMEOUT);
+        invoice.setMemo(memo);
+        invoice.setAmountSats(amountSats);
+        invoice.setSettled(false);
+        return invoice;
+    }
+    
+    /**
+     * Decode a BOLT11 payment request on the node
+     */
+    public Payment decodePaymentRequest(String paymentRequest) throws IOException {
+        return call(LndProto.DECODE_PAY_REQ, LndProto.payReqString(paymentRequest),
+                NetworkConstants.CONNECTION_TIMEOUT);
+    }
+    
+    /**
+     * Generate a new native segwit address
+     */
+    public String getNewAddress() throws IOException {
+        return call(LndProto.NEW_ADDRESS, LndProto.newAddressRequest(), NetworkConstants.CONNECTION_TIMEOUT);
+    }
+    
+    /**
+     * Pay a BOLT11 payment request and wait for the result
+     */
+    public Payment sendPayment(String paymentRequest) throws IOException {
+        LndProto.SendResult result = call(LndProto.SEND_PAYMENT_SYNC, LndProto.sendRequest(paymentRequest),
+                NetworkConstants.PAYMENT_TIMEOUT);
+        if (result.getPaymentError() != null) {
+            throw new IOException("Failed to pay invoice: " + result.getPaymentError());
+        }
+        return result.getPayment();
+    }
+    
+    /**
+     * Current channel state; asking to connect starts a connection attempt in the background
+     */
+    public ConnectivityState getState(boolean requestConnection) {
+        return channel.getState(requestConnection);
+    }
+    
+    /**
+     * Get the host:port this client talks to
+     */
+    public String getTarget() {
+        return target;
+    }
+    
+    /**
+     * Close the channel
+     */
+    public void shutdown() {
+        channel.shutdown();
+        try {
+            if (!channel.awaitTermination(5, TimeUnit.SECONDS)) {
+                channel.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            channel.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    /**
+     * Run a unary call with a deadline, translating gRPC failures into IOExceptions
+     */
+    private <T> T call(MethodDescriptor<LndProto.Message, T> method, LndProto.Message request, long timeoutSeconds)
+            throws IOException {
+        CallOptions options = CallOptions.DEFAULT.withDeadlineAfter(timeoutSeconds, TimeUnit.SECONDS);
+        try {
+            return ClientCalls.blockingUnaryCall(authenticatedChannel, method, options, request);
+        } catch (StatusRuntimeException e) {
+            throw new IOException("gRPC " + method.getBareMethodName() + " failed: " + e.getStatus(), e);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+}
@@ -0,0 +1,512 @@
+package com.lightning.network.grpc;
+
+import com.google.gson.JsonObject;
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.WireFormat;
+import com.lightning.model.Invoice;
+import com.lightning.model.InvoicePage;
+import com.lightning.model.LightningInfo;
+import com.lightning.model.Payment;
+import com.lightning.model.WalletBalance;
+import io.grpc.MethodDescriptor;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Protobuf wire codecs and method descriptors for the subset of lnrpc.Lightning used by the wallet.
+ *
+ * Messages are encoded and decoded directly with CodedOutputStream/CodedInputStream using the
+ * field numbers from LND's lightning.proto, straight into the wallet's model classes. This avoids
+ * generated stubs for the whole lnrpc API. Unknown fields are skipped, so newer LND versions stay
+ * compatible. Byte fields (hashes, preimages) are exposed as base64, matching the REST gateway.
+ */
+public final class LndProto {
+    private static final String SERVICE = "lnrpc.Lightning";
+    
+    // lnrpc.Invoice.InvoiceState values
+    private static final String[] INVOICE_STATES = {"OPEN", "SETTLED", "CANCELED", "ACCEPTED"};
+    
+    private LndProto() {
+    }
+    
+    /**
+     * A request message that knows how to write its fields
+     */
+    public interface Message {
+        void writeTo(CodedOutputStream out) throws IOException;
+    }
+    
+    /**
+     * Decodes a response message from the wire
+     */
+    interface Decoder<T> {
+        T decode(CodedInputStream in) throws IOException;
+    }
+    
+    /**
+     * Decoded SendResponse; LND reports routing failures in payment_error rather than as a call error
+     */
+    public static final class SendResult {
+        private final Payment payment;
+        private final String paymentError;
+        
+        SendResult(Payment payment, String paymentError) {
+            this.payment = payment;
+            this.paymentError = paymentError;
+        }
+        
+        public Payment getPayment() {
+            return payment;
+        }
+        
+        /**
+         * The payment error reported by the node, or null if the payment succeeded
+         */
+        public String getPaymentError() {
+            return paymentError;
+        }
+    }
+    
+    /** Message with no fields, used for GetInfoRequest and WalletBalanceRequest */
+    public static final Message EMPTY = out -> { };
+    
+    public static final MethodDescriptor<Message, LightningInfo> GET_INFO =
+            unary("GetInfo", LndProto::decodeGetInfo);
+    
+    public static final MethodDescriptor<Message, WalletBalance> WALLET_BALANCE =
+            unary("WalletBalance", LndProto::decodeWalletBalance);
+    
+    public static final MethodDescriptor<Message, InvoicePage> LIST_INVOICES =
+            unary("ListInvoices", LndProto::decodeListInvoices);
+    
+    public static final MethodDescriptor<Message, Invoice> ADD_INVOICE =
+            unary("AddInvoice", LndProto::decodeAddInvoice);
+    
+    public static final MethodDescriptor<Message, Payment> DECODE_PAY_REQ =
+            unary("DecodePayReq", LndProto::decodePayReq);
+    
+    public static final MethodDescriptor<Message, String> NEW_ADDRESS =
+            unary("NewAddress", LndProto::decodeNewAddress);
+    
+    public static final MethodDescriptor<Message, SendResult> SEND_PAYMENT_SYNC =
+            unary("SendPaymentSync", LndProto::decodeSendResponse);
+    
+    /**
+     * ListInvoiceRequest
+     */
+    public static Message listInvoicesRequest(long indexOffset, int maxInvoices, boolean reversed, boolean pendingOnly) {
+        return out -> {
+            if (pendingOnly) {
+                out.writeBool(1, true);
+            }
+            if (indexOffset > 0) {
+                out.writeUInt64(4, indexOffset);
+            }
+            out.writeUInt64(5, maxInvoices);
+            if (reversed) {
+                out.writeBool(6, true);
+            }
+        };
+    }
+    
+    /**
+     * Invoice request for AddInvoice (memo and value only)
+     */
+    public static Message addInvoiceRequest(long amountSats, String memo) {
+        return out -> {
+            if (memo != null && !memo.isEmpty()) {
+                out.writeString(1, memo);
+            }
+            out.writeInt64(5, amountSats);
+        };
+    }
+    
+    /**
+     * PayReqString
+     */
+    public static Message payReqString(String paymentRequest) {
+        return out -> out.writeString(1, paymentRequest);
+    }
+    
+    /**
+     * NewAddressRequest for a native segwit (WITNESS_PUBKEY_HASH) address; the enum default is omitted
+     */
+    public static Message newAddressRequest() {
+        return EMPTY;
+    }
+    
+    /**
+     * SendRequest paying a BOLT11 payment request
+     */
+    public static Message sendRequest(String paymentRequest) {
+        return out -> out.writeString(6, paymentRequest);
+    }
+    
+    /**
+     * Build a unary method descriptor for lnrpc.Lightning
+     */
+    private static <T> MethodDescriptor<Message, T> unary(String method, Decoder<T> decoder) {
+        return MethodDescriptor.<Message, T>newBuilder()
+                .setType(MethodDescriptor.MethodType.UNARY)
+                .setFullMethodName(MethodDescriptor.generateFullMethodName(SERVICE, method))
+                .setRequestMarshaller(new RequestMarshaller())
+                .setResponseMarshaller(new ResponseMarshaller<>(decoder))
+                .build();
+    }
+    
+    /**
+     * Serializes request messages
+     */
+    private static final class RequestMarshaller implements MethodDescriptor.Marshaller<Message> {
+        @Override
+        public InputStream stream(Message message) {
+            try {
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                CodedOutputStream out = CodedOutputStream.newInstance(bytes);
+                message.writeTo(out);
+                out.flush();
+                return new ByteArrayInputStream(bytes.toByteArray());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        
+        @Override
+        public Message parse(InputStream stream) {
+            throw new UnsupportedOperationException("Client does not parse requests");
+        }
+    }
+    
+    /**
+     * Parses response messages with a decoder
+     */
+    private static final class ResponseMarshaller<T> implements MethodDescriptor.Marshaller<T> {
+        private final Decoder<T> decoder;
+        
+        ResponseMarshaller(Decoder<T> decoder) {
+            this.decoder = decoder;
+        }
+        
+        @Override
+        public InputStream stream(T value) {
+            throw new UnsupportedOperationException("Client does not serialize responses");
+        }
+        
+        @Override
+        public T parse(InputStream stream) {
+            try {
+                CodedInputStream in = CodedInputStream.newInstance(stream);
+                in.setSizeLimit(Integer.MAX_VALUE);
+                return decoder.decode(in);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+    
+    /**
+     * GetInfoResponse
+     */
+    static LightningInfo decodeGetInfo(CodedInputStream in) throws IOException {
+        LightningInfo info = new LightningInfo();
+        int tag;
+        while ((tag = in.readTag()) != 0) {
+            switch (WireFormat.getTagFieldNumber(tag)) {
+                case 1:
+                    info.setIdentityPubkey(in.readString());
+                    break;
+                case 2:
+                    info.setAlias(in.readString());
+                    break;
+                case 3:
+                    info.setNumPendingChannels(in.readUInt32());
+                    break;
+                case 4:
+                    info.setNumActiveChannels(in.readUInt32());
+                    break;
+                case 5:
+                    info.setNumPeers(in.readUInt32());
+                    break;
+                case 6:
+                    info.setBlockHeight(in.readUInt32());
+                    break;
+                case 9:
+                    info.setSyncedToChain(in.readBool());
+                    break;
+                default:
+                    in.skipField(tag);
+                    break;
+            }
+        }
+        return info;
+    }
+    
+    /**
+     * WalletBalanceResponse
+     */
+    static WalletBalance decodeWalletBalance(CodedInputStream in) throws IOException {
+        WalletBalance balance = new WalletBalance();
+        int tag;
+        while ((tag = in.readTag()) != 0) {
+            switch (WireFormat.getTagFieldNumber(tag)) {
+                case 1:
+                    balance.setTotalBalance(in.readInt64());
+                    break;
+                case 2:
+                    balance.setConfirmedBalance(in.readInt64());
+                    break;
+                case 3:
+                    balance.setUnconfirmedBalance(in.readInt64());
+                    break;
+                case 5:
+                    balance.setLockedBalance(in.readInt64());
+                    break;
+                default:
+                    in.skipField(tag);
+                    break;
+            }
+        }
+        return balance;
+    }
+    
+    /**
+     * ListInvoiceResponse
+     */
+    static InvoicePage decodeListInvoices(CodedInputStream in) throws IOException {
+        InvoicePage page = new InvoicePage();
+        List<Invoice> invoices = new ArrayList<>();
+        int tag;
+        while ((tag = in.readTag()) != 0) {
+            switch (WireFormat.getTagFieldNumber(tag)) {
+                case 1:
+                    int limit = in.pushLimit(in.readRawVarint32());
+                    invoices.add(decodeInvoice(in));
+                    in.popLimit(limit);
+                    break;
+                case 2:
+                    page.setLastIndexOffset(in.readUInt64());
+                    break;
+                case 3:
+                    page.setFirstIndexOffset(in.readUInt64());
+                    break;
+                default:
+                    in.skipField(tag);
+                    break;
+            }
+        }
+        page.setInvoices(invoices);
+        page.setCount(invoices.size());
+        return page;
+    }
+    
+    /**
+     * lnrpc.Invoice
+     */
+    static Invoice decodeInvoice(CodedInputStream in) throws IOException {
+        Invoice invoice = new Invoice();
+        int tag;
+        while ((tag = in.readTag()) != 0) {
+            switch (WireFormat.getTagFieldNumber(tag)) {
+                case 1:
+                    invoice.setMemo(in.readString());
+                    break;
+                case 4:
+                    invoice.setRHash(base64(in.readByteArray()));
+                    break;
+                case 5:
+                    invoice.setAmountSats(in.readInt64());
+                    break;
+                case 6:
+                    invoice.setSettled(in.readBool());
+                    break;
+                case 7:
+                    invoice.setCreationDate(in.readInt64());
+                    break;
+                case 8:
+                    invoice.setSettleDate(in.readInt64());
+                    break;
+                case 9:
+                    invoice.setPaymentRequest(in.readString());
+                    break;
+                case 11:
+                    invoice.setExpiry(in.readInt64());
+                    break;
+                case 16:
+                    invoice.setAddIndex(in.readUInt64());
+                    break;
+                case 17:
+                    invoice.setSettleIndex(in.readUInt64());
+                    break;
+                case 21:
+                    int state = in.readEnum();
+                    invoice.setState(state >= 0 && state < INVOICE_STATES.length ? INVOICE_STATES[state] : null);
+                    break;
+                default:
+                    in.skipField(tag);
+                    break;
+            }
+        }
+        
+        if ("SETTLED".equals(invoice.getState())) {
+            invoice.setSettled(true);
+        }
+        if (!invoice.isSettled()) {
+            invoice.setSettleDate(0);
+        }
+        // proto3 omits default values, so an OPEN invoice carries no state field
+        if (invoice.getState() == null) {
+            invoice.setState(invoice.isSettled() ? "SETTLED" : "OPEN");
+        }
+        return invoice;
+    }
+    
+    /**
+     * AddInvoiceResponse
+     */
+    static Invoice decodeAddInvoice(CodedInputStream in) throws IOException {
+        Invoice invoice = new Invoice();
+        int tag;
+        while ((tag = in.readTag()) != 0) {
+            switch (WireFormat.getTagFieldNumber(tag)) {
+                case 1:
+                    invoice.setRHash(base64(in.readByteArray()));
+                    break;
+                case 2:
+                    invoice.setPaymentRequest(in.readString());
+                    break;
+                case 16:
+                    invoice.setAddIndex(in.readUInt64());
+                    break;
+                default:
+                    in.skipField(tag);
+                    break;
+            }
+        }
+        return invoice;
+    }
+    
+    /**
+     * PayReq
+     */
+    static Payment decodePayReq(CodedInputStream in) throws IOException {
+        Payment payment = new Payment();
+        int tag;
+        while ((tag = in.readTag()) != 0) {
+            switch (WireFormat.getTagFieldNumber(tag)) {
+                case 1:
+                    payment.setDestination(in.readString());
+                    break;
+                case 2:
+                    payment.setPaymentHash(in.readString());
+                    break;
+                case 3:
+                    payment.setNumSatoshis(in.readInt64());
+                    break;
+                case 4:
+                    payment.setTimestamp(in.readInt64());
+                    break;
+                case 6:
+                    payment.setDescription(in.readString());
+                    break;
+                default:
+                    in.skipField(tag);
+                    break;
+            }
+        }
+        return payment;
+    }
+    
+    /**
+     * NewAddressResponse
+     */
+    static String decodeNewAddress(CodedInputStream in) throws IOException {
+        String address = null;
+        int tag;
+        while ((tag = in.readTag()) != 0) {
+            if (WireFormat.getTagFieldNumber(tag) == 1) {
+                address = in.readString();
+            } else {
+                in.skipField(tag);
+            }
+        }
+        return address;
+    }
+    
+    /**
+     * SendResponse
+     */
+    static SendResult decodeSendResponse(CodedInputStream in) throws IOException {
+        Payment payment = new Payment();
+        JsonObject route = new JsonObject();
+        String paymentError = null;
+        int tag;
+        while ((tag = in.readTag()) != 0) {
+            switch (WireFormat.getTagFieldNumber(tag)) {
+                case 1:
+                    String error = in.readString();
+                    if (!error.isEmpty()) {
+                        paymentError = error;
+                    }
+                    break;
+                case 2:
+                    payment.setPaymentPreimage(base64(in.readByteArray()));
+                    break;
+                case 3:
+                    int limit = in.pushLimit(in.readRawVarint32());
+                    decodeRoute(in, payment, route);
+                    in.popLimit(limit);
+                    break;
+                case 4:
+                    payment.setPaymentHash(base64(in.readByteArray()));
+                    break;
+                default:
+                    in.skipField(tag);
+                    break;
+            }
+        }
+        payment.setPaymentRoute(route.toString());
+        return new SendResult(payment, paymentError);
+    }
+    
+    /**
+     * lnrpc.Route totals; hops are skipped
+     */
+    private static void decodeRoute(CodedInputStream in, Payment payment, JsonObject route) throws IOException {
+        int tag;
+        while ((tag = in.readTag()) != 0) {
+            switch (WireFormat.getTagFieldNumber(tag)) {
+                case 1:
+                    route.addProperty("total_time_lock", in.readUInt32());
+                    break;
+                case 2:
+                    long fees = in.readInt64();
+                    route.addProperty("total_fees", fees);
+                    payment.setFeeSat(fees);
+                    break;
+                case 3:
+                    long amount = in.readInt64();
+                    route.addProperty("total_amt", amount);
+                    payment.setValueSat(amount);
+                    break;
+                default:
+                    in.skipField(tag);
+                    break;
+            }
+        }
+    }
+    
+    /**
+     * Encode bytes the way the REST gateway does
+     */
+    private static String base64(byte[] bytes) {
+        return Base64.getEncoder().encodeToString(bytes);
+    }
+}
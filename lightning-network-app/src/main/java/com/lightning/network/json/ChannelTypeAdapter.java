@@ -0,0 +1,95 @@
+package com.lightning.network.json;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import com.lightning.model.Channel;
+
+import java.io.IOException;
+
+/**
+ * Streaming Gson adapter for LND Channel objects and the channel part of pending channels.
+ *
+ * Open channels name the peer remote_pubkey, pending ones remote_node_pub; both are read.
+ * The chan_id is a uint64 sent as a string. HTLCs, commitment details and the like are
+ * skipped. Channels read here are open unless the caller says otherwise; fee policy is not
+ * part of these objects and comes from the node's fee report.
+ */
+public class ChannelTypeAdapter extends TypeAdapter<Channel> {
+    
+    /**
+     * Write a channel using the field names of listchannels
+     */
+    @Override
+    public void write(JsonWriter out, Channel channel) throws IOException {
+        if (channel == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginObject();
+        out.name("active").value(channel.isActive());
+        out.name("remote_pubkey").value(channel.getRemotePubkey());
+        out.name("channel_point").value(channel.getChannelPoint());
+        out.name("chan_id").value(Long.toUnsignedString(channel.getChanId()));
+        out.name("capacity").value(String.valueOf(channel.getCapacity()));
+        out.name("local_balance").value(String.valueOf(channel.getLocalBalance()));
+        out.name("remote_balance").value(String.valueOf(channel.getRemoteBalance()));
+        out.name("private").value(channel.isPrivate());
+        out.endObject();
+    }
+    
+    /**
+     * Read a channel object from the stream
+     */
+    @Override
+    public Channel read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        
+        Channel channel = new Channel();
+        channel.setStatus(Channel.STATUS_OPEN);
+        in.beginObject();
+        while (in.hasNext()) {
+            String name = in.nextName();
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                continue;
+            }
+            switch (name) {
+                case "active":
+                    channel.setActive(in.nextBoolean());
+                    break;
+                case "remote_pubkey":
+                case "remote_node_pub":
+                    channel.setRemotePubkey(in.nextString());
+                    break;
+                case "channel_point":
+                    channel.setChannelPoint(in.nextString());
+                    break;
+                case "chan_id":
+                    channel.setChanId(Long.parseUnsignedLong(in.nextString()));
+                    break;
+                case "capacity":
+                    channel.setCapacity(in.nextLong());
+                    break;
+                case "local_balance":
+                    channel.setLocalBalance(in.nextLong());
+                    break;
+                case "remote_balance":
+                    channel.setRemoteBalance(in.nextLong());
+                    break;
+                case "private":
+                    channel.setPrivate(in.nextBoolean());
+                    break;
+                default:
+                    in.skipValue();
+                    break;
+            }
+        }
+        in.endObject();
+        return channel;
+    }
+}
@@ -0,0 +1,82 @@
+package com.lightning.network.json;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.lightning.model.Invoice;
+import com.lightning.model.InvoicePage;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Decodes a ListInvoices response envelope from a character stream.
+ *
+ * Each invoice is handed to the consumer as soon as it has been read, so memory use
+ * is bounded by a single invoice rather than by the size of the response.
+ */
+public final class InvoicePageReader {
+    private static final InvoiceTypeAdapter INVOICE_ADAPTER = new InvoiceTypeAdapter();
+    
+    private InvoicePageReader() {
+    }
+    
+    /**
+     * Read a page, streaming every invoice to the consumer
+     * @param source Response body stream; not closed by this method
+     * @param consumer Receives invoices in the order the node returned them
+     * @return Page metadata (count and index offsets); the invoice list is left empty
+     */
+    public static InvoicePage read(Reader source, Consumer<Invoice> consumer) throws IOException {
+        JsonReader in = new JsonReader(source);
+        InvoicePage page = new InvoicePage();
+        int count = 0;
+        
+        in.beginObject();
+        while (in.hasNext()) {
+            String name = in.nextName();
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                continue;
+            }
+            switch (name) {
+                case "invoices":
+                    in.beginArray();
+                    while (in.hasNext()) {
+                        Invoice invoice = INVOICE_ADAPTER.read(in);
+                        if (invoice != null) {
+                            consumer.accept(invoice);
+                            count++;
+                        }
+                    }
+                    in.endArray();
+                    break;
+                case "first_index_offset":
+                    page.setFirstIndexOffset(in.nextLong());
+                    break;
+                case "last_index_offset":
+                    page.setLastIndexOffset(in.nextLong());
+                    break;
+                default:
+                    in.skipValue();
+                    break;
+            }
+        }
+        in.endObject();
+        
+        page.setCount(count);
+        return page;
+    }
+    
+    /**
+     * Read a page and collect its invoices into the returned page
+     */
+    public static InvoicePage read(Reader source) throws IOException {
+        List<Invoice> invoices = new ArrayList<>();
+        InvoicePage page = read(source, invoices::add);
+        page.setInvoices(invoices);
+        return page;
+    }
+}
@@ -0,0 +1,111 @@
+package com.lightning.network.json;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import com.lightning.model.Invoice;
+
+import java.io.IOException;
+
+/**
+ * Streaming Gson adapter for LND invoice objects.
+ *
+ * Reads fields straight into the model without building a JSON tree. LND encodes
+ * int64 fields as strings, which {@link JsonReader#nextLong()} accepts as-is.
+ * Unknown fields (htlcs, route hints, features) are skipped without being materialized.
+ */
+public class InvoiceTypeAdapter extends TypeAdapter<Invoice> {
+    
+    /**
+     * Write an invoice using LND field names
+     */
+    @Override
+    public void write(JsonWriter out, Invoice invoice) throws IOException {
+        if (invoice == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginObject();
+        out.name("memo").value(invoice.getMemo());
+        out.name("r_hash").value(invoice.getRHash());
+        out.name("value").value(String.valueOf(invoice.getAmountSats()));
+        out.name("settled").value(invoice.isSettled());
+        out.name("creation_date").value(String.valueOf(invoice.getCreationDate()));
+        out.name("settle_date").value(String.valueOf(invoice.getSettleDate()));
+        out.name("payment_request").value(invoice.getPaymentRequest());
+        out.name("add_index").value(String.valueOf(invoice.getAddIndex()));
+        out.name("settle_index").value(String.valueOf(invoice.getSettleIndex()));
+        out.name("expiry").value(String.valueOf(invoice.getExpiry()));
+        if (invoice.getState() != null) {
+            out.name("state").value(invoice.getState());
+        }
+        out.endObject();
+    }
+    
+    /**
+     * Read a single invoice object from the stream
+     */
+    @Override
+    public Invoice read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        
+        Invoice invoice = new Invoice();
+        in.beginObject();
+        while (in.hasNext()) {
+            String name = in.nextName();
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                continue;
+            }
+            switch (name) {
+                case "memo":
+                    invoice.setMemo(in.nextString());
+                    break;
+                case "r_hash":
+                    invoice.setRHash(in.nextString());
+                    break;
+                case "value":
+                    invoice.setAmountSats(in.nextLong());
+                    break;
+                case "settled":
+                    invoice.setSettled(in.nextBoolean());
+                    break;
+                case "creation_date":
+                    invoice.setCreationDate(in.nextLong());
+                    break;
+                case "settle_date":
+                    invoice.setSettleDate(in.nextLong());
+                    break;
+                case "payment_request":
+                    invoice.setPaymentRequest(in.nextString());
+                    break;
+                case "add_index":
+                    invoice.setAddIndex(in.nextLong());
+                    break;
+                case "settle_index":
+                    invoice.setSettleIndex(in.nextLong());
+                    break;
+                case "expiry":
+                    invoice.setExpiry(in.nextLong());
+                    break;
+                case "state":
+                    invoice.setState(in.nextString());
+                    break;
+                default:
+                    in.skipValue();
+                    break;
+            }
+        }
+        in.endObject();
+        
+        // Only settled invoices carry a meaningful settle date
+        if (!invoice.isSettled()) {
+            invoice.setSettleDate(0);
+        }
+        return invoice;
+    }
+}
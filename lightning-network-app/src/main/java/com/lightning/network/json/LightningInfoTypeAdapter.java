@@ -0,0 +1,87 @@
+package com.lightning.network.json;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import com.lightning.model.LightningInfo;
+
+import java.io.IOException;
+
+/**
+ * Streaming Gson adapter for LND GetInfo responses.
+ *
+ * Only the fields shown by the wallet are read; chains, URIs and the feature map are
+ * skipped without being materialized.
+ */
+public class LightningInfoTypeAdapter extends TypeAdapter<LightningInfo> {
+    
+    /**
+     * Write node info using LND field names
+     */
+    @Override
+    public void write(JsonWriter out, LightningInfo info) throws IOException {
+        if (info == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginObject();
+        out.name("identity_pubkey").value(info.getIdentityPubkey());
+        out.name("alias").value(info.getAlias());
+        out.name("num_pending_channels").value(info.getNumPendingChannels());
+        out.name("num_active_channels").value(info.getNumActiveChannels());
+        out.name("num_peers").value(info.getNumPeers());
+        out.name("block_height").value(info.getBlockHeight());
+        out.name("synced_to_chain").value(info.isSyncedToChain());
+        out.endObject();
+    }
+    
+    /**
+     * Read a GetInfo response object from the stream
+     */
+    @Override
+    public LightningInfo read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        
+        LightningInfo info = new LightningInfo();
+        in.beginObject();
+        while (in.hasNext()) {
+            String name = in.nextName();
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                continue;
+            }
+            switch (name) {
+                case "identity_pubkey":
+                    info.setIdentityPubkey(in.nextString());
+                    break;
+                case "alias":
+                    info.setAlias(in.nextString());
+                    break;
+                case "num_pending_channels":
+                    info.setNumPendingChannels(in.nextInt());
+                    break;
+                case "num_active_channels":
+                    info.setNumActiveChannels(in.nextInt());
+                    break;
+                case "num_peers":
+                    info.setNumPeers(in.nextInt());
+                    break;
+                case "block_height":
+                    info.setBlockHeight(in.nextInt());
+                    break;
+                case "synced_to_chain":
+                    info.setSyncedToChain(in.nextBoolean());
+                    break;
+                default:
+                    in.skipValue();
+                    break;
+            }
+        }
+        in.endObject();
+        return info;
+    }
+}
@@ -0,0 +1,107 @@
+package com.lightning.network.json;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import com.lightning.model.Payment;
+
+import java.io.IOException;
+
+/**
+ * Streaming Gson adapter for LND payment objects and decoded payment requests.
+ *
+ * Both shapes map onto {@link Payment}: a PayReq fills destination, amount, description
+ * and timestamp, a Payment fills preimage, value and fee. Route hints and features are
+ * skipped without being materialized.
+ */
+public class PaymentTypeAdapter extends TypeAdapter<Payment> {
+    
+    /**
+     * Write a payment using LND field names; zero and missing fields are left out
+     */
+    @Override
+    public void write(JsonWriter out, Payment payment) throws IOException {
+        if (payment == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginObject();
+        out.name("payment_hash").value(payment.getPaymentHash());
+        if (payment.getDestination() != null) {
+            out.name("destination").value(payment.getDestination());
+        }
+        if (payment.getNumSatoshis() != 0) {
+            out.name("num_satoshis").value(String.valueOf(payment.getNumSatoshis()));
+        }
+        if (payment.getDescription() != null) {
+            out.name("description").value(payment.getDescription());
+        }
+        if (payment.getTimestamp() != 0) {
+            out.name("timestamp").value(String.valueOf(payment.getTimestamp()));
+        }
+        if (payment.getPaymentPreimage() != null) {
+            out.name("payment_preimage").value(payment.getPaymentPreimage());
+        }
+        if (payment.getValueSat() != 0) {
+            out.name("value_sat").value(String.valueOf(payment.getValueSat()));
+        }
+        if (payment.getFeeSat() != 0) {
+            out.name("fee_sat").value(String.valueOf(payment.getFeeSat()));
+        }
+        out.endObject();
+    }
+    
+    /**
+     * Read a payment or decoded payment request from the stream
+     */
+    @Override
+    public Payment read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        
+        Payment payment = new Payment();
+        in.beginObject();
+        while (in.hasNext()) {
+            String name = in.nextName();
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                continue;
+            }
+            switch (name) {
+                case "payment_hash":
+                    payment.setPaymentHash(in.nextString());
+                    break;
+                case "destination":
+                    payment.setDestination(in.nextString());
+                    break;
+                case "num_satoshis":
+                    payment.setNumSatoshis(in.nextLong());
+                    break;
+                case "description":
+                    payment.setDescription(in.nextString());
+                    break;
+                case "timestamp":
+                case "creation_date":
+                    payment.setTimestamp(in.nextLong());
+                    break;
+                case "payment_preimage":
+                    payment.setPaymentPreimage(in.nextString());
+                    break;
+                case "value_sat":
+                    payment.setValueSat(in.nextLong());
+                    break;
+                case "fee_sat":
+                    payment.setFeeSat(in.nextLong());
+                    break;
+                default:
+                    in.skipValue();
+                    break;
+            }
+        }
+        in.endObject();
+        return payment;
+    }
+}
@@ -0,0 +1,250 @@
+package com.lightning.network.json;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import com.lightning.model.HtlcAttempt;
+import com.lightning.model.PaymentUpdate;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streaming Gson adapter for LND payment objects as sent by the router's payment stream.
+ *
+ * Only the fields needed to track progress are read; routes are reduced to their totals and
+ * hop count, and the per-hop details are skipped without being materialized.
+ */
+public class PaymentUpdateTypeAdapter extends TypeAdapter<PaymentUpdate> {
+    
+    /**
+     * Write a payment update using LND field names
+     */
+    @Override
+    public void write(JsonWriter out, PaymentUpdate update) throws IOException {
+        if (update == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginObject();
+        out.name("payment_hash").value(update.getPaymentHash());
+        if (update.getPaymentRequest() != null) {
+            out.name("payment_request").value(update.getPaymentRequest());
+        }
+        out.name("status").value(update.getStatus());
+        out.name("value_msat").value(String.valueOf(update.getValueMsat()));
+        out.name("fee_msat").value(String.valueOf(update.getFeeMsat()));
+        if (update.getPreimage() != null) {
+            out.name("payment_preimage").value(update.getPreimage());
+        }
+        if (update.getFailureReason() != null) {
+            out.name("failure_reason").value(update.getFailureReason());
+        }
+        out.name("creation_time_ns").value(String.valueOf(update.getCreationTimeNs()));
+        out.name("htlcs").beginArray();
+        for (HtlcAttempt htlc : update.getHtlcs()) {
+            writeHtlc(out, htlc);
+        }
+        out.endArray();
+        out.endObject();
+    }
+    
+    /**
+     * Read a single payment object from the stream
+     */
+    @Override
+    public PaymentUpdate read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        
+        PaymentUpdate update = new PaymentUpdate();
+        in.beginObject();
+        while (in.hasNext()) {
+            String name = in.nextName();
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                continue;
+            }
+            switch (name) {
+                case "payment_hash":
+                    update.setPaymentHash(in.nextString());
+                    break;
+                case "payment_request":
+                    update.setPaymentRequest(in.nextString());
+                    break;
+                case "status":
+                    update.setStatus(in.nextString());
+                    break;
+                case "value_msat":
+                    update.setValueMsat(in.nextLong());
+                    break;
+                case "fee_msat":
+                    update.setFeeMsat(in.nextLong());
+                    break;
+                case "payment_preimage":
+                    update.setPreimage(in.nextString());
+                    break;
+                case "failure_reason":
+                    update.setFailureReason(in.nextString());
+                    break;
+                case "creation_time_ns":
+                    update.setCreationTimeNs(in.nextLong());
+                    break;
+                case "htlcs":
+                    update.setHtlcs(readHtlcs(in));
+                    break;
+                default:
+                    in.skipValue();
+                    break;
+            }
+        }
+        in.endObject();
+        return update;
+    }
+    
+    /**
+     * Read the htlcs array
+     */
+    private List<HtlcAttempt> readHtlcs(JsonReader in) throws IOException {
+        List<HtlcAttempt> htlcs = new ArrayList<>();
+        in.beginArray();
+        while (in.hasNext()) {
+            htlcs.add(readHtlc(in));
+        }
+        in.endArray();
+        return htlcs;
+    }
+    
+    /**
+     * Read one HTLC attempt
+     */
+    private HtlcAttempt readHtlc(JsonReader in) throws IOException {
+        HtlcAttempt htlc = new HtlcAttempt();
+        in.beginObject();
+        while (in.hasNext()) {
+            String name = in.nextName();
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                continue;
+            }
+            switch (name) {
+                case "attempt_id":
+                    htlc.setAttemptId(in.nextLong());
+                    break;
+                case "status":
+                    htlc.setStatus(in.nextString());
+                    break;
+                case "route":
+                    readRoute(in, htlc);
+                    break;
+                case "attempt_time_ns":
+                    htlc.setAttemptTimeNs(in.nextLong());
+                    break;
+                case "resolve_time_ns":
+                    htlc.setResolveTimeNs(in.nextLong());
+                    break;
+                case "failure":
+                    htlc.setFailureCode(readFailureCode(in));
+                    break;
+                case "preimage":
+                    htlc.setPreimage(in.nextString());
+                    break;
+                default:
+                    in.skipValue();
+                    break;
+            }
+        }
+        in.endObject();
+        return htlc;
+    }
+    
+    /**
+     * Read route totals into the attempt; the amount excludes fees
+     */
+    private void readRoute(JsonReader in, HtlcAttempt htlc) throws IOException {
+        long totalAmtMsat = 0;
+        long totalFeesMsat = 0;
+        int hops = 0;
+        
+        in.beginObject();
+        while (in.hasNext()) {
+            String name = in.nextName();
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                continue;
+            }
+            switch (name) {
+                case "total_amt_msat":
+                    totalAmtMsat = in.nextLong();
+                    break;
+                case "total_fees_msat":
+                    totalFeesMsat = in.nextLong();
+                    break;
+                case "hops":
+                    in.beginArray();
+                    while (in.hasNext()) {
+                        in.skipValue();
+                        hops++;
+                    }
+                    in.endArray();
+                    break;
+                default:
+                    in.skipValue();
+                    break;
+            }
+        }
+        in.endObject();
+        
+        htlc.setAmountMsat(totalAmtMsat - totalFeesMsat);
+        htlc.setFeeMsat(totalFeesMsat);
+        htlc.setHopCount(hops);
+    }
+    
+    /**
+     * Read the failure code from an attempt's failure object
+     */
+    private String readFailureCode(JsonReader in) throws IOException {
+        String code = null;
+        in.beginObject();
+        while (in.hasNext()) {
+            if ("code".equals(in.nextName()) && in.peek() == JsonToken.STRING) {
+                code = in.nextString();
+            } else {
+                in.skipValue();
+            }
+        }
+        in.endObject();
+        return code;
+    }
+    
+    /**
+     * Write one HTLC attempt with its route totals
+     */
+    private void writeHtlc(JsonWriter out, HtlcAttempt htlc) throws IOException {
+        out.beginObject();
+        out.name("attempt_id").value(String.valueOf(htlc.getAttemptId()));
+        out.name("status").value(htlc.getStatus());
+        out.name("route").beginObject();
+        out.name("total_amt_msat").value(String.valueOf(htlc.getAmountMsat() + htlc.getFeeMsat()));
+        out.name("total_fees_msat").value(String.valueOf(htlc.getFeeMsat()));
+        out.name("hops").beginArray();
+        for (int i = 0; i < htlc.getHopCount(); i++) {
+            out.beginObject().endObject();
+        }
+        out.endArray();
+        out.endObject();
+        out.name("attempt_time_ns").value(String.valueOf(htlc.getAttemptTimeNs()));
+        out.name("resolve_time_ns").value(String.valueOf(htlc.getResolveTimeNs()));
+        if (htlc.getFailureCode() != null) {
+            out.name("failure").beginObject().name("code").value(htlc.getFailureCode()).endObject();
+        }
+        if (htlc.getPreimage() != null) {
+            out.name("preimage").value(htlc.getPreimage());
+        }
+        out.endObject();
+    }
+}
@@ -0,0 +1,150 @@
+package com.lightning.network.json;
+
+import okio.BufferedSource;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Reader that decodes UTF-8 from an Okio source through a small byte window.
+ *
+ * {@code ResponseBody.charStream()} goes through an InputStreamReader, whose decoder
+ * allocates an 8 KB byte buffer per response; for the small single-object bodies LND
+ * returns that buffer is larger than the body. This reader copies bytes out of the pooled
+ * segments in short runs and decodes ASCII with a plain loop. JSON is always UTF-8, so no
+ * charset detection is needed; malformed sequences decode to U+FFFD.
+ */
+public final class Utf8SourceReader extends Reader {
+    private static final int WINDOW_SIZE = 512;
+    private static final char REPLACEMENT = '\uFFFD';
+    
+    private final BufferedSource source;
+    private final byte[] window = new byte[WINDOW_SIZE];
+    private int pos;
+    private int limit;
+    
+    // Second half of a surrogate pair that did not fit into the caller's array
+    private char pendingLowSurrogate;
+    
+    /**
+     * Wrap a source; closing the reader closes the source
+     */
+    public Utf8SourceReader(BufferedSource source) {
+        this.source = source;
+    }
+    
+    @Override
+    public int read(char[] cbuf, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        int n = 0;
+        if (pendingLowSurrogate != 0) {
+            cbuf[off + n++] = pendingLowSurrogate;
+            pendingLowSurrogate = 0;
+        }
+        
+        while (n < len) {
+            if (pos == limit) {
+                // Block only until the first bytes arrive; after that, return what is already buffered
+                if (n > 0 && source.getBuffer().size() == 0) {
+                    break;
+                }
+                int read = source.read(window, 0, WINDOW_SIZE);
+                if (read < 0) {
+                    break;
+                }
+                pos = 0;
+                limit = read;
+            }
+            
+            int end = Math.min(limit, pos + len - n);
+            while (pos < end && window[pos] >= 0) {
+                cbuf[off + n++] = (char) window[pos++];
+            }
+            if (pos < end) {
+                int codePoint = decodeMultiByte();
+                if (Character.isBmpCodePoint(codePoint)) {
+                    cbuf[off + n++] = (char) codePoint;
+                } else {
+                    cbuf[off + n++] = Character.highSurrogate(codePoint);
+                    if (n < len) {
+                        cbuf[off + n++] = Character.lowSurrogate(codePoint);
+                    } else {
+                        pendingLowSurrogate = Character.lowSurrogate(codePoint);
+                    }
+                }
+            }
+        }
+        return n == 0 ? -1 : n;
+    }
+    
+    /**
+     * Decode the sequence starting at a non-ASCII lead byte, pulling in its continuation bytes if needed
+     */
+    private int decodeMultiByte() throws IOException {
+        int lead = window[pos] & 0xff;
+        int length;
+        int codePoint;
+        int min;
+        if ((lead & 0xe0) == 0xc0) {
+            length = 2;
+            codePoint = lead & 0x1f;
+            min = 0x80;
+        } else if ((lead & 0xf0) == 0xe0) {
+            length = 3;
+            codePoint = lead & 0x0f;
+            min = 0x800;
+        } else if ((lead & 0xf8) == 0xf0) {
+            length = 4;
+            codePoint = lead & 0x07;
+            min = 0x10000;
+        } else {
+            pos++;
+            return REPLACEMENT;
+        }
+        
+        if (limit - pos < length && !fill(length)) {
+            pos = limit;
+            return REPLACEMENT;
+        }
+        for (int i = 1; i < length; i++) {
+            int b = window[pos + i] & 0xff;
+            if ((b & 0xc0) != 0x80) {
+                pos += i;
+                return REPLACEMENT;
+            }
+            codePoint = codePoint << 6 | b & 0x3f;
+        }
+        pos += length;
+        if (codePoint < min || codePoint > Character.MAX_CODE_POINT
+                || (codePoint >= Character.MIN_SURROGATE && codePoint <= Character.MAX_SURROGATE)) {
+            return REPLACEMENT;
+        }
+        return codePoint;
+    }
+    
+    /**
+     * Move the unread bytes to the front of the window and read until at least count are available
+     * @return False if the source ended first
+     */
+    private boolean fill(int count) throws IOException {
+        int remaining = limit - pos;
+        System.arraycopy(window, pos, window, 0, remaining);
+        pos = 0;
+        limit = remaining;
+        while (limit < count) {
+            int read = source.read(window, limit, WINDOW_SIZE - limit);
+            if (read < 0) {
+                return false;
+            }
+            limit += read;
+        }
+        return true;
+    }
+    
+    @Override
+    public void close() throws IOException {
+        source.close();
+    }
+}
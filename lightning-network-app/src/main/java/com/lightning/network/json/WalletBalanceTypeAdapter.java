@@ -0,0 +1,75 @@
+package com.lightning.network.json;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import com.lightning.model.WalletBalance;
+
+import java.io.IOException;
+
+/**
+ * Streaming Gson adapter for LND WalletBalance responses.
+ *
+ * The int64 balances arrive as strings and are read with {@link JsonReader#nextLong()}
+ * without an intermediate String. The per-account breakdown is skipped.
+ */
+public class WalletBalanceTypeAdapter extends TypeAdapter<WalletBalance> {
+    
+    /**
+     * Write a balance using LND field names
+     */
+    @Override
+    public void write(JsonWriter out, WalletBalance balance) throws IOException {
+        if (balance == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginObject();
+        out.name("total_balance").value(String.valueOf(balance.getTotalBalance()));
+        out.name("confirmed_balance").value(String.valueOf(balance.getConfirmedBalance()));
+        out.name("unconfirmed_balance").value(String.valueOf(balance.getUnconfirmedBalance()));
+        out.name("locked_balance").value(String.valueOf(balance.getLockedBalance()));
+        out.endObject();
+    }
+    
+    /**
+     * Read a balance object from the stream
+     */
+    @Override
+    public WalletBalance read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        
+        WalletBalance balance = new WalletBalance();
+        in.beginObject();
+        while (in.hasNext()) {
+            String name = in.nextName();
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                continue;
+            }
+            switch (name) {
+                case "total_balance":
+                    balance.setTotalBalance(in.nextLong());
+                    break;
+                case "confirmed_balance":
+                    balance.setConfirmedBalance(in.nextLong());
+                    break;
+                case "unconfirmed_balance":
+                    balance.setUnconfirmedBalance(in.nextLong());
+                    break;
+                case "locked_balance":
+                    balance.setLockedBalance(in.nextLong());
+                    break;
+                default:
+                    in.skipValue();
+                    break;
+            }
+        }
+        in.endObject();
+        return balance;
+    }
+}
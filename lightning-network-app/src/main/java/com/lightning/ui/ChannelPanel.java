@@ -0,0 +1,114 @@
+package com.lightning.ui;
+
+import com.lightning.model.Channel;
+import com.lightning.network.ChannelManager;
+import com.lightning.network.LightningNetworkService;
+import net.miginfocom.swing.MigLayout;
+
+import javax.swing.*;
+import javax.swing.table.DefaultTableModel;
+import java.io.IOException;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Panel listing the node's channels from the channel manager's table
+ */
+public class ChannelPanel extends JPanel {
+    private static final Logger LOGGER = Logger.getLogger(ChannelPanel.class.getName());
+    private final ChannelManager channelManager;
+    
+    // UI components
+    private DefaultTableModel tableModel;
+    private JLabel summaryLabel;
+    private JButton refreshButton;
+    
+    public ChannelPanel(LightningNetworkService lightningService) {
+        this.channelManager = lightningService.getChannelManager();
+        initializeUI();
+        
+        // The table changes on the subscription thread; redraw on the event thread
+        channelManager.addListener(() -> SwingUtilities.invokeLater(this::showChannels));
+        showChannels();
+    }
+    
+    private void initializeUI() {
+        setLayout(new MigLayout("fill, insets 10", "[grow]", "[][grow][]"));
+        
+        summaryLabel = new JLabel("No channels");
+        add(summaryLabel, "cell 0 0");
+        
+        String[] columns = {
+            "Channel ID", "Peer", "Capacity", "Local", "Remote", "Base Fee (msat)", "Fee Rate (ppm)", "Status"
+        };
+        tableModel = new DefaultTableModel(columns, 0) {
+            @Override
+            public boolean isCellEditable(int row, int column) {
+                return false;
+            }
+        };
+        JTable channelsTable = new JTable(tableModel);
+        channelsTable.setAutoCreateRowSorter(true);
+        add(new JScrollPane(channelsTable), "cell 0 1, grow");
+        
+        refreshButton = new JButton("Refresh Balances");
+        refreshButton.addActionListener(e -> refreshData());
+        add(refreshButton, "cell 0 2");
+    }
+    
+    /**
+     * Show the channel table as it is now, largest channels first
+     */
+    private void showChannels() {
+        List<Channel> channels = channelManager.getChannels();
+        channels.sort(Comparator.comparingLong(Channel::getCapacity).reversed());
+        
+        tableModel.setRowCount(0);
+        for (Channel channel : channels) {
+            String status = Channel.STATUS_OPEN.equals(channel.getStatus())
+                    ? (channel.isActive() ? "Active" : "Inactive")
+                    : channel.getStatus();
+            tableModel.addRow(new Object[] {
+                channel.getChanId() == 0 ? "" : Long.toUnsignedString(channel.getChanId()),
+                channel.getRemotePubkey(),
+                channel.getCapacity(),
+                channel.getLocalBalance(),
+                channel.getRemoteBalance(),
+                channel.getFeeBaseMsat(),
+                channel.getFeeRatePpm(),
+                status
+            });
+        }
+        summaryLabel.setText(String.format("%d channels, %,d sats spendable%s", channels.size(),
+                channelManager.getUsableLocalBalance(), channelManager.isConnected() ? "" : " (not live)"));
+    }
+    
+    /**
+     * Re-list the channels for current balances, which the event stream does not carry
+     */
+    public void refreshData() {
+        refreshButton.setEnabled(false);
+        SwingWorker<Void, Void> worker = new SwingWorker<>() {
+            @Override
+            protected Void doInBackground() throws IOException {
+                channelManager.refresh();
+                return null;
+            }
+            
+            @Override
+            protected void done() {
+                refreshButton.setEnabled(true);
+                try {
+                    get();
+                } catch (InterruptedException | ExecutionException ex) {
+                    LOGGER.log(Level.WARNING, "Failed to refresh channels", ex);
+                    summaryLabel.setText("Failed to refresh channels: " + ex.getMessage());
+                }
+            }
+        };
+        worker.execute();
+    }
+}
@@ -4,6 +4,7 @@ import com.lightning.model.Invoice;
 import com.lightning.model.LightningInfo;
 import com.lightning.model.Payment;
 import com.lightning.model.WalletBalance;
+import com.lightning.network.InvoiceSyncEngine;
 import com.lightning.network.LightningNetworkService;
 import com.lightning.util.QRCodeGenerator;
 import javafx.application.Platform;
@@ -18,7 +19,10 @@ import javafx.scene.layout.VBox;
 import javafx.util.Callback;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
@@ -65,6 +69,8 @@ public class DashboardController {
     
     private LightningNetworkService lightningService;
     private ObservableList<Invoice> invoices = FXCollections.observableArrayList();
+    private boolean invoicesLoaded;
+    private InvoiceSyncEngine.Listener invoiceSyncListener;
     private ScheduledExecutorService refreshExecutor;
     
     /**
@@ -84,6 +90,11 @@ public class DashboardController {
         // Set up context menu for the invoices table
         setupInvoicesTableContextMenu();
         
+        // Apply invoice changes found by any sync as deltas
+        invoiceSyncListener = result -> Platform.runLater(() -> applyInvoiceChanges(result));
+        lightningService.getInvoiceSync().addListener(invoiceSyncListener);
+        lightningService.getInvoiceSubscription().start();
+        
         // Set up connect button action
         if (connectButton != null) {
             connectButton.setOnAction(event -> connectToNode());
@@ -111,7 +122,11 @@ public class DashboardController {
             Platform.runLater(() -> {
                 refreshNodeInfo();
                 refreshWalletBalance();
-                refreshInvoices();
+                
+                // While the invoice stream is open, changes are already pushed to the table
+                if (!invoicesLoaded || !lightningService.getInvoiceSubscription().isConnected()) {
+                    refreshInvoices();
+                }
             });
         }, 30, 30, TimeUnit.SECONDS);
     }
@@ -123,6 +138,9 @@ public class DashboardController {
         if (refreshExecutor != null) {
             refreshExecutor.shutdown();
         }
+        if (invoiceSyncListener != null) {
+            lightningService.getInvoiceSync().removeListener(invoiceSyncListener);
+        }
     }
     
     /**
@@ -130,15 +148,13 @@ public class DashboardController {
      */
     @FXML
     private void refreshNodeInfo() {
-        Task<LightningInfo> task = new Task<>() {
-            @Override
-            protected LightningInfo call() throws Exception {
-                return lightningService.getInfo();
+        lightningService.getInfoAsync().whenComplete((info, ex) -> Platform.runLater(() -> {
+            if (ex != null) {
+                LOGGER.log(Level.SEVERE, "Error refreshing node info", ex);
+                showError("Error", "Failed to refresh node information", ex.getMessage());
+                return;
             }
-        };
-        
-        task.setOnSucceeded(event -> {
-            LightningInfo info = task.getValue();
+            
             nodeIdLabel.setText(info.getIdentityPubkey());
             nodeAliasLabel.setText(info.getAlias());
             channelsLabel.setText(String.valueOf(info.getNumActiveChannels()));
@@ -146,15 +162,7 @@ public class DashboardController {
             peersLabel.setText(String.valueOf(info.getNumPeers()));
             blockHeightLabel.setText(String.valueOf(info.getBlockHeight()));
             syncStatusLabel.setText(info.isSyncedToChain() ? "Synced" : "Syncing...");
-        });
-        
-        task.setOnFailed(event -> {
-            Throwable ex = task.getException();
-            LOGGER.log(Level.SEVERE, "Error refreshing node info", ex);
-            showError("Error", "Failed to refresh node information", ex.getMessage());
-        });
-        
-        new Thread(task).start();
+        }));
     }
     
     /**
@@ -162,75 +170,51 @@ public class DashboardController {
      */
     @FXML
     private void refreshWalletBalance() {
-        Task<WalletBalance> task = new Task<>() {
-            @Override
-            protected WalletBalance call() throws Exception {
-                try {
-                    return lightningService.getWalletBalance();
-                } catch (Exception e) {
-                    LOGGER.log(Level.WARNING, "Error fetching wallet balance from network", e);
-                    // Return a fallback balance from local database or empty balance object
-                    WalletBalance fallbackBalance = new WalletBalance();
-                    // Try to get last known balance from database if possible
-                    return fallbackBalance;
-                }
+        // The async balance call already falls back to the local cache or an empty balance
+        lightningService.getWalletBalanceAsync().whenComplete((result, ex) -> Platform.runLater(() -> {
+            WalletBalance balance = result;
+            if (ex != null) {
+                LOGGER.log(Level.SEVERE, "Error refreshing wallet balance", ex);
+                showError("Error", "Failed to refresh wallet balance", ex.getMessage());
+                
+                // Show empty balance instead of error
+                balance = new WalletBalance();
             }
-        };
-        
-        task.setOnSucceeded(event -> {
-            WalletBalance balance = task.getValue();
+            
             walletBalanceLabel.setText(balance.formatTotalBalanceBtc() + " BTC");
             confirmedBalanceLabel.setText(WalletBalance.formatSatsToBtc(balance.getConfirmedBalance()) + " BTC");
             unconfirmedBalanceLabel.setText(WalletBalance.formatSatsToBtc(balance.getUnconfirmedBalance()) + " BTC");
-        });
-        
-        task.setOnFailed(event -> {
-            Throwable ex = task.getException();
-            LOGGER.log(Level.SEVERE, "Error refreshing wallet balance", ex);
-            showError("Error", "Failed to refresh wallet balance", ex.getMessage());
-            
-            // Show empty balance instead of error
-            WalletBalance emptyBalance = new WalletBalance();
-            walletBalanceLabel.setText(emptyBalance.formatTotalBalanceBtc() + " BTC");
-            confirmedBalanceLabel.setText(WalletBalance.formatSatsToBtc(emptyBalance.getConfirmedBalance()) + " BTC");
-            unconfirmedBalanceLabel.setText(WalletBalance.formatSatsToBtc(emptyBalance.getUnconfirmedBalance()) + " BTC");
-        });
-        
-        new Thread(task).start();
+        }));
     }
     
     /**
-     * Refresh the list of invoices - use local database as backup
+     * Refresh the list of invoices - sync changes from the node into the local database
      */
     @FXML
     private void refreshInvoices() {
+        final boolean reload = !invoicesLoaded;
         Task<List<Invoice>> task = new Task<>() {
             @Override
             protected List<Invoice> call() throws Exception {
                 try {
-                    // Check if gRPC proxy is available at 127.0.0.1:8080
-                    boolean useGrpcProxy = lightningService.isGrpcProxyAvailable();
-                    if (useGrpcProxy) {
-                        LOGGER.info("Using gRPC proxy for invoice refresh");
-                        // Use gRPC method when available
-                        return lightningService.listInvoicesViaGrpc();
-                    } else {
-                        // Fall back to REST API
-                        LOGGER.info("Using REST API for invoice refresh");
-                        return lightningService.listInvoices();
-                    }
-                } catch (Exception e) {
-                    // If that fails, fall back to local database
-                    LOGGER.log(Level.WARNING, "Could not fetch invoices from node, using local database", e);
-                    return lightningService.getLocalInvoices();
+                    // Only invoices added or settled since the last sync are fetched; the delta
+                    // reaches the table through the sync listener
+                    lightningService.getInvoiceSync().sync();
+                } catch (IOException e) {
+                    LOGGER.log(Level.WARNING, "Could not sync invoices from node, using local database", e);
                 }
+                
+                // The first refresh populates the table from the database after syncing
+                return reload ? lightningService.getLocalInvoices() : null;
             }
         };
         
         task.setOnSucceeded(event -> {
-            List<Invoice> newInvoices = task.getValue();
-            invoices.clear();
-            invoices.addAll(newInvoices);
+            List<Invoice> localInvoices = task.getValue();
+            if (localInvoices != null) {
+                invoices.setAll(localInvoices);
+                invoicesLoaded = true;
+            }
         });
         
         task.setOnFailed(event -> {
@@ -242,6 +226,38 @@ public class DashboardController {
         new Thread(task).start();
     }
     
+    /**
+     * Apply invoices changed by a sync to the table without reloading it
+     */
+    private void applyInvoiceChanges(InvoiceSyncEngine.SyncResult result) {
+        if (!invoicesLoaded) {
+            // The pending initial load will include these changes
+            return;
+        }
+        if (result.isTruncated()) {
+            invoicesLoaded = false;
+            refreshInvoices();
+            return;
+        }
+        
+        Map<String, Integer> positions = new HashMap<>();
+        for (int i = 0; i < invoices.size(); i++) {
+            positions.put(invoices.get(i).getRHash(), i);
+        }
+        
+        List<Invoice> added = new ArrayList<>();
+        for (Invoice invoice : result.getChanged()) {
+            Integer position = positions.get(invoice.getRHash());
+            if (position != null) {
+                invoices.set(position, invoice);
+            } else {
+                // Changes arrive oldest first; the table shows newest first
+                added.add(0, invoice);
+            }
+        }
+        invoices.addAll(0, added);
+    }
+    
     /**
      * Generate a new invoice for receiving payment
      */
@@ -655,37 +671,30 @@ public class DashboardController {
      */
     @FXML
     private void runConnectionDiagnostics() {
-        Task<String> task = new Task<>() {
-            @Override
-            protected String call() throws Exception {
-                return lightningService.connectionDiagnostics();
-            }
-        };
-        
-        task.setOnSucceeded(event -> {
-            String report = task.getValue();
-            
-            TextArea textArea = new TextArea(report);
-            textArea.setEditable(false);
-            textArea.setWrapText(true);
-            textArea.setPrefHeight(400);
-            textArea.setPrefWidth(600);
-            
-            Dialog<Void> dialog = new Dialog<>();
-            dialog.setTitle("Connection Diagnostics");
-            dialog.setHeaderText("Lightning Network Connection Diagnostics");
-            
-            ButtonType closeButton = new ButtonType("Close", ButtonBar.ButtonData.OK_DONE);
-            dialog.getDialogPane().getButtonTypes().add(closeButton);
-            dialog.getDialogPane().setContent(textArea);
-            dialog.showAndWait();
-        });
-        
-        task.setOnFailed(event -> {
-            showError("Diagnostics Error", "Failed to run connection diagnostics", 
-                     task.getException().getMessage());
-        });
-        
-        new Thread(task).start();
+        TextArea textArea = new TextArea();
+        textArea.setEditable(false);
+        textArea.setWrapText(true);
+        textArea.setPrefHeight(400);
+        textArea.setPrefWidth(600);
+        
+        Dialog<Void> dialog = new Dialog<>();
+        dialog.setTitle("Connection Diagnostics");
+        dialog.setHeaderText("Lightning Network Connection Diagnostics");
+        
+        ButtonType closeButton = new ButtonType("Close", ButtonBar.ButtonData.OK_DONE);
+        dialog.getDialogPane().getButtonTypes().add(closeButton);
+        dialog.getDialogPane().setContent(textArea);
+        dialog.show();
+        
+        // Sections appear as their checks finish; the ordered report replaces them at the end
+        lightningService.connectionDiagnosticsAsync(section -> Platform.runLater(() -> textArea.appendText(section)))
+                .whenComplete((report, ex) -> Platform.runLater(() -> {
+                    if (ex != null) {
+                        dialog.close();
+                        showError("Diagnostics Error", "Failed to run connection diagnostics", ex.getMessage());
+                    } else {
+                        textArea.setText(report);
+                    }
+                }));
     }
 }
\ No newline at end of file
@@ -5,6 +5,7 @@ import com.lightning.model.WalletBalance;
 import com.lightning.network.LightningConnectionManager;
 import com.lightning.network.LightningConnectionManager.ConnectionStatus;
 import com.lightning.network.LightningNetworkService;
+import com.lightning.network.NodeRegistry;
 import net.miginfocom.swing.MigLayout;
 import org.jfree.chart.ChartFactory;
 import org.jfree.chart.ChartPanel;
@@ -14,9 +15,10 @@ import org.jfree.data.general.DefaultPieDataset;
 
 import javax.swing.*;
 import javax.swing.border.TitledBorder;
+import javax.swing.table.DefaultTableModel;
 import java.awt.*;
 import java.text.DecimalFormat;
-import java.util.concurrent.ExecutionException;
+import java.util.concurrent.CompletableFuture;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -26,6 +28,7 @@ import java.util.logging.Logger;
 public class DashboardPanel extends JPanel {
     private static final Logger LOGGER = Logger.getLogger(DashboardPanel.class.getName());
     private final LightningNetworkService lightningService;
+    private final NodeRegistry nodeRegistry;
     
     // Node info components
     private JLabel nodeIdValueLabel;
@@ -46,14 +49,34 @@ public class DashboardPanel extends JPanel {
     // Charts
     private ChartPanel balanceChartPanel;
     private DefaultPieDataset<String> balanceDataset;
-
+    
+    // Per-node table, shown only when more than one node is registered
+    private DefaultTableModel nodesTableModel;
+    
     public DashboardPanel(LightningNetworkService lightningService) {
+        this(lightningService, null);
+    }
+    
+    /**
+     * Create the dashboard; with several registered nodes it shows their combined balance and a per-node table
+     * @param nodeRegistry All nodes, or null for the single node of the service
+     */
+    public DashboardPanel(LightningNetworkService lightningService, NodeRegistry nodeRegistry) {
         this.lightningService = lightningService;
+        this.nodeRegistry = nodeRegistry;
         initializeUI();
     }
     
+    /**
+     * Whether the dashboard aggregates several nodes
+     */
+    private boolean isMultiNode() {
+        return nodeRegistry != null && nodeRegistry.size() > 1;
+    }
+    
     private void initializeUI() {
-        setLayout(new MigLayout("fill, insets 10", "[grow]", "[grow 30][grow 70]"));
+        setLayout(new MigLayout("fill, insets 10", "[grow]",
+                isMultiNode() ? "[grow 30][grow 40][grow 30]" : "[grow 30][grow 70]"));
         
         // Node information section
         JPanel nodeInfoPanel = createNodeInfoPanel();
@@ -63,6 +86,10 @@ public class DashboardPanel extends JPanel {
         JPanel balancePanel = createBalancePanel();
         add(balancePanel, "cell 0 1, grow");
         
+        if (isMultiNode()) {
+            add(createNodesPanel(), "cell 0 2, grow");
+        }
+        
         // Initialize connection status
         updateConnectionStatus();
         
@@ -120,7 +147,7 @@ public class DashboardPanel extends JPanel {
         JPanel panel = new JPanel(new MigLayout("fill, insets 10", "[grow 40, fill][grow 60, fill]", "[]"));
         panel.setBorder(BorderFactory.createTitledBorder(
             BorderFactory.createEtchedBorder(), 
-            "Wallet Balance",
+            isMultiNode() ? "Wallet Balance (all nodes)" : "Wallet Balance",
             TitledBorder.LEFT,
             TitledBorder.TOP
         ));
@@ -175,58 +202,121 @@ public class DashboardPanel extends JPanel {
         return panel;
     }
     
+    private JPanel createNodesPanel() {
+        JPanel panel = new JPanel(new MigLayout("fill, insets 10", "[grow]", "[grow]"));
+        panel.setBorder(BorderFactory.createTitledBorder(
+            BorderFactory.createEtchedBorder(), 
+            "Nodes",
+            TitledBorder.LEFT,
+            TitledBorder.TOP
+        ));
+        
+        String[] columns = {
+            "Node", "Alias", "Active Channels", "Pending Channels", "Balance (sats)", "Status"
+        };
+        nodesTableModel = new DefaultTableModel(columns, 0) {
+            @Override
+            public boolean isCellEditable(int row, int column) {
+                return false;
+            }
+        };
+        JTable nodesTable = new JTable(nodesTableModel);
+        panel.add(new JScrollPane(nodesTable), "cell 0 0, grow");
+        
+        return panel;
+    }
+    
     /**
-     * Refreshes dashboard data from the Lightning Network
+     * Refreshes dashboard data from the Lightning Network.
+     * Node info and balance are requested concurrently without blocking a worker thread.
      */
     public void refreshData() {
-        // Use SwingWorker to load data in background
-        SwingWorker<DashboardData, Void> worker = new SwingWorker<>() {
-            @Override
-            protected DashboardData doInBackground() throws Exception {
-                DashboardData data = new DashboardData();
-                
-                try {
-                    data.lightningInfo = lightningService.getNodeInfo();
-                } catch (Exception e) {
+        if (isMultiNode()) {
+            refreshAllNodes();
+            return;
+        }
+        CompletableFuture<LightningInfo> infoFuture = lightningService.getInfoAsync()
+                .exceptionally(e -> {
                     LOGGER.log(Level.WARNING, "Failed to fetch node info", e);
                     // Create fallback node info with default values
                     LightningInfo fallbackInfo = new LightningInfo();
                     fallbackInfo.setAlias("Not Connected");
                     fallbackInfo.setIdentityPubkey("Offline Mode - Network Unavailable");
                     fallbackInfo.setSyncedToChain(false);
-                    data.lightningInfo = fallbackInfo;
-                }
-                
-                try {
-                    data.walletBalance = lightningService.getWalletBalance();
-                } catch (Exception e) {
+                    return fallbackInfo;
+                });
+        
+        CompletableFuture<WalletBalance> balanceFuture = lightningService.getWalletBalanceAsync()
+                .exceptionally(e -> {
                     LOGGER.log(Level.WARNING, "Failed to fetch wallet balance", e);
                     // Create an empty wallet balance as fallback
-                    WalletBalance fallbackBalance = new WalletBalance();
-                    // Try to get last cached balance from database if available
-                    data.walletBalance = fallbackBalance;
-                }
-                
-                return data;
+                    return new WalletBalance();
+                });
+        
+        infoFuture.thenCombine(balanceFuture, (info, balance) -> {
+            DashboardData data = new DashboardData();
+            data.lightningInfo = info;
+            data.walletBalance = balance;
+            return data;
+        }).whenComplete((data, error) -> SwingUtilities.invokeLater(() -> {
+            if (error != null) {
+                LOGGER.log(Level.SEVERE, "Error refreshing dashboard data", error);
+                // Show offline state in UI
+                DashboardData fallbackData = new DashboardData();
+                fallbackData.lightningInfo = createOfflineNodeInfo();
+                fallbackData.walletBalance = new WalletBalance();
+                updateUI(fallbackData);
+            } else {
+                updateUI(data);
+            }
+        }));
+    }
+    
+    /**
+     * Refreshes every registered node in parallel and shows the primary's info with the combined balance
+     */
+    private void refreshAllNodes() {
+        nodeRegistry.refreshAll().whenComplete((overview, error) -> SwingUtilities.invokeLater(() -> {
+            if (error != null) {
+                LOGGER.log(Level.SEVERE, "Error refreshing node data", error);
+                DashboardData fallbackData = new DashboardData();
+                fallbackData.lightningInfo = createOfflineNodeInfo();
+                fallbackData.walletBalance = new WalletBalance();
+                updateUI(fallbackData);
+                return;
             }
             
-            @Override
-            protected void done() {
-                try {
-                    DashboardData data = get();
-                    updateUI(data);
-                } catch (InterruptedException | ExecutionException e) {
-                    LOGGER.log(Level.SEVERE, "Error refreshing dashboard data", e);
-                    // Show offline state in UI
-                    DashboardData fallbackData = new DashboardData();
-                    fallbackData.lightningInfo = createOfflineNodeInfo();
-                    fallbackData.walletBalance = new WalletBalance();
-                    updateUI(fallbackData);
+            DashboardData data = new DashboardData();
+            data.walletBalance = overview.getTotalBalance();
+            for (NodeRegistry.NodeStatus node : overview.getNodes()) {
+                if (NodeRegistry.PRIMARY.equals(node.getName())) {
+                    data.lightningInfo = node.getInfo() != null ? node.getInfo() : createOfflineNodeInfo();
                 }
             }
-        };
-        
-        worker.execute();
+            updateUI(data);
+            updateNodesTable(overview);
+        }));
+    }
+    
+    /**
+     * Fill the per-node table from a refresh
+     */
+    private void updateNodesTable(NodeRegistry.Overview overview) {
+        DecimalFormat satFormat = new DecimalFormat("#,###");
+        nodesTableModel.setRowCount(0);
+        for (NodeRegistry.NodeStatus node : overview.getNodes()) {
+            LightningInfo info = node.getInfo();
+            WalletBalance balance = node.getBalance();
+            nodesTableModel.addRow(new Object[]{
+                node.getName(),
+                info != null ? info.getAlias() : "",
+                info != null ? info.getNumActiveChannels() : "",
+                info != null ? info.getNumPendingChannels() : "",
+                balance != null ? satFormat.format(balance.getTotalBalance()) : "",
+                node.isReachable() ? (info.isSyncedToChain() ? "Synced" : "Syncing")
+                        : "Unreachable: " + node.getError().getMessage()
+            });
+        }
     }
     
     /**
@@ -351,7 +441,7 @@ public class DashboardPanel extends JPanel {
                         result.diagnostics.contains("Unable to synchronize wallet")) {
                         result.isSyncIssue = true;
                     }
-                    
+                
                 } catch (Exception e) {
                     LOGGER.log(Level.SEVERE, "Error connecting to node", e);
                     result.errorMessage = e.getMessage();
@@ -1,6 +1,7 @@
 package com.lightning.ui;
 
 import com.lightning.model.Invoice;
+import com.lightning.network.InvoiceSyncEngine;
 import com.lightning.network.LightningNetworkService;
 import com.lightning.util.QRCodeGenerator;
 import net.miginfocom.swing.MigLayout;
@@ -11,8 +12,12 @@ import javax.swing.table.DefaultTableModel;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.image.BufferedImage;
+import java.io.IOException;
 import java.text.DecimalFormat;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ExecutionException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -22,6 +27,7 @@ import java.util.logging.Logger;
  */
 public class InvoicePanel extends JPanel {
     private static final Logger LOGGER = Logger.getLogger(InvoicePanel.class.getName());
+    private static final DecimalFormat SAT_FORMAT = new DecimalFormat("#,###");
     private final LightningNetworkService lightningService;
     
     // UI components
@@ -36,10 +42,18 @@ public class InvoicePanel extends JPanel {
     
     // Current invoice
     private Invoice currentInvoice;
+    
+    // Invoices in table row order
+    private final List<Invoice> displayedInvoices = new ArrayList<>();
+    private boolean invoicesLoaded;
 
     public InvoicePanel(LightningNetworkService lightningService) {
         this.lightningService = lightningService;
         initializeUI();
+        
+        // Apply invoice changes found by any sync as deltas
+        lightningService.getInvoiceSync().addListener(
+                result -> SwingUtilities.invokeLater(() -> applyInvoiceChanges(result)));
     }
     
     private void initializeUI() {
@@ -267,17 +281,27 @@ public class InvoicePanel extends JPanel {
     }
     
     private void refreshInvoiceHistory() {
+        final boolean reload = !invoicesLoaded;
         SwingWorker<List<Invoice>, Void> worker = new SwingWorker<>() {
             @Override
             protected List<Invoice> doInBackground() throws Exception {
-                return lightningService.listInvoices();
+                try {
+                    // Only new or newly settled invoices are fetched; the delta arrives via the sync listener
+                    lightningService.getInvoiceSync().sync();
+                } catch (IOException e) {
+                    LOGGER.log(Level.WARNING, "Could not sync invoices from node, using local database", e);
+                }
+                return reload ? lightningService.getLocalInvoices() : null;
             }
             
             @Override
             protected void done() {
                 try {
                     List<Invoice> invoices = get();
-                    updateInvoiceTable(invoices);
+                    if (invoices != null) {
+                        updateInvoiceTable(invoices);
+                        invoicesLoaded = true;
+                    }
                 } catch (InterruptedException | ExecutionException ex) {
                     LOGGER.log(Level.SEVERE, "Failed to fetch invoices", ex);
                     showError("Failed to fetch invoice history: " + ex.getMessage());
@@ -288,41 +312,81 @@ public class InvoicePanel extends JPanel {
         worker.execute();
     }
     
+    /**
+     * Apply invoices changed by a sync to the table without reloading it
+     */
+    private void applyInvoiceChanges(InvoiceSyncEngine.SyncResult result) {
+        if (!invoicesLoaded) {
+            // The pending initial load will include these changes
+            return;
+        }
+        if (result.isTruncated()) {
+            invoicesLoaded = false;
+            refreshInvoiceHistory();
+            return;
+        }
+        
+        Map<String, Integer> positions = new HashMap<>();
+        for (int i = 0; i < displayedInvoices.size(); i++) {
+            positions.put(displayedInvoices.get(i).getRHash(), i);
+        }
+        
+        List<Invoice> added = new ArrayList<>();
+        for (Invoice invoice : result.getChanged()) {
+            Integer position = positions.get(invoice.getRHash());
+            if (position != null) {
+                displayedInvoices.set(position, invoice);
+                Object[] row = toRow(invoice);
+                for (int column = 0; column < row.length; column++) {
+                    tableModel.setValueAt(row[column], position, column);
+                }
+            } else {
+                added.add(invoice);
+            }
+        }
+        
+        // Changes arrive oldest first; the table shows newest first
+        for (Invoice invoice : added) {
+            displayedInvoices.add(0, invoice);
+            tableModel.insertRow(0, toRow(invoice));
+        }
+    }
+    
     private void updateInvoiceTable(List<Invoice> invoices) {
         // Clear the table
         tableModel.setRowCount(0);
+        displayedInvoices.clear();
         
         if (invoices == null || invoices.isEmpty()) {
             return;
         }
         
         // Add invoices to the table
-        DecimalFormat satFormat = new DecimalFormat("#,###");
-        
         for (Invoice invoice : invoices) {
-            Object[] row = {
-                invoice.getFormattedCreationDate(),
-                satFormat.format(invoice.getAmountSats()),
-                invoice.getMemo(),
-                invoice.isSettled() ? "Paid" : "Unpaid",
-                invoice.getFormattedSettleDate()
-            };
-            tableModel.addRow(row);
+            displayedInvoices.add(invoice);
+            tableModel.addRow(toRow(invoice));
         }
     }
     
+    /**
+     * Build the table row for an invoice
+     */
+    private Object[] toRow(Invoice invoice) {
+        return new Object[] {
+            invoice.getFormattedCreationDate(),
+            SAT_FORMAT.format(invoice.getAmountSats()),
+            invoice.getMemo(),
+            invoice.isSettled() ? "Paid" : "Unpaid",
+            invoice.getFormattedSettleDate()
+        };
+    }
+    
     private void showSelectedInvoice() {
         int selectedRow = invoicesTable.getSelectedRow();
-        if (selectedRow >= 0) {
-            try {
-                List<Invoice> invoices = lightningService.listInvoices();
-                if (invoices != null && selectedRow < invoices.size()) {
-                    currentInvoice = invoices.get(selectedRow);
-                    displayInvoiceDetails(currentInvoice);
-                }
-            } catch (Exception ex) {
-                LOGGER.log(Level.WARNING, "Failed to load selected invoice", ex);
-            }
+        if (selectedRow >= 0 && selectedRow < displayedInvoices.size()) {
+            // Rows mirror displayedInvoices, so no network call is needed
+            currentInvoice = displayedInvoices.get(selectedRow);
+            displayInvoiceDetails(currentInvoice);
         }
     }
     
@@ -339,6 +403,10 @@ public class InvoicePanel extends JPanel {
      * Refreshes invoice data
      */
     public void refreshData() {
+        // While the invoice stream is open, changes are already pushed to the table
+        if (invoicesLoaded && lightningService.getInvoiceSubscription().isConnected()) {
+            return;
+        }
         refreshInvoiceHistory();
     }
 }
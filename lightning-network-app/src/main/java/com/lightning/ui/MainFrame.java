@@ -4,6 +4,7 @@ import com.lightning.model.LightningInfo;
 import com.lightning.model.WalletBalance;
 import com.lightning.network.ConnectionResult;
 import com.lightning.network.LightningNetworkService;
+import com.lightning.network.NodeRegistry;
 import com.lightning.wallet.PaymentHandler;
 
 import javax.swing.*;
@@ -22,6 +23,7 @@ import java.util.logging.Logger;
 public class MainFrame extends JFrame {
     private static final Logger LOGGER = Logger.getLogger(MainFrame.class.getName());
     private final LightningNetworkService lightningService;
+    private final NodeRegistry nodeRegistry;
     private Timer refreshTimer;
     
     // UI components
@@ -29,12 +31,23 @@ public class MainFrame extends JFrame {
     private DashboardPanel dashboardPanel;
     private PaymentPanel paymentPanel;
     private InvoicePanel invoicePanel;
+    private ChannelPanel channelPanel;
     private SettingsPanel settingsPanel;
     private JLabel statusLabel;
-
+    
     public MainFrame(LightningNetworkService lightningService) {
+        this(lightningService, null);
+    }
+    
+    /**
+     * Create the main window
+     * @param lightningService Primary node, used for invoices and settings
+     * @param nodeRegistry All nodes for the aggregated dashboard and payments, or null for the primary only
+     */
+    public MainFrame(LightningNetworkService lightningService, NodeRegistry nodeRegistry) {
         super("Lightning Network Wallet");
         this.lightningService = lightningService;
+        this.nodeRegistry = nodeRegistry;
         
         // Set application icon
         try {
@@ -49,6 +62,13 @@ public class MainFrame extends JFrame {
         
         initializeUI();
         setupRefreshTimer();
+        
+        // Invoice and channel events are pushed by the node instead of waiting for the refresh timer
+        lightningService.getInvoiceSubscription().start();
+        lightningService.getChannelManager().start();
+        
+        // The channel graph behind fee previews is restored from disk, then follows topology updates
+        lightningService.getGraphManager().start();
     }
     
     private void initializeUI() {
@@ -64,17 +84,21 @@ public class MainFrame extends JFrame {
         tabbedPane = new JTabbedPane();
         
         // Dashboard Panel
-        dashboardPanel = new DashboardPanel(lightningService);
+        dashboardPanel = new DashboardPanel(lightningService, nodeRegistry);
         tabbedPane.addTab("Dashboard", new ImageIcon(), dashboardPanel, "View Lightning Network node status");
         
         // Payment Panel
-        paymentPanel = new PaymentPanel(lightningService);
+        paymentPanel = new PaymentPanel(lightningService, nodeRegistry);
         tabbedPane.addTab("Send Payment", new ImageIcon(), paymentPanel, "Send Lightning Network payments");
         
         // Invoice Panel
         invoicePanel = new InvoicePanel(lightningService);
         tabbedPane.addTab("Receive", new ImageIcon(), invoicePanel, "Receive payments with invoices");
         
+        // Channel Panel
+        channelPanel = new ChannelPanel(lightningService);
+        tabbedPane.addTab("Channels", new ImageIcon(), channelPanel, "View channels, balances and fees");
+        
         // Settings Panel
         settingsPanel = new SettingsPanel(lightningService);
         tabbedPane.addTab("Settings", new ImageIcon(), settingsPanel, "Application settings");
@@ -120,7 +144,10 @@ public class MainFrame extends JFrame {
             case 2: // Invoice
                 invoicePanel.refreshData();
                 break;
-            case 3: // Settings
+            case 3: // Channels
+                channelPanel.refreshData();
+                break;
+            case 4: // Settings
                 // No refresh needed for settings
                 break;
         }
@@ -251,7 +278,7 @@ public class MainFrame extends JFrame {
         
         JButton settingsButton = new JButton("Edit Connection Settings");
         settingsButton.addActionListener(e -> {
-            tabbedPane.setSelectedIndex(3); // Switch to settings tab
+            tabbedPane.setSelectedIndex(4); // Switch to settings tab
             settingsPanel.focusConnectionSettings();
         });
         buttonPanel.add(settingsButton);
@@ -330,7 +357,7 @@ public class MainFrame extends JFrame {
                         }
                     }
                 }, 10000, 10000); // Check every 10 seconds
-                
+            
             } catch (Exception e) {
                 LOGGER.log(Level.SEVERE, "Failed to start Lightning node", e);
                 JOptionPane.showMessageDialog(
@@ -2,6 +2,9 @@ package com.lightning.ui;
 
 import com.lightning.model.Payment;
 import com.lightning.network.LightningNetworkService;
+import com.lightning.network.NodeRegistry;
+import com.lightning.network.graph.FeeEstimate;
+import com.lightning.network.graph.Route;
 import com.lightning.util.QRCodeGenerator;
 import net.miginfocom.swing.MigLayout;
 
@@ -10,6 +13,7 @@ import javax.swing.border.TitledBorder;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.image.BufferedImage;
+import java.io.IOException;
 import java.text.DecimalFormat;
 import java.util.concurrent.ExecutionException;
 import java.util.logging.Level;
@@ -21,6 +25,7 @@ import java.util.logging.Logger;
 public class PaymentPanel extends JPanel {
     private static final Logger LOGGER = Logger.getLogger(PaymentPanel.class.getName());
     private final LightningNetworkService lightningService;
+    private final NodeRegistry nodeRegistry;
     
     // UI components
     private JTextField paymentRequestField;
@@ -28,6 +33,7 @@ public class PaymentPanel extends JPanel {
     private JButton decodeButton;
     private JButton payButton;
     private JLabel amountLabel;
+    private JLabel feeLabel;
     private JLabel statusLabel;
     private JLabel qrImageLabel;
     
@@ -36,7 +42,16 @@ public class PaymentPanel extends JPanel {
     private Payment currentPayment;
 
     public PaymentPanel(LightningNetworkService lightningService) {
+        this(lightningService, null);
+    }
+    
+    /**
+     * Create a payment panel that sends from whichever node can route each payment best
+     * @param nodeRegistry All nodes, or null to always pay from the service's node
+     */
+    public PaymentPanel(LightningNetworkService lightningService, NodeRegistry nodeRegistry) {
         this.lightningService = lightningService;
+        this.nodeRegistry = nodeRegistry;
         initializeUI();
     }
     
@@ -116,6 +131,10 @@ public class PaymentPanel extends JPanel {
         qrImageLabel.setBorder(BorderFactory.createEtchedBorder());
         panel.add(qrImageLabel, "cell 1 1, grow");
         
+        // Fee preview from the local channel graph
+        feeLabel = new JLabel(" ");
+        panel.add(feeLabel, "cell 0 2, span");
+        
         return panel;
     }
     
@@ -126,31 +145,19 @@ public class PaymentPanel extends JPanel {
             return;
         }
         
-        statusLabel.setText("Decoding payment request...");
         currentPaymentRequest = paymentRequest;
         
-        SwingWorker<Payment, Void> worker = new SwingWorker<>() {
-            @Override
-            protected Payment doInBackground() throws Exception {
-                return lightningService.decodePaymentRequest(paymentRequest);
-            }
-            
-            @Override
-            protected void done() {
-                try {
-                    currentPayment = get();
-                    displayPaymentDetails(currentPayment);
-                    payButton.setEnabled(true);
-                    statusLabel.setText("Payment request decoded successfully");
-                } catch (InterruptedException | ExecutionException ex) {
-                    LOGGER.log(Level.WARNING, "Failed to decode payment request", ex);
-                    showError("Invalid payment request: " + ex.getMessage());
-                    payButton.setEnabled(false);
-                }
-            }
-        };
-        
-        worker.execute();
+        // Decoding is local and fast enough to run on the event thread
+        try {
+            currentPayment = lightningService.decodePaymentRequest(paymentRequest);
+            displayPaymentDetails(currentPayment);
+            payButton.setEnabled(true);
+            statusLabel.setText("Payment request decoded successfully");
+        } catch (IOException ex) {
+            LOGGER.log(Level.WARNING, "Failed to decode payment request", ex);
+            showError(ex.getMessage());
+            payButton.setEnabled(false);
+        }
     }
     
     private void displayPaymentDetails(Payment payment) {
@@ -173,6 +180,7 @@ public class PaymentPanel extends JPanel {
         }
         
         paymentDetailsArea.setText(details.toString());
+        previewFee(payment);
         
         // Generate and display QR code
         try {
@@ -188,6 +196,55 @@ public class PaymentPanel extends JPanel {
         }
     }
     
+    /**
+     * Estimate the routing fee from the local channel graph in the background
+     */
+    private void previewFee(Payment payment) {
+        if (!lightningService.getGraphManager().isLoaded()) {
+            feeLabel.setText("Estimated fee: network graph is still loading");
+            return;
+        }
+        feeLabel.setText("Estimated fee: finding routes...");
+        
+        SwingWorker<FeeEstimate, Void> worker = new SwingWorker<>() {
+            @Override
+            protected FeeEstimate doInBackground() throws Exception {
+                return lightningService.estimateFee(payment.getDestination(), payment.getNumSatoshis());
+            }
+            
+            @Override
+            protected void done() {
+                // A newer request was decoded in the meantime
+                if (payment != currentPayment) {
+                    return;
+                }
+                try {
+                    feeLabel.setText(formatFeeEstimate(get()));
+                } catch (InterruptedException | ExecutionException ex) {
+                    LOGGER.log(Level.WARNING, "Failed to estimate the routing fee", ex);
+                    feeLabel.setText("Estimated fee: unavailable");
+                }
+            }
+        };
+        worker.execute();
+    }
+    
+    private static String formatFeeEstimate(FeeEstimate estimate) {
+        if (!estimate.isRoutable()) {
+            return "Estimated fee: no route found in the network graph";
+        }
+        DecimalFormat satFormat = new DecimalFormat("#,##0.###");
+        Route best = estimate.getBestRoute();
+        StringBuilder text = new StringBuilder("Estimated fee: ")
+                .append(satFormat.format(best.getFeeMsat() / 1000.0)).append(" sats over ")
+                .append(best.getHops().size()).append(best.getHops().size() == 1 ? " hop" : " hops");
+        if (estimate.getMaxFeeMsat() > best.getFeeMsat()) {
+            text.append(" (up to ").append(satFormat.format(estimate.getMaxFeeMsat() / 1000.0))
+                    .append(" sats if it fails)");
+        }
+        return text.toString();
+    }
+    
     private void sendPayment(ActionEvent e) {
         if (currentPayment == null || currentPaymentRequest == null) {
             showError("No valid payment request");
@@ -212,6 +269,9 @@ public class PaymentPanel extends JPanel {
         SwingWorker<Boolean, Void> worker = new SwingWorker<>() {
             @Override
             protected Boolean doInBackground() throws Exception {
+                if (nodeRegistry != null && nodeRegistry.size() > 1) {
+                    return nodeRegistry.getDispatcher().pay(currentPaymentRequest).get() != null;
+                }
                 return lightningService.sendPayment(currentPaymentRequest);
             }
             
@@ -249,6 +309,7 @@ public class PaymentPanel extends JPanel {
         paymentRequestField.setText("");
         paymentDetailsArea.setText("");
         amountLabel.setText("Amount: 0 sats");
+        feeLabel.setText(" ");
         statusLabel.setText("No payment decoded");
         payButton.setEnabled(false);
         qrImageLabel.setIcon(null);
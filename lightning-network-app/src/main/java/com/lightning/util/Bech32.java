@@ -0,0 +1,185 @@
+package com.lightning.util;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Bech32 encoding (BIP-173) as used by BOLT11 payment requests.
+ *
+ * Unlike segwit addresses, payment requests are not limited to 90 characters, so no
+ * length limit is applied here.
+ */
+public final class Bech32 {
+    private static final String CHARSET = "qpzry9x8gf2tvdw0s3jn54khce6mua7l";
+    private static final int CHECKSUM_LENGTH = 6;
+    private static final int[] GENERATOR = {0x3b6a57b2, 0x26508e6d, 0x1ea119fa, 0x3d4233dd, 0x2a1462b3};
+    
+    private static final byte[] CHARSET_REV = new byte[128];
+    
+    static {
+        Arrays.fill(CHARSET_REV, (byte) -1);
+        for (int i = 0; i < CHARSET.length(); i++) {
+            CHARSET_REV[CHARSET.charAt(i)] = (byte) i;
+            CHARSET_REV[Character.toUpperCase(CHARSET.charAt(i))] = (byte) i;
+        }
+    }
+    
+    /**
+     * A decoded bech32 string
+     */
+    public static final class Decoded {
+        private final String hrp;
+        private final byte[] data;
+        
+        Decoded(String hrp, byte[] data) {
+            this.hrp = hrp;
+            this.data = data;
+        }
+        
+        /**
+         * Human-readable part, lower case
+         */
+        public String getHrp() {
+            return hrp;
+        }
+        
+        /**
+         * Data part as 5-bit values, without the checksum
+         */
+        public byte[] getData() {
+            return data.clone();
+        }
+    }
+    
+    private Bech32() {
+    }
+    
+    /**
+     * Decode and verify a bech32 string
+     * @throws IllegalArgumentException If the string is malformed or the checksum does not match
+     */
+    public static Decoded decode(String bech) {
+        boolean lower = false;
+        boolean upper = false;
+        for (int i = 0; i < bech.length(); i++) {
+            char c = bech.charAt(i);
+            if (c < 33 || c > 126) {
+                throw new IllegalArgumentException("Invalid character at position " + i);
+            }
+            lower |= Character.isLowerCase(c);
+            upper |= Character.isUpperCase(c);
+        }
+        if (lower && upper) {
+            throw new IllegalArgumentException("Mixed case");
+        }
+        
+        int separator = bech.lastIndexOf('1');
+        if (separator < 1) {
+            throw new IllegalArgumentException("Missing human-readable part");
+        }
+        if (separator + 1 + CHECKSUM_LENGTH > bech.length()) {
+            throw new IllegalArgumentException("Data part too short");
+        }
+        
+        String hrp = bech.substring(0, separator).toLowerCase(Locale.ROOT);
+        byte[] values = new byte[bech.length() - separator - 1];
+        for (int i = 0; i < values.length; i++) {
+            char c = bech.charAt(separator + 1 + i);
+            byte value = c < 128 ? CHARSET_REV[c] : -1;
+            if (value < 0) {
+                throw new IllegalArgumentException("Invalid data character '" + c + "'");
+            }
+            values[i] = value;
+        }
+        
+        if (polymod(hrp, values) != 1) {
+            throw new IllegalArgumentException("Invalid checksum");
+        }
+        return new Decoded(hrp, Arrays.copyOf(values, values.length - CHECKSUM_LENGTH));
+    }
+    
+    /**
+     * Encode 5-bit values with a checksum
+     * @param hrp Human-readable part
+     * @param data Values in the range 0-31
+     */
+    public static String encode(String hrp, byte[] data) {
+        String lowerHrp = hrp.toLowerCase(Locale.ROOT);
+        byte[] values = Arrays.copyOf(data, data.length + CHECKSUM_LENGTH);
+        int mod = polymod(lowerHrp, values) ^ 1;
+        for (int i = 0; i < CHECKSUM_LENGTH; i++) {
+            values[data.length + i] = (byte) ((mod >>> (5 * (5 - i))) & 31);
+        }
+        
+        StringBuilder result = new StringBuilder(lowerHrp.length() + 1 + values.length);
+        result.append(lowerHrp).append('1');
+        for (byte value : values) {
+            result.append(CHARSET.charAt(value));
+        }
+        return result.toString();
+    }
+    
+    /**
+     * Regroup bits, e.g. 5-bit values to bytes
+     * @param pad Whether to zero-pad an incomplete final group; when false, leftover bits must be zero
+     */
+    public static byte[] convertBits(byte[] data, int offset, int length, int fromBits, int toBits, boolean pad) {
+        int acc = 0;
+        int bits = 0;
+        int maxValue = (1 << toBits) - 1;
+        ByteArrayOutputStream out = new ByteArrayOutputStream(length * fromBits / toBits + 1);
+        for (int i = offset; i < offset + length; i++) {
+            int value = data[i] & 0xff;
+            if ((value >>> fromBits) != 0) {
+                throw new IllegalArgumentException("Value out of range: " + value);
+            }
+            acc = (acc << fromBits) | value;
+            bits += fromBits;
+            while (bits >= toBits) {
+                bits -= toBits;
+                out.write((acc >>> bits) & maxValue);
+            }
+        }
+        if (pad) {
+            if (bits > 0) {
+                out.write((acc << (toBits - bits)) & maxValue);
+            }
+        } else if (bits >= fromBits || ((acc << (toBits - bits)) & maxValue) != 0) {
+            throw new IllegalArgumentException("Invalid padding");
+        }
+        return out.toByteArray();
+    }
+    
+    /**
+     * BCH checksum over the expanded human-readable part and the values
+     */
+    private static int polymod(String hrp, byte[] values) {
+        int chk = 1;
+        for (int i = 0; i < hrp.length(); i++) {
+            chk = polymodStep(chk, hrp.charAt(i) >>> 5);
+        }
+        chk = polymodStep(chk, 0);
+        for (int i = 0; i < hrp.length(); i++) {
+            chk = polymodStep(chk, hrp.charAt(i) & 31);
+        }
+        for (byte value : values) {
+            chk = polymodStep(chk, value);
+        }
+        return chk;
+    }
+    
+    /**
+     * Feed one 5-bit value into the checksum
+     */
+    private static int polymodStep(int chk, int value) {
+        int top = chk >>> 25;
+        chk = ((chk & 0x1ffffff) << 5) ^ value;
+        for (int i = 0; i < 5; i++) {
+            if (((top >>> i) & 1) != 0) {
+                chk ^= GENERATOR[i];
+            }
+        }
+        return chk;
+    }
+}
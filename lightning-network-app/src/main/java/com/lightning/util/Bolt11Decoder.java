@@ -0,0 +1,267 @@
+package com.lightning.util;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Decodes BOLT11 payment requests locally, without asking the node.
+ *
+ * The payee is taken from the n field when present and otherwise recovered from the
+ * signature; either way the signature is checked, so a request that decodes here was
+ * signed by the returned destination.
+ */
+public final class Bolt11Decoder {
+    private static final String PREFIX = "ln";
+    
+    // Field lengths in 5-bit groups
+    private static final int TIMESTAMP_LENGTH = 7;
+    private static final int SIGNATURE_LENGTH = 104;
+    private static final int HASH_LENGTH = 52;
+    private static final int PUBKEY_LENGTH = 53;
+    
+    // Tagged field types
+    private static final int TAG_PAYMENT_HASH = 1;
+    private static final int TAG_ROUTE_HINT = 3;
+    private static final int TAG_EXPIRY = 6;
+    private static final int TAG_FALLBACK = 9;
+    private static final int TAG_DESCRIPTION = 13;
+    private static final int TAG_PAYMENT_SECRET = 16;
+    private static final int TAG_PAYEE = 19;
+    private static final int TAG_DESCRIPTION_HASH = 23;
+    private static final int TAG_MIN_FINAL_CLTV = 24;
+    
+    private static final long DEFAULT_EXPIRY_SECONDS = 3600;
+    private static final int DEFAULT_MIN_FINAL_CLTV = 18;
+    private static final int ROUTE_HOP_BYTES = 51;
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    
+    private Bolt11Decoder() {
+    }
+    
+    /**
+     * Decode and verify a payment request
+     * @param paymentRequest BOLT11 string, optionally prefixed with "lightning:"
+     * @throws IllegalArgumentException If the request is malformed or its signature is invalid
+     */
+    public static Bolt11Invoice decode(String paymentRequest) {
+        String request = paymentRequest.trim();
+        if (request.regionMatches(true, 0, "lightning:", 0, 10)) {
+            request = request.substring(10);
+        }
+        
+        Bech32.Decoded bech = Bech32.decode(request);
+        String hrp = bech.getHrp();
+        byte[] data = bech.getData();
+        if (!hrp.startsWith(PREFIX)) {
+            throw new IllegalArgumentException("Not a Lightning payment request");
+        }
+        if (data.length < TIMESTAMP_LENGTH + SIGNATURE_LENGTH) {
+            throw new IllegalArgumentException("Payment request too short");
+        }
+        
+        // Human-readable part: ln + currency prefix + optional amount
+        int amountStart = PREFIX.length();
+        while (amountStart < hrp.length() && Character.isLetter(hrp.charAt(amountStart))) {
+            amountStart++;
+        }
+        String network = hrp.substring(PREFIX.length(), amountStart);
+        Long amountMsat = amountStart < hrp.length() ? parseAmount(hrp.substring(amountStart)) : null;
+        
+        int end = data.length - SIGNATURE_LENGTH;
+        long timestamp = readInt(data, 0, TIMESTAMP_LENGTH);
+        
+        String paymentHash = null;
+        String paymentSecret = null;
+        String payee = null;
+        String description = null;
+        String descriptionHash = null;
+        long expiry = DEFAULT_EXPIRY_SECONDS;
+        int minFinalCltv = DEFAULT_MIN_FINAL_CLTV;
+        String fallback = null;
+        List<List<Bolt11Invoice.RouteHop>> routeHints = new ArrayList<>();
+        
+        int pos = TIMESTAMP_LENGTH;
+        while (pos < end) {
+            if (pos + 3 > end) {
+                throw new IllegalArgumentException("Truncated tagged field");
+            }
+            int type = data[pos];
+            int length = (data[pos + 1] << 5) | data[pos + 2];
+            pos += 3;
+            if (pos + length > end) {
+                throw new IllegalArgumentException("Tagged field overruns data");
+            }
+            
+            // Fields with an unexpected length are skipped, as the spec requires
+            switch (type) {
+                case TAG_PAYMENT_HASH:
+                    if (length == HASH_LENGTH && paymentHash == null) {
+                        paymentHash = toHex(toBytes(data, pos, length));
+                    }
+                    break;
+                case TAG_PAYMENT_SECRET:
+                    if (length == HASH_LENGTH && paymentSecret == null) {
+                        paymentSecret = toHex(toBytes(data, pos, length));
+                    }
+                    break;
+                case TAG_PAYEE:
+                    if (length == PUBKEY_LENGTH && payee == null) {
+                        payee = toHex(toBytes(data, pos, length));
+                    }
+                    break;
+                case TAG_DESCRIPTION:
+                    if (description == null) {
+                        description = new String(toBytes(data, pos, length), StandardCharsets.UTF_8);
+                    }
+                    break;
+                case TAG_DESCRIPTION_HASH:
+                    if (length == HASH_LENGTH && descriptionHash == null) {
+                        descriptionHash = toHex(toBytes(data, pos, length));
+                    }
+                    break;
+                case TAG_EXPIRY:
+                    expiry = readInt(data, pos, length);
+                    break;
+                case TAG_MIN_FINAL_CLTV:
+                    minFinalCltv = (int) readInt(data, pos, length);
+                    break;
+                case TAG_FALLBACK:
+                    if (length > 0 && fallback == null) {
+                        fallback = data[pos] + ":" + toHex(toBytes(data, pos + 1, length - 1));
+                    }
+                    break;
+                case TAG_ROUTE_HINT:
+                    routeHints.add(parseRouteHint(toBytes(data, pos, length)));
+                    break;
+                default:
+                    // Features and fields added by later versions of the spec
+                    break;
+            }
+            pos += length;
+        }
+        
+        if (paymentHash == null) {
+            throw new IllegalArgumentException("Payment request has no payment hash");
+        }
+        
+        String destination = recoverPayee(hrp, data, end);
+        if (payee != null && !payee.equals(destination)) {
+            throw new IllegalArgumentException("Signature does not match payee");
+        }
+        
+        return new Bolt11Invoice(request, network, amountMsat, timestamp, paymentHash, paymentSecret, destination,
+                description, descriptionHash, expiry, minFinalCltv, fallback, routeHints);
+    }
+    
+    /**
+     * Recover the signing key from the signature over the human-readable part and data
+     */
+    private static String recoverPayee(String hrp, byte[] data, int signatureStart) {
+        byte[] signature = toBytes(data, signatureStart, SIGNATURE_LENGTH);
+        byte[] hrpBytes = hrp.getBytes(StandardCharsets.UTF_8);
+        byte[] dataBytes = Bech32.convertBits(data, 0, signatureStart, 5, 8, true);
+        
+        MessageDigest sha256;
+        try {
+            sha256 = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+        sha256.update(hrpBytes);
+        byte[] hash = sha256.digest(dataBytes);
+        
+        return toHex(Secp256k1.recoverPublicKey(hash, Arrays.copyOf(signature, 64), signature[64]));
+    }
+    
+    /**
+     * Convert the amount part of the human-readable part to millisatoshis
+     */
+    private static long parseAmount(String amount) {
+        char multiplier = amount.charAt(amount.length() - 1);
+        String digits = Character.isDigit(multiplier) ? amount : amount.substring(0, amount.length() - 1);
+        if (digits.isEmpty() || !digits.chars().allMatch(Character::isDigit)) {
+            throw new IllegalArgumentException("Invalid amount: " + amount);
+        }
+        
+        try {
+            long value = Long.parseLong(digits);
+            switch (multiplier) {
+                case 'm':
+                    return Math.multiplyExact(value, 100_000_000L);
+                case 'u':
+                    return Math.multiplyExact(value, 100_000L);
+                case 'n':
+                    return Math.multiplyExact(value, 100L);
+                case 'p':
+                    if (value % 10 != 0) {
+                        throw new IllegalArgumentException("Amount is not a whole number of millisatoshis");
+                    }
+                    return value / 10;
+                default:
+                    if (!Character.isDigit(multiplier)) {
+                        throw new IllegalArgumentException("Invalid amount multiplier: " + multiplier);
+                    }
+                    return Math.multiplyExact(value, 100_000_000_000L);
+            }
+        } catch (NumberFormatException | ArithmeticException e) {
+            throw new IllegalArgumentException("Amount out of range: " + amount);
+        }
+    }
+    
+    /**
+     * Parse the hops of an r field
+     */
+    private static List<Bolt11Invoice.RouteHop> parseRouteHint(byte[] bytes) {
+        List<Bolt11Invoice.RouteHop> hops = new ArrayList<>(bytes.length / ROUTE_HOP_BYTES);
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        while (buffer.remaining() >= ROUTE_HOP_BYTES) {
+            byte[] pubkey = new byte[33];
+            buffer.get(pubkey);
+            long shortChannelId = buffer.getLong();
+            long feeBase = buffer.getInt() & 0xffffffffL;
+            long feeProportional = buffer.getInt() & 0xffffffffL;
+            int cltvDelta = buffer.getShort() & 0xffff;
+            hops.add(new Bolt11Invoice.RouteHop(toHex(pubkey), shortChannelId, feeBase, feeProportional, cltvDelta));
+        }
+        return hops;
+    }
+    
+    /**
+     * Read a big-endian integer from 5-bit groups
+     */
+    private static long readInt(byte[] data, int offset, int length) {
+        if (length > 12) {
+            throw new IllegalArgumentException("Integer field too long");
+        }
+        long value = 0;
+        for (int i = offset; i < offset + length; i++) {
+            value = (value << 5) | data[i];
+        }
+        return value;
+    }
+    
+    /**
+     * Convert 5-bit groups to bytes, dropping the incomplete final byte
+     */
+    private static byte[] toBytes(byte[] data, int offset, int length) {
+        byte[] bytes = Bech32.convertBits(data, offset, length, 5, 8, true);
+        return length * 5 % 8 == 0 ? bytes : Arrays.copyOf(bytes, length * 5 / 8);
+    }
+    
+    /**
+     * Lower-case hex encoding
+     */
+    private static String toHex(byte[] bytes) {
+        char[] chars = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            chars[i * 2] = HEX[(bytes[i] >> 4) & 0xf];
+            chars[i * 2 + 1] = HEX[bytes[i] & 0xf];
+        }
+        return new String(chars);
+    }
+}
@@ -0,0 +1,225 @@
+package com.lightning.util;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Fields of a decoded BOLT11 payment request.
+ * Hashes and keys are lower-case hex.
+ */
+public class Bolt11Invoice {
+    
+    /**
+     * One hop of a private route hint
+     */
+    public static class RouteHop {
+        private final String pubkey;
+        private final long shortChannelId;
+        private final long feeBaseMsat;
+        private final long feeProportionalMillionths;
+        private final int cltvExpiryDelta;
+        
+        RouteHop(String pubkey, long shortChannelId, long feeBaseMsat, long feeProportionalMillionths,
+                 int cltvExpiryDelta) {
+            this.pubkey = pubkey;
+            this.shortChannelId = shortChannelId;
+            this.feeBaseMsat = feeBaseMsat;
+            this.feeProportionalMillionths = feeProportionalMillionths;
+            this.cltvExpiryDelta = cltvExpiryDelta;
+        }
+        
+        /**
+         * Node at the start of the channel
+         */
+        public String getPubkey() {
+            return pubkey;
+        }
+        
+        /**
+         * Channel id in its compact 64-bit form
+         */
+        public long getShortChannelId() {
+            return shortChannelId;
+        }
+        
+        /**
+         * Channel id as block x transaction x output
+         */
+        public String getShortChannelIdString() {
+            return (shortChannelId >>> 40) + "x" + ((shortChannelId >>> 16) & 0xffffff) + "x" + (shortChannelId & 0xffff);
+        }
+        
+        /**
+         * Base fee charged by the hop
+         */
+        public long getFeeBaseMsat() {
+            return feeBaseMsat;
+        }
+        
+        /**
+         * Proportional fee charged by the hop
+         */
+        public long getFeeProportionalMillionths() {
+            return feeProportionalMillionths;
+        }
+        
+        /**
+         * CLTV delta required by the hop
+         */
+        public int getCltvExpiryDelta() {
+            return cltvExpiryDelta;
+        }
+    }
+    
+    private final String paymentRequest;
+    private final String network;
+    private final Long amountMsat;
+    private final long timestamp;
+    private final String paymentHash;
+    private final String paymentSecret;
+    private final String destination;
+    private final String description;
+    private final String descriptionHash;
+    private final long expirySeconds;
+    private final int minFinalCltvExpiry;
+    private final String fallbackAddress;
+    private final List<List<RouteHop>> routeHints;
+    
+    Bolt11Invoice(String paymentRequest, String network, Long amountMsat, long timestamp, String paymentHash,
+                  String paymentSecret, String destination, String description, String descriptionHash,
+                  long expirySeconds, int minFinalCltvExpiry, String fallbackAddress, List<List<RouteHop>> routeHints) {
+        this.paymentRequest = paymentRequest;
+        this.network = network;
+        this.amountMsat = amountMsat;
+        this.timestamp = timestamp;
+        this.paymentHash = paymentHash;
+        this.paymentSecret = paymentSecret;
+        this.destination = destination;
+        this.description = description;
+        this.descriptionHash = descriptionHash;
+        this.expirySeconds = expirySeconds;
+        this.minFinalCltvExpiry = minFinalCltvExpiry;
+        this.fallbackAddress = fallbackAddress;
+        this.routeHints = Collections.unmodifiableList(routeHints);
+    }
+    
+    /**
+     * The encoded payment request
+     */
+    public String getPaymentRequest() {
+        return paymentRequest;
+    }
+    
+    /**
+     * Currency prefix, e.g. bc, tb or bcrt
+     */
+    public String getNetwork() {
+        return network;
+    }
+    
+    /**
+     * Whether the request specifies an amount
+     */
+    public boolean hasAmount() {
+        return amountMsat != null;
+    }
+    
+    /**
+     * Requested amount in millisatoshis, or 0 if the payer chooses
+     */
+    public long getAmountMsat() {
+        return amountMsat == null ? 0 : amountMsat;
+    }
+    
+    /**
+     * Requested amount in whole satoshis, rounded down
+     */
+    public long getAmountSat() {
+        return getAmountMsat() / 1000;
+    }
+    
+    /**
+     * Creation time in seconds since the epoch
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+    
+    /**
+     * Get the payment hash
+     */
+    public String getPaymentHash() {
+        return paymentHash;
+    }
+    
+    /**
+     * Payment secret, or null for old invoices without one
+     */
+    public String getPaymentSecret() {
+        return paymentSecret;
+    }
+    
+    /**
+     * Payee node public key, either stated in the request or recovered from its signature
+     */
+    public String getDestination() {
+        return destination;
+    }
+    
+    /**
+     * Description, or null if the request commits to a description hash instead
+     */
+    public String getDescription() {
+        return description;
+    }
+    
+    /**
+     * Hash of a description provided out of band, or null
+     */
+    public String getDescriptionHash() {
+        return descriptionHash;
+    }
+    
+    /**
+     * Seconds after the timestamp during which the request may be paid
+     */
+    public long getExpirySeconds() {
+        return expirySeconds;
+    }
+    
+    /**
+     * Time the request expires, in seconds since the epoch
+     */
+    public long getExpiresAt() {
+        return timestamp + expirySeconds;
+    }
+    
+    /**
+     * Whether the request has expired at the given time
+     * @param nowSeconds Current time in seconds since the epoch
+     */
+    public boolean isExpired(long nowSeconds) {
+        return nowSeconds >= getExpiresAt();
+    }
+    
+    /**
+     * CLTV delta to use for the final hop
+     */
+    public int getMinFinalCltvExpiry() {
+        return minFinalCltvExpiry;
+    }
+    
+    /**
+     * On-chain fallback as "version:program-hex", or null
+     */
+    public String getFallbackAddress() {
+        return fallbackAddress;
+    }
+    
+    /**
+     * Private routes to the payee, each a list of hops ending next to the payee
+     */
+    public List<List<RouteHop>> getRouteHints() {
+        return routeHints;
+    }
+}
@@ -0,0 +1,131 @@
+package com.lightning.util;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free latency histogram with bounded relative error, in the style of HdrHistogram.
+ *
+ * Values are recorded in microseconds. Values below 128 µs get a bucket each; above that,
+ * every power of two is split into 64 linear sub-buckets, so a reported percentile is within
+ * 1/64 (about 1.6%) of the recorded value. The whole range up to about 25 days takes a
+ * fixed array of counters, and recording is a single atomic increment.
+ */
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 6;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int LINEAR_LIMIT = SUB_BUCKET_COUNT * 2;
+    private static final int MAX_SHIFT = 34;
+    private static final int BUCKET_COUNT = LINEAR_LIMIT + MAX_SHIFT * SUB_BUCKET_COUNT;
+    
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    private final LongAdder totalCount = new LongAdder();
+    private final LongAdder totalMicros = new LongAdder();
+    private final AtomicLong maxMicros = new AtomicLong();
+    
+    /**
+     * Record one latency
+     */
+    public void record(Duration latency) {
+        recordNanos(latency.toNanos());
+    }
+    
+    /**
+     * Record one latency given in nanoseconds
+     */
+    public void recordNanos(long nanos) {
+        long micros = Math.max(0, nanos / 1000);
+        counts.incrementAndGet(bucketOf(micros));
+        totalCount.increment();
+        totalMicros.add(micros);
+        maxMicros.accumulateAndGet(micros, Math::max);
+    }
+    
+    /**
+     * Number of recorded values
+     */
+    public long getCount() {
+        return totalCount.sum();
+    }
+    
+    /**
+     * Largest recorded value
+     */
+    public Duration getMax() {
+        return Duration.ofNanos(maxMicros.get() * 1000);
+    }
+    
+    /**
+     * Mean of the recorded values
+     */
+    public Duration getMean() {
+        long count = totalCount.sum();
+        return count == 0 ? Duration.ZERO : Duration.ofNanos(totalMicros.sum() * 1000 / count);
+    }
+    
+    /**
+     * Value at the given percentile, or zero if nothing was recorded
+     * @param percentile Percentile between 0 and 100
+     */
+    public Duration getPercentile(double percentile) {
+        long count = 0;
+        long[] snapshot = new long[BUCKET_COUNT];
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            snapshot[i] = counts.get(i);
+            count += snapshot[i];
+        }
+        if (count == 0) {
+            return Duration.ZERO;
+        }
+        
+        long rank = Math.max(1, (long) Math.ceil(Math.min(100, Math.max(0, percentile)) / 100 * count));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return Duration.ofNanos(Math.min(highestEquivalentValue(i), maxMicros.get()) * 1000);
+            }
+        }
+        return getMax();
+    }
+    
+    /**
+     * Clear all recorded values
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts.set(i, 0);
+        }
+        totalCount.reset();
+        totalMicros.reset();
+        maxMicros.set(0);
+    }
+    
+    /**
+     * Bucket holding a value
+     */
+    static int bucketOf(long micros) {
+        if (micros < LINEAR_LIMIT) {
+            return (int) micros;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(micros) - SUB_BUCKET_BITS;
+        if (shift > MAX_SHIFT) {
+            return BUCKET_COUNT - 1;
+        }
+        return LINEAR_LIMIT + (shift - 1) * SUB_BUCKET_COUNT + (int) (micros >> shift) - SUB_BUCKET_COUNT;
+    }
+    
+    /**
+     * Largest value that falls in a bucket
+     */
+    static long highestEquivalentValue(int bucket) {
+        if (bucket < LINEAR_LIMIT) {
+            return bucket;
+        }
+        int shift = (bucket - LINEAR_LIMIT) / SUB_BUCKET_COUNT + 1;
+        long subBucket = (bucket - LINEAR_LIMIT) % SUB_BUCKET_COUNT + SUB_BUCKET_COUNT;
+        return ((subBucket + 1) << shift) - 1;
+    }
+}
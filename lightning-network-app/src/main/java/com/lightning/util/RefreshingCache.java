@@ -0,0 +1,321 @@
+package com.lightning.util;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * In-memory read-through cache for a single value with stale-while-revalidate semantics.
+ *
+ * A value younger than the TTL is returned as is. A value older than the TTL but within
+ * the stale window is still returned immediately, and one background refresh is started
+ * to replace it. Anything older, or no value at all, is loaded by the caller.
+ * A failed background refresh keeps the old value until it leaves the stale window.
+ */
+public class RefreshingCache<V> {
+    private static final Logger LOGGER = Logger.getLogger(RefreshingCache.class.getName());
+    
+    private final String name;
+    private final Executor refresher;
+    private final LongSupplier clock;
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+    
+    // Bumped on invalidation so loads started earlier cannot repopulate the cache
+    private final AtomicLong generation = new AtomicLong();
+    
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder staleHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder refreshFailures = new LongAdder();
+    
+    private volatile long ttlNanos;
+    private volatile long maxStaleNanos;
+    private volatile Entry<V> entry;
+    
+    /**
+     * A cached value and when it was loaded
+     */
+    private static final class Entry<V> {
+        private final V value;
+        private final long loadedAt;
+        
+        Entry(V value, long loadedAt) {
+            this.value = value;
+            this.loadedAt = loadedAt;
+        }
+    }
+    
+    /**
+     * Point-in-time cache statistics
+     */
+    public static final class Stats {
+        private final String name;
+        private final long hits;
+        private final long staleHits;
+        private final long misses;
+        private final long refreshFailures;
+        private final long ageMillis;
+        
+        Stats(String name, long hits, long staleHits, long misses, long refreshFailures, long ageMillis) {
+            this.name = name;
+            this.hits = hits;
+            this.staleHits = staleHits;
+            this.misses = misses;
+            this.refreshFailures = refreshFailures;
+            this.ageMillis = ageMillis;
+        }
+        
+        /**
+         * Name of the cache
+         */
+        public String getName() {
+            return name;
+        }
+        
+        /**
+         * Reads served from a fresh value
+         */
+        public long getHits() {
+            return hits;
+        }
+        
+        /**
+         * Reads served from a stale value while a refresh ran in the background
+         */
+        public long getStaleHits() {
+            return staleHits;
+        }
+        
+        /**
+         * Reads that had to wait for a load
+         */
+        public long getMisses() {
+            return misses;
+        }
+        
+        /**
+         * Background refreshes that failed
+         */
+        public long getRefreshFailures() {
+            return refreshFailures;
+        }
+        
+        /**
+         * Age of the cached value in milliseconds, or -1 when empty
+         */
+        public long getAgeMillis() {
+            return ageMillis;
+        }
+        
+        /**
+         * Fraction of reads answered without waiting on the node
+         */
+        public double getHitRatio() {
+            long total = hits + staleHits + misses;
+            return total == 0 ? 0 : (double) (hits + staleHits) / total;
+        }
+        
+        @Override
+        public String toString() {
+            return String.format("%s: hits=%d stale=%d misses=%d refreshFailures=%d age=%dms",
+                    name, hits, staleHits, misses, refreshFailures, ageMillis);
+        }
+    }
+    
+    /**
+     * Create a cache
+     * @param name Name used in logs and stats
+     * @param ttl How long a value is served without refreshing
+     * @param maxStale How long past the TTL a value may still be served while refreshing
+     * @param refresher Executor for background refreshes
+     */
+    public RefreshingCache(String name, Duration ttl, Duration maxStale, Executor refresher) {
+        this(name, ttl, maxStale, refresher, System::nanoTime);
+    }
+    
+    /**
+     * Create a cache with an explicit nanosecond clock
+     */
+    RefreshingCache(String name, Duration ttl, Duration maxStale, Executor refresher, LongSupplier clock) {
+        this.name = name;
+        this.refresher = refresher;
+        this.clock = clock;
+        setPolicy(ttl, maxStale);
+    }
+    
+    /**
+     * Change the TTL and stale window; the cached value is kept
+     */
+    public void setPolicy(Duration ttl, Duration maxStale) {
+        this.ttlNanos = ttl.toNanos();
+        this.maxStaleNanos = maxStale.toNanos();
+    }
+    
+    /**
+     * Get the cached value, loading it on the calling thread if there is no usable value
+     * @param loader Blocking call that fetches a fresh value
+     */
+    public V get(Callable<V> loader) throws IOException {
+        Entry<V> current = entry;
+        long now = clock.getAsLong();
+        if (current != null && isUsable(current, now)) {
+            if (isStale(current, now)) {
+                refreshInBackground(() -> CompletableFuture.supplyAsync(() -> call(loader), refresher));
+            }
+            return current.value;
+        }
+        
+        misses.increment();
+        long loadGeneration = generation.get();
+        try {
+            V value = loader.call();
+            store(value, loadGeneration);
+            return value;
+        } catch (IOException | RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException(e.getMessage(), e);
+        }
+    }
+    
+    /**
+     * Get the cached value without blocking, starting a load if there is no usable value
+     * @param loader Starts a call that fetches a fresh value
+     */
+    public CompletableFuture<V> getAsync(Supplier<CompletableFuture<V>> loader) {
+        Entry<V> current = entry;
+        long now = clock.getAsLong();
+        if (current != null && isUsable(current, now)) {
+            if (isStale(current, now)) {
+                refreshInBackground(loader);
+            }
+            return CompletableFuture.completedFuture(current.value);
+        }
+        
+        misses.increment();
+        long loadGeneration = generation.get();
+        CompletableFuture<V> load = loader.get();
+        load.whenComplete((value, error) -> {
+            if (error == null) {
+                store(value, loadGeneration);
+            }
+        });
+        return load;
+    }
+    
+    /**
+     * Store a value fetched elsewhere
+     */
+    public void put(V value) {
+        if (value != null) {
+            entry = new Entry<>(value, clock.getAsLong());
+        }
+    }
+    
+    /**
+     * Drop the cached value so the next read loads a fresh one
+     */
+    public void invalidate() {
+        generation.incrementAndGet();
+        entry = null;
+    }
+    
+    /**
+     * Get the cached value regardless of age, or null when empty
+     */
+    public V peek() {
+        Entry<V> current = entry;
+        return current == null ? null : current.value;
+    }
+    
+    /**
+     * Snapshot of hit, miss and age statistics
+     */
+    public Stats getStats() {
+        Entry<V> current = entry;
+        long age = current == null ? -1 : Duration.ofNanos(clock.getAsLong() - current.loadedAt).toMillis();
+        return new Stats(name, hits.sum(), staleHits.sum(), misses.sum(), refreshFailures.sum(), age);
+    }
+    
+    /**
+     * Whether the entry can be served, counting the hit if so
+     */
+    private boolean isUsable(Entry<V> current, long now) {
+        long age = now - current.loadedAt;
+        if (age < ttlNanos) {
+            hits.increment();
+            return true;
+        }
+        if (age < ttlNanos + maxStaleNanos) {
+            staleHits.increment();
+            return true;
+        }
+        return false;
+    }
+    
+    /**
+     * Whether a usable entry is past its TTL
+     */
+    private boolean isStale(Entry<V> current, long now) {
+        return now - current.loadedAt >= ttlNanos;
+    }
+    
+    /**
+     * Store a loaded value unless the cache was invalidated since the load started
+     */
+    private void store(V value, long loadGeneration) {
+        if (value != null && generation.get() == loadGeneration) {
+            entry = new Entry<>(value, clock.getAsLong());
+        }
+    }
+    
+    /**
+     * Start a refresh unless one is already running
+     */
+    private void refreshInBackground(Supplier<CompletableFuture<V>> loader) {
+        if (!refreshing.compareAndSet(false, true)) {
+            return;
+        }
+        
+        long loadGeneration = generation.get();
+        CompletableFuture<V> load;
+        try {
+            load = loader.get();
+        } catch (RuntimeException e) {
+            load = CompletableFuture.failedFuture(e);
+        }
+        
+        load.whenComplete((value, error) -> {
+            if (error == null) {
+                store(value, loadGeneration);
+            } else {
+                refreshFailures.increment();
+                LOGGER.log(Level.FINE, "Background refresh of " + name + " failed", error);
+            }
+            refreshing.set(false);
+        });
+    }
+    
+    /**
+     * Run a blocking loader, rethrowing checked exceptions unchecked for use in a CompletableFuture
+     */
+    private static <V> V call(Callable<V> loader) {
+        try {
+            return loader.call();
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new CompletionException(e);
+        }
+    }
+}
@@ -0,0 +1,425 @@
+package com.lightning.util;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+
+/**
+ * Minimal secp256k1 arithmetic for recovering a signer's public key from a compact
+ * ECDSA signature, as needed to find the payee of a BOLT11 payment request.
+ *
+ * Field elements are eight little-endian 32-bit limbs, reduced using the special form
+ * of P rather than division, so the point arithmetic never goes through BigInteger.
+ * Points are kept in Jacobian coordinates, and multiples of the generator come from a
+ * precomputed table. Scalars mod N stay as BigInteger since they only take a handful of
+ * operations per recovery.
+ *
+ * Nothing here handles secrets in constant time, so there is deliberately no signing;
+ * tests sign with a helper of their own.
+ */
+final class Secp256k1 {
+    static final BigInteger P = new BigInteger(
+            "FFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFEFFFFFC2F", 16);
+    static final BigInteger N = new BigInteger(
+            "FFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFEBAAEDCE6AF48A03BBFD25E8CD0364141", 16);
+    private static final BigInteger GX = new BigInteger(
+            "79BE667EF9DCBBAC55A06295CE870B07029BFCDB2DCE28D959F2815B16F81798", 16);
+    private static final BigInteger GY = new BigInteger(
+            "483ADA7726A3C4655DA4FBFC0E1108A8FD17B448A68554199C47D08FFB10D4B8", 16);
+    private static final BigInteger SQRT_EXPONENT = P.add(BigInteger.ONE).shiftRight(2);
+    
+    private static final long MASK = 0xffffffffL;
+    private static final int LIMBS = 8;
+    // 2^256 = 2^32 + 977 (mod P)
+    private static final long REDUCTION_LOW = 977;
+    
+    private static final int[] FIELD_P = toField(P);
+    private static final int[] ONE = toField(BigInteger.ONE);
+    private static final int[] SEVEN = toField(BigInteger.valueOf(7));
+    
+    // Jacobian point {X, Y, Z}; null is the point at infinity
+    private static final int[][] G = {toField(GX), toField(GY), ONE};
+    
+    // Scalars are processed in 64 windows of 4 bits
+    private static final int WINDOW_BITS = 4;
+    private static final int WINDOW_SIZE = 1 << WINDOW_BITS;
+    private static final int WINDOWS = 256 / WINDOW_BITS;
+    
+    /**
+     * Affine multiples d * 16^i * G for every window i and digit d, built on first use
+     */
+    private static final class BaseTable {
+        static final int[][][] TABLE = build();
+        
+        /**
+         * Compute the table by repeated addition
+         */
+        private static int[][][] build() {
+            int[][][] table = new int[WINDOWS * WINDOW_SIZE][][];
+            int[][] base = G;
+            for (int i = 0; i < WINDOWS; i++) {
+                int[][] multiple = base;
+                for (int digit = 1; digit < WINDOW_SIZE; digit++) {
+                    int[][] affine = toAffine(multiple);
+                    table[i * WINDOW_SIZE + digit] = new int[][]{affine[0], affine[1], ONE};
+                    multiple = add(multiple, base);
+                }
+                // multiple is now 16 * base
+                base = multiple;
+            }
+            return table;
+        }
+    }
+    
+    private Secp256k1() {
+    }
+    
+    /**
+     * Recover the compressed public key that produced a signature
+     * @param hash 32-byte message hash
+     * @param signature 64 bytes, r followed by s
+     * @param recoveryId 0-3
+     * @throws IllegalArgumentException If the signature is invalid or recovers no key
+     */
+    static byte[] recoverPublicKey(byte[] hash, byte[] signature, int recoveryId) {
+        if (signature.length != 64 || recoveryId < 0 || recoveryId > 3) {
+            throw new IllegalArgumentException("Invalid signature");
+        }
+        BigInteger r = new BigInteger(1, Arrays.copyOfRange(signature, 0, 32));
+        BigInteger s = new BigInteger(1, Arrays.copyOfRange(signature, 32, 64));
+        if (r.signum() == 0 || r.compareTo(N) >= 0 || s.signum() == 0 || s.compareTo(N) >= 0) {
+            throw new IllegalArgumentException("Signature out of range");
+        }
+        
+        BigInteger x = (recoveryId & 2) == 0 ? r : r.add(N);
+        if (x.compareTo(P) >= 0) {
+            throw new IllegalArgumentException("Invalid recovery id");
+        }
+        int[][] point = decompress(x, (recoveryId & 1) == 1);
+        
+        // Q = r^-1 (sR - eG)
+        BigInteger rInverse = r.modInverse(N);
+        BigInteger e = new BigInteger(1, hash);
+        BigInteger u1 = e.negate().multiply(rInverse).mod(N);
+        BigInteger u2 = s.multiply(rInverse).mod(N);
+        int[][] q = add(multiplyBase(u1), multiply(u2, point));
+        if (q == null) {
+            throw new IllegalArgumentException("Signature recovers the point at infinity");
+        }
+        return compress(q);
+    }
+    
+    /**
+     * Compressed public key for a private key
+     */
+    static byte[] publicKey(BigInteger privateKey) {
+        return compress(multiplyBase(privateKey));
+    }
+    
+    /**
+     * Find the curve point with the given x coordinate and y parity
+     */
+    private static int[][] decompress(BigInteger x, boolean odd) {
+        int[] fx = toField(x);
+        int[] ySquared = add(mul(mul(fx, fx), fx), SEVEN);
+        int[] y = toField(toBigInteger(ySquared).modPow(SQRT_EXPONENT, P));
+        if (!Arrays.equals(mul(y, y), ySquared)) {
+            throw new IllegalArgumentException("Point not on curve");
+        }
+        if (isOdd(y) != odd) {
+            y = sub(FIELD_P, y);
+        }
+        return new int[][]{fx, y, ONE};
+    }
+    
+    /**
+     * Multiply the generator using the precomputed table
+     */
+    private static int[][] multiplyBase(BigInteger k) {
+        int[][][] table = BaseTable.TABLE;
+        int[][] result = null;
+        for (int i = 0; i < WINDOWS; i++) {
+            int digit = digit(k, i);
+            if (digit != 0) {
+                result = add(result, table[i * WINDOW_SIZE + digit]);
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * Multiply an arbitrary point with a fixed 4-bit window
+     */
+    private static int[][] multiply(BigInteger k, int[][] point) {
+        int[][][] multiples = new int[WINDOW_SIZE][][];
+        multiples[1] = point;
+        for (int i = 2; i < WINDOW_SIZE; i++) {
+            multiples[i] = add(multiples[i - 1], point);
+        }
+        
+        int[][] result = null;
+        for (int i = WINDOWS - 1; i >= 0; i--) {
+            for (int j = 0; j < WINDOW_BITS; j++) {
+                result = doublePoint(result);
+            }
+            int digit = digit(k, i);
+            if (digit != 0) {
+                result = add(result, multiples[digit]);
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * The i-th 4-bit digit of a scalar, least significant first
+     */
+    private static int digit(BigInteger k, int i) {
+        int digit = 0;
+        for (int bit = WINDOW_BITS - 1; bit >= 0; bit--) {
+            digit = (digit << 1) | (k.testBit(i * WINDOW_BITS + bit) ? 1 : 0);
+        }
+        return digit;
+    }
+    
+    /**
+     * Double a Jacobian point (a = 0)
+     */
+    private static int[][] doublePoint(int[][] point) {
+        if (point == null || isZero(point[1])) {
+            return null;
+        }
+        int[] x = point[0];
+        int[] y = point[1];
+        int[] ySquared = mul(y, y);
+        int[] s = twice(twice(mul(x, ySquared)));
+        int[] xSquared = mul(x, x);
+        int[] m = add(twice(xSquared), xSquared);
+        int[] x3 = sub(mul(m, m), twice(s));
+        int[] y3 = sub(mul(m, sub(s, x3)), twice(twice(twice(mul(ySquared, ySquared)))));
+        int[] z3 = twice(mul(y, point[2]));
+        return new int[][]{x3, y3, z3};
+    }
+    
+    /**
+     * Add two Jacobian points; cheaper when the second is affine (Z = 1)
+     */
+    private static int[][] add(int[][] p1, int[][] p2) {
+        if (p1 == null) {
+            return p2;
+        }
+        if (p2 == null) {
+            return p1;
+        }
+        boolean affine = p2[2] == ONE;
+        int[] z1Squared = mul(p1[2], p1[2]);
+        int[] z2Squared = affine ? ONE : mul(p2[2], p2[2]);
+        int[] u1 = affine ? p1[0] : mul(p1[0], z2Squared);
+        int[] u2 = mul(p2[0], z1Squared);
+        int[] s1 = affine ? p1[1] : mul(mul(p1[1], z2Squared), p2[2]);
+        int[] s2 = mul(mul(p2[1], z1Squared), p1[2]);
+        if (Arrays.equals(u1, u2)) {
+            return Arrays.equals(s1, s2) ? doublePoint(p1) : null;
+        }
+        
+        int[] h = sub(u2, u1);
+        int[] r = sub(s2, s1);
+        int[] hSquared = mul(h, h);
+        int[] hCubed = mul(hSquared, h);
+        int[] u1hSquared = mul(u1, hSquared);
+        int[] x3 = sub(sub(mul(r, r), hCubed), twice(u1hSquared));
+        int[] y3 = sub(mul(r, sub(u1hSquared, x3)), mul(s1, hCubed));
+        int[] z3 = affine ? mul(h, p1[2]) : mul(mul(h, p1[2]), p2[2]);
+        return new int[][]{x3, y3, z3};
+    }
+    
+    /**
+     * Convert a Jacobian point to affine {x, y}
+     */
+    private static int[][] toAffine(int[][] point) {
+        int[] zInverse = toField(toBigInteger(point[2]).modInverse(P));
+        int[] zInverseSquared = mul(zInverse, zInverse);
+        return new int[][]{mul(point[0], zInverseSquared), mul(mul(point[1], zInverseSquared), zInverse)};
+    }
+    
+    /**
+     * Field multiplication: schoolbook product, then fold the high half using 2^256 = 2^32 + 977
+     */
+    private static int[] mul(int[] a, int[] b) {
+        long[] product = new long[2 * LIMBS];
+        for (int i = 0; i < LIMBS; i++) {
+            long ai = a[i] & MASK;
+            long carry = 0;
+            for (int j = 0; j < LIMBS; j++) {
+                // At most (2^32 - 1)^2 + 2 (2^32 - 1), which fits in 64 unsigned bits
+                long t = ai * (b[j] & MASK) + product[i + j] + carry;
+                product[i + j] = t & MASK;
+                carry = t >>> 32;
+            }
+            product[i + LIMBS] = carry;
+        }
+        
+        long[] folded = new long[LIMBS];
+        long carry = 0;
+        for (int i = 0; i < LIMBS; i++) {
+            long t = product[i] + product[i + LIMBS] * REDUCTION_LOW + (i > 0 ? product[i + LIMBS - 1] : 0) + carry;
+            folded[i] = t & MASK;
+            carry = t >>> 32;
+        }
+        long top = carry + product[2 * LIMBS - 1];
+        
+        // Fold what is left above 2^256; this settles after one or two rounds
+        while (top != 0) {
+            long t = folded[0] + top * REDUCTION_LOW;
+            folded[0] = t & MASK;
+            t = folded[1] + top + (t >>> 32);
+            folded[1] = t & MASK;
+            carry = t >>> 32;
+            for (int i = 2; i < LIMBS && carry != 0; i++) {
+                t = folded[i] + carry;
+                folded[i] = t & MASK;
+                carry = t >>> 32;
+            }
+            top = carry;
+        }
+        
+        int[] result = new int[LIMBS];
+        for (int i = 0; i < LIMBS; i++) {
+            result[i] = (int) folded[i];
+        }
+        return reduceOnce(result, false);
+    }
+    
+    /**
+     * Field addition
+     */
+    private static int[] add(int[] a, int[] b) {
+        int[] result = new int[LIMBS];
+        long carry = 0;
+        for (int i = 0; i < LIMBS; i++) {
+            long t = (a[i] & MASK) + (b[i] & MASK) + carry;
+            result[i] = (int) t;
+            carry = t >>> 32;
+        }
+        return reduceOnce(result, carry != 0);
+    }
+    
+    /**
+     * Field doubling
+     */
+    private static int[] twice(int[] a) {
+        return add(a, a);
+    }
+    
+    /**
+     * Field subtraction
+     */
+    private static int[] sub(int[] a, int[] b) {
+        int[] result = new int[LIMBS];
+        long borrow = 0;
+        for (int i = 0; i < LIMBS; i++) {
+            long t = (a[i] & MASK) - (b[i] & MASK) - borrow;
+            result[i] = (int) t;
+            borrow = (t >> 32) & 1;
+        }
+        if (borrow != 0) {
+            long carry = 0;
+            for (int i = 0; i < LIMBS; i++) {
+                long t = (result[i] & MASK) + (FIELD_P[i] & MASK) + carry;
+                result[i] = (int) t;
+                carry = t >>> 32;
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * Subtract P once if the value (plus an overflow bit above 2^256) is at least P
+     */
+    private static int[] reduceOnce(int[] value, boolean overflow) {
+        if (!overflow && compareToP(value) < 0) {
+            return value;
+        }
+        long borrow = 0;
+        for (int i = 0; i < LIMBS; i++) {
+            long t = (value[i] & MASK) - (FIELD_P[i] & MASK) - borrow;
+            value[i] = (int) t;
+            borrow = (t >> 32) & 1;
+        }
+        return value;
+    }
+    
+    /**
+     * Compare a value below 2^256 with P
+     */
+    private static int compareToP(int[] value) {
+        for (int i = LIMBS - 1; i >= 0; i--) {
+            int c = Integer.compareUnsigned(value[i], FIELD_P[i]);
+            if (c != 0) {
+                return c;
+            }
+        }
+        return 0;
+    }
+    
+    /**
+     * Whether a field element is zero
+     */
+    private static boolean isZero(int[] value) {
+        for (int limb : value) {
+            if (limb != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Whether a field element is odd
+     */
+    private static boolean isOdd(int[] value) {
+        return (value[0] & 1) != 0;
+    }
+    
+    /**
+     * Convert a value in [0, P) to limbs
+     */
+    private static int[] toField(BigInteger value) {
+        int[] limbs = new int[LIMBS];
+        for (int i = 0; i < LIMBS; i++) {
+            limbs[i] = value.shiftRight(32 * i).intValue();
+        }
+        return limbs;
+    }
+    
+    /**
+     * Convert limbs to a non-negative BigInteger
+     */
+    private static BigInteger toBigInteger(int[] limbs) {
+        return new BigInteger(1, toBytes(limbs));
+    }
+    
+    /**
+     * Big-endian 32-byte encoding of limbs
+     */
+    private static byte[] toBytes(int[] limbs) {
+        byte[] bytes = new byte[32];
+        for (int i = 0; i < LIMBS; i++) {
+            int limb = limbs[LIMBS - 1 - i];
+            bytes[4 * i] = (byte) (limb >>> 24);
+            bytes[4 * i + 1] = (byte) (limb >>> 16);
+            bytes[4 * i + 2] = (byte) (limb >>> 8);
+            bytes[4 * i + 3] = (byte) limb;
+        }
+        return bytes;
+    }
+    
+    /**
+     * SEC1 compressed encoding of a point
+     */
+    private static byte[] compress(int[][] point) {
+        int[][] affine = toAffine(point);
+        byte[] encoded = new byte[33];
+        encoded[0] = (byte) (isOdd(affine[1]) ? 0x03 : 0x02);
+        System.arraycopy(toBytes(affine[0]), 0, encoded, 1, 32);
+        return encoded;
+    }
+}
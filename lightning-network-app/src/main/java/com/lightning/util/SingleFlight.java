@@ -0,0 +1,188 @@
+package com.lightning.util;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces concurrent identical calls so they share one execution and its result.
+ *
+ * The first caller for a key runs the call; callers arriving while it is in flight wait for
+ * the same result instead of issuing their own. Once the call completes the key is released,
+ * so later callers trigger a fresh call. Results are shared and must be treated as read-only.
+ *
+ * A key must always map to the same result type.
+ */
+public class SingleFlight {
+    private final ConcurrentHashMap<String, Flight<?>> flights = new ConcurrentHashMap<>();
+    private final LongAdder executions = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    
+    /**
+     * One in-flight call and the callers waiting on it
+     */
+    private static final class Flight<V> {
+        private final CompletableFuture<V> result = new CompletableFuture<>();
+        private final AtomicInteger waiters = new AtomicInteger();
+        private volatile Future<?> underlying;
+        
+        /**
+         * Create a caller-owned view of the shared result.
+         * Cancelling a view detaches that caller; the call itself is only cancelled
+         * once every waiting caller has given up.
+         */
+        CompletableFuture<V> newView() {
+            waiters.incrementAndGet();
+            CompletableFuture<V> view = new CompletableFuture<>();
+            result.whenComplete((value, error) -> {
+                if (error != null) {
+                    view.completeExceptionally(error);
+                } else {
+                    view.complete(value);
+                }
+            });
+            view.whenComplete((value, error) -> {
+                if (view.isCancelled() && waiters.decrementAndGet() == 0) {
+                    Future<?> call = underlying;
+                    if (call != null) {
+                        call.cancel(true);
+                    }
+                }
+            });
+            return view;
+        }
+    }
+    
+    /**
+     * Run a blocking call, or wait for an identical call already in flight
+     * @param key Identifies calls that may share a result
+     * @param call The call to run if none is in flight
+     * @return The shared result
+     */
+    @SuppressWarnings("unchecked")
+    public <V> V execute(String key, Callable<V> call) throws IOException {
+        Flight<V> flight = new Flight<>();
+        Flight<V> existing = (Flight<V>) flights.putIfAbsent(key, flight);
+        if (existing != null) {
+            coalesced.increment();
+            existing.waiters.incrementAndGet();
+            return await(existing.result);
+        }
+        
+        executions.increment();
+        flight.waiters.incrementAndGet();
+        try {
+            V value = call.call();
+            flights.remove(key, flight);
+            flight.result.complete(value);
+            return value;
+        } catch (Exception e) {
+            flights.remove(key, flight);
+            flight.result.completeExceptionally(e);
+            throw asIOException(e);
+        } catch (Error e) {
+            flights.remove(key, flight);
+            flight.result.completeExceptionally(e);
+            throw e;
+        }
+    }
+    
+    /**
+     * Start an asynchronous call, or join an identical call already in flight
+     * @param key Identifies calls that may share a result
+     * @param call Starts the call if none is in flight
+     * @return A future for this caller; cancelling it does not affect other callers
+     */
+    @SuppressWarnings("unchecked")
+    public <V> CompletableFuture<V> executeAsync(String key, Supplier<CompletableFuture<V>> call) {
+        Flight<V> flight = new Flight<>();
+        Flight<V> existing = (Flight<V>) flights.putIfAbsent(key, flight);
+        if (existing != null) {
+            coalesced.increment();
+            return existing.newView();
+        }
+        
+        executions.increment();
+        CompletableFuture<V> view = flight.newView();
+        
+        CompletableFuture<V> source;
+        try {
+            source = call.get();
+        } catch (RuntimeException e) {
+            source = CompletableFuture.failedFuture(e);
+        }
+        flight.underlying = source;
+        
+        source.whenComplete((value, error) -> {
+            // Release the key first so callbacks that re-request start a fresh call
+            flights.remove(key, flight);
+            if (error != null) {
+                flight.result.completeExceptionally(error);
+            } else {
+                flight.result.complete(value);
+            }
+        });
+        return view;
+    }
+    
+    /**
+     * Number of calls actually executed
+     */
+    public long getExecutionCount() {
+        return executions.sum();
+    }
+    
+    /**
+     * Number of calls that joined an in-flight call instead of executing
+     */
+    public long getCoalescedCount() {
+        return coalesced.sum();
+    }
+    
+    /**
+     * Number of keys currently in flight
+     */
+    public int getInFlightCount() {
+        return flights.size();
+    }
+    
+    /**
+     * Block until a shared result is available
+     */
+    private static <V> V await(CompletableFuture<V> result) throws IOException {
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for shared call");
+        } catch (ExecutionException e) {
+            throw asIOException(e.getCause());
+        } catch (CancellationException e) {
+            throw new IOException("Shared call was cancelled", e);
+        }
+    }
+    
+    /**
+     * Rethrow unchecked exceptions as-is and wrap checked ones
+     */
+    private static IOException asIOException(Throwable error) {
+        if (error instanceof IOException) {
+            return (IOException) error;
+        }
+        if (error instanceof RuntimeException) {
+            throw (RuntimeException) error;
+        }
+        if (error instanceof Error) {
+            throw (Error) error;
+        }
+        return new IOException(error.getMessage(), error);
+    }
+}
@@ -0,0 +1,103 @@
+package com.lightning.util;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Token-bucket rate limiter.
+ *
+ * The bucket refills continuously at a fixed rate up to its capacity. Each call takes one
+ * token, so short bursts up to the capacity pass at once while the long-run rate stays at
+ * the refill rate. Refilling is computed lazily from the clock; there is no timer thread.
+ */
+public class TokenBucket {
+    private final LongSupplier clock;
+    private double ratePerNano;
+    private double capacity;
+    private double tokens;
+    private long lastRefill;
+    
+    /**
+     * Create a full bucket
+     * @param ratePerSecond Tokens added per second; zero or less means unlimited
+     * @param burst Maximum number of tokens held
+     */
+    public TokenBucket(double ratePerSecond, int burst) {
+        this(ratePerSecond, burst, System::nanoTime);
+    }
+    
+    /**
+     * Create a full bucket with an explicit nanosecond clock
+     */
+    TokenBucket(double ratePerSecond, int burst, LongSupplier clock) {
+        this.clock = clock;
+        this.lastRefill = clock.getAsLong();
+        setRate(ratePerSecond, burst);
+        this.tokens = capacity;
+    }
+    
+    /**
+     * Change the rate and capacity; tokens above the new capacity are dropped
+     */
+    public synchronized void setRate(double ratePerSecond, int burst) {
+        refill();
+        this.ratePerNano = ratePerSecond / 1e9;
+        this.capacity = Math.max(1, burst);
+        this.tokens = Math.min(tokens, capacity);
+    }
+    
+    /**
+     * Take a token if one is available
+     */
+    public synchronized boolean tryAcquire() {
+        if (isUnlimited()) {
+            return true;
+        }
+        refill();
+        if (tokens >= 1) {
+            tokens -= 1;
+            return true;
+        }
+        return false;
+    }
+    
+    /**
+     * Time until a token will be available, zero if one is available now
+     */
+    public synchronized long nanosUntilAvailable() {
+        if (isUnlimited()) {
+            return 0;
+        }
+        refill();
+        return tokens >= 1 ? 0 : (long) Math.ceil((1 - tokens) / ratePerNano);
+    }
+    
+    /**
+     * Tokens currently available
+     */
+    public synchronized double getTokens() {
+        refill();
+        return tokens;
+    }
+    
+    /**
+     * Configured refill rate in tokens per second; zero or less means unlimited
+     */
+    public synchronized double getRatePerSecond() {
+        return ratePerNano * 1e9;
+    }
+    
+    private boolean isUnlimited() {
+        return ratePerNano <= 0;
+    }
+    
+    /**
+     * Add the tokens accrued since the last refill
+     */
+    private void refill() {
+        long now = clock.getAsLong();
+        if (ratePerNano > 0) {
+            tokens = Math.min(capacity, tokens + (now - lastRefill) * ratePerNano);
+        }
+        lastRefill = now;
+    }
+}
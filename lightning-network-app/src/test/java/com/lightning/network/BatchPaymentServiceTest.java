@@ -0,0 +1,170 @@
+package com.lightning.network;
+
+import com.lightning.model.Payment;
+import com.lightning.model.PaymentUpdate;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BatchPaymentServiceTest {
+    
+    /**
+     * Gateway that decodes "dest:hash:amount" strings and tracks payments in flight.
+     * Amount 0 fails with no route, 1 times out with an unknown outcome and 2 is refused by the node.
+     */
+    private static class FakeGateway implements BatchPaymentService.PaymentGateway {
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final AtomicInteger maxInFlight = new AtomicInteger();
+        private final Map<String, AtomicInteger> perDestination = new ConcurrentHashMap<>();
+        private final AtomicInteger maxPerDestination = new AtomicInteger();
+        
+        @Override
+        public Payment decode(String paymentRequest) throws IOException {
+            String[] parts = paymentRequest.split(":");
+            if (parts.length != 3) {
+                throw new IOException("bad request");
+            }
+            Payment payment = new Payment();
+            payment.setDestination(parts[0]);
+            payment.setPaymentHash(parts[1]);
+            payment.setNumSatoshis(Long.parseLong(parts[2]));
+            return payment;
+        }
+        
+        @Override
+        public PaymentUpdate pay(String paymentRequest) throws IOException {
+            Payment decoded = decode(paymentRequest);
+            AtomicInteger destination = perDestination.computeIfAbsent(decoded.getDestination(), d -> new AtomicInteger());
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            maxPerDestination.accumulateAndGet(destination.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(5);
+                PaymentUpdate update = new PaymentUpdate();
+                update.setPaymentHash(decoded.getPaymentHash());
+                if (decoded.getNumSatoshis() == 0) {
+                    update.setStatus(PaymentUpdate.STATUS_FAILED);
+                    update.setFailureReason("FAILURE_REASON_NO_ROUTE");
+                    return update;
+                }
+                if (decoded.getNumSatoshis() == 1) {
+                    throw new IOException("deadline exceeded");
+                }
+                if (decoded.getNumSatoshis() == 2) {
+                    throw new IOException("refused: invoice expired");
+                }
+                update.setStatus(PaymentUpdate.STATUS_SUCCEEDED);
+                update.setValueMsat(decoded.getNumSatoshis() * 1000);
+                update.setFeeMsat(decoded.getNumSatoshis() * 10);
+                return update;
+            } catch (InterruptedException e) {
+                throw new IOException(e);
+            } finally {
+                destination.decrementAndGet();
+                inFlight.decrementAndGet();
+            }
+        }
+        
+        @Override
+        public boolean isRefused(IOException error) {
+            return error.getMessage().startsWith("refused");
+        }
+    }
+    
+    @Test
+    public void testRespectsConcurrencyLimits() throws Exception {
+        FakeGateway gateway = new FakeGateway();
+        List<String> recorded = Collections.synchronizedList(new ArrayList<>());
+        BatchPaymentService batch = new BatchPaymentService(gateway,
+                (payment, status) -> recorded.add(payment.getPaymentHash() + " " + status));
+        batch.setMaxConcurrency(6);
+        batch.setMaxPerDestination(2);
+        
+        // One busy destination and a few small ones
+        List<String> requests = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            requests.add("big:h" + i + ":1000");
+        }
+        for (int i = 0; i < 12; i++) {
+            requests.add("small" + (i % 4) + ":s" + i + ":200");
+        }
+        
+        AtomicInteger notified = new AtomicInteger();
+        BatchPaymentService.Report report = batch.payAll(requests, (result, completed, total) -> {
+            notified.incrementAndGet();
+            assertEquals(requests.size(), total);
+        });
+        
+        assertEquals(52, report.getSucceeded());
+        assertEquals(52, notified.get());
+        assertEquals(52, recorded.size());
+        assertTrue(gateway.maxInFlight.get() <= 6);
+        assertTrue(gateway.maxPerDestination.get() <= 2);
+        assertEquals(40 * 1000 + 12 * 200, report.getTotalSentSat());
+        assertEquals(40 * 10 + 12 * 2, report.getTotalFeeSat());
+        assertEquals(10, report.getMaxFeeSat());
+        assertEquals(10_000, report.getFeeRatePpm(), 1e-6);
+        assertTrue(report.getThroughput() > 0);
+        
+        // Results keep submission order
+        assertEquals(requests.get(45), report.getResults().get(45).getPaymentRequest());
+    }
+    
+    @Test
+    public void testFailuresAndDuplicatesAreReported() throws Exception {
+        List<String> recorded = Collections.synchronizedList(new ArrayList<>());
+        BatchPaymentService batch = new BatchPaymentService(new FakeGateway(),
+                (payment, status) -> recorded.add(payment.getPaymentHash() + " " + status));
+        
+        BatchPaymentService.Report report = batch.payAll(List.of(
+                "a:h1:100", "a:h1:100", "garbage", "b:h2:0", "b:h3:50", "c:h4:2"), null);
+        
+        assertEquals(2, report.getSucceeded());
+        assertEquals(3, report.getFailed());
+        assertEquals(1, report.getSkipped());
+        assertEquals(BatchPaymentService.Status.SKIPPED, report.getResults().get(1).getStatus());
+        assertEquals(BatchPaymentService.Status.FAILED, report.getResults().get(2).getStatus());
+        assertNull(report.getResults().get(2).getPayment());
+        assertEquals("Payment failed: FAILURE_REASON_NO_ROUTE", report.getResults().get(3).getError());
+        assertEquals(BatchPaymentService.Status.FAILED, report.getResults().get(5).getStatus());
+        
+        // Payment failures are stored; undecodable requests and duplicates are not
+        assertEquals(4, recorded.size());
+        assertTrue(recorded.contains("h2 Failed"));
+        assertTrue(recorded.contains("h3 Completed"));
+        assertTrue(recorded.contains("h4 Failed"));
+    }
+    
+    @Test
+    public void testUnknownOutcomeIsNotReportedAsFailed() throws Exception {
+        List<String> recorded = Collections.synchronizedList(new ArrayList<>());
+        BatchPaymentService batch = new BatchPaymentService(new FakeGateway(),
+                (payment, status) -> recorded.add(payment.getPaymentHash() + " " + status));
+        
+        BatchPaymentService.Report report = batch.payAll(List.of("a:h1:1", "b:h2:100"), null);
+        
+        // The timed-out payment may still settle, so it must not look safe to pay again
+        assertEquals(BatchPaymentService.Status.UNKNOWN, report.getResults().get(0).getStatus());
+        assertEquals("deadline exceeded", report.getResults().get(0).getError());
+        assertEquals(0, report.getFailed());
+        assertEquals(1, report.getUnknown());
+        assertEquals(0, report.getSkipped());
+        assertEquals(List.of("h1 In Flight", "h2 Completed"), recorded.stream().sorted().collect(Collectors.toList()));
+    }
+    
+    @Test
+    public void testEmptyBatch() throws Exception {
+        BatchPaymentService.Report report = new BatchPaymentService(new FakeGateway(), (payment, status) -> { })
+                .payAll(new ArrayList<>(), null);
+        assertEquals(0, report.getSucceeded());
+        assertTrue(report.getResults().isEmpty());
+    }
+}
@@ -0,0 +1,147 @@
+package com.lightning.network;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BulkheadTest {
+    private final Bulkhead bulkhead = new Bulkhead();
+    
+    @Test
+    public void testConcurrencyIsLimitedPerClass() throws Exception {
+        bulkhead.configure(RequestClass.BACKGROUND, 2, 0, 1);
+        Bulkhead.Permit first = bulkhead.acquire(RequestClass.BACKGROUND);
+        Bulkhead.Permit second = bulkhead.acquire(RequestClass.BACKGROUND);
+        
+        CompletableFuture<Bulkhead.Permit> third = bulkhead.acquireAsync(RequestClass.BACKGROUND);
+        assertFalse(third.isDone());
+        assertEquals(1, bulkhead.getStats(RequestClass.BACKGROUND).getQueued());
+        
+        first.close();
+        assertTrue(third.isDone());
+        assertEquals(2, bulkhead.getStats(RequestClass.BACKGROUND).getInUse());
+        
+        // Closing twice frees only one slot
+        first.close();
+        assertEquals(2, bulkhead.getStats(RequestClass.BACKGROUND).getInUse());
+        second.close();
+        third.get().close();
+        assertEquals(0, bulkhead.getStats(RequestClass.BACKGROUND).getInUse());
+        assertEquals(3, bulkhead.getStats(RequestClass.BACKGROUND).getAdmitted());
+    }
+    
+    @Test
+    public void testWaitersAreServedInOrder() throws Exception {
+        bulkhead.configure(RequestClass.BULK, 1, 0, 1);
+        Bulkhead.Permit held = bulkhead.acquire(RequestClass.BULK);
+        
+        List<Integer> order = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            int caller = i;
+            bulkhead.acquireAsync(RequestClass.BULK).thenAccept(permit -> {
+                order.add(caller);
+                permit.close();
+            });
+        }
+        held.close();
+        
+        assertEquals(List.of(0, 1, 2, 3, 4), order);
+    }
+    
+    @Test
+    public void testSaturatedBackgroundDoesNotDelayInteractive() throws Exception {
+        bulkhead.configure(RequestClass.BACKGROUND, 1, 0, 1);
+        Bulkhead.Permit background = bulkhead.acquire(RequestClass.BACKGROUND);
+        CompletableFuture<Bulkhead.Permit> queued = bulkhead.acquireAsync(RequestClass.BACKGROUND);
+        
+        CompletableFuture<Bulkhead.Permit> interactive = bulkhead.acquireAsync(RequestClass.INTERACTIVE);
+        assertTrue(interactive.isDone());
+        assertFalse(queued.isDone());
+        
+        interactive.get().close();
+        background.close();
+        queued.get().close();
+    }
+    
+    @Test
+    public void testWaitTimesOutAndGivesUpPlace() throws Exception {
+        bulkhead.configure(RequestClass.BULK, 1, 0, 1);
+        Bulkhead.Permit held = bulkhead.acquire(RequestClass.BULK);
+        
+        BulkheadFullException e = assertThrows(BulkheadFullException.class,
+                () -> bulkhead.acquire(RequestClass.BULK, Duration.ofMillis(20)));
+        assertEquals(RequestClass.BULK, e.getRequestClass());
+        assertEquals(0, bulkhead.getStats(RequestClass.BULK).getQueued());
+        assertEquals(1, bulkhead.getStats(RequestClass.BULK).getRejected());
+        
+        held.close();
+        assertEquals(0, bulkhead.getStats(RequestClass.BULK).getInUse());
+    }
+    
+    @Test
+    public void testCancelledWaiterDoesNotTakeSlot() throws Exception {
+        bulkhead.configure(RequestClass.BULK, 1, 0, 1);
+        Bulkhead.Permit held = bulkhead.acquire(RequestClass.BULK);
+        CompletableFuture<Bulkhead.Permit> cancelled = bulkhead.acquireAsync(RequestClass.BULK);
+        CompletableFuture<Bulkhead.Permit> next = bulkhead.acquireAsync(RequestClass.BULK);
+        
+        cancelled.cancel(false);
+        held.close();
+        
+        assertTrue(next.isDone());
+        assertEquals(1, bulkhead.getStats(RequestClass.BULK).getInUse());
+        next.get().close();
+    }
+    
+    @Test
+    public void testFullQueueRejectsImmediately() throws Exception {
+        bulkhead.configure(RequestClass.BULK, 1, 0, 1);
+        Bulkhead.Permit held = bulkhead.acquire(RequestClass.BULK);
+        List<CompletableFuture<Bulkhead.Permit>> waiters = new ArrayList<>();
+        CompletableFuture<Bulkhead.Permit> rejected;
+        do {
+            rejected = bulkhead.acquireAsync(RequestClass.BULK);
+            waiters.add(rejected);
+        } while (!rejected.isDone());
+        
+        ExecutionException e = assertThrows(ExecutionException.class, rejected::get);
+        assertTrue(e.getCause() instanceof BulkheadFullException);
+        assertEquals(1, bulkhead.getStats(RequestClass.BULK).getRejected());
+        
+        waiters.forEach(waiter -> waiter.cancel(false));
+        held.close();
+    }
+    
+    @Test
+    public void testRateLimitSpacesOutCalls() throws Exception {
+        // One call may start immediately, then one every 50 ms
+        bulkhead.configure(RequestClass.BACKGROUND, 10, 20, 1);
+        long start = System.nanoTime();
+        for (int i = 0; i < 4; i++) {
+            bulkhead.acquire(RequestClass.BACKGROUND).close();
+        }
+        long elapsed = System.nanoTime() - start;
+        
+        assertTrue(elapsed >= TimeUnit.MILLISECONDS.toNanos(140), "elapsed " + elapsed);
+        assertEquals(3, bulkhead.getStats(RequestClass.BACKGROUND).getDelayed());
+    }
+    
+    @Test
+    public void testUntaggedRequestsAreClassifiedByMethod() {
+        okhttp3.Request get = new okhttp3.Request.Builder().url("http://localhost/v1/getinfo").build();
+        okhttp3.Request post = new okhttp3.Request.Builder().url("http://localhost/v1/invoices")
+                .post(okhttp3.RequestBody.create(new byte[0])).build();
+        okhttp3.Request tagged = RequestClass.BULK.tag(get.newBuilder()).build();
+        
+        assertEquals(RequestClass.BACKGROUND, RequestClass.of(get));
+        assertEquals(RequestClass.INTERACTIVE, RequestClass.of(post));
+        assertEquals(RequestClass.BULK, RequestClass.of(tagged));
+    }
+}
@@ -0,0 +1,157 @@
+package com.lightning.network;
+
+import com.google.gson.stream.JsonReader;
+import com.lightning.db.DatabaseManager;
+import com.lightning.model.Channel;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+
+import static com.lightning.network.MockLndServer.waitFor;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs the channel table against a {@link MockLndServer}
+ */
+@ExtendWith(ScratchHome.class)
+public class ChannelManagerTest {
+    private static final String PEER_A = "02" + "aa".repeat(32);
+    private static final String PEER_B = "03" + "bb".repeat(32);
+    
+    private MockLndServer server;
+    private LightningNetworkService service;
+    private ChannelManager channels;
+    
+    @BeforeEach
+    public void setUp() throws IOException {
+        server = new MockLndServer().start();
+        service = new LightningNetworkService(server.toConfig());
+        channels = service.getChannelManager();
+    }
+    
+    @AfterEach
+    public void tearDown() {
+        service.shutdown();
+        server.close();
+    }
+    
+    @Test
+    public void testRefreshIndexesChannels() throws Exception {
+        Channel first = server.openChannel(PEER_A, 1_000_000, 600_000);
+        Channel second = server.openChannel(PEER_A, 500_000, 100_000);
+        Channel third = server.openChannel(PEER_B, 2_000_000, 0);
+        Channel pending = server.addPendingChannel(PEER_B, 250_000);
+        server.setChannelFees(second.getChannelPoint(), 0, 250);
+        
+        channels.refresh();
+        
+        assertEquals(4, channels.size());
+        assertEquals(first.getChannelPoint(), channels.getChannel(first.getChanId()).getChannelPoint());
+        assertEquals(third.getChanId(), channels.getChannelByPoint(third.getChannelPoint()).getChanId());
+        assertEquals(2, channels.getChannelsByPeer(PEER_A).size());
+        assertEquals(2, channels.getChannelsByPeer(PEER_B).size());
+        assertTrue(channels.getChannelsByPeer("02" + "cc".repeat(32)).isEmpty());
+        
+        Channel fees = channels.getChannel(second.getChanId());
+        assertEquals(0, fees.getFeeBaseMsat());
+        assertEquals(250, fees.getFeeRatePpm());
+        Channel waiting = channels.getChannelByPoint(pending.getChannelPoint());
+        assertEquals(Channel.STATUS_PENDING_OPEN, waiting.getStatus());
+        assertFalse(waiting.isUsable());
+        assertEquals(700_000, channels.getUsableLocalBalance());
+    }
+    
+    @Test
+    public void testEventsUpdateTableWithoutListing() throws Exception {
+        Channel first = server.openChannel(PEER_A, 1_000_000, 400_000);
+        channels.start();
+        waitFor(channels::isConnected);
+        assertEquals(1, channels.size());
+        
+        Channel second = server.openChannel(PEER_B, 300_000, 300_000);
+        waitFor(() -> channels.getChannel(second.getChanId()) != null);
+        assertEquals(PEER_B, channels.getChannel(second.getChanId()).getRemotePubkey());
+        
+        server.setChannelActive(first.getChannelPoint(), false);
+        waitFor(() -> !channels.getChannelByPoint(first.getChannelPoint()).isActive());
+        assertEquals(300_000, channels.getUsableLocalBalance());
+        
+        server.closeChannel(second.getChannelPoint());
+        waitFor(() -> channels.getChannelByPoint(second.getChannelPoint()) == null);
+        assertNull(channels.getChannel(second.getChanId()));
+        assertTrue(channels.getChannelsByPeer(PEER_B).isEmpty());
+        
+        Channel pending = server.addPendingChannel(PEER_B, 100_000);
+        waitFor(() -> channels.getChannelByPoint(pending.getChannelPoint()) != null);
+        assertEquals(Channel.STATUS_PENDING_OPEN, channels.getChannelByPoint(pending.getChannelPoint()).getStatus());
+        
+        // Only the listing made when the stream opened
+        assertEquals(1, server.getRequestCount(MockLndServer.LIST_CHANNELS));
+    }
+    
+    @Test
+    public void testEventDuringListingIsNotReverted() throws Exception {
+        Channel first = server.openChannel(PEER_A, 1_000_000, 400_000);
+        channels.start();
+        waitFor(channels::isConnected);
+        
+        // The listing is taken, then the fee report stalls while the channel closes
+        server.setLatency(MockLndServer.FEE_REPORT, MockLndServer.Latency.fixed(Duration.ofMillis(500)));
+        CompletableFuture<Void> refresh = CompletableFuture.runAsync(() -> {
+            try {
+                channels.refresh();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        waitFor(() -> server.getRequestCount(MockLndServer.PENDING_CHANNELS) == 2);
+        server.closeChannel(first.getChannelPoint());
+        waitFor(() -> channels.getChannelByPoint(first.getChannelPoint()) == null);
+        refresh.get();
+        
+        assertNull(channels.getChannelByPoint(first.getChannelPoint()));
+        assertTrue(DatabaseManager.getInstance().getChannels().isEmpty());
+    }
+    
+    @Test
+    public void testSnapshotRestoresTable() throws Exception {
+        Channel open = server.openChannel(PEER_A, 1_000_000, 250_000);
+        server.addPendingChannel(PEER_B, 500_000);
+        server.setChannelFees(open.getChannelPoint(), 500, 10);
+        channels.refresh();
+        
+        ChannelManager restored = new ChannelManager(null, DatabaseManager.getInstance());
+        restored.loadSnapshot();
+        
+        assertEquals(2, restored.size());
+        Channel stored = restored.getChannel(open.getChanId());
+        assertEquals(open.getChannelPoint(), stored.getChannelPoint());
+        assertEquals(PEER_A, stored.getRemotePubkey());
+        assertEquals(250_000, stored.getLocalBalance());
+        assertEquals(500, stored.getFeeBaseMsat());
+        assertEquals(10, stored.getFeeRatePpm());
+        assertEquals(1, restored.getChannelsByPeer(PEER_B).size());
+    }
+    
+    @Test
+    public void testReadsOutpointInDisplayOrder() throws IOException {
+        // Txid bytes 01 02 .. 20 in internal order display as 20 1f .. 01
+        JsonReader reader = new JsonReader(new StringReader(
+                "{\"funding_txid_bytes\":\"AQIDBAUGBwgJCgsMDQ4PEBESExQVFhcYGRobHB0eHyA=\",\"output_index\":3}"));
+        StringBuilder expected = new StringBuilder();
+        for (int i = 32; i >= 1; i--) {
+            expected.append(String.format("%02x", i));
+        }
+        assertEquals(expected + ":3", ChannelManager.readOutpoint(reader));
+        
+        reader = new JsonReader(new StringReader("{\"funding_txid_str\":\"abcd\",\"output_index\":1}"));
+        assertEquals("abcd:1", ChannelManager.readOutpoint(reader));
+    }
+}
@@ -0,0 +1,122 @@
+package com.lightning.network;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CircuitBreakerTest {
+    private static final long SECOND = 1_000_000_000L;
+    
+    private final AtomicLong now = new AtomicLong();
+    private final CircuitBreaker breaker = new CircuitBreaker(2, Duration.ofSeconds(5), Duration.ofSeconds(20), now::get);
+    
+    @Test
+    public void testOpensAfterConsecutiveFailures() {
+        assertTrue(breaker.tryAcquire());
+        breaker.onFailure();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        
+        assertTrue(breaker.tryAcquire());
+        breaker.onFailure();
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        
+        // Calls fail fast while open
+        assertFalse(breaker.tryAcquire());
+        assertEquals(1, breaker.getRejectedCount());
+        assertEquals(Duration.ofSeconds(5), breaker.getRetryAfter());
+    }
+    
+    @Test
+    public void testHalfOpenAdmitsSingleProbe() {
+        trip();
+        now.addAndGet(5 * SECOND);
+        
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertTrue(breaker.tryAcquire());
+        assertFalse(breaker.tryAcquire());
+        
+        breaker.onSuccess(1_000_000);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertTrue(breaker.tryAcquire());
+    }
+    
+    @Test
+    public void testFailedProbeDoublesOpenPeriod() {
+        trip();
+        now.addAndGet(5 * SECOND);
+        assertTrue(breaker.tryAcquire());
+        breaker.onFailure();
+        
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertEquals(Duration.ofSeconds(10), breaker.getRetryAfter());
+        
+        // Capped at the maximum open period
+        for (int i = 0; i < 3; i++) {
+            now.addAndGet(breaker.getRetryAfter().toNanos());
+            assertTrue(breaker.tryAcquire());
+            breaker.onFailure();
+        }
+        assertEquals(Duration.ofSeconds(20), breaker.getRetryAfter());
+    }
+    
+    @Test
+    public void testAbandonedProbeReleasesSlot() {
+        trip();
+        now.addAndGet(5 * SECOND);
+        assertTrue(breaker.tryAcquire());
+        breaker.onAbandoned();
+        assertTrue(breaker.tryAcquire());
+    }
+    
+    @Test
+    public void testSuccessResetsFailureCount() {
+        breaker.tryAcquire();
+        breaker.onFailure();
+        breaker.tryAcquire();
+        breaker.onSuccess(1_000_000);
+        breaker.tryAcquire();
+        breaker.onFailure();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+    
+    @Test
+    public void testEndpointsRankedByHealthAndLatency() {
+        EndpointHealth health = new EndpointHealth();
+        List<String> urls = Arrays.asList(
+                "https://localhost:8080/v1", "http://localhost:8080/v1", "http://localhost:10009/v1");
+        health.configure(urls);
+        
+        // Untried endpoints keep configuration order
+        assertEquals(urls.get(0), health.candidates().get(0).getBaseUrl());
+        
+        CircuitBreaker primary = health.breakerFor("https://localhost:8080/v1/getinfo");
+        primary.onFailure();
+        primary.onFailure();
+        health.breakerFor("http://localhost:10009/v1/getinfo").onSuccess(5_000_000);
+        health.breakerFor("http://localhost:8080/v1/getinfo").onSuccess(1_000_000);
+        
+        List<EndpointHealth.Endpoint> candidates = health.candidates();
+        assertEquals(2, candidates.size());
+        assertEquals("http://localhost:8080/v1", candidates.get(0).getBaseUrl());
+        assertEquals("http://localhost:10009/v1", candidates.get(1).getBaseUrl());
+        
+        // Reconfiguring keeps breakers for endpoints that remain
+        health.configure(urls);
+        assertEquals(CircuitBreaker.State.OPEN, health.breakerFor("https://localhost:8080/v1").getState());
+    }
+    
+    /**
+     * Open the breaker
+     */
+    private void trip() {
+        breaker.tryAcquire();
+        breaker.onFailure();
+        breaker.tryAcquire();
+        breaker.onFailure();
+    }
+}
@@ -0,0 +1,145 @@
+package com.lightning.network;
+
+import com.google.gson.stream.JsonReader;
+import com.lightning.network.graph.ChannelGraph;
+import com.lightning.network.graph.FeeEstimate;
+import com.lightning.network.graph.GraphStore;
+import com.lightning.network.graph.RouteFinder;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.util.List;
+
+import static com.lightning.network.MockLndServer.waitFor;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Loads and follows the channel graph of a {@link MockLndServer}
+ */
+@ExtendWith(ScratchHome.class)
+public class GraphManagerTest {
+    private static final String SENDER = "02" + "00".repeat(32);
+    private static final String HUB = "02" + "11".repeat(32);
+    private static final String RELAY = "02" + "22".repeat(32);
+    private static final String SHOP = "03" + "33".repeat(32);
+    private static final long AMOUNT_MSAT = 10_000_000;
+    
+    private MockLndServer server;
+    private LightningNetworkService service;
+    private GraphManager graph;
+    
+    @BeforeEach
+    public void setUp() throws IOException {
+        Files.deleteIfExists(GraphStore.defaultPath());
+        server = new MockLndServer().start();
+        service = new LightningNetworkService(server.toConfig());
+        graph = service.getGraphManager();
+    }
+    
+    @AfterEach
+    public void tearDown() {
+        service.shutdown();
+        server.close();
+    }
+    
+    @Test
+    public void testUpdatesApplyWithoutReloading() throws Exception {
+        server.addGraphChannel(SENDER, HUB, 1_000_000, 0, 0);
+        long hubToShop = server.addGraphChannel(HUB, SHOP, 1_000_000, 1000, 100);
+        server.addGraphChannel(SENDER, RELAY, 1_000_000, 0, 0);
+        long relayToShop = server.addGraphChannel(RELAY, SHOP, 1_000_000, 2000, 500);
+        
+        graph.start();
+        waitFor(graph::isConnected);
+        assertTrue(graph.isLoaded());
+        assertEquals(4, graph.getGraph().getNodeCount());
+        assertEquals(4, graph.getGraph().getChannelCount());
+        
+        // The hub charges 1000 + 100 ppm of 10,000,000
+        FeeEstimate estimate = graph.estimateFee(SENDER, SHOP, AMOUNT_MSAT, null);
+        assertEquals(List.of(HUB, SHOP), estimate.getBestRoute().getHops());
+        assertEquals(2000, estimate.getMinFeeMsat());
+        assertEquals(7000, estimate.getMaxFeeMsat());
+        
+        server.setGraphPolicy(hubToShop, HUB, 1000, 1000, false);
+        waitFor(() -> fee(SENDER, SHOP) == 7000);
+        
+        server.setGraphPolicy(hubToShop, HUB, 0, 0, true);
+        server.closeGraphChannel(relayToShop);
+        waitFor(() -> fee(SENDER, SHOP) < 0);
+        
+        String cafe = "03" + "44".repeat(32);
+        server.addGraphChannel(HUB, cafe, 1_000_000, 0, 1);
+        waitFor(() -> fee(SENDER, cafe) == 10);
+        
+        // Only the load made when the stream opened
+        assertEquals(1, server.getRequestCount(MockLndServer.DESCRIBE_GRAPH));
+    }
+    
+    @Test
+    public void testRestartUsesSavedGraph() throws Exception {
+        server.addGraphChannel(SENDER, HUB, 1_000_000, 0, 0);
+        long hubToShop = server.addGraphChannel(HUB, SHOP, 1_000_000, 1000, 100);
+        graph.start();
+        waitFor(graph::isConnected);
+        server.setGraphPolicy(hubToShop, HUB, 1000, 1000, false);
+        waitFor(() -> fee(SENDER, SHOP) == 11_000);
+        service.shutdown();
+        
+        // The next run starts from the saved graph with its journal, without downloading it again
+        service = new LightningNetworkService(server.toConfig());
+        graph = service.getGraphManager();
+        assertTrue(graph.restore());
+        assertTrue(graph.isLoaded());
+        assertEquals(11_000, fee(SENDER, SHOP));
+        
+        graph.start();
+        waitFor(graph::isConnected);
+        assertEquals(1, server.getRequestCount(MockLndServer.DESCRIBE_GRAPH));
+    }
+    
+    @Test
+    public void testReadsDescribeGraph() throws IOException {
+        ChannelGraph parsed = new ChannelGraph(4, 4);
+        GraphManager.readGraph(new JsonReader(new StringReader("{\"nodes\":["
+                + "{\"pub_key\":\"02aa\",\"alias\":\"alice\",\"addresses\":[],\"features\":{}},"
+                + "{\"pub_key\":\"03bb\",\"alias\":\"\"}],"
+                + "\"edges\":[{\"channel_id\":\"17293822569102704640\",\"chan_point\":\"ab:0\",\"last_update\":0,"
+                + "\"node1_pub\":\"02aa\",\"node2_pub\":\"03bb\",\"capacity\":\"500000\","
+                + "\"node1_policy\":{\"time_lock_delta\":40,\"min_htlc\":\"1000\",\"fee_base_msat\":\"1000\","
+                + "\"fee_rate_milli_msat\":\"1\",\"disabled\":false,\"max_htlc_msat\":\"495000000\"},"
+                + "\"node2_policy\":null}]}")), parsed);
+        
+        assertEquals(2, parsed.getNodeCount());
+        assertEquals("alice", parsed.getAlias(parsed.getNodeId("02aa")));
+        assertNull(parsed.getAlias(parsed.getNodeId("03bb")));
+        assertTrue(parsed.hasChannel(Long.parseUnsignedLong("17293822569102704640")));
+        
+        // Only node1 announced a policy, so the channel can be used in one direction
+        RouteFinder finder = new RouteFinder(parsed);
+        assertNotNull(finder.findRoute("02aa", "03bb", 1_000_000));
+        assertNull(finder.findRoute("03bb", "02aa", 1_000_000));
+        assertNull(finder.findRoute("02aa", "03bb", 500_000_000));
+    }
+    
+    @Test
+    public void testStreamErrorIsReported() {
+        JsonReader reader = new JsonReader(new StringReader("{\"error\":{\"code\":2,\"message\":\"shutting down\"}}"));
+        IOException error = assertThrows(IOException.class,
+                () -> GraphManager.readUpdate(reader, new ChannelGraph(4, 4)));
+        assertTrue(error.getMessage().contains("shutting down"));
+    }
+    
+    /**
+     * Cheapest fee from the manager's current graph, or -1 if there is no route
+     */
+    private long fee(String source, String destination) {
+        FeeEstimate estimate = graph.estimateFee(source, destination, AMOUNT_MSAT, null);
+        return estimate.isRoutable() ? estimate.getMinFeeMsat() : -1;
+    }
+}
@@ -0,0 +1,124 @@
+package com.lightning.network;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Compares the REST and gRPC backends on the same workloads against a running node.
+ * Run with: mvn test-compile exec:java -Dexec.classpathScope=test
+ *           -Dexec.mainClass=com.lightning.network.GrpcVsRestBenchmark -Dexec.args="200 16"
+ *
+ * Arguments: iterations per workload (default 200), concurrent callers (default 16)
+ */
+public class GrpcVsRestBenchmark {
+    
+    /**
+     * A single node call
+     */
+    private interface Workload {
+        void run(LightningNetworkService service, NodeBackend backend) throws Exception;
+    }
+    
+    public static void main(String[] args) throws Exception {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        int concurrency = args.length > 1 ? Integer.parseInt(args[1]) : 16;
+        
+        LightningNetworkService service = new LightningNetworkService();
+        
+        String[] names = {"GetInfo", "WalletBalance", "ListInvoices(100)"};
+        Workload[] workloads = {
+            (s, b) -> s.getInfo(b),
+            (s, b) -> s.getWalletBalance(b),
+            (s, b) -> s.listInvoicesPage(0, 100, true, b)
+        };
+        
+        System.out.printf("%-20s %-5s %-10s %10s %10s %10s %12s%n",
+                "workload", "api", "mode", "p50 ms", "p95 ms", "p99 ms", "calls/s");
+        
+        try {
+            for (int w = 0; w < workloads.length; w++) {
+                for (NodeBackend backend : NodeBackend.values()) {
+                    // Warm up connections, TLS sessions and the JIT before measuring
+                    runSequential(service, backend, workloads[w], Math.min(20, iterations));
+                    
+                    report(names[w], backend, "serial", runSequential(service, backend, workloads[w], iterations));
+                    report(names[w], backend, "parallel",
+                            runConcurrent(service, backend, workloads[w], iterations, concurrency));
+                }
+            }
+        } finally {
+            service.shutdown();
+        }
+    }
+    
+    /**
+     * Run the workload back to back, returning per-call latencies and total elapsed time
+     */
+    private static long[] runSequential(LightningNetworkService service, NodeBackend backend,
+                                        Workload workload, int iterations) throws Exception {
+        long[] samples = new long[iterations + 1];
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            long callStart = System.nanoTime();
+            workload.run(service, backend);
+            samples[i] = System.nanoTime() - callStart;
+        }
+        samples[iterations] = System.nanoTime() - start;
+        return samples;
+    }
+    
+    /**
+     * Run the workload from several threads at once to exercise connection reuse and multiplexing
+     */
+    private static long[] runConcurrent(LightningNetworkService service, NodeBackend backend,
+                                        Workload workload, int iterations, int concurrency) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(concurrency);
+        try {
+            List<Future<Long>> futures = new ArrayList<>();
+            long start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                futures.add(executor.submit(() -> {
+                    long callStart = System.nanoTime();
+                    workload.run(service, backend);
+                    return System.nanoTime() - callStart;
+                }));
+            }
+            
+            long[] samples = new long[iterations + 1];
+            for (int i = 0; i < iterations; i++) {
+                samples[i] = futures.get(i).get();
+            }
+            samples[iterations] = System.nanoTime() - start;
+            return samples;
+        } finally {
+            executor.shutdown();
+        }
+    }
+    
+    /**
+     * Print percentiles and throughput; the last sample holds the total elapsed time
+     */
+    private static void report(String workload, NodeBackend backend, String mode, long[] samples) {
+        int count = samples.length - 1;
+        long elapsed = samples[count];
+        long[] latencies = Arrays.copyOf(samples, count);
+        Arrays.sort(latencies);
+        
+        System.out.printf("%-20s %-5s %-10s %10.2f %10.2f %10.2f %12.1f%n",
+                workload, backend, mode,
+                percentile(latencies, 0.50), percentile(latencies, 0.95), percentile(latencies, 0.99),
+                count / (elapsed / 1e9));
+    }
+    
+    /**
+     * Percentile of sorted nanosecond samples, in milliseconds
+     */
+    private static double percentile(long[] sorted, double fraction) {
+        int index = (int) Math.ceil(fraction * sorted.length) - 1;
+        return sorted[Math.max(0, index)] / 1e6;
+    }
+}
@@ -0,0 +1,226 @@
+package com.lightning.network;
+
+import com.lightning.model.Invoice;
+import com.lightning.model.InvoicePage;
+import com.lightning.model.LightningInfo;
+import com.lightning.model.Payment;
+import com.lightning.model.WalletBalance;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static com.lightning.network.MockLndServer.waitFor;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs the service against {@link MockLndServer} instead of a regtest node
+ */
+@ExtendWith(ScratchHome.class)
+public class LightningNetworkServiceTest {
+    // BOLT11 specification example without an amount
+    private static final String PAYMENT_REQUEST = "lnbc1pvjluezsp5zyg3zyg3zyg3zyg3zyg3zyg3zyg3zyg3zyg3zyg3zyg3zyg3zygs"
+            + "pp5qqqsyqcyq5rqwzqfqqqsyqcyq5rqwzqfqqqsyqcyq5rqwzqfqypqdpl2pkx2ctnv5sxxmmwwd5kgetjypeh2ursdae8g6twvus8g"
+            + "6rfwvs8qun0dfjkxaq9qrsgq357wnc5r2ueh7ck6q93dj32dlqnls087fxdwk8qakdyafkq3yap9us6v52vjjsrvywa6rt52cm9r9zq"
+            + "t8r2t7mlcwspyetp5h2tztugp9lfyql";
+    
+    private MockLndServer server;
+    private LightningNetworkService service;
+    
+    @AfterEach
+    public void tearDown() {
+        if (service != null) {
+            service.shutdown();
+        }
+        server.close();
+    }
+    
+    /**
+     * Start a mock node with the given history and a service pointing at it
+     */
+    private void start(int invoices, String... settings) throws IOException {
+        server = new MockLndServer(invoices).start();
+        Properties config = server.toConfig();
+        for (int i = 0; i + 1 < settings.length; i += 2) {
+            config.setProperty(settings[i], settings[i + 1]);
+        }
+        service = new LightningNetworkService(config);
+    }
+    
+    /**
+     * Settle the first open invoice of the mock's synthetic history
+     */
+    private Invoice settleOldestOpenInvoice() {
+        Invoice settled = null;
+        for (long index = 1; settled == null; index++) {
+            settled = server.settleInvoice(index);
+        }
+        return settled;
+    }
+    
+    @Test
+    public void testReadsNodeInfoAndBalance() throws Exception {
+        start(0);
+        server.setWalletBalance(150_000, 2_000);
+        
+        assertTrue(service.testConnection());
+        LightningInfo info = service.getInfo(NodeBackend.REST);
+        assertEquals("mock-lnd", info.getAlias());
+        assertTrue(info.isSyncedToChain());
+        
+        WalletBalance balance = service.getWalletBalance(NodeBackend.REST);
+        assertEquals(152_000, balance.getTotalBalance());
+        assertEquals(150_000, balance.getConfirmedBalance());
+    }
+    
+    @Test
+    public void testReadsChannelBalance() throws Exception {
+        start(0);
+        server.setChannelBalance(840_000);
+        
+        assertEquals(840_000L, service.getChannelBalanceAsync().get());
+    }
+    
+    @Test
+    public void testWalksWholeInvoiceHistoryInPages() throws Exception {
+        start(2_500);
+        
+        List<Long> indexes = new ArrayList<>();
+        long last = service.forEachInvoice(0, 1_000, invoice -> indexes.add(invoice.getAddIndex()));
+        
+        assertEquals(2_500, indexes.size());
+        assertEquals(2_500, last);
+        assertEquals(1, indexes.get(0));
+        assertEquals(3, server.getRequestCount(MockLndServer.INVOICES));
+        
+        InvoicePage newest = service.listInvoicesPage(0, 10, true);
+        assertEquals(10, newest.getCount());
+        assertEquals(2_491, newest.getFirstIndexOffset());
+        assertEquals(2_500, newest.getLastIndexOffset());
+    }
+    
+    @Test
+    public void testCreatedInvoiceCanBeLookedUp() throws Exception {
+        start(5);
+        
+        Invoice created = service.createInvoice(21_000, "coffee");
+        assertEquals(6, created.getAddIndex());
+        
+        Invoice found = service.lookupInvoice(created.getRHash());
+        assertEquals("coffee", found.getMemo());
+        assertEquals(21_000, found.getAmountSats());
+        assertFalse(found.isSettled());
+    }
+    
+    @Test
+    public void testSubscriptionDeliversNewAndSettledInvoices() throws Exception {
+        start(20);
+        InvoiceSyncEngine sync = service.getInvoiceSync();
+        sync.reset();
+        sync.sync();
+        
+        List<Invoice> received = new CopyOnWriteArrayList<>();
+        sync.addListener(result -> received.addAll(result.getChanged()));
+        service.getInvoiceSubscription().start();
+        waitFor(() -> service.getInvoiceSubscription().isConnected());
+        
+        Invoice added = server.addInvoice(1_000, "tip");
+        server.settleInvoice(added.getAddIndex());
+        waitFor(() -> received.stream().anyMatch(invoice -> invoice.getAddIndex() == 21 && invoice.isSettled()));
+    }
+    
+    @Test
+    public void testSyncLooksUpOnlyUnexpiredOpenInvoices() throws Exception {
+        start(20);
+        InvoiceSyncEngine sync = service.getInvoiceSync();
+        sync.reset();
+        sync.sync();
+        Invoice fresh = server.addInvoice(1_000, "tip");
+        sync.sync();
+        
+        // Without a subscription, settlements are only found by looking up open invoices
+        Invoice expired = settleOldestOpenInvoice();
+        server.settleInvoice(fresh.getAddIndex());
+        List<Invoice> changed = sync.sync().getChanged();
+        
+        assertTrue(changed.stream().anyMatch(invoice -> invoice.getRHash().equals(fresh.getRHash()) && invoice.isSettled()));
+        assertTrue(changed.stream().noneMatch(invoice -> invoice.getRHash().equals(expired.getRHash())));
+    }
+    
+    @Test
+    public void testPaysThroughRouter() throws Exception {
+        start(0);
+        
+        Payment payment = service.payInvoice(PAYMENT_REQUEST);
+        
+        assertNotNull(payment.getPaymentPreimage());
+        assertEquals(1, server.getRequestCount(MockLndServer.ROUTER_SEND));
+    }
+    
+    @Test
+    public void testInjectedErrorsAreRetriedThenSurface() throws Exception {
+        start(100, "retry.max_attempts", "3", "retry.initial_backoff_ms", "1", "retry.max_backoff_ms", "5");
+        server.setErrorRate(MockLndServer.INVOICES, 1.0);
+        
+        assertThrows(IOException.class, () -> service.listInvoicesPage(0, 10, false));
+        assertEquals(3, server.getRequestCount(MockLndServer.INVOICES));
+        assertEquals(3, server.getInjectedErrorCount(MockLndServer.INVOICES));
+        
+        server.setErrorRate(MockLndServer.INVOICES, 0);
+        assertEquals(10, service.listInvoicesPage(0, 10, false).getCount());
+    }
+    
+    @Test
+    public void testFailedFailoverLeavesOtherCallsOnTheNode() throws Exception {
+        start(20, "retry.max_attempts", "1");
+        server.setErrorRate(MockLndServer.GET_INFO, 1.0);
+        
+        // Every endpoint is tried, and none answers
+        assertThrows(IOException.class, () -> service.getInfo(NodeBackend.REST));
+        
+        // Calls that do not fail over still go to the configured node, not the last endpoint tried
+        assertEquals(10, service.listInvoicesPage(0, 10, false).getCount());
+        assertEquals(1, server.getRequestCount(MockLndServer.INVOICES));
+    }
+    
+    @Test
+    public void testTlsFailureDoesNotFailOverToPlainHttp() throws Exception {
+        // The mock only speaks plain HTTP, so the TLS handshake with the configured endpoint fails
+        start(0, "plaintext.http", "false", "retry.max_attempts", "1");
+        
+        assertThrows(IOException.class, () -> service.getInfo(NodeBackend.REST));
+        
+        // The macaroon never went out in cleartext to the same port
+        assertEquals(0, server.getRequestCount(MockLndServer.GET_INFO));
+        assertTrue(service.getEndpointHealth().getEndpoints().stream().allMatch(EndpointHealth.Endpoint::isHttps));
+    }
+    
+    @Test
+    public void testDiagnosticsProbeTheNodeNotTheCache() throws Exception {
+        start(0, "retry.max_attempts", "1");
+        assertEquals("mock-lnd", service.getInfo().getAlias());
+        server.setErrorRate(MockLndServer.GET_INFO, 1.0);
+        
+        String report = service.connectionDiagnostics();
+        
+        assertTrue(report.contains("API Test: FAILED"), report);
+    }
+    
+    @Test
+    public void testInjectedLatencyIsObserved() throws Exception {
+        start(0);
+        server.setLatency(MockLndServer.BALANCE, MockLndServer.Latency.fixed(Duration.ofMillis(80)));
+        
+        long start = System.nanoTime();
+        service.getWalletBalance(NodeBackend.REST);
+        
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(80));
+    }
+}
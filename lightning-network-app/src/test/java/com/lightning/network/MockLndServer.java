@@ -0,0 +1,1273 @@
+package com.lightning.network;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonWriter;
+import com.lightning.model.Channel;
+import com.lightning.model.Invoice;
+import com.lightning.network.json.ChannelTypeAdapter;
+import com.lightning.network.json.InvoiceTypeAdapter;
+import com.lightning.util.Bolt11Decoder;
+import com.lightning.util.Bolt11Invoice;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+/**
+ * In-process stand-in for LND's REST API, so the service can be tested and load-tested
+ * without the regtest stack from bitcoin-lightning-dev.
+ *
+ * Serves getinfo, the on-chain and channel balances, invoice listing/adding/lookup, the invoice
+ * subscription stream, payreq decoding, the legacy /channels/transactions payment call,
+ * the router's send/track streams, and channel listing, pending channels, the fee report
+ * the channel event stream, and describegraph and the graph topology stream from a
+ * synthetic data set of any size. Each route
+ * can be given a latency distribution and an error rate; injected errors are answered
+ * with 503 and a gateway error body, like LND's REST proxy when the node is unavailable.
+ *
+ * Only plain HTTP is served; point the service at it with {@link #toConfig()}.
+ */
+public class MockLndServer implements AutoCloseable {
+    public static final String GET_INFO = "/v1/getinfo";
+    public static final String BALANCE = "/v1/balance/blockchain";
+    public static final String CHANNEL_BALANCE = "/v1/balance/channels";
+    public static final String INVOICES = "/v1/invoices";
+    public static final String LOOKUP_INVOICE = "/v1/invoice/";
+    public static final String SUBSCRIBE_INVOICES = "/v1/invoices/subscribe";
+    public static final String DECODE_PAY_REQ = "/v1/payreq/";
+    public static final String SEND_PAYMENT_SYNC = "/v1/channels/transactions";
+    public static final String ROUTER_SEND = "/v2/router/send";
+    public static final String ROUTER_TRACK = "/v2/router/track/";
+    public static final String LIST_CHANNELS = "/v1/channels";
+    public static final String PENDING_CHANNELS = "/v1/channels/pending";
+    public static final String SUBSCRIBE_CHANNELS = "/v1/channels/subscribe";
+    public static final String FEE_REPORT = "/v1/fees";
+    public static final String DESCRIBE_GRAPH = "/v1/graph";
+    public static final String SUBSCRIBE_GRAPH = "/v1/graph/subscribe";
+    
+    private static final List<String> ROUTES = List.of(GET_INFO, BALANCE, CHANNEL_BALANCE, INVOICES, LOOKUP_INVOICE,
+            SUBSCRIBE_INVOICES, DECODE_PAY_REQ, SEND_PAYMENT_SYNC, ROUTER_SEND, ROUTER_TRACK, LIST_CHANNELS,
+            PENDING_CHANNELS, SUBSCRIBE_CHANNELS, FEE_REPORT, DESCRIBE_GRAPH, SUBSCRIBE_GRAPH);
+    
+    // Same as the REST gateway when num_max_invoices is not given
+    private static final int DEFAULT_PAGE_SIZE = 100;
+    private static final long FIRST_CREATION_DATE = 1_700_000_000L;
+    private static final String IDENTITY_PUBKEY = "02" + "6d".repeat(32);
+    private static final String BECH32_CHARSET = "qpzry9x8gf2tvdw0s3jn54khce6mua7l";
+    private static final InvoiceTypeAdapter INVOICE_ADAPTER = new InvoiceTypeAdapter();
+    private static final ChannelTypeAdapter CHANNEL_ADAPTER = new ChannelTypeAdapter();
+    
+    /**
+     * Delay added before a route answers
+     */
+    @FunctionalInterface
+    public interface Latency {
+        
+        /**
+         * Next delay in nanoseconds
+         */
+        long nextNanos(Random random);
+        
+        /**
+         * No added delay
+         */
+        static Latency none() {
+            return random -> 0;
+        }
+        
+        /**
+         * The same delay every time
+         */
+        static Latency fixed(Duration delay) {
+            long nanos = delay.toNanos();
+            return random -> nanos;
+        }
+        
+        /**
+         * Delays spread evenly between min and max
+         */
+        static Latency uniform(Duration min, Duration max) {
+            long low = min.toNanos();
+            long span = Math.max(1, max.toNanos() - low);
+            return random -> low + (long) (random.nextDouble() * span);
+        }
+        
+        /**
+         * Log-normal delays with the given median and 99th percentile, for a realistic long tail
+         */
+        static Latency logNormal(Duration median, Duration p99) {
+            double mu = Math.log(median.toNanos());
+            // 2.326 is the 99th percentile of the standard normal distribution
+            double sigma = Math.max(0, Math.log((double) p99.toNanos() / median.toNanos()) / 2.326);
+            return random -> (long) Math.exp(mu + sigma * random.nextGaussian());
+        }
+    }
+    
+    /**
+     * Latency, error rate and counters of one route
+     */
+    private static final class RouteBehaviour {
+        volatile Latency latency;
+        volatile double errorRate;
+        final AtomicLong requests = new AtomicLong();
+        final AtomicLong injectedErrors = new AtomicLong();
+    }
+    
+    private final HttpServer server;
+    private final ExecutorService threads;
+    private final Map<String, RouteBehaviour> routes = new HashMap<>();
+    
+    // Invoices by add_index - 1; entries are replaced, never mutated, so pages can be written outside the lock
+    private final List<Invoice> invoices = new ArrayList<>();
+    private final Map<String, Integer> invoicesByHash = new HashMap<>();
+    private final Random random;
+    private long settleIndex;
+    
+    private final Set<BlockingQueue<Invoice>> subscribers = ConcurrentHashMap.newKeySet();
+    private final Map<String, String> payments = new ConcurrentHashMap<>();
+    
+    // Channels by channel point; open and pending ones, each with its fee policy
+    private final Map<String, Channel> channels = new LinkedHashMap<>();
+    private final Set<BlockingQueue<String>> channelSubscribers = ConcurrentHashMap.newKeySet();
+    private long nextChanId = 800_000L << 40;
+    
+    // Public graph: ChannelEdge objects by short channel id, node aliases by public key
+    private final Map<Long, JsonObject> graphEdges = new LinkedHashMap<>();
+    private final Map<String, String> graphNodes = new LinkedHashMap<>();
+    private final Set<BlockingQueue<String>> graphSubscribers = ConcurrentHashMap.newKeySet();
+    private volatile long confirmedBalance = 5_000_000;
+    private volatile long unconfirmedBalance = 25_000;
+    private volatile long channelBalance = 2_000_000;
+    private volatile boolean running;
+    
+    /**
+     * Create a server with no invoices
+     */
+    public MockLndServer() throws IOException {
+        this(0);
+    }
+    
+    /**
+     * Create a server holding a synthetic invoice history; about two thirds of the invoices are settled
+     * @param invoiceCount Number of invoices to generate
+     */
+    public MockLndServer(int invoiceCount) throws IOException {
+        // Headers and body go out in separate writes; without TCP_NODELAY each response waits on a delayed ACK
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        random = new Random(42);
+        for (String route : ROUTES) {
+            RouteBehaviour behaviour = new RouteBehaviour();
+            behaviour.latency = Latency.none();
+            routes.put(route, behaviour);
+        }
+        for (int i = 0; i < invoiceCount; i++) {
+            Invoice invoice = newInvoice(1 + random.nextInt(500_000), "Order #" + (10_000 + i));
+            store(invoice);
+            if (random.nextInt(3) > 0) {
+                settle(invoice);
+            }
+        }
+        
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        threads = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "mock-lnd");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(threads);
+        context(GET_INFO, this::getInfo);
+        context(BALANCE, this::balance);
+        context(CHANNEL_BALANCE, this::channelBalance);
+        context(INVOICES, this::invoices);
+        context(LOOKUP_INVOICE, this::lookupInvoice);
+        context(SUBSCRIBE_INVOICES, this::subscribeInvoices);
+        context(DECODE_PAY_REQ, this::decodePayReq);
+        context(SEND_PAYMENT_SYNC, this::sendPaymentSync);
+        context(ROUTER_SEND, this::routerSend);
+        context(ROUTER_TRACK, this::routerTrack);
+        context(LIST_CHANNELS, this::listChannels);
+        context(PENDING_CHANNELS, this::pendingChannels);
+        context(SUBSCRIBE_CHANNELS, this::subscribeChannels);
+        context(FEE_REPORT, this::feeReport);
+        context(DESCRIBE_GRAPH, this::describeGraph);
+        context(SUBSCRIBE_GRAPH, exchange -> streamLines(exchange, graphSubscribers));
+    }
+    
+    /**
+     * Start answering requests on a free loopback port
+     */
+    public MockLndServer start() {
+        running = true;
+        server.start();
+        return this;
+    }
+    
+    /**
+     * Stop the server and end open subscription streams
+     */
+    @Override
+    public void close() {
+        running = false;
+        server.stop(0);
+        threads.shutdownNow();
+    }
+    
+    /**
+     * Port the server listens on
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+    
+    /**
+     * REST base URL, including the /v1 prefix
+     */
+    public String getBaseUrl() {
+        return "http://127.0.0.1:" + getPort() + "/v1";
+    }
+    
+    /**
+     * Service configuration pointing at this server over plain HTTP
+     */
+    public Properties toConfig() {
+        Properties config = new Properties();
+        config.setProperty("host", "127.0.0.1");
+        config.setProperty("port", String.valueOf(getPort()));
+        config.setProperty("plaintext.http", "true");
+        return config;
+    }
+    
+    /**
+     * Delay every route with the given distribution
+     */
+    public void setLatency(Latency latency) {
+        routes.values().forEach(behaviour -> behaviour.latency = latency);
+    }
+    
+    /**
+     * Delay one route with the given distribution
+     * @param route One of the route constants, e.g. {@link #GET_INFO}
+     */
+    public void setLatency(String route, Latency latency) {
+        behaviour(route).latency = latency;
+    }
+    
+    /**
+     * Fail the given fraction of requests on every route
+     */
+    public void setErrorRate(double errorRate) {
+        routes.values().forEach(behaviour -> behaviour.errorRate = errorRate);
+    }
+    
+    /**
+     * Fail the given fraction of requests on one route
+     * @param route One of the route constants
+     * @param errorRate Between 0 (never) and 1 (always)
+     */
+    public void setErrorRate(String route, double errorRate) {
+        behaviour(route).errorRate = errorRate;
+    }
+    
+    /**
+     * Number of requests received on a route, including failed ones
+     */
+    public long getRequestCount(String route) {
+        return behaviour(route).requests.get();
+    }
+    
+    /**
+     * Number of requests on a route answered with an injected error
+     */
+    public long getInjectedErrorCount(String route) {
+        return behaviour(route).injectedErrors.get();
+    }
+    
+    /**
+     * Poll a condition for up to five seconds, for streams the service follows in the background
+     * @throws AssertionError If the condition is still false at the deadline
+     */
+    public static void waitFor(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) {
+                throw new AssertionError("Condition not met within 5 s");
+            }
+            Thread.sleep(20);
+        }
+    }
+    
+    /**
+     * Set the on-chain balance reported by /balance/blockchain
+     */
+    public void setWalletBalance(long confirmed, long unconfirmed) {
+        confirmedBalance = confirmed;
+        unconfirmedBalance = unconfirmed;
+    }
+    
+    /**
+     * Set the local channel balance reported by /balance/channels
+     */
+    public void setChannelBalance(long localBalance) {
+        channelBalance = localBalance;
+    }
+    
+    /**
+     * Open an active channel and publish an OPEN_CHANNEL event
+     * @return The channel as listed, with a fee policy of 1000 msat + 1 ppm
+     */
+    public Channel openChannel(String remotePubkey, long capacity, long localBalance) {
+        Channel channel = newChannel(remotePubkey, capacity, localBalance);
+        synchronized (channels) {
+            channel.setChanId(nextChanId++);
+            channel.setActive(true);
+            channel.setStatus(Channel.STATUS_OPEN);
+            channels.put(channel.getChannelPoint(), channel);
+        }
+        JsonObject event = new JsonObject();
+        event.add("open_channel", JsonParser.parseString(CHANNEL_ADAPTER.toJson(channel)));
+        publishChannelEvent("OPEN_CHANNEL", event);
+        return channel.copy();
+    }
+    
+    /**
+     * Add a channel waiting for its funding transaction and publish a PENDING_OPEN_CHANNEL event
+     */
+    public Channel addPendingChannel(String remotePubkey, long capacity) {
+        Channel channel = newChannel(remotePubkey, capacity, capacity);
+        channel.setStatus(Channel.STATUS_PENDING_OPEN);
+        synchronized (channels) {
+            channels.put(channel.getChannelPoint(), channel);
+        }
+        JsonObject event = new JsonObject();
+        event.add("pending_open_channel", outpoint("txid", channel.getChannelPoint()));
+        publishChannelEvent("PENDING_OPEN_CHANNEL", event);
+        return channel.copy();
+    }
+    
+    /**
+     * Mark a channel active or inactive and publish the matching event
+     */
+    public void setChannelActive(String channelPoint, boolean active) {
+        synchronized (channels) {
+            Channel channel = channels.get(channelPoint).copy();
+            channel.setActive(active);
+            channels.put(channelPoint, channel);
+        }
+        JsonObject event = new JsonObject();
+        event.add(active ? "active_channel" : "inactive_channel", outpoint("funding_txid_bytes", channelPoint));
+        publishChannelEvent(active ? "ACTIVE_CHANNEL" : "INACTIVE_CHANNEL", event);
+    }
+    
+    /**
+     * Close a channel and publish a CLOSED_CHANNEL event
+     */
+    public void closeChannel(String channelPoint) {
+        Channel channel;
+        synchronized (channels) {
+            channel = channels.remove(channelPoint);
+        }
+        JsonObject summary = new JsonObject();
+        summary.addProperty("channel_point", channelPoint);
+        summary.addProperty("chan_id", Long.toUnsignedString(channel.getChanId()));
+        summary.addProperty("remote_pubkey", channel.getRemotePubkey());
+        summary.addProperty("capacity", String.valueOf(channel.getCapacity()));
+        summary.addProperty("close_type", "COOPERATIVE_CLOSE");
+        JsonObject event = new JsonObject();
+        event.add("closed_channel", summary);
+        publishChannelEvent("CLOSED_CHANNEL", event);
+    }
+    
+    /**
+     * Set the fee policy reported for a channel by the fee report
+     */
+    public void setChannelFees(String channelPoint, long baseFeeMsat, long feeRatePpm) {
+        synchronized (channels) {
+            Channel channel = channels.get(channelPoint).copy();
+            channel.setFeeBaseMsat(baseFeeMsat);
+            channel.setFeeRatePpm(feeRatePpm);
+            channels.put(channelPoint, channel);
+        }
+    }
+    
+    /**
+     * Add a public channel to the graph with the same policy on both ends, and publish it as two channel updates
+     * @return The channel's short channel id
+     */
+    public long addGraphChannel(String node1, String node2, long capacity, long baseFeeMsat, long feeRatePpm) {
+        long chanId;
+        JsonObject edge = new JsonObject();
+        synchronized (graphEdges) {
+            chanId = nextChanId++;
+            graphNodes.putIfAbsent(node1, "node-" + node1.substring(0, 8));
+            graphNodes.putIfAbsent(node2, "node-" + node2.substring(0, 8));
+            edge.addProperty("channel_id", Long.toUnsignedString(chanId));
+            edge.addProperty("chan_point", bytesToHex(randomBytes()) + ":0");
+            edge.addProperty("last_update", 0);
+            edge.addProperty("node1_pub", node1);
+            edge.addProperty("node2_pub", node2);
+            edge.addProperty("capacity", String.valueOf(capacity));
+            edge.add("node1_policy", routingPolicy(capacity, baseFeeMsat, feeRatePpm, false));
+            edge.add("node2_policy", routingPolicy(capacity, baseFeeMsat, feeRatePpm, false));
+            graphEdges.put(chanId, edge);
+        }
+        publishGraphUpdate(channelUpdate(edge, node1, node2, edge.getAsJsonObject("node1_policy")), null);
+        publishGraphUpdate(channelUpdate(edge, node2, node1, edge.getAsJsonObject("node2_policy")), null);
+        return chanId;
+    }
+    
+    /**
+     * Change the policy one end of a graph channel applies, and publish the channel update
+     */
+    public void setGraphPolicy(long chanId, String node, long baseFeeMsat, long feeRatePpm, boolean disabled) {
+        JsonObject update;
+        synchronized (graphEdges) {
+            JsonObject edge = graphEdges.get(chanId);
+            boolean first = edge.get("node1_pub").getAsString().equals(node);
+            JsonObject policy = routingPolicy(edge.get("capacity").getAsLong(), baseFeeMsat, feeRatePpm, disabled);
+            edge.add(first ? "node1_policy" : "node2_policy", policy);
+            update = channelUpdate(edge, node, edge.get(first ? "node2_pub" : "node1_pub").getAsString(), policy);
+        }
+        publishGraphUpdate(update, null);
+    }
+    
+    /**
+     * Remove a channel from the graph and publish it as closed
+     */
+    public void closeGraphChannel(long chanId) {
+        JsonObject edge;
+        synchronized (graphEdges) {
+            edge = graphEdges.remove(chanId);
+        }
+        JsonObject closed = new JsonObject();
+        closed.addProperty("chan_id", Long.toUnsignedString(chanId));
+        closed.addProperty("capacity", edge.get("capacity").getAsString());
+        closed.addProperty("closed_height", 820_000);
+        publishGraphUpdate(null, closed);
+    }
+    
+    /**
+     * Number of invoices held
+     */
+    public int getInvoiceCount() {
+        synchronized (invoices) {
+            return invoices.size();
+        }
+    }
+    
+    /**
+     * Add an open invoice created now and publish it to subscribers
+     */
+    public Invoice addInvoice(long amountSats, String memo) {
+        Invoice invoice = newInvoice(amountSats, memo);
+        invoice.setCreationDate(System.currentTimeMillis() / 1000);
+        synchronized (invoices) {
+            store(invoice);
+        }
+        publish(invoice);
+        return invoice;
+    }
+    
+    /**
+     * Settle an open invoice and publish the update to subscribers
+     * @param addIndex Add index of the invoice
+     * @return The settled invoice, or null if there is no such open invoice
+     */
+    public Invoice settleInvoice(long addIndex) {
+        Invoice settled;
+        synchronized (invoices) {
+            if (addIndex < 1 || addIndex > invoices.size() || invoices.get((int) addIndex - 1).isSettled()) {
+                return null;
+            }
+            settled = copy(invoices.get((int) addIndex - 1));
+            settle(settled);
+            invoices.set((int) addIndex - 1, settled);
+        }
+        publish(settled);
+        return settled;
+    }
+    
+    /**
+     * Register a handler that counts requests and applies the route's error rate and latency first
+     */
+    private void context(String route, Handler handler) {
+        RouteBehaviour behaviour = routes.get(route);
+        server.createContext(route, exchange -> {
+            behaviour.requests.incrementAndGet();
+            try {
+                Random random = ThreadLocalRandom.current();
+                long delay = behaviour.latency.nextNanos(random);
+                if (delay > 0) {
+                    TimeUnit.NANOSECONDS.sleep(delay);
+                }
+                if (behaviour.errorRate > 0 && random.nextDouble() < behaviour.errorRate) {
+                    behaviour.injectedErrors.incrementAndGet();
+                    error(exchange, 503, 14, "injected failure: connection refused");
+                    return;
+                }
+                handler.handle(exchange);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (IllegalArgumentException e) {
+                error(exchange, 400, 2, e.getMessage());
+            } catch (IOException e) {
+                // Client went away, e.g. a cancelled stream
+            } finally {
+                exchange.close();
+            }
+        });
+    }
+    
+    /**
+     * Route handler; IllegalArgumentException (e.g. from the BOLT11 decoder) becomes a 400
+     */
+    @FunctionalInterface
+    private interface Handler {
+        void handle(HttpExchange exchange) throws IOException;
+    }
+    
+    /**
+     * Behaviour of a route, failing for unknown routes
+     */
+    private RouteBehaviour behaviour(String route) {
+        RouteBehaviour behaviour = routes.get(route);
+        if (behaviour == null) {
+            throw new IllegalArgumentException("Unknown route: " + route);
+        }
+        return behaviour;
+    }
+    
+    /**
+     * GetInfo for a synced node with a dozen channels
+     */
+    private void getInfo(HttpExchange exchange) throws IOException {
+        int blockHeight;
+        synchronized (invoices) {
+            blockHeight = 800_000 + invoices.size() / 10;
+        }
+        JsonObject json = new JsonObject();
+        json.addProperty("version", "0.17.0-beta commit=mock");
+        json.addProperty("identity_pubkey", IDENTITY_PUBKEY);
+        json.addProperty("alias", "mock-lnd");
+        json.addProperty("color", "#3399ff");
+        json.addProperty("num_pending_channels", 1);
+        json.addProperty("num_active_channels", 12);
+        json.addProperty("num_inactive_channels", 0);
+        json.addProperty("num_peers", 9);
+        json.addProperty("block_height", blockHeight);
+        json.addProperty("synced_to_chain", true);
+        json.addProperty("synced_to_graph", true);
+        respond(exchange, 200, json.toString());
+    }
+    
+    /**
+     * WalletBalance, int64 fields encoded as strings
+     */
+    private void balance(HttpExchange exchange) throws IOException {
+        long confirmed = confirmedBalance;
+        long unconfirmed = unconfirmedBalance;
+        JsonObject json = new JsonObject();
+        json.addProperty("total_balance", String.valueOf(confirmed + unconfirmed));
+        json.addProperty("confirmed_balance", String.valueOf(confirmed));
+        json.addProperty("unconfirmed_balance", String.valueOf(unconfirmed));
+        json.addProperty("locked_balance", "0");
+        respond(exchange, 200, json.toString());
+    }
+    
+    /**
+     * ChannelBalanceResponse with the deprecated balance field and the local/remote amounts
+     */
+    private void channelBalance(HttpExchange exchange) throws IOException {
+        long local = channelBalance;
+        JsonObject localBalance = new JsonObject();
+        localBalance.addProperty("sat", String.valueOf(local));
+        localBalance.addProperty("msat", String.valueOf(local * 1000));
+        JsonObject remoteBalance = new JsonObject();
+        remoteBalance.addProperty("sat", "0");
+        remoteBalance.addProperty("msat", "0");
+        JsonObject json = new JsonObject();
+        json.addProperty("balance", String.valueOf(local));
+        json.addProperty("pending_open_balance", "0");
+        json.add("local_balance", localBalance);
+        json.add("remote_balance", remoteBalance);
+        respond(exchange, 200, json.toString());
+    }
+    
+    /**
+     * GET lists a page of invoices; POST adds one
+     */
+    private void invoices(HttpExchange exchange) throws IOException {
+        if ("POST".equals(exchange.getRequestMethod())) {
+            JsonObject body = readBody(exchange);
+            long value = body.has("value") ? body.get("value").getAsLong() : 0;
+            String memo = body.has("memo") ? body.get("memo").getAsString() : "";
+            Invoice invoice = addInvoice(value, memo);
+            
+            JsonObject json = new JsonObject();
+            json.addProperty("r_hash", invoice.getRHash());
+            json.addProperty("payment_request", invoice.getPaymentRequest());
+            json.addProperty("add_index", String.valueOf(invoice.getAddIndex()));
+            json.addProperty("payment_addr", invoice.getRHash());
+            respond(exchange, 200, json.toString());
+            return;
+        }
+        
+        Map<String, String> query = query(exchange);
+        long offset = Long.parseLong(query.getOrDefault("index_offset", "0"));
+        int max = Integer.parseInt(query.getOrDefault("num_max_invoices", "0"));
+        boolean reversed = Boolean.parseBoolean(query.getOrDefault("reversed", "false"));
+        boolean pendingOnly = Boolean.parseBoolean(query.getOrDefault("pending_only", "false"));
+        List<Invoice> page = page(offset, max > 0 ? max : DEFAULT_PAGE_SIZE, reversed, pendingOnly);
+        
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, 0);
+        try (JsonWriter writer = new JsonWriter(writer(exchange))) {
+            writer.beginObject();
+            writer.name("invoices").beginArray();
+            for (Invoice invoice : page) {
+                INVOICE_ADAPTER.write(writer, invoice);
+            }
+            writer.endArray();
+            writer.name("last_index_offset").value(String.valueOf(page.isEmpty() ? offset
+                    : page.get(page.size() - 1).getAddIndex()));
+            writer.name("first_index_offset").value(String.valueOf(page.isEmpty() ? offset
+                    : page.get(0).getAddIndex()));
+            writer.endObject();
+        }
+    }
+    
+    /**
+     * Invoices after (or, reversed, before) the offset, in ascending add-index order like LND
+     */
+    private List<Invoice> page(long offset, int max, boolean reversed, boolean pendingOnly) {
+        List<Invoice> page = new ArrayList<>(Math.min(max, 1024));
+        synchronized (invoices) {
+            if (reversed) {
+                int start = offset == 0 || offset > invoices.size() ? invoices.size() - 1 : (int) offset - 2;
+                for (int i = start; i >= 0 && page.size() < max; i--) {
+                    if (!pendingOnly || !invoices.get(i).isSettled()) {
+                        page.add(invoices.get(i));
+                    }
+                }
+                Collections.reverse(page);
+            } else {
+                for (int i = (int) Math.max(0, offset); i < invoices.size() && page.size() < max; i++) {
+                    if (!pendingOnly || !invoices.get(i).isSettled()) {
+                        page.add(invoices.get(i));
+                    }
+                }
+            }
+        }
+        return page;
+    }
+    
+    /**
+     * LookupInvoice by hex payment hash
+     */
+    private void lookupInvoice(HttpExchange exchange) throws IOException {
+        String hash = exchange.getRequestURI().getPath().substring(LOOKUP_INVOICE.length());
+        Invoice invoice;
+        synchronized (invoices) {
+            Integer index = invoicesByHash.get(hash.toLowerCase());
+            invoice = index == null ? null : invoices.get(index);
+        }
+        if (invoice == null) {
+            error(exchange, 404, 5, "unable to locate invoice");
+            return;
+        }
+        exchange.sendResponseHeaders(200, 0);
+        try (JsonWriter writer = new JsonWriter(writer(exchange))) {
+            INVOICE_ADAPTER.write(writer, invoice);
+        }
+    }
+    
+    /**
+     * Replay invoices added or settled after the client's cursors, then stream new events until the client leaves
+     */
+    private void subscribeInvoices(HttpExchange exchange) throws IOException {
+        Map<String, String> query = query(exchange);
+        long addIndex = Long.parseLong(query.getOrDefault("add_index", "0"));
+        long settleIndexCursor = Long.parseLong(query.getOrDefault("settle_index", "0"));
+        
+        BlockingQueue<Invoice> events = new LinkedBlockingQueue<>();
+        subscribers.add(events);
+        try {
+            List<Invoice> backlog = new ArrayList<>();
+            synchronized (invoices) {
+                for (Invoice invoice : invoices) {
+                    if ((addIndex > 0 && invoice.getAddIndex() > addIndex)
+                            || (settleIndexCursor > 0 && invoice.getSettleIndex() > settleIndexCursor)) {
+                        backlog.add(invoice);
+                    }
+                }
+            }
+            
+            exchange.sendResponseHeaders(200, 0);
+            Writer writer = writer(exchange);
+            for (Invoice invoice : backlog) {
+                writeEvent(writer, invoice);
+            }
+            writer.flush();
+            
+            while (running) {
+                Invoice invoice = events.poll(200, TimeUnit.MILLISECONDS);
+                if (invoice != null) {
+                    writeEvent(writer, invoice);
+                    writer.flush();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            subscribers.remove(events);
+        }
+    }
+    
+    /**
+     * ListChannelsResponse with every open channel
+     */
+    private void listChannels(HttpExchange exchange) throws IOException {
+        JsonArray list = new JsonArray();
+        synchronized (channels) {
+            for (Channel channel : channels.values()) {
+                if (Channel.STATUS_OPEN.equals(channel.getStatus())) {
+                    list.add(JsonParser.parseString(CHANNEL_ADAPTER.toJson(channel)));
+                }
+            }
+        }
+        JsonObject json = new JsonObject();
+        json.add("channels", list);
+        respond(exchange, 200, json.toString());
+    }
+    
+    /**
+     * PendingChannelsResponse with every channel waiting to open
+     */
+    private void pendingChannels(HttpExchange exchange) throws IOException {
+        JsonArray pendingOpen = new JsonArray();
+        synchronized (channels) {
+            for (Channel channel : channels.values()) {
+                if (Channel.STATUS_PENDING_OPEN.equals(channel.getStatus())) {
+                    JsonObject pending = new JsonObject();
+                    JsonObject detail = new JsonObject();
+                    detail.addProperty("remote_node_pub", channel.getRemotePubkey());
+                    detail.addProperty("channel_point", channel.getChannelPoint());
+                    detail.addProperty("capacity", String.valueOf(channel.getCapacity()));
+                    detail.addProperty("local_balance", String.valueOf(channel.getLocalBalance()));
+                    detail.addProperty("remote_balance", "0");
+                    pending.add("channel", detail);
+                    pending.addProperty("commit_fee", "2810");
+                    pendingOpen.add(pending);
+                }
+            }
+        }
+        JsonObject json = new JsonObject();
+        json.addProperty("total_limbo_balance", "0");
+        json.add("pending_open_channels", pendingOpen);
+        json.add("pending_closing_channels", new JsonArray());
+        json.add("pending_force_closing_channels", new JsonArray());
+        json.add("waiting_close_channels", new JsonArray());
+        respond(exchange, 200, json.toString());
+    }
+    
+    /**
+     * FeeReportResponse with the policy of every open channel
+     */
+    private void feeReport(HttpExchange exchange) throws IOException {
+        JsonArray fees = new JsonArray();
+        synchronized (channels) {
+            for (Channel channel : channels.values()) {
+                if (Channel.STATUS_OPEN.equals(channel.getStatus())) {
+                    JsonObject fee = new JsonObject();
+                    fee.addProperty("chan_id", Long.toUnsignedString(channel.getChanId()));
+                    fee.addProperty("channel_point", channel.getChannelPoint());
+                    fee.addProperty("base_fee_msat", String.valueOf(channel.getFeeBaseMsat()));
+                    fee.addProperty("fee_per_mil", String.valueOf(channel.getFeeRatePpm()));
+                    fee.addProperty("fee_rate", channel.getFeeRatePpm() / 1e6);
+                    fees.add(fee);
+                }
+            }
+        }
+        JsonObject json = new JsonObject();
+        json.add("channel_fees", fees);
+        json.addProperty("day_fee_sum", "0");
+        respond(exchange, 200, json.toString());
+    }
+    
+    /**
+     * ChannelGraph with every node and edge of the public graph
+     */
+    private void describeGraph(HttpExchange exchange) throws IOException {
+        JsonArray nodes = new JsonArray();
+        JsonArray edges = new JsonArray();
+        synchronized (graphEdges) {
+            graphNodes.forEach((pubkey, alias) -> {
+                JsonObject node = new JsonObject();
+                node.addProperty("last_update", 0);
+                node.addProperty("pub_key", pubkey);
+                node.addProperty("alias", alias);
+                node.add("addresses", new JsonArray());
+                node.add("features", new JsonObject());
+                nodes.add(node);
+            });
+            graphEdges.values().forEach(edges::add);
+        }
+        JsonObject json = new JsonObject();
+        json.add("nodes", nodes);
+        json.add("edges", edges);
+        respond(exchange, 200, json.toString());
+    }
+    
+    /**
+     * Channel event stream: one {"result": ChannelEventUpdate} line per change
+     */
+    private void subscribeChannels(HttpExchange exchange) throws IOException {
+        streamLines(exchange, channelSubscribers);
+    }
+    
+    /**
+     * Write each event queued for the exchange as one line until the server stops
+     */
+    private void streamLines(HttpExchange exchange, Set<BlockingQueue<String>> subscribers) throws IOException {
+        BlockingQueue<String> events = new LinkedBlockingQueue<>();
+        subscribers.add(events);
+        try {
+            exchange.sendResponseHeaders(200, 0);
+            Writer writer = writer(exchange);
+            writer.flush();
+            while (running) {
+                String event = events.poll(200, TimeUnit.MILLISECONDS);
+                if (event != null) {
+                    writer.write(event);
+                    writer.write('\n');
+                    writer.flush();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            subscribers.remove(events);
+        }
+    }
+    
+    /**
+     * DecodePayReq for a valid BOLT11 request
+     */
+    private void decodePayReq(HttpExchange exchange) throws IOException {
+        Bolt11Invoice invoice = Bolt11Decoder.decode(exchange.getRequestURI().getPath().substring(DECODE_PAY_REQ.length()));
+        JsonObject json = new JsonObject();
+        json.addProperty("destination", invoice.getDestination());
+        json.addProperty("payment_hash", invoice.getPaymentHash());
+        json.addProperty("num_satoshis", String.valueOf(invoice.getAmountSat()));
+        json.addProperty("timestamp", String.valueOf(invoice.getTimestamp()));
+        json.addProperty("expiry", "3600");
+        json.addProperty("description", invoice.getDescription() == null ? "" : invoice.getDescription());
+        json.addProperty("cltv_expiry", "40");
+        respond(exchange, 200, json.toString());
+    }
+    
+    /**
+     * Legacy SendPaymentSync: always succeeds over a two-hop route
+     */
+    private void sendPaymentSync(HttpExchange exchange) throws IOException {
+        Bolt11Invoice invoice = Bolt11Decoder.decode(readBody(exchange).get("payment_request").getAsString());
+        long amountMsat = Math.max(1000, invoice.getAmountSat() * 1000);
+        
+        JsonObject route = new JsonObject();
+        route.addProperty("total_time_lock", 800_040);
+        route.addProperty("total_fees", String.valueOf(fee(amountMsat) / 1000));
+        route.addProperty("total_amt", String.valueOf((amountMsat + fee(amountMsat)) / 1000));
+        route.addProperty("total_fees_msat", String.valueOf(fee(amountMsat)));
+        route.addProperty("total_amt_msat", String.valueOf(amountMsat + fee(amountMsat)));
+        
+        JsonObject json = new JsonObject();
+        json.addProperty("payment_error", "");
+        json.addProperty("payment_preimage", Base64.getEncoder().encodeToString(randomBytes()));
+        json.add("payment_route", route);
+        json.addProperty("payment_hash", Base64.getEncoder().encodeToString(hexToBytes(invoice.getPaymentHash())));
+        respond(exchange, 200, json.toString());
+    }
+    
+    /**
+     * Router send: one in-flight update, then the settled payment. Repeat sends of the same
+     * request succeed again so a load run can reuse a handful of payment requests.
+     */
+    private void routerSend(HttpExchange exchange) throws IOException {
+        Bolt11Invoice invoice = Bolt11Decoder.decode(readBody(exchange).get("payment_request").getAsString());
+        long amountMsat = Math.max(1000, invoice.getAmountSat() * 1000);
+        String settled = paymentEvent(invoice.getPaymentHash(), "SUCCEEDED", amountMsat);
+        payments.put(invoice.getPaymentHash(), settled);
+        
+        exchange.sendResponseHeaders(200, 0);
+        Writer writer = writer(exchange);
+        writer.write(paymentEvent(invoice.getPaymentHash(), "IN_FLIGHT", amountMsat));
+        writer.write('\n');
+        writer.flush();
+        writer.write(settled);
+        writer.write('\n');
+        writer.flush();
+    }
+    
+    /**
+     * Router track: the settled payment if it was sent here, otherwise the router's not-initiated error
+     */
+    private void routerTrack(HttpExchange exchange) throws IOException {
+        String hash = bytesToHex(Base64.getUrlDecoder()
+                .decode(exchange.getRequestURI().getPath().substring(ROUTER_TRACK.length())));
+        String settled = payments.get(hash);
+        if (settled == null) {
+            error(exchange, 404, 5, "payment isn't initiated");
+            return;
+        }
+        exchange.sendResponseHeaders(200, 0);
+        Writer writer = writer(exchange);
+        writer.write(settled);
+        writer.write('\n');
+        writer.flush();
+    }
+    
+    /**
+     * A router payment update with a single two-hop HTLC
+     */
+    private String paymentEvent(String paymentHash, String status, long amountMsat) {
+        long fee = fee(amountMsat);
+        boolean succeeded = "SUCCEEDED".equals(status);
+        JsonObject route = new JsonObject();
+        route.addProperty("total_amt_msat", String.valueOf(amountMsat + fee));
+        route.addProperty("total_fees_msat", String.valueOf(fee));
+        route.add("hops", JsonParser.parseString("[{},{}]"));
+        
+        JsonObject htlc = new JsonObject();
+        htlc.addProperty("attempt_id", "1");
+        htlc.addProperty("status", succeeded ? "SUCCEEDED" : "IN_FLIGHT");
+        htlc.add("route", route);
+        htlc.addProperty("attempt_time_ns", String.valueOf(System.currentTimeMillis() * 1_000_000));
+        htlc.addProperty("resolve_time_ns", succeeded ? String.valueOf(System.currentTimeMillis() * 1_000_000) : "0");
+        
+        JsonObject payment = new JsonObject();
+        payment.addProperty("payment_hash", paymentHash);
+        payment.addProperty("status", status);
+        payment.addProperty("value_msat", String.valueOf(amountMsat));
+        payment.addProperty("creation_time_ns", String.valueOf(System.currentTimeMillis() * 1_000_000));
+        if (succeeded) {
+            payment.addProperty("fee_msat", String.valueOf(fee));
+            payment.addProperty("payment_preimage", bytesToHex(randomBytes()));
+        }
+        JsonArray htlcs = new JsonArray();
+        htlcs.add(htlc);
+        payment.add("htlcs", htlcs);
+        
+        JsonObject event = new JsonObject();
+        event.add("result", payment);
+        return event.toString();
+    }
+    
+    /**
+     * Routing fee of 1 sat base plus 100 ppm
+     */
+    private static long fee(long amountMsat) {
+        return 1000 + amountMsat / 10_000;
+    }
+    
+    /**
+     * Hand a channel event to every open channel subscription
+     */
+    private void publishChannelEvent(String type, JsonObject update) {
+        update.addProperty("type", type);
+        JsonObject event = new JsonObject();
+        event.add("result", update);
+        for (BlockingQueue<String> subscriber : channelSubscribers) {
+            subscriber.offer(event.toString());
+        }
+    }
+    
+    /**
+     * Hand a GraphTopologyUpdate with one channel update or one closed channel to every graph subscription
+     */
+    private void publishGraphUpdate(JsonObject channelUpdate, JsonObject closedChannel) {
+        JsonObject update = new JsonObject();
+        update.add("node_updates", new JsonArray());
+        JsonArray channelUpdates = new JsonArray();
+        if (channelUpdate != null) {
+            channelUpdates.add(channelUpdate);
+        }
+        update.add("channel_updates", channelUpdates);
+        JsonArray closedChannels = new JsonArray();
+        if (closedChannel != null) {
+            closedChannels.add(closedChannel);
+        }
+        update.add("closed_chans", closedChannels);
+        JsonObject event = new JsonObject();
+        event.add("result", update);
+        for (BlockingQueue<String> subscriber : graphSubscribers) {
+            subscriber.offer(event.toString());
+        }
+    }
+    
+    /**
+     * ChannelEdgeUpdate announcing one end's policy
+     */
+    private static JsonObject channelUpdate(JsonObject edge, String advertising, String connecting, JsonObject policy) {
+        JsonObject update = new JsonObject();
+        update.add("chan_id", edge.get("channel_id"));
+        update.add("capacity", edge.get("capacity"));
+        update.add("routing_policy", policy);
+        update.addProperty("advertising_node", advertising);
+        update.addProperty("connecting_node", connecting);
+        return update;
+    }
+    
+    /**
+     * RoutingPolicy with LND's default timelock delta and HTLC limits
+     */
+    private static JsonObject routingPolicy(long capacity, long baseFeeMsat, long feeRatePpm, boolean disabled) {
+        JsonObject policy = new JsonObject();
+        policy.addProperty("time_lock_delta", 80);
+        policy.addProperty("min_htlc", "1000");
+        policy.addProperty("fee_base_msat", String.valueOf(baseFeeMsat));
+        policy.addProperty("fee_rate_milli_msat", String.valueOf(feeRatePpm));
+        policy.addProperty("disabled", disabled);
+        policy.addProperty("max_htlc_msat", String.valueOf(capacity * 990));
+        policy.addProperty("last_update", 0);
+        return policy;
+    }
+    
+    /**
+     * Channel with a random funding outpoint and the default fee policy
+     */
+    private Channel newChannel(String remotePubkey, long capacity, long localBalance) {
+        Channel channel = new Channel();
+        channel.setChannelPoint(bytesToHex(randomBytes()) + ":" + ThreadLocalRandom.current().nextInt(4));
+        channel.setRemotePubkey(remotePubkey);
+        channel.setCapacity(capacity);
+        channel.setLocalBalance(localBalance);
+        channel.setRemoteBalance(capacity - localBalance);
+        channel.setFeeBaseMsat(1000);
+        channel.setFeeRatePpm(1);
+        return channel;
+    }
+    
+    /**
+     * ChannelPoint or PendingUpdate for an outpoint, with the txid bytes in internal (reversed) order
+     */
+    private static JsonObject outpoint(String txidField, String channelPoint) {
+        String[] parts = channelPoint.split(":");
+        byte[] txid = hexToBytes(parts[0]);
+        for (int i = 0; i < txid.length / 2; i++) {
+            byte b = txid[i];
+            txid[i] = txid[txid.length - 1 - i];
+            txid[txid.length - 1 - i] = b;
+        }
+        JsonObject outpoint = new JsonObject();
+        outpoint.addProperty(txidField, Base64.getEncoder().encodeToString(txid));
+        outpoint.addProperty("output_index", Integer.parseInt(parts[1]));
+        return outpoint;
+    }
+    
+    /**
+     * Hand an invoice event to every open subscription
+     */
+    private void publish(Invoice invoice) {
+        for (BlockingQueue<Invoice> subscriber : subscribers) {
+            subscriber.offer(invoice);
+        }
+    }
+    
+    /**
+     * Append an invoice; the caller holds the invoices lock, or is the constructor
+     */
+    private void store(Invoice invoice) {
+        invoice.setAddIndex(invoices.size() + 1);
+        if (invoice.getCreationDate() == 0) {
+            // Synthetic history, long expired
+            invoice.setCreationDate(FIRST_CREATION_DATE + invoices.size() * 60L);
+        }
+        invoicesByHash.put(bytesToHex(Base64.getDecoder().decode(invoice.getRHash())), invoices.size());
+        invoices.add(invoice);
+    }
+    
+    /**
+     * An open invoice with a random hash and a bech32-looking payment request
+     */
+    private Invoice newInvoice(long amountSats, String memo) {
+        byte[] hash;
+        StringBuilder paymentRequest = new StringBuilder("lnbcrt").append(amountSats).append("n1p");
+        synchronized (random) {
+            hash = new byte[32];
+            random.nextBytes(hash);
+            while (paymentRequest.length() < 270) {
+                paymentRequest.append(BECH32_CHARSET.charAt(random.nextInt(BECH32_CHARSET.length())));
+            }
+        }
+        Invoice invoice = new Invoice();
+        invoice.setRHash(Base64.getEncoder().encodeToString(hash));
+        invoice.setPaymentRequest(paymentRequest.toString());
+        invoice.setMemo(memo);
+        invoice.setAmountSats(amountSats);
+        invoice.setExpiry(86400);
+        invoice.setState("OPEN");
+        return invoice;
+    }
+    
+    /**
+     * Mark an invoice settled with the next settle index; the caller holds the invoices lock, or is the constructor.
+     * Must follow store() so the creation date is set.
+     */
+    private void settle(Invoice invoice) {
+        invoice.setSettled(true);
+        invoice.setSettleIndex(++settleIndex);
+        invoice.setSettleDate(invoice.getCreationDate() + 30);
+        invoice.setState("SETTLED");
+    }
+    
+    /**
+     * Copy an invoice so the stored one is never mutated
+     */
+    private static Invoice copy(Invoice source) {
+        Invoice invoice = new Invoice();
+        invoice.setRHash(source.getRHash());
+        invoice.setPaymentRequest(source.getPaymentRequest());
+        invoice.setMemo(source.getMemo());
+        invoice.setAmountSats(source.getAmountSats());
+        invoice.setSettled(source.isSettled());
+        invoice.setCreationDate(source.getCreationDate());
+        invoice.setSettleDate(source.getSettleDate());
+        invoice.setAddIndex(source.getAddIndex());
+        invoice.setSettleIndex(source.getSettleIndex());
+        invoice.setExpiry(source.getExpiry());
+        invoice.setState(source.getState());
+        return invoice;
+    }
+    
+    /**
+     * 32 random bytes for preimages
+     */
+    private byte[] randomBytes() {
+        byte[] bytes = new byte[32];
+        ThreadLocalRandom.current().nextBytes(bytes);
+        return bytes;
+    }
+    
+    /**
+     * Write one {"result": invoice} line of the subscription stream
+     */
+    private static void writeEvent(Writer writer, Invoice invoice) throws IOException {
+        JsonWriter json = new JsonWriter(writer);
+        json.beginObject();
+        json.name("result");
+        INVOICE_ADAPTER.write(json, invoice);
+        json.endObject();
+        json.flush();
+        writer.write('\n');
+    }
+    
+    /**
+     * Parse the JSON request body, empty if there is none
+     */
+    private static JsonObject readBody(HttpExchange exchange) throws IOException {
+        String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+        return body.isEmpty() ? new JsonObject() : JsonParser.parseString(body).getAsJsonObject();
+    }
+    
+    /**
+     * Decode the query string
+     */
+    private static Map<String, String> query(HttpExchange exchange) {
+        Map<String, String> params = new HashMap<>();
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query == null) {
+            return params;
+        }
+        for (String pair : query.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq > 0) {
+                params.put(pair.substring(0, eq), URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return params;
+    }
+    
+    /**
+     * UTF-8 writer over the response body
+     */
+    private static Writer writer(HttpExchange exchange) {
+        OutputStream body = exchange.getResponseBody();
+        return new OutputStreamWriter(body, StandardCharsets.UTF_8);
+    }
+    
+    /**
+     * Send a complete JSON response
+     */
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+    
+    /**
+     * Answer with a gateway error body: {"code": grpc status, "message": ..., "details": []}
+     */
+    private static void error(HttpExchange exchange, int status, int code, String message) {
+        JsonObject json = new JsonObject();
+        json.addProperty("code", code);
+        json.addProperty("message", message);
+        json.add("details", new JsonArray());
+        try {
+            respond(exchange, status, json.toString());
+        } catch (IOException | IllegalStateException e) {
+            // Headers already sent or client gone
+        }
+    }
+    
+    /**
+     * Decode hex
+     */
+    private static byte[] hexToBytes(String hex) {
+        byte[] bytes = new byte[hex.length() / 2];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) Integer.parseInt(hex.substring(i * 2, i * 2 + 2), 16);
+        }
+        return bytes;
+    }
+    
+    /**
+     * Encode bytes as lowercase hex
+     */
+    private static String bytesToHex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+        return hex.toString();
+    }
+}
@@ -0,0 +1,58 @@
+package com.lightning.network;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class NodeDiscoveryScannerTest {
+    
+    @Test
+    public void testFindsOpenPortsAndStreamsResults() throws Exception {
+        InetAddress loopback = InetAddress.getLoopbackAddress();
+        try (ServerSocket first = new ServerSocket(0, 50, loopback);
+             ServerSocket second = new ServerSocket(0, 50, loopback)) {
+            int closedPort = closedPort(loopback);
+            
+            List<InetSocketAddress> targets = NodeDiscoveryScanner.hostTargets(loopback.getHostAddress(),
+                    new int[]{first.getLocalPort(), closedPort, second.getLocalPort()});
+            
+            List<InetSocketAddress> streamed = new ArrayList<>();
+            List<InetSocketAddress> found = new NodeDiscoveryScanner(2)
+                    .scan(targets, Duration.ofSeconds(2), streamed::add);
+            
+            assertEquals(2, found.size());
+            assertEquals(found, streamed);
+            assertTrue(found.contains(targets.get(0)));
+            assertTrue(found.contains(targets.get(2)));
+        }
+    }
+    
+    @Test
+    public void testEmptyTargetListCompletes() throws Exception {
+        assertTrue(new NodeDiscoveryScanner().scan(new ArrayList<>(), Duration.ofMillis(100), null).isEmpty());
+    }
+    
+    @Test
+    public void testSubnetTargetsCoverAllHosts() {
+        List<InetSocketAddress> targets = NodeDiscoveryScanner.subnetTargets("192.168.1.", new int[]{8080, 10009});
+        assertEquals(254 * 2, targets.size());
+        assertEquals("192.168.1.1", targets.get(0).getHostString());
+        assertEquals("192.168.1.254", targets.get(targets.size() - 1).getHostString());
+    }
+    
+    /**
+     * Find a port with no listener by binding and releasing it
+     */
+    private static int closedPort(InetAddress address) throws Exception {
+        try (ServerSocket socket = new ServerSocket(0, 1, address)) {
+            return socket.getLocalPort();
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.lightning.network;
+
+import com.lightning.db.DatabaseManager;
+import com.lightning.model.Invoice;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs the registry against several {@link MockLndServer}s
+ */
+@ExtendWith(ScratchHome.class)
+public class NodeRegistryTest {
+    private final List<MockLndServer> servers = new ArrayList<>();
+    private final NodeRegistry registry = new NodeRegistry();
+    
+    @AfterEach
+    public void tearDown() {
+        registry.shutdown();
+        servers.forEach(MockLndServer::close);
+    }
+    
+    /**
+     * Start a mock node and register a service for it
+     */
+    private MockLndServer addNode(String name, int invoices, long balance) throws IOException {
+        MockLndServer server = new MockLndServer(invoices).start();
+        server.setWalletBalance(balance, 0);
+        servers.add(server);
+        Properties config = server.toConfig();
+        config.setProperty("node.name", name);
+        registry.register(name, new LightningNetworkService(config));
+        return server;
+    }
+    
+    @Test
+    public void testSecondaryShutdownLeavesWalletDatabaseOpen() throws Exception {
+        addNode("alpha", 0, 0);
+        addNode("beta", 0, 0);
+        DatabaseManager database = DatabaseManager.getInstance();
+        
+        registry.shutdown();
+        
+        // Services built from an explicit config do not own the database
+        assertSame(database, DatabaseManager.getInstance());
+        database.saveSetting("registry.test", "still open");
+        assertEquals("still open", database.getSetting("registry.test", null));
+    }
+    
+    @Test
+    public void testRefreshTakesAsLongAsSlowestNode() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            addNode("node" + i, 0, 10_000 * (i + 1))
+                    .setLatency(MockLndServer.Latency.fixed(Duration.ofMillis(200)));
+        }
+        
+        NodeRegistry.Overview overview = registry.refreshAll().get();
+        
+        assertEquals(3, overview.getReachableCount());
+        assertEquals(60_000, overview.getTotalBalance().getConfirmedBalance());
+        // Six calls of 200 ms each; in sequence they would take 1.2 s
+        assertTrue(overview.getElapsed().toMillis() < 600, "elapsed " + overview.getElapsed());
+        assertEquals(List.of("node0", "node1", "node2"), registry.getNames());
+    }
+    
+    @Test
+    public void testUnreachableNodeIsReportedNotFatal() throws Exception {
+        addNode("up", 0, 5_000);
+        addNode("down", 0, 7_000).close();
+        
+        NodeRegistry.Overview overview = registry.refreshAll(Duration.ofSeconds(2)).get();
+        
+        assertEquals(1, overview.getReachableCount());
+        NodeRegistry.NodeStatus down = overview.getNodes().get(1);
+        assertEquals("down", down.getName());
+        assertFalse(down.isReachable());
+        assertNull(down.getInfo());
+        assertEquals("mock-lnd", overview.getNodes().get(0).getInfo().getAlias());
+    }
+    
+    @Test
+    public void testInvoicesAreMergedNewestFirst() throws Exception {
+        addNode("alpha", 30, 0);
+        addNode("beta", 20, 0);
+        
+        NodeRegistry.InvoiceView view = registry.listInvoicesAll().get();
+        
+        assertTrue(view.getFailures().isEmpty());
+        assertEquals(30, view.getByNode().get("alpha").size());
+        assertEquals(20, view.getByNode().get("beta").size());
+        List<Invoice> merged = view.getMerged();
+        assertEquals(50, merged.size());
+        for (int i = 1; i < merged.size(); i++) {
+            assertTrue(merged.get(i - 1).getCreationDate() >= merged.get(i).getCreationDate());
+        }
+    }
+    
+    @Test
+    public void testNodeSettingsOverrideThePrimary() {
+        Properties base = new Properties();
+        base.setProperty("host", "10.0.0.1");
+        base.setProperty("port", "8080");
+        base.setProperty("retry.max_attempts", "5");
+        base.setProperty("nodes", "alpha,beta");
+        base.setProperty("nodes.alpha.host", "10.0.0.2");
+        base.setProperty("nodes.alpha.macaroon.path", "/srv/alpha/admin.macaroon");
+        base.setProperty("nodes.beta.host", "10.0.0.3");
+        
+        Properties alpha = NodeRegistry.nodeConfig(base, "alpha");
+        
+        assertEquals("10.0.0.2", alpha.getProperty("host"));
+        assertEquals("8080", alpha.getProperty("port"));
+        assertEquals("5", alpha.getProperty("retry.max_attempts"));
+        assertEquals("/srv/alpha/admin.macaroon", alpha.getProperty("macaroon.path"));
+        assertEquals("alpha", alpha.getProperty("node.name"));
+        assertNull(alpha.getProperty("nodes"));
+        assertNull(alpha.getProperty("nodes.beta.host"));
+    }
+}
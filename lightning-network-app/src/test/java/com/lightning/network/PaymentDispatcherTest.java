@@ -0,0 +1,317 @@
+package com.lightning.network;
+
+import com.lightning.model.Payment;
+import com.lightning.model.PaymentUpdate;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PaymentDispatcherTest {
+    private final AtomicLong clock = new AtomicLong();
+    private final List<String> sentFrom = Collections.synchronizedList(new ArrayList<>());
+    private final Map<String, FakeNode> nodes = new LinkedHashMap<>();
+    
+    /**
+     * Node that answers payments with a fixed fee and delay, or a failure reason
+     */
+    private class FakeNode implements PaymentDispatcher.NodeGateway {
+        final String name;
+        Long outboundSat;
+        long feePpm;
+        long delayNanos = 100_000_000;
+        String failureReason;
+        boolean hold;
+        boolean holdFetch;
+        final List<CompletableFuture<PaymentUpdate>> held = new ArrayList<>();
+        final List<PaymentUpdate> heldUpdates = new ArrayList<>();
+        final AtomicInteger fetches = new AtomicInteger();
+        
+        FakeNode(String name, Long outboundSat, long feePpm) {
+            this.name = name;
+            this.outboundSat = outboundSat;
+            this.feePpm = feePpm;
+        }
+        
+        @Override
+        public CompletableFuture<PaymentUpdate> send(String paymentRequest) {
+            sentFrom.add(name);
+            long amountMsat = amountOf(paymentRequest) * 1000;
+            PaymentUpdate update = new PaymentUpdate();
+            update.setPaymentHash(paymentRequest);
+            update.setValueMsat(amountMsat);
+            if (failureReason != null) {
+                update.setStatus(PaymentUpdate.STATUS_FAILED);
+                update.setFailureReason(failureReason);
+            } else {
+                update.setStatus(PaymentUpdate.STATUS_SUCCEEDED);
+                update.setFeeMsat(amountMsat * feePpm / 1_000_000);
+            }
+            if (hold) {
+                CompletableFuture<PaymentUpdate> pending = new CompletableFuture<>();
+                held.add(pending);
+                heldUpdates.add(update);
+                return pending;
+            }
+            clock.addAndGet(delayNanos);
+            return CompletableFuture.completedFuture(update);
+        }
+        
+        /**
+         * Complete a held payment with the outcome it was sent with
+         */
+        void release(int index) {
+            held.get(index).complete(heldUpdates.get(index));
+        }
+        
+        @Override
+        public CompletableFuture<Long> fetchOutboundSat() {
+            fetches.incrementAndGet();
+            if (holdFetch) {
+                return new CompletableFuture<>();
+            }
+            return outboundSat == null
+                    ? CompletableFuture.failedFuture(new IOException("unreachable"))
+                    : CompletableFuture.completedFuture(outboundSat);
+        }
+    }
+    
+    /**
+     * Add a node; a null balance cannot be fetched
+     */
+    private FakeNode node(String name, Long outboundSat, long feePpm) {
+        FakeNode node = new FakeNode(name, outboundSat, feePpm);
+        nodes.put(name, node);
+        return node;
+    }
+    
+    private PaymentDispatcher dispatcher() {
+        Map<String, PaymentDispatcher.NodeGateway> gateways = new LinkedHashMap<>(nodes);
+        return new PaymentDispatcher(gateways, PaymentDispatcherTest::decode, clock::get);
+    }
+    
+    /**
+     * Requests in these tests are "hash:amount"
+     */
+    private static Payment decode(String paymentRequest) throws IOException {
+        String[] parts = paymentRequest.split(":");
+        if (parts.length != 2) {
+            throw new IOException("bad request");
+        }
+        Payment payment = new Payment();
+        payment.setPaymentHash(parts[0]);
+        payment.setNumSatoshis(Long.parseLong(parts[1]));
+        return payment;
+    }
+    
+    private static long amountOf(String paymentRequest) {
+        return Long.parseLong(paymentRequest.split(":")[1]);
+    }
+    
+    private static long outboundOf(PaymentDispatcher dispatcher, String name) {
+        return dispatcher.getStats().stream()
+                .filter(stats -> stats.getName().equals(name)).findFirst().get().getOutboundSat();
+    }
+    
+    @Test
+    public void testLearnsCheaperNode() throws Exception {
+        node("expensive", 1_000_000L, 5_000);
+        node("cheap", 1_000_000L, 100);
+        PaymentDispatcher dispatcher = dispatcher();
+        dispatcher.refreshLiquidity().get();
+        
+        // Both start with the same estimates, so the first payment goes to the first node
+        dispatcher.pay("a:10000").get();
+        assertEquals("expensive", sentFrom.get(0));
+        dispatcher.pay("b:10000").get();
+        assertEquals("cheap", sentFrom.get(1));
+        
+        sentFrom.clear();
+        for (int i = 0; i < 10; i++) {
+            dispatcher.pay("p" + i + ":10000").get();
+        }
+        assertEquals(Collections.nCopies(10, "cheap"), sentFrom);
+        assertEquals(List.of("cheap", "expensive"), dispatcher.getRanking());
+    }
+    
+    @Test
+    public void testSkipsNodesWithoutLiquidity() throws Exception {
+        node("small", 5_000L, 100);
+        node("large", 500_000L, 2_000);
+        PaymentDispatcher dispatcher = dispatcher();
+        dispatcher.refreshLiquidity().get();
+        
+        Payment payment = dispatcher.pay("a:50000").get();
+        
+        assertEquals(List.of("large"), sentFrom);
+        assertEquals(50_000, payment.getValueSat());
+        assertEquals(100, payment.getFeeSat());
+        // Spent amount and fee come off the estimate straight away
+        assertEquals(449_900, dispatcher.getStats().stream()
+                .filter(stats -> stats.getName().equals("large")).findFirst().get().getOutboundSat());
+        
+        ExecutionException e = assertThrows(ExecutionException.class, () -> dispatcher.pay("b:600000").get());
+        assertEquals("No node has 600000 sats of outbound liquidity", e.getCause().getMessage());
+    }
+    
+    @Test
+    public void testFailsOverWhenRouterGivesUp() throws Exception {
+        node("first", 1_000_000L, 100).failureReason = "FAILURE_REASON_NO_ROUTE";
+        node("second", 1_000_000L, 100);
+        PaymentDispatcher dispatcher = dispatcher();
+        
+        dispatcher.pay("a:1000").get();
+        
+        assertEquals(List.of("first", "second"), sentFrom);
+        assertEquals(List.of("second", "first"), dispatcher.getRanking());
+        assertTrue(dispatcher.getStats().get(1).getSuccessRate() < 1);
+    }
+    
+    @Test
+    public void testPayeeRejectionIsNotRetried() throws Exception {
+        node("first", 1_000_000L, 100).failureReason = "FAILURE_REASON_INCORRECT_PAYMENT_DETAILS";
+        node("second", 1_000_000L, 100);
+        PaymentDispatcher dispatcher = dispatcher();
+        
+        ExecutionException e = assertThrows(ExecutionException.class, () -> dispatcher.pay("a:1000").get());
+        
+        assertEquals("Payment failed: FAILURE_REASON_INCORRECT_PAYMENT_DETAILS", e.getCause().getMessage());
+        assertEquals(List.of("first"), sentFrom);
+    }
+    
+    @Test
+    public void testInsufficientBalanceCapsEstimate() throws Exception {
+        node("first", null, 100).failureReason = "FAILURE_REASON_INSUFFICIENT_BALANCE";
+        node("second", 1_000_000L, 100);
+        PaymentDispatcher dispatcher = dispatcher();
+        
+        // Its balance cannot be fetched, so the first node is tried and learns it cannot carry the amount
+        dispatcher.pay("a:20000").get();
+        assertEquals(List.of("first", "second"), sentFrom);
+        assertEquals(19_999, dispatcher.getStats().stream()
+                .filter(stats -> stats.getName().equals("first")).findFirst().get().getOutboundSat());
+        
+        sentFrom.clear();
+        nodes.get("second").failureReason = "FAILURE_REASON_NO_ROUTE";
+        ExecutionException e = assertThrows(ExecutionException.class, () -> dispatcher.pay("b:20000").get());
+        assertEquals("Payment failed: FAILURE_REASON_NO_ROUTE", e.getCause().getMessage());
+        assertEquals(List.of("second"), sentFrom);
+    }
+    
+    @Test
+    public void testPaymentsInFlightSpreadOverNodes() throws Exception {
+        for (String name : List.of("a", "b", "c")) {
+            node(name, 10_000_000L, 500).hold = true;
+        }
+        PaymentDispatcher dispatcher = dispatcher();
+        
+        List<CompletableFuture<Payment>> payments = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            payments.add(dispatcher.pay("p" + i + ":1000"));
+        }
+        
+        for (String name : List.of("a", "b", "c")) {
+            assertEquals(2, Collections.frequency(sentFrom, name), name);
+        }
+        assertEquals(2, dispatcher.getStats().get(0).getInFlight());
+        assertFalse(payments.get(0).isDone());
+    }
+    
+    @Test
+    public void testUnknownOutcomeIsNotRetried() throws Exception {
+        node("first", 1_000_000L, 100).hold = true;
+        node("second", 1_000_000L, 100);
+        PaymentDispatcher dispatcher = dispatcher();
+        dispatcher.refreshLiquidity().get();
+        
+        CompletableFuture<Payment> payment = dispatcher.pay("a:1000");
+        nodes.get("first").held.get(0).completeExceptionally(new IOException("Lost the payment stream"));
+        
+        ExecutionException e = assertThrows(ExecutionException.class, payment::get);
+        assertEquals("Lost the payment stream", e.getCause().getMessage());
+        assertEquals(List.of("first"), sentFrom);
+        // Assumed spent until the next refresh
+        assertEquals(999_000, dispatcher.getStats().stream()
+                .filter(stats -> stats.getName().equals("first")).findFirst().get().getOutboundSat());
+    }
+    
+    @Test
+    public void testRefreshesStaleLiquidityBeforePaying() throws Exception {
+        FakeNode only = node("only", 1_000L, 100);
+        PaymentDispatcher dispatcher = dispatcher();
+        
+        // The first payment triggers a refresh, which completes at once here
+        ExecutionException e = assertThrows(ExecutionException.class, () -> dispatcher.pay("a:5000").get());
+        assertTrue(e.getCause().getMessage().startsWith("No node"));
+        
+        only.outboundSat = 10_000L;
+        clock.addAndGet(PaymentDispatcher.LIQUIDITY_MAX_AGE.toNanos() + 1);
+        dispatcher.pay("b:5000").get();
+        assertEquals(List.of("only"), sentFrom);
+    }
+    
+    @Test
+    public void testConcurrentPaymentsStartOneRefresh() throws Exception {
+        FakeNode only = node("only", 1_000_000L, 100);
+        only.holdFetch = true;
+        PaymentDispatcher dispatcher = dispatcher();
+        
+        ExecutorService payers = Executors.newFixedThreadPool(8);
+        CountDownLatch go = new CountDownLatch(1);
+        try {
+            for (int i = 0; i < 8; i++) {
+                String paymentRequest = "p" + i + ":1000";
+                payers.submit(() -> {
+                    go.await();
+                    return dispatcher.pay(paymentRequest);
+                });
+            }
+            go.countDown();
+        } finally {
+            payers.shutdown();
+            assertTrue(payers.awaitTermination(5, TimeUnit.SECONDS));
+        }
+        
+        assertEquals(1, only.fetches.get());
+    }
+    
+    @Test
+    public void testFetchedBalanceDoesNotCountPaymentsInFlightTwice() throws Exception {
+        FakeNode only = node("only", 10_000L, 100);
+        PaymentDispatcher dispatcher = dispatcher();
+        dispatcher.refreshLiquidity().get();
+        only.hold = true;
+        CompletableFuture<Payment> first = dispatcher.pay("a:4000");
+        only.failureReason = "FAILURE_REASON_INCORRECT_PAYMENT_DETAILS";
+        CompletableFuture<Payment> second = dispatcher.pay("b:1000");
+        assertEquals(5_000, outboundOf(dispatcher, "only"));
+        
+        // LND leaves both HTLCs out of the channel balance
+        only.outboundSat = 5_000L;
+        dispatcher.refreshLiquidity().get();
+        assertEquals(5_000, outboundOf(dispatcher, "only"));
+        
+        only.release(0);
+        first.get();
+        assertEquals(5_000, outboundOf(dispatcher, "only"));
+        
+        // A failed HTLC comes back to the balance
+        only.release(1);
+        assertThrows(ExecutionException.class, second::get);
+        assertEquals(6_000, outboundOf(dispatcher, "only"));
+    }
+}
@@ -0,0 +1,322 @@
+package com.lightning.network;
+
+import com.lightning.model.HtlcAttempt;
+import com.lightning.model.Payment;
+import com.lightning.model.PaymentUpdate;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PaymentEngineTest {
+    // BOLT11 specification example without an amount
+    private static final String PAYMENT_REQUEST = "lnbc1pvjluezsp5zyg3zyg3zyg3zyg3zyg3zyg3zyg3zyg3zyg3zyg3zyg3zyg3zygs"
+            + "pp5qqqsyqcyq5rqwzqfqqqsyqcyq5rqwzqfqqqsyqcyq5rqwzqfqypqdpl2pkx2ctnv5sxxmmwwd5kgetjypeh2ursdae8g6twvus8g"
+            + "6rfwvs8qun0dfjkxaq9qrsgq357wnc5r2ueh7ck6q93dj32dlqnls087fxdwk8qakdyafkq3yap9us6v52vjjsrvywa6rt52cm9r9zq"
+            + "t8r2t7mlcwspyetp5h2tztugp9lfyql";
+    private static final String PAYMENT_HASH = "0001020304050607080900010203040506070809000102030405060708090102";
+    private static final String TRACK_PATH_HASH = "AAECAwQFBgcICQABAgMEBQYHCAkAAQIDBAUGBwgJAQI";
+    private static final String PAYEE = "03e7156ae33b0a208d0744199163177e909e80176e55d97a2f221ede0f934dd9ad";
+    
+    private static final String FIRST_ATTEMPT = "{\"attempt_id\":\"1\",\"status\":\"IN_FLIGHT\","
+            + "\"route\":{\"total_amt_msat\":\"50500\",\"total_fees_msat\":\"500\",\"hops\":[{},{}]},"
+            + "\"attempt_time_ns\":\"100\",\"resolve_time_ns\":\"0\"}";
+    private static final String FIRST_ATTEMPT_FAILED = "{\"attempt_id\":\"1\",\"status\":\"FAILED\","
+            + "\"route\":{\"total_amt_msat\":\"50500\",\"total_fees_msat\":\"500\",\"hops\":[{},{}]},"
+            + "\"attempt_time_ns\":\"100\",\"resolve_time_ns\":\"900\","
+            + "\"failure\":{\"code\":\"TEMPORARY_CHANNEL_FAILURE\",\"failure_source_index\":1}}";
+    private static final String SECOND_ATTEMPT_SETTLED = "{\"attempt_id\":\"2\",\"status\":\"SUCCEEDED\","
+            + "\"route\":{\"total_amt_msat\":\"51000\",\"total_fees_msat\":\"1000\",\"hops\":[{},{},{}]},"
+            + "\"attempt_time_ns\":\"1000\",\"resolve_time_ns\":\"2000\",\"preimage\":\"cHJlaW1hZ2U=\"}";
+    
+    private HttpServer server;
+    private final ExecutorService serverThreads = Executors.newCachedThreadPool();
+    private NodeTransport transport;
+    private PaymentEngine engine;
+    private final List<String> events = Collections.synchronizedList(new ArrayList<>());
+    private final Queue<List<String>> trackStreams = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger sendCalls = new AtomicInteger();
+    private final AtomicInteger trackCalls = new AtomicInteger();
+    private volatile CountDownLatch release = new CountDownLatch(0);
+    private final List<Payment> savedPayments = Collections.synchronizedList(new ArrayList<>());
+    private final List<String> savedDestinations = Collections.synchronizedList(new ArrayList<>());
+    private final List<String> savedStatuses = Collections.synchronizedList(new ArrayList<>());
+    private final List<List<HtlcAttempt>> savedAttempts = Collections.synchronizedList(new ArrayList<>());
+    private final AtomicReference<String> requestBody = new AtomicReference<>();
+    private final AtomicReference<String> macaroon = new AtomicReference<>();
+    
+    @BeforeEach
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(serverThreads);
+        server.createContext("/v2/router/send", exchange -> {
+            sendCalls.incrementAndGet();
+            requestBody.set(new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8));
+            macaroon.set(exchange.getRequestHeaders().getFirst("Grpc-Metadata-macaroon"));
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            stream(exchange, new ArrayList<>(events));
+        });
+        server.createContext("/v2/router/track/" + TRACK_PATH_HASH, exchange -> {
+            trackCalls.incrementAndGet();
+            List<String> stream = trackStreams.poll();
+            stream(exchange, stream == null ? Collections.emptyList() : stream);
+        });
+        server.start();
+        
+        transport = new NodeTransport(null, null, "http://127.0.0.1:" + server.getAddress().getPort() + "/v1");
+        transport.setMacaroon("abcd");
+        engine = new PaymentEngine(transport, (payment, status, attempts) -> {
+            savedPayments.add(payment);
+            savedDestinations.add(payment.getDestination());
+            savedStatuses.add(status);
+            savedAttempts.add(attempts);
+        });
+        engine.setRetryPolicy(new RetryPolicy(3, Duration.ofMillis(5), Duration.ofMillis(20)));
+    }
+    
+    @AfterEach
+    public void tearDown() {
+        engine.shutdown();
+        transport.shutdown();
+        server.stop(0);
+        serverThreads.shutdownNow();
+    }
+    
+    @Test
+    public void testStreamsAttemptsUntilSettled() throws Exception {
+        events.add(event("IN_FLIGHT", FIRST_ATTEMPT));
+        events.add(event("IN_FLIGHT", FIRST_ATTEMPT_FAILED));
+        events.add("{\"result\":{\"payment_hash\":\"" + PAYMENT_HASH + "\",\"status\":\"SUCCEEDED\","
+                + "\"value_msat\":\"50000\",\"fee_msat\":\"1000\",\"payment_preimage\":\"" + "ab".repeat(32) + "\","
+                + "\"creation_time_ns\":\"1700000000000000000\",\"htlcs\":["
+                + FIRST_ATTEMPT_FAILED + "," + SECOND_ATTEMPT_SETTLED + "]}}");
+        
+        List<PaymentUpdate> updates = new ArrayList<>();
+        PaymentUpdate result = engine.send(PAYMENT_REQUEST, updates::add).get(10, TimeUnit.SECONDS);
+        
+        assertTrue(result.isSucceeded());
+        assertEquals(3, updates.size());
+        assertEquals(List.of("In Flight", "In Flight", "Completed"), savedStatuses);
+        assertEquals(List.of(PAYEE, PAYEE, PAYEE), savedDestinations);
+        assertEquals("abcd", macaroon.get());
+        assertTrue(requestBody.get().contains("\"fee_limit_sat\":10"));
+        assertTrue(requestBody.get().contains("\"max_parts\":16"));
+        
+        // The first attempt failed and was retried on a longer route
+        HtlcAttempt failed = updates.get(1).getHtlcs().get(0);
+        assertEquals(HtlcAttempt.STATUS_FAILED, failed.getStatus());
+        assertEquals("TEMPORARY_CHANNEL_FAILURE", failed.getFailureCode());
+        assertEquals(800, failed.getDurationNanos());
+        
+        HtlcAttempt settled = result.getHtlcs().get(1);
+        assertEquals(50_000, settled.getAmountMsat());
+        assertEquals(1_000, settled.getFeeMsat());
+        assertEquals(3, settled.getHopCount());
+        assertEquals(2, savedAttempts.get(2).size());
+    }
+    
+    @Test
+    public void testPayCompletesWithSettledPayment() throws Exception {
+        events.add("{\"result\":{\"payment_hash\":\"" + PAYMENT_HASH + "\",\"status\":\"SUCCEEDED\","
+                + "\"value_msat\":\"50000\",\"fee_msat\":\"1000\",\"payment_preimage\":\"" + "ab".repeat(32) + "\","
+                + "\"htlcs\":[" + SECOND_ATTEMPT_SETTLED + "]}}");
+        
+        Payment payment = engine.pay(PAYMENT_REQUEST).get(10, TimeUnit.SECONDS);
+        assertEquals(PAYMENT_HASH, payment.getPaymentHash());
+        assertEquals("ab".repeat(32), payment.getPaymentPreimage());
+        assertEquals(50, payment.getValueSat());
+        assertEquals(1, payment.getFeeSat());
+        assertEquals(PAYEE, payment.getDestination());
+        assertEquals("Please consider supporting this project", payment.getDescription());
+    }
+    
+    @Test
+    public void testFailedPaymentFailsPay() {
+        events.add(event("IN_FLIGHT", FIRST_ATTEMPT));
+        events.add("{\"result\":{\"payment_hash\":\"" + PAYMENT_HASH + "\",\"status\":\"FAILED\","
+                + "\"failure_reason\":\"FAILURE_REASON_NO_ROUTE\",\"htlcs\":[" + FIRST_ATTEMPT_FAILED + "]}}");
+        
+        ExecutionException e = assertThrows(ExecutionException.class,
+                () -> engine.pay(PAYMENT_REQUEST).get(10, TimeUnit.SECONDS));
+        assertTrue(e.getCause() instanceof IOException);
+        assertEquals("Payment failed: FAILURE_REASON_NO_ROUTE", e.getCause().getMessage());
+        assertEquals(List.of("In Flight", "Failed"), savedStatuses);
+    }
+    
+    @Test
+    public void testAlreadyPaidHashIsTrackedNotResent() throws Exception {
+        events.add("{\"error\":{\"code\":6,\"message\":\"invoice is already paid\"}}");
+        trackStreams.add(List.of(settledEvent()));
+        
+        Payment payment = engine.pay(PAYMENT_REQUEST).get(10, TimeUnit.SECONDS);
+        assertEquals("ab".repeat(32), payment.getPaymentPreimage());
+        assertEquals(1, sendCalls.get());
+        assertEquals(1, trackCalls.get());
+    }
+    
+    @Test
+    public void testDroppedStreamResumesByTracking() throws Exception {
+        events.add(event("IN_FLIGHT", FIRST_ATTEMPT));
+        trackStreams.add(List.of(settledEvent()));
+        
+        PaymentUpdate result = engine.send(PAYMENT_REQUEST, null).get(10, TimeUnit.SECONDS);
+        assertTrue(result.isSucceeded());
+        assertEquals(1, sendCalls.get());
+        assertEquals(1, trackCalls.get());
+        assertEquals(1, transport.getRetryMetrics().getRetries());
+        assertEquals(List.of("In Flight", "Completed"), savedStatuses);
+    }
+    
+    @Test
+    public void testUnknownPaymentIsSentAgain() throws Exception {
+        // The stream drops before any update, and the node has no record of the payment
+        trackStreams.add(List.of("{\"error\":{\"code\":5,\"message\":\"payment isn't initiated\"}}"));
+        
+        ExecutionException lost = assertThrows(ExecutionException.class,
+                () -> engine.send(PAYMENT_REQUEST, null).get(10, TimeUnit.SECONDS));
+        assertTrue(lost.getCause().getMessage().contains("may still be in flight"));
+        
+        // Sent, tracked, then sent again before giving up
+        assertEquals(2, sendCalls.get());
+        assertEquals(1, transport.getRetryMetrics().getExhausted());
+    }
+    
+    @Test
+    public void testConcurrentSendsOfOneHashShareThePayment() throws Exception {
+        release = new CountDownLatch(1);
+        events.add(settledEvent());
+        
+        List<PaymentUpdate> joinedUpdates = Collections.synchronizedList(new ArrayList<>());
+        CompletableFuture<PaymentUpdate> first = engine.send(PAYMENT_REQUEST, null);
+        CompletableFuture<PaymentUpdate> second = engine.send(PAYMENT_REQUEST, joinedUpdates::add);
+        assertEquals(1, engine.getInFlightCount());
+        release.countDown();
+        
+        assertTrue(first.get(10, TimeUnit.SECONDS).isSucceeded());
+        assertSame(first.get(), second.get(10, TimeUnit.SECONDS));
+        assertEquals(1, joinedUpdates.size());
+        assertEquals(1, sendCalls.get());
+    }
+    
+    @Test
+    public void testOtherSendersShareThePaymentHashGuard() throws Exception {
+        CountDownLatch settle = new CountDownLatch(1);
+        AtomicInteger directCalls = new AtomicInteger();
+        PaymentEngine.Sender grpc = request -> {
+            directCalls.incrementAndGet();
+            try {
+                settle.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            // Shaped like LndProto.decodeSendResponse: bytes fields come back as base64
+            Payment payment = new Payment();
+            payment.setPaymentHash(Base64.getEncoder().encodeToString(unhex(PAYMENT_HASH)));
+            payment.setPaymentPreimage(Base64.getEncoder().encodeToString(unhex("ab".repeat(32))));
+            payment.setValueSat(50);
+            payment.setFeeSat(1);
+            payment.setPaymentRoute("{\"total_fees_msat\":1000}");
+            return payment;
+        };
+        
+        CompletableFuture<Payment> first = engine.pay(PAYMENT_REQUEST, grpc);
+        CompletableFuture<Payment> again = engine.pay(PAYMENT_REQUEST, grpc);
+        CompletableFuture<Payment> router = engine.pay(PAYMENT_REQUEST);
+        assertEquals(1, engine.getInFlightCount());
+        settle.countDown();
+        
+        Payment payment = first.get(10, TimeUnit.SECONDS);
+        assertEquals(PAYMENT_HASH, payment.getPaymentHash());
+        assertEquals("ab".repeat(32), payment.getPaymentPreimage());
+        assertEquals(PAYEE, payment.getDestination());
+        assertEquals("Please consider supporting this project", payment.getDescription());
+        assertEquals(1, payment.getFeeSat());
+        assertEquals("{\"total_fees_msat\":1000}", payment.getPaymentRoute());
+        assertEquals("ab".repeat(32), again.get(10, TimeUnit.SECONDS).getPaymentPreimage());
+        assertEquals(PAYEE, router.get(10, TimeUnit.SECONDS).getDestination());
+        assertEquals(1, directCalls.get());
+        assertEquals(0, sendCalls.get());
+        
+        // The row is keyed by the same hex hash as router payments
+        assertEquals(List.of("Completed"), savedStatuses);
+        assertEquals(PAYMENT_HASH, savedPayments.get(0).getPaymentHash());
+        assertEquals("ab".repeat(32), savedPayments.get(0).getPaymentPreimage());
+    }
+    
+    @Test
+    public void testInvalidRequestFailsWithoutCall() {
+        ExecutionException invalid = assertThrows(ExecutionException.class,
+                () -> engine.pay("lnbc1invalid").get(10, TimeUnit.SECONDS));
+        assertTrue(invalid.getCause().getMessage().startsWith("Invalid payment request"));
+        assertEquals(0, sendCalls.get());
+    }
+    
+    /**
+     * Write the events as a streamed response body
+     */
+    private static void stream(HttpExchange exchange, List<String> events) throws IOException {
+        exchange.sendResponseHeaders(200, 0);
+        try (OutputStream out = exchange.getResponseBody()) {
+            for (String event : events) {
+                out.write(event.getBytes(StandardCharsets.UTF_8));
+                out.write('\n');
+                out.flush();
+            }
+        }
+    }
+    
+    /**
+     * Final update of a payment settled by its second attempt
+     */
+    private static String settledEvent() {
+        return "{\"result\":{\"payment_hash\":\"" + PAYMENT_HASH + "\",\"status\":\"SUCCEEDED\","
+                + "\"value_msat\":\"50000\",\"fee_msat\":\"1000\",\"payment_preimage\":\"" + "ab".repeat(32) + "\","
+                + "\"htlcs\":[" + FIRST_ATTEMPT_FAILED + "," + SECOND_ATTEMPT_SETTLED + "]}}";
+    }
+    
+    /**
+     * Build an in-flight stream event with the given attempts
+     */
+    private static String event(String status, String... htlcs) {
+        return "{\"result\":{\"payment_hash\":\"" + PAYMENT_HASH + "\",\"status\":\"" + status + "\","
+                + "\"value_msat\":\"50000\",\"htlcs\":[" + String.join(",", htlcs) + "]}}";
+    }
+    
+    /**
+     * Decode a hex string
+     */
+    private static byte[] unhex(String hex) {
+        byte[] bytes = new byte[hex.length() / 2];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) Integer.parseInt(hex.substring(i * 2, i * 2 + 2), 16);
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,61 @@
+package com.lightning.network;
+
+import com.sun.net.httpserver.HttpServer;
+import okhttp3.Response;
+import org.junit.jupiter.api.Test;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RequestMetricsTest {
+    
+    @Test
+    public void testEndpointKeysGroupIdentifiers() {
+        assertEquals("GET /getinfo", RequestMetrics.endpointKey("GET", "/v1/getinfo"));
+        assertEquals("GET /invoice/{id}",
+                RequestMetrics.endpointKey("GET", "/v1/invoice/0001020304050607080900010203040506070809"));
+        assertEquals("GET /channels/{id}", RequestMetrics.endpointKey("GET", "/v1/channels/123"));
+        assertEquals("POST /v2/router/send", RequestMetrics.endpointKey("POST", "/v2/router/send"));
+    }
+    
+    @Test
+    public void testRecordsLatencyBytesAndErrors() throws Exception {
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/v1/", exchange -> {
+            boolean missing = exchange.getRequestURI().getPath().endsWith("/missing");
+            byte[] body = "{\"alias\":\"node\"}".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(missing ? 404 : 200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+        
+        NodeTransport transport = new NodeTransport(null, null,
+                "http://127.0.0.1:" + server.getAddress().getPort() + "/v1");
+        try {
+            for (int i = 0; i < 3; i++) {
+                try (Response response = transport.execute(transport.newRequest("/getinfo").build())) {
+                    assertEquals("{\"alias\":\"node\"}", response.body().string());
+                }
+            }
+            transport.execute(transport.newRequest("/missing").build()).close();
+            
+            RequestMetrics metrics = transport.getRequestMetrics();
+            RequestMetrics.EndpointStats info = metrics.get("GET /getinfo");
+            assertEquals(3, info.getRequests());
+            assertEquals(3, info.getLatency().getCount());
+            assertEquals(48, info.getBytesReceived());
+            assertEquals(0, info.getInFlight());
+            assertEquals(0.0, info.getErrorRate());
+            assertEquals(1, metrics.get("GET /missing").getClientErrors());
+            assertTrue(metrics.report().startsWith("GET /getinfo: 3 calls"));
+        } finally {
+            transport.shutdown();
+            server.stop(0);
+        }
+    }
+}
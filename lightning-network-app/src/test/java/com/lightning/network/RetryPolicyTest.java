@@ -0,0 +1,158 @@
+package com.lightning.network;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RetryPolicyTest {
+    private static final long MILLI = 1_000_000L;
+    
+    private HttpServer server;
+    private NodeTransport transport;
+    private final AtomicInteger failuresLeft = new AtomicInteger();
+    private final AtomicInteger calls = new AtomicInteger();
+    
+    @BeforeEach
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/v1/", exchange -> {
+            calls.incrementAndGet();
+            if (failuresLeft.getAndDecrement() > 0) {
+                respond(exchange, 503, "{\"message\":\"upstream unavailable\"}");
+            } else {
+                respond(exchange, 200, "{\"ok\":true}");
+            }
+        });
+        server.start();
+        
+        transport = new NodeTransport(null, null, "http://127.0.0.1:" + server.getAddress().getPort() + "/v1");
+        transport.setRetryPolicy(new RetryPolicy(3, Duration.ofMillis(5), Duration.ofMillis(20)));
+    }
+    
+    @AfterEach
+    public void tearDown() {
+        transport.shutdown();
+        server.stop(0);
+    }
+    
+    @Test
+    public void testBackoffGrowsToCapWithFullJitter() {
+        RetryPolicy policy = new RetryPolicy(5, Duration.ofMillis(100), Duration.ofMillis(350));
+        assertEquals(0, policy.backoffNanos(1, 0.0));
+        assertEquals(50 * MILLI, policy.backoffNanos(1, 0.5));
+        assertEquals(200 * MILLI, policy.backoffNanos(2, 1.0));
+        assertEquals(350 * MILLI, policy.backoffNanos(3, 1.0));
+        assertEquals(350 * MILLI, policy.backoffNanos(40, 1.0));
+        for (int i = 0; i < 100; i++) {
+            long delay = policy.backoffNanos(2);
+            assertTrue(delay >= 0 && delay <= 200 * MILLI);
+        }
+    }
+    
+    @Test
+    public void testBudgetStopsRetriesWhenMostCallsFail() {
+        RetryBudget budget = new RetryBudget(10, 0.1);
+        for (int i = 0; i < 4; i++) {
+            assertTrue(budget.tryRetry());
+        }
+        assertFalse(budget.tryRetry());
+        assertEquals(1, budget.getDeniedCount());
+        
+        // Ten successes earn back one retry
+        for (int i = 0; i < 11; i++) {
+            budget.onSuccess();
+        }
+        assertTrue(budget.tryRetry());
+    }
+    
+    @Test
+    public void testTransientStatusIsRetriedForIdempotentCalls() throws Exception {
+        failuresLeft.set(2);
+        try (Response response = transport.execute(transport.newRequest("/getinfo").build())) {
+            assertEquals(200, response.code());
+        }
+        assertEquals(3, calls.get());
+        
+        RetryMetrics metrics = transport.getRetryMetrics();
+        assertEquals(2, metrics.getRetries());
+        assertEquals(1, metrics.getRecovered());
+        assertEquals(Long.valueOf(2), metrics.getRetriesByReason().get("503"));
+    }
+    
+    @Test
+    public void testGivesUpAfterMaxAttempts() throws Exception {
+        failuresLeft.set(5);
+        try (Response response = transport.execute(transport.newRequest("/getinfo").build())) {
+            assertEquals(503, response.code());
+        }
+        assertEquals(3, calls.get());
+        assertEquals(1, transport.getRetryMetrics().getExhausted());
+    }
+    
+    @Test
+    public void testNonIdempotentCallIsNotRetried() throws Exception {
+        failuresLeft.set(1);
+        Request request = transport.newRequest("/invoices")
+                .post(RequestBody.create(MediaType.parse("application/json"), "{\"value\":\"1\"}"))
+                .build();
+        try (Response response = transport.execute(request)) {
+            assertEquals(503, response.code());
+        }
+        assertEquals(1, calls.get());
+        assertEquals(0, transport.getRetryMetrics().getRetries());
+    }
+    
+    @Test
+    public void testAsyncCallsRetryWithoutBlocking() throws Exception {
+        failuresLeft.set(2);
+        int code = transport.executeAsync(transport.newRequest("/getinfo").build(), Response::code,
+                Duration.ofSeconds(10)).get(10, TimeUnit.SECONDS);
+        assertEquals(200, code);
+        assertEquals(3, calls.get());
+        assertEquals(1, transport.getRetryMetrics().getRecovered());
+    }
+    
+    @Test
+    public void testConnectionFailureIsRetriedForAnyMethod() throws Exception {
+        server.stop(0);
+        NodeTransport unreachable = new NodeTransport(null, null,
+                "http://127.0.0.1:" + server.getAddress().getPort() + "/v1");
+        unreachable.setRetryPolicy(new RetryPolicy(2, Duration.ofMillis(1), Duration.ofMillis(1)));
+        try {
+            Request request = unreachable.newRequest("/invoices")
+                    .post(RequestBody.create(MediaType.parse("application/json"), "{}"))
+                    .build();
+            assertThrows(IOException.class, () -> unreachable.execute(request).close());
+            assertEquals(Long.valueOf(1), unreachable.getRetryMetrics().getRetriesByReason().get("ConnectException"));
+        } finally {
+            unreachable.shutdown();
+        }
+    }
+    
+    /**
+     * Send a JSON response
+     */
+    private static void respond(HttpExchange exchange, int code, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(code, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
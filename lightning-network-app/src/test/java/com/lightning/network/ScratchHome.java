@@ -0,0 +1,32 @@
+package com.lightning.network;
+
+import org.junit.jupiter.api.extension.AfterAllCallback;
+import org.junit.jupiter.api.extension.BeforeAllCallback;
+import org.junit.jupiter.api.extension.ExtensionContext;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Keeps the balance cache, database and config of a test class away from the real wallet
+ * by pointing user.home and lightning.db.path at a fresh temporary directory.
+ *
+ * Register with {@code @ExtendWith(ScratchHome.class)}.
+ */
+public class ScratchHome implements BeforeAllCallback, AfterAllCallback {
+    private static final ExtensionContext.Namespace NAMESPACE = ExtensionContext.Namespace.create(ScratchHome.class);
+    
+    @Override
+    public void beforeAll(ExtensionContext context) throws Exception {
+        context.getStore(NAMESPACE).put("user.home", System.getProperty("user.home"));
+        Path home = Files.createTempDirectory("lightning-" + context.getRequiredTestClass().getSimpleName());
+        System.setProperty("user.home", home.toString());
+        System.setProperty("lightning.db.path", home.resolve("wallet.db").toString());
+    }
+    
+    @Override
+    public void afterAll(ExtensionContext context) {
+        System.setProperty("user.home", context.getStore(NAMESPACE).get("user.home", String.class));
+        System.clearProperty("lightning.db.path");
+    }
+}
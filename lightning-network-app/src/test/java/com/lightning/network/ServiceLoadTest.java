@@ -0,0 +1,151 @@
+package com.lightning.network;
+
+import com.lightning.util.LatencyHistogram;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Closed-loop load test of the service against an in-process {@link MockLndServer}; no Docker or node needed.
+ * Run with: mvn test-compile exec:java -Dexec.classpathScope=test
+ *           -Dexec.mainClass=com.lightning.network.ServiceLoadTest -Dexec.args="100000 32 10 5 80 0.01"
+ *
+ * Arguments: invoices held by the mock (default 10000), concurrent callers (default 16),
+ * seconds per workload (default 10), median and p99 of the injected node latency in ms
+ * (default 2 and 20), injected error rate (default 0)
+ */
+public class ServiceLoadTest {
+    // BOLT11 specification example without an amount
+    private static final String PAYMENT_REQUEST = "lnbc1pvjluezsp5zyg3zyg3zyg3zyg3zyg3zyg3zyg3zyg3zyg3zyg3zyg3zyg3zygs"
+            + "pp5qqqsyqcyq5rqwzqfqqqsyqcyq5rqwzqfqqqsyqcyq5rqwzqfqypqdpl2pkx2ctnv5sxxmmwwd5kgetjypeh2ursdae8g6twvus8g"
+            + "6rfwvs8qun0dfjkxaq9qrsgq357wnc5r2ueh7ck6q93dj32dlqnls087fxdwk8qakdyafkq3yap9us6v52vjjsrvywa6rt52cm9r9zq"
+            + "t8r2t7mlcwspyetp5h2tztugp9lfyql";
+    
+    /**
+     * A single node call
+     */
+    private interface Workload {
+        void run(LightningNetworkService service) throws Exception;
+    }
+    
+    public static void main(String[] args) throws Exception {
+        int invoices = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        int concurrency = args.length > 1 ? Integer.parseInt(args[1]) : 16;
+        Duration duration = Duration.ofSeconds(args.length > 2 ? Long.parseLong(args[2]) : 10);
+        Duration median = Duration.ofMillis(args.length > 3 ? Long.parseLong(args[3]) : 2);
+        Duration p99 = Duration.ofMillis(args.length > 4 ? Long.parseLong(args[4]) : 20);
+        double errorRate = args.length > 5 ? Double.parseDouble(args[5]) : 0;
+        
+        // Keep the balance cache and database of the run away from the real wallet
+        Path home = Files.createTempDirectory("lightning-load-test");
+        System.setProperty("user.home", home.toString());
+        System.setProperty("lightning.db.path", home.resolve("wallet.db").toString());
+        
+        String[] names = {"GetInfo", "WalletBalance", "ListInvoices(100)", "ListInvoices(1000)",
+                "AddInvoice", "PayInvoice", "DecodePayReq(node)"};
+        Workload[] workloads = {
+            s -> s.getInfo(NodeBackend.REST),
+            s -> s.getWalletBalance(NodeBackend.REST),
+            s -> s.listInvoices(),
+            s -> s.listInvoicesPage(Math.max(0, invoices - 1_000), 1_000, false),
+            s -> s.createInvoice(1_000, "load test"),
+            s -> s.payInvoice(PAYMENT_REQUEST),
+            s -> s.decodePaymentRequest(PAYMENT_REQUEST, NodeBackend.REST)
+        };
+        
+        try (MockLndServer server = new MockLndServer(invoices).start()) {
+            server.setLatency(MockLndServer.Latency.logNormal(median, p99));
+            server.setErrorRate(errorRate);
+            
+            Properties config = server.toConfig();
+            config.setProperty("retry.initial_backoff_ms", "10");
+            // Measure the node path, not the traffic limits sized for a small production node
+            for (RequestClass requestClass : RequestClass.values()) {
+                config.setProperty("traffic." + requestClass.getConfigName() + ".concurrency", String.valueOf(concurrency));
+                config.setProperty("traffic." + requestClass.getConfigName() + ".rate", "0");
+            }
+            LightningNetworkService service = new LightningNetworkService(config);
+            
+            System.out.printf("%d invoices, %d callers, node latency p50 %d ms / p99 %d ms, error rate %.3f%n%n",
+                    invoices, concurrency, median.toMillis(), p99.toMillis(), errorRate);
+            System.out.printf("%-20s %10s %10s %10s %10s %10s %12s %8s%n",
+                    "workload", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms", "calls/s", "errors");
+            try {
+                for (int w = 0; w < workloads.length; w++) {
+                    // Warm up connections and the JIT before measuring
+                    run(service, workloads[w], concurrency, Duration.ofSeconds(1));
+                    run(service, workloads[w], concurrency, duration).report(names[w]);
+                }
+            } finally {
+                service.shutdown();
+            }
+        }
+    }
+    
+    /**
+     * Latencies and error count of one workload run
+     */
+    private static final class Result {
+        final LatencyHistogram latencies = new LatencyHistogram();
+        final AtomicLong errors = new AtomicLong();
+        long elapsedNanos;
+        
+        /**
+         * Print percentiles, throughput and errors
+         */
+        void report(String workload) {
+            System.out.printf("%-20s %10.2f %10.2f %10.2f %10.2f %10.2f %12.1f %8d%n", workload,
+                    millis(latencies.getPercentile(50)), millis(latencies.getPercentile(90)),
+                    millis(latencies.getPercentile(99)), millis(latencies.getPercentile(99.9)),
+                    millis(latencies.getMax()), latencies.getCount() / (elapsedNanos / 1e9), errors.get());
+        }
+        
+        private static double millis(Duration duration) {
+            return duration.toNanos() / 1e6;
+        }
+    }
+    
+    /**
+     * Call the workload back to back from every caller until the duration has passed.
+     * Failed calls are counted as errors and their latency is recorded too.
+     */
+    private static Result run(LightningNetworkService service, Workload workload, int concurrency,
+                              Duration duration) throws Exception {
+        Result result = new Result();
+        ExecutorService executor = Executors.newFixedThreadPool(concurrency);
+        try {
+            long start = System.nanoTime();
+            long deadline = start + duration.toNanos();
+            List<Future<?>> callers = new ArrayList<>();
+            for (int i = 0; i < concurrency; i++) {
+                callers.add(executor.submit(() -> {
+                    while (System.nanoTime() < deadline) {
+                        long callStart = System.nanoTime();
+                        try {
+                            workload.run(service);
+                        } catch (Exception e) {
+                            result.errors.incrementAndGet();
+                        }
+                        result.latencies.recordNanos(System.nanoTime() - callStart);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> caller : callers) {
+                caller.get();
+            }
+            result.elapsedNanos = System.nanoTime() - start;
+            return result;
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
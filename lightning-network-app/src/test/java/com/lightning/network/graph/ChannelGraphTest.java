@@ -0,0 +1,94 @@
+package com.lightning.network.graph;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ChannelGraphTest {
+    
+    @Test
+    public void testNodesGetDenseIds() {
+        ChannelGraph graph = new ChannelGraph(2, 2);
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i, graph.addNode("node" + i, null));
+        }
+        
+        assertEquals(7, graph.addNode("node7", "seven"));
+        assertEquals("seven", graph.getAlias(7));
+        assertEquals("node42", graph.getPubkey(graph.getNodeId("node42")));
+        assertEquals(-1, graph.getNodeId("unknown"));
+        assertEquals(100, graph.getNodeCount());
+    }
+    
+    @Test
+    public void testRemovedChannelsAreUnlinkedAndSlotsReused() {
+        ChannelGraph graph = new ChannelGraph(2, 2);
+        for (long chanId = 1; chanId <= 50; chanId++) {
+            graph.addChannel(chanId, "hub", "leaf" + chanId, 1_000_000);
+            graph.updatePolicy(chanId, "hub", 0, 1, 40, 0, 0, false);
+        }
+        int hub = graph.getNodeId("hub");
+        
+        for (long chanId = 1; chanId <= 50; chanId += 2) {
+            assertTrue(graph.removeChannel(chanId));
+        }
+        assertFalse(graph.removeChannel(1));
+        assertFalse(graph.hasChannel(1));
+        assertTrue(graph.hasChannel(2));
+        assertEquals(25, graph.getChannelCount());
+        assertEquals(25, countIncoming(graph, hub));
+        assertFalse(graph.updatePolicy(1, "hub", 0, 1, 40, 0, 0, false));
+        assertFalse(graph.updatePolicy(2, "leaf3", 0, 1, 40, 0, 0, false));
+        
+        int slots = graph.slotCount;
+        graph.addChannel(101, "hub", "newcomer", 1_000_000);
+        assertEquals(slots, graph.slotCount);
+        assertEquals(26, countIncoming(graph, hub));
+        
+        // The reused slot starts without a policy until the new channel announces one
+        Route route = new RouteFinder(graph).findRoute("newcomer", "leaf2", 1000);
+        assertNull(route);
+        graph.updatePolicy(101, "newcomer", 0, 1, 40, 0, 0, false);
+        route = new RouteFinder(graph).findRoute("newcomer", "leaf2", 1000);
+        assertEquals(2, route.getHops().size());
+    }
+    
+    @Test
+    public void testChannelIdIndexMatchesHashMap() {
+        LongIntMap map = new LongIntMap(4);
+        Map<Long, Integer> expected = new HashMap<>();
+        Random random = new Random(7);
+        for (int i = 0; i < 200_000; i++) {
+            // Short channel ids are block height << 40, so keep the low bits sparse like real ones
+            long key = (long) random.nextInt(5000) << 40 | random.nextInt(4);
+            if (random.nextInt(3) == 0) {
+                Integer removed = expected.remove(key);
+                assertEquals(removed == null ? -1 : removed, map.remove(key));
+            } else {
+                expected.put(key, i);
+                map.put(key, i);
+            }
+        }
+        
+        assertEquals(expected.size(), map.size());
+        for (Map.Entry<Long, Integer> entry : expected.entrySet()) {
+            assertEquals((int) entry.getValue(), map.get(entry.getKey()));
+        }
+        assertEquals(-1, map.get(-1L));
+    }
+    
+    private static int countIncoming(ChannelGraph graph, int node) {
+        graph.lockIndex().unlock();
+        int count = 0;
+        for (int position = graph.inStart[node]; position < graph.inStart[node + 1]; position++) {
+            int edge = graph.inEdge[position];
+            assertEquals(node, graph.target(edge));
+            count++;
+        }
+        return count;
+    }
+}
@@ -0,0 +1,187 @@
+package com.lightning.network.graph;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GraphStoreTest {
+    private static final long AMOUNT = 1_000_000;
+    
+    private Path file;
+    private GraphStore store;
+    
+    @BeforeEach
+    public void setUp() throws IOException {
+        file = Files.createTempDirectory("lightning-graph-store").resolve("graph.bin");
+        store = new GraphStore(file);
+    }
+    
+    @AfterEach
+    public void tearDown() throws IOException {
+        store.close();
+    }
+    
+    @Test
+    public void testSnapshotRoundTrip() throws IOException {
+        assertNull(store.load());
+        ChannelGraph graph = path();
+        graph.addNode("alice", "Alice");
+        graph.addChannel(9, "alice", "carol", 1_000_000);
+        graph.removeChannel(9);
+        store.save(graph);
+        
+        ChannelGraph loaded = new GraphStore(file).load();
+        assertEquals(graph.getNodeCount(), loaded.getNodeCount());
+        assertEquals(3, loaded.getChannelCount());
+        assertFalse(loaded.hasChannel(9));
+        assertEquals("Alice", loaded.getAlias(loaded.getNodeId("alice")));
+        assertNull(loaded.getAlias(loaded.getNodeId("bob")));
+        assertEquals(graph.getNodeId("dave"), loaded.getNodeId("dave"));
+        
+        // The closed channel's slot is not written
+        assertEquals(3, loaded.slotCount);
+        assertRoutesMatch(graph, loaded, "sender", "dave");
+    }
+    
+    @Test
+    public void testJournalReplaysUpdates() throws IOException {
+        ChannelGraph graph = path();
+        store.save(graph);
+        long snapshot = Files.size(file);
+        
+        graph.updatePolicy(2, "bob", 1000, 100, 40, 1000, 0, false);
+        graph.addChannel(4, "alice", "dave", 1_000_000);
+        graph.updatePolicy(4, "alice", 0, 1, 40, 1000, 0, false);
+        graph.removeChannel(3);
+        graph.addNode("erin", "Erin");
+        graph.addNode("erin", "Erin");
+        store.flush();
+        assertTrue(Files.size(file) > snapshot);
+        assertEquals(Files.size(file) - snapshot, store.getJournalSize());
+        
+        ChannelGraph loaded = new GraphStore(file).load();
+        assertFalse(loaded.hasChannel(3));
+        assertTrue(loaded.hasChannel(4));
+        assertEquals("Erin", loaded.getAlias(loaded.getNodeId("erin")));
+        assertEquals(List.of("alice", "dave"), new RouteFinder(loaded).findRoute("sender", "dave", AMOUNT).getHops());
+        assertRoutesMatch(graph, loaded, "sender", "dave");
+        
+        // Compacting folds the journal into a new snapshot
+        store.save(graph);
+        assertEquals(0, store.getJournalSize());
+        assertRoutesMatch(graph, new GraphStore(file).load(), "sender", "dave");
+    }
+    
+    @Test
+    public void testPartialRecordEndsJournal() throws IOException {
+        ChannelGraph graph = path();
+        store.save(graph);
+        graph.updatePolicy(2, "alice", 5000, 0, 40, 1000, 0, false);
+        store.flush();
+        long complete = Files.size(file);
+        graph.removeChannel(2);
+        store.flush();
+        
+        // A crash in the middle of the close record
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(complete + 4);
+        }
+        
+        GraphStore reopened = new GraphStore(file);
+        ChannelGraph loaded = reopened.load();
+        assertTrue(loaded.hasChannel(2));
+        // Alice's new base fee plus Bob's 10 ppm
+        assertEquals(5010, new RouteFinder(loaded).findRoute("sender", "dave", AMOUNT).getFeeMsat());
+        
+        // The next update overwrites the partial record
+        loaded.removeChannel(3);
+        reopened.close();
+        assertEquals(complete + 9, Files.size(file));
+        assertFalse(new GraphStore(file).load().hasChannel(3));
+    }
+    
+    @Test
+    public void testOtherVersionIsIgnored() throws IOException {
+        store.save(path());
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(4).putInt(0, GraphStore.VERSION + 1), 4);
+        }
+        assertNull(new GraphStore(file).load());
+        
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(4).putInt(0, 0xCAFE), 0);
+        }
+        assertThrows(IOException.class, () -> new GraphStore(file).load());
+    }
+    
+    @Test
+    public void testMainnetSizedGraphLoadsInMilliseconds() throws IOException {
+        int nodes = 16_000;
+        ChannelGraph mainnet = new ChannelGraph();
+        Random random = new Random(42);
+        String[] pubkeys = new String[nodes];
+        for (int i = 0; i < nodes; i++) {
+            pubkeys[i] = String.format("02%064x", i);
+            mainnet.addNode(pubkeys[i], "node " + i);
+        }
+        for (long chanId = 1; chanId <= 60_000; chanId++) {
+            int from = random.nextInt(nodes);
+            int to = random.nextInt(4) == 0 ? random.nextInt(nodes) : random.nextInt(200);
+            if (from == to) {
+                continue;
+            }
+            mainnet.addChannel(chanId, pubkeys[from], pubkeys[to], 100_000 + random.nextInt(10_000_000));
+            mainnet.updatePolicy(chanId, pubkeys[from], random.nextInt(2000), random.nextInt(2000), 40, 1000, 0, false);
+            mainnet.updatePolicy(chanId, pubkeys[to], random.nextInt(2000), random.nextInt(2000), 40, 1000, 0, false);
+        }
+        store.save(mainnet);
+        
+        long slowest = 0;
+        ChannelGraph loaded = null;
+        for (int i = 0; i < 5; i++) {
+            long start = System.nanoTime();
+            loaded = new GraphStore(file).load();
+            slowest = Math.max(slowest, (System.nanoTime() - start) / 1_000_000);
+        }
+        
+        assertEquals(mainnet.getChannelCount(), loaded.getChannelCount());
+        assertRoutesMatch(mainnet, loaded, pubkeys[1], pubkeys[2]);
+        assertTrue(slowest < 500, "slowest load " + slowest + " ms");
+    }
+    
+    /**
+     * sender - alice - bob - dave, each hop charging 10 ppm
+     */
+    private static ChannelGraph path() {
+        ChannelGraph graph = new ChannelGraph(4, 4);
+        String[] nodes = {"sender", "alice", "bob", "dave"};
+        for (int i = 0; i < 3; i++) {
+            graph.addChannel(i + 1, nodes[i], nodes[i + 1], 1_000_000);
+            graph.updatePolicy(i + 1, nodes[i], 0, 10, 40, 1000, 0, false);
+            graph.updatePolicy(i + 1, nodes[i + 1], 0, 10, 40, 1000, 0, false);
+        }
+        return graph;
+    }
+    
+    private static void assertRoutesMatch(ChannelGraph expected, ChannelGraph actual, String source, String destination) {
+        FeeEstimate want = new RouteFinder(expected).estimate(source, destination, AMOUNT);
+        FeeEstimate got = new RouteFinder(actual).estimate(source, destination, AMOUNT);
+        assertEquals(want.getRoutes().size(), got.getRoutes().size());
+        for (int i = 0; i < want.getRoutes().size(); i++) {
+            assertEquals(want.getRoutes().get(i).getHops(), got.getRoutes().get(i).getHops());
+            assertEquals(want.getRoutes().get(i).getFeeMsat(), got.getRoutes().get(i).getFeeMsat());
+            assertEquals(want.getRoutes().get(i).getTimeLockDelta(), got.getRoutes().get(i).getTimeLockDelta());
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package com.lightning.network.graph;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RouteFinderTest {
+    private static final String S = "sender";
+    private static final String A = "alice";
+    private static final String B = "bob";
+    private static final String C = "carol";
+    private static final String D = "dave";
+    private static final long AMOUNT = 1_000_000;
+    
+    private final ChannelGraph graph = new ChannelGraph(16, 16);
+    
+    /**
+     * Open a channel with the same policy on both ends
+     */
+    private long channel(long chanId, String node1, String node2, long capacity, long baseFeeMsat, long feeRatePpm) {
+        graph.addChannel(chanId, node1, node2, capacity);
+        graph.updatePolicy(chanId, node1, baseFeeMsat, feeRatePpm, 40, 1000, 0, false);
+        graph.updatePolicy(chanId, node2, baseFeeMsat, feeRatePpm, 40, 1000, 0, false);
+        return chanId;
+    }
+    
+    /**
+     * S-A-D through an expensive node, S-B-C-D through two cheap ones, and B to A as a one-way detour
+     */
+    private void diamond() {
+        channel(1, S, A, 10_000, 50_000, 50_000);
+        channel(2, A, D, 10_000, 1000, 1000);
+        channel(3, S, B, 10_000, 50_000, 50_000);
+        channel(4, B, C, 10_000, 0, 10);
+        channel(5, C, D, 10_000, 0, 10);
+        // Only Bob forwards over it
+        graph.addChannel(6, B, A, 10_000);
+        graph.updatePolicy(6, B, 0, 10, 40, 1000, 0, false);
+    }
+    
+    @Test
+    public void testCheapestRouteChargesForwardingNodesOnly() {
+        diamond();
+        
+        Route route = new RouteFinder(graph).findRoute(S, D, AMOUNT);
+        
+        // Carol charges 10 ppm of 1,000,000; Bob 10 ppm of 1,000,010; the sender's own channel is free
+        assertEquals(List.of(B, C, D), route.getHops());
+        assertEquals(List.of(3L, 4L, 5L), route.getChannelIds());
+        assertEquals(20, route.getFeeMsat());
+        assertEquals(80, route.getTimeLockDelta());
+    }
+    
+    @Test
+    public void testSkipsChannelsThatCannotCarryTheAmount() {
+        diamond();
+        graph.addChannel(5, C, D, 500);
+        
+        Route route = new RouteFinder(graph).findRoute(S, D, AMOUNT);
+        
+        // Alice forwards 1,000,000 to Dave: 1000 + 1000 ppm
+        assertEquals(List.of(A, D), route.getHops());
+        assertEquals(2000, route.getFeeMsat());
+        
+        graph.updatePolicy(1, S, 50_000, 50_000, 40, 1000, 0, true);
+        assertEquals(List.of(B, A, D), new RouteFinder(graph).findRoute(S, D, AMOUNT).getHops());
+        
+        // Bob would have to forward 1,002,000
+        graph.updatePolicy(6, B, 0, 10, 40, 1000, 1_001_999, false);
+        assertNull(new RouteFinder(graph).findRoute(S, D, AMOUNT));
+    }
+    
+    @Test
+    public void testHugeAdvertisedRatesDoNotOverflow() {
+        long amount = 10_000_000_000L;
+        channel(1, S, A, 100_000_000, 0, 0);
+        channel(2, A, D, 100_000_000, 0, Integer.MAX_VALUE);
+        channel(3, S, B, 100_000_000, 0, 0);
+        channel(4, B, D, 100_000_000, 0, 1000);
+        
+        // Alice's rate times the amount overflows a long; her route must not come out as the cheapest
+        Route route = new RouteFinder(graph).findRoute(S, D, amount);
+        assertEquals(List.of(B, D), route.getHops());
+        assertEquals(10_000_000, route.getFeeMsat());
+        
+        graph.updatePolicy(4, B, 0, 1000, Integer.MAX_VALUE, 1000, 0, false);
+        route = new RouteFinder(graph).findRoute(S, D, amount);
+        assertTrue(route == null || route.getFeeMsat() >= 0);
+        
+        assertEquals(Long.MAX_VALUE, RouteFinder.scale(amount, Integer.MAX_VALUE, 1_000_000));
+        assertEquals(Long.MAX_VALUE, RouteFinder.addCapped(Long.MAX_VALUE - 1, 2));
+        assertEquals(21_474_836, RouteFinder.scale(10_000, Integer.MAX_VALUE, 1_000_000));
+    }
+    
+    @Test
+    public void testLocalBalancesLimitFirstHop() {
+        diamond();
+        
+        Route route = new RouteFinder(graph, Map.of(1L, 5_000_000L, 3L, 999_999L)).findRoute(S, D, AMOUNT);
+        
+        assertEquals(List.of(A, D), route.getHops());
+        assertNull(new RouteFinder(graph, Map.of()).findRoute(S, D, AMOUNT));
+    }
+    
+    @Test
+    public void testFindsNextCheapestLoopFreeRoutes() {
+        diamond();
+        
+        List<Route> routes = new RouteFinder(graph).findRoutes(S, D, AMOUNT, 5);
+        
+        assertEquals(3, routes.size());
+        assertEquals(List.of(B, C, D), routes.get(0).getHops());
+        assertEquals(List.of(A, D), routes.get(1).getHops());
+        assertEquals(List.of(B, A, D), routes.get(2).getHops());
+        // Bob forwards 1,002,000 to Alice, who forwards 1,000,000 to Dave
+        assertEquals(2010, routes.get(2).getFeeMsat());
+        
+        FeeEstimate estimate = new RouteFinder(graph).estimate(S, D, AMOUNT);
+        assertEquals(RouteFinder.DEFAULT_ROUTES, estimate.getRoutes().size());
+        assertEquals(20, estimate.getMinFeeMsat());
+        assertEquals(2010, estimate.getMaxFeeMsat());
+    }
+    
+    @Test
+    public void testUnknownOrUnreachableDestination() {
+        diamond();
+        graph.addNode("erin", "erin");
+        
+        assertFalse(new RouteFinder(graph).estimate(S, "erin", AMOUNT).isRoutable());
+        assertTrue(new RouteFinder(graph).findRoutes(S, "nobody", AMOUNT, 3).isEmpty());
+        assertTrue(new RouteFinder(graph).findRoutes(S, S, AMOUNT, 3).isEmpty());
+    }
+    
+    @Test
+    public void testMainnetSizedGraphInMilliseconds() {
+        int nodes = 16_000;
+        ChannelGraph mainnet = new ChannelGraph();
+        Random random = new Random(42);
+        String[] pubkeys = new String[nodes];
+        for (int i = 0; i < nodes; i++) {
+            pubkeys[i] = String.format("02%064x", i);
+            mainnet.addNode(pubkeys[i], null);
+        }
+        // A few hubs hold most channels, as on mainnet
+        for (long chanId = 1; chanId <= 60_000; chanId++) {
+            int from = random.nextInt(nodes);
+            int to = random.nextInt(4) == 0 ? random.nextInt(nodes) : random.nextInt(200);
+            if (from == to) {
+                continue;
+            }
+            mainnet.addChannel(chanId, pubkeys[from], pubkeys[to], 100_000 + random.nextInt(10_000_000));
+            mainnet.updatePolicy(chanId, pubkeys[from], random.nextInt(2000), random.nextInt(2000), 40 + random.nextInt(100),
+                    1000, 0, random.nextInt(20) == 0);
+            mainnet.updatePolicy(chanId, pubkeys[to], random.nextInt(2000), random.nextInt(2000), 40 + random.nextInt(100),
+                    1000, 0, random.nextInt(20) == 0);
+        }
+        
+        RouteFinder finder = new RouteFinder(mainnet);
+        finder.estimate(pubkeys[1], pubkeys[2], 50_000_000);
+        long slowest = 0;
+        int routable = 0;
+        for (int i = 0; i < 20; i++) {
+            FeeEstimate estimate = finder.estimate(pubkeys[random.nextInt(nodes)], pubkeys[random.nextInt(nodes)], 50_000_000);
+            slowest = Math.max(slowest, estimate.getElapsed().toMillis());
+            routable += estimate.isRoutable() ? 1 : 0;
+        }
+        
+        assertTrue(routable > 10, "routable " + routable);
+        assertTrue(slowest < 500, "slowest estimate " + slowest + " ms");
+    }
+}
@@ -0,0 +1,103 @@
+package com.lightning.network.grpc;
+
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.CodedOutputStream;
+import com.lightning.model.Invoice;
+import com.lightning.model.InvoicePage;
+import com.lightning.model.LightningInfo;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LndProtoTest {
+    
+    @Test
+    public void testDecodeGetInfoSkipsUnknownFields() throws IOException {
+        byte[] bytes = encode(out -> {
+            out.writeString(1, "02abcdef");
+            out.writeString(2, "alice");
+            out.writeUInt32(3, 1);
+            out.writeUInt32(4, 5);
+            out.writeUInt32(5, 7);
+            out.writeUInt32(6, 800000);
+            out.writeString(8, "00000000000000000001");
+            out.writeBool(9, true);
+            out.writeString(14, "0.17.0-beta");
+        });
+        
+        LightningInfo info = LndProto.decodeGetInfo(CodedInputStream.newInstance(bytes));
+        
+        assertEquals("02abcdef", info.getIdentityPubkey());
+        assertEquals("alice", info.getAlias());
+        assertEquals(1, info.getNumPendingChannels());
+        assertEquals(5, info.getNumActiveChannels());
+        assertEquals(7, info.getNumPeers());
+        assertEquals(800000, info.getBlockHeight());
+        assertTrue(info.isSyncedToChain());
+    }
+    
+    @Test
+    public void testDecodeListInvoices() throws IOException {
+        byte[] settled = encode(out -> {
+            out.writeString(1, "coffee");
+            out.writeByteArray(4, new byte[]{1, 2, 3});
+            out.writeInt64(5, 1500);
+            out.writeInt64(7, 1700000000L);
+            out.writeInt64(8, 1700000100L);
+            out.writeString(9, "lnbcrt15u1p");
+            out.writeUInt64(16, 7);
+            out.writeUInt64(17, 3);
+            out.writeEnum(21, 1);
+        });
+        byte[] open = encode(out -> {
+            out.writeByteArray(4, new byte[]{4, 5, 6});
+            out.writeInt64(7, 1700000200L);
+            out.writeUInt64(16, 8);
+        });
+        byte[] response = encode(out -> {
+            out.writeByteArray(1, settled);
+            out.writeByteArray(1, open);
+            out.writeUInt64(2, 8);
+            out.writeUInt64(3, 7);
+        });
+        
+        InvoicePage page = LndProto.decodeListInvoices(CodedInputStream.newInstance(response));
+        
+        assertEquals(2, page.getCount());
+        assertEquals(7, page.getFirstIndexOffset());
+        assertEquals(8, page.getLastIndexOffset());
+        
+        Invoice first = page.getInvoices().get(0);
+        assertEquals("coffee", first.getMemo());
+        assertEquals(Base64.getEncoder().encodeToString(new byte[]{1, 2, 3}), first.getRHash());
+        assertTrue(first.isSettled());
+        assertEquals("SETTLED", first.getState());
+        assertEquals(3, first.getSettleIndex());
+        
+        Invoice second = page.getInvoices().get(1);
+        assertFalse(second.isSettled());
+        assertEquals("OPEN", second.getState());
+        assertEquals(0, second.getSettleDate());
+    }
+    
+    @Test
+    public void testSendResponseReportsPaymentError() throws IOException {
+        byte[] bytes = encode(out -> out.writeString(1, "no_route"));
+        
+        LndProto.SendResult result = LndProto.decodeSendResponse(CodedInputStream.newInstance(bytes));
+        
+        assertEquals("no_route", result.getPaymentError());
+    }
+    
+    private static byte[] encode(LndProto.Message message) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        CodedOutputStream out = CodedOutputStream.newInstance(bytes);
+        message.writeTo(out);
+        out.flush();
+        return bytes.toByteArray();
+    }
+}
@@ -0,0 +1,66 @@
+package com.lightning.network.json;
+
+import com.lightning.model.Invoice;
+import com.lightning.model.InvoicePage;
+import org.junit.jupiter.api.Test;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class InvoicePageReaderTest {
+    private static final String PAGE = "{"
+            + "\"invoices\":["
+            + "{\"memo\":\"coffee\",\"r_hash\":\"qg==\",\"value\":\"1500\",\"settled\":true,"
+            + "\"creation_date\":\"1700000000\",\"settle_date\":\"1700000100\","
+            + "\"payment_request\":\"lnbcrt15u1p\",\"add_index\":\"7\","
+            + "\"route_hints\":[{\"hop_hints\":[]}],\"htlcs\":[],\"features\":{\"9\":{\"name\":\"tlv\"}}},"
+            + "{\"memo\":\"\",\"r_hash\":\"uw==\",\"value\":\"0\",\"settled\":false,"
+            + "\"creation_date\":\"1700000200\",\"settle_date\":\"0\","
+            + "\"payment_request\":\"lnbcrt1p\",\"add_index\":\"8\",\"state\":\"OPEN\"}"
+            + "],"
+            + "\"last_index_offset\":\"8\","
+            + "\"first_index_offset\":\"7\""
+            + "}";
+    
+    @Test
+    public void testReadCollectsInvoicesAndCursors() throws Exception {
+        InvoicePage page = InvoicePageReader.read(new StringReader(PAGE));
+        
+        assertEquals(2, page.getCount());
+        assertEquals(7, page.getFirstIndexOffset());
+        assertEquals(8, page.getLastIndexOffset());
+        
+        Invoice first = page.getInvoices().get(0);
+        assertEquals("coffee", first.getMemo());
+        assertEquals(1500, first.getAmountSats());
+        assertTrue(first.isSettled());
+        assertEquals(1700000100L, first.getSettleDate());
+        assertEquals(7, first.getAddIndex());
+        
+        Invoice second = page.getInvoices().get(1);
+        assertFalse(second.isSettled());
+        assertEquals(8, second.getAddIndex());
+    }
+    
+    @Test
+    public void testStreamingReadLeavesListEmpty() throws Exception {
+        List<Long> seen = new ArrayList<>();
+        InvoicePage page = InvoicePageReader.read(new StringReader(PAGE), invoice -> seen.add(invoice.getAddIndex()));
+        
+        assertEquals(List.of(7L, 8L), seen);
+        assertTrue(page.getInvoices().isEmpty());
+        assertEquals(2, page.getCount());
+    }
+    
+    @Test
+    public void testEmptyPage() throws Exception {
+        InvoicePage page = InvoicePageReader.read(new StringReader(
+                "{\"invoices\":[],\"last_index_offset\":\"0\",\"first_index_offset\":\"0\"}"));
+        
+        assertEquals(0, page.getCount());
+        assertEquals(0, page.getLastIndexOffset());
+    }
+}
@@ -0,0 +1,105 @@
+package com.lightning.network.json;
+
+import com.lightning.model.Channel;
+import com.lightning.model.LightningInfo;
+import com.lightning.model.Payment;
+import com.lightning.model.WalletBalance;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ModelTypeAdapterTest {
+    
+    @Test
+    public void testReadsGetInfoAndSkipsUnusedFields() throws Exception {
+        LightningInfo info = new LightningInfoTypeAdapter().fromJson("{"
+                + "\"version\":\"0.17.0-beta\",\"identity_pubkey\":\"02abc\",\"alias\":\"alice\","
+                + "\"num_pending_channels\":1,\"num_active_channels\":3,\"num_inactive_channels\":0,"
+                + "\"num_peers\":4,\"block_height\":820000,\"block_hash\":\"00ff\","
+                + "\"synced_to_chain\":true,\"testnet\":false,"
+                + "\"chains\":[{\"chain\":\"bitcoin\",\"network\":\"regtest\"}],\"uris\":[],"
+                + "\"features\":{\"0\":{\"name\":\"data-loss-protect\",\"is_required\":true}}}");
+        
+        assertEquals("02abc", info.getIdentityPubkey());
+        assertEquals("alice", info.getAlias());
+        assertEquals(1, info.getNumPendingChannels());
+        assertEquals(3, info.getNumActiveChannels());
+        assertEquals(4, info.getNumPeers());
+        assertEquals(820000, info.getBlockHeight());
+        assertTrue(info.isSyncedToChain());
+    }
+    
+    @Test
+    public void testReadsInt64BalancesEncodedAsStrings() throws Exception {
+        WalletBalance balance = new WalletBalanceTypeAdapter().fromJson("{"
+                + "\"total_balance\":\"9007199254740993\",\"confirmed_balance\":\"9007199254740000\","
+                + "\"unconfirmed_balance\":\"993\",\"locked_balance\":\"0\","
+                + "\"account_balance\":{\"default\":{\"confirmed_balance\":\"1\",\"unconfirmed_balance\":\"0\"}}}");
+        
+        // Above 2^53, so a detour through double would lose the last digit
+        assertEquals(9007199254740993L, balance.getTotalBalance());
+        assertEquals(9007199254740000L, balance.getConfirmedBalance());
+        assertEquals(993, balance.getUnconfirmedBalance());
+    }
+    
+    @Test
+    public void testReadsDecodedPaymentRequest() throws Exception {
+        Payment payment = new PaymentTypeAdapter().fromJson("{"
+                + "\"destination\":\"03def\",\"payment_hash\":\"0001\",\"num_satoshis\":\"2500\","
+                + "\"timestamp\":\"1700000000\",\"expiry\":\"3600\",\"description\":\"coffee\","
+                + "\"description_hash\":\"\",\"fallback_addr\":\"\",\"cltv_expiry\":\"80\","
+                + "\"route_hints\":[{\"hop_hints\":[{\"node_id\":\"02aa\"}]}],\"payment_addr\":\"qg==\","
+                + "\"num_msat\":\"2500000\",\"features\":{}}");
+        
+        assertEquals("03def", payment.getDestination());
+        assertEquals("0001", payment.getPaymentHash());
+        assertEquals(2500, payment.getNumSatoshis());
+        assertEquals("coffee", payment.getDescription());
+        assertEquals(1700000000L, payment.getTimestamp());
+    }
+    
+    @Test
+    public void testReadsChannelWithUnsignedChanId() throws Exception {
+        Channel channel = new ChannelTypeAdapter().fromJson("{"
+                + "\"active\":true,\"remote_pubkey\":\"02aa\",\"channel_point\":\"ab01:1\","
+                + "\"chan_id\":\"17293822569102704640\",\"capacity\":\"1000000\",\"local_balance\":\"400000\","
+                + "\"remote_balance\":\"596530\",\"commit_fee\":\"3470\",\"private\":true,"
+                + "\"pending_htlcs\":[{\"incoming\":false,\"amount\":\"1000\"}]}");
+        
+        // Above Long.MAX_VALUE, so it is kept as the same 64 bits
+        assertEquals("17293822569102704640", Long.toUnsignedString(channel.getChanId()));
+        assertEquals("ab01:1", channel.getChannelPoint());
+        assertEquals("02aa", channel.getRemotePubkey());
+        assertEquals(400_000, channel.getLocalBalance());
+        assertTrue(channel.isActive());
+        assertTrue(channel.isPrivate());
+        assertEquals(Channel.STATUS_OPEN, channel.getStatus());
+        
+        ChannelTypeAdapter adapter = new ChannelTypeAdapter();
+        Channel copy = adapter.fromJson(adapter.toJson(channel));
+        assertEquals(channel.getChanId(), copy.getChanId());
+        assertEquals(596_530, copy.getRemoteBalance());
+    }
+    
+    @Test
+    public void testWrittenModelsReadBack() throws Exception {
+        WalletBalance balance = new WalletBalance();
+        balance.setTotalBalance(150_000);
+        balance.setConfirmedBalance(100_000);
+        balance.setUnconfirmedBalance(50_000);
+        WalletBalanceTypeAdapter balanceAdapter = new WalletBalanceTypeAdapter();
+        assertEquals(50_000, balanceAdapter.fromJson(balanceAdapter.toJson(balance)).getUnconfirmedBalance());
+        
+        Payment payment = new Payment();
+        payment.setPaymentHash("0002");
+        payment.setPaymentPreimage("ff00");
+        payment.setValueSat(1_000);
+        payment.setFeeSat(3);
+        PaymentTypeAdapter paymentAdapter = new PaymentTypeAdapter();
+        Payment read = paymentAdapter.fromJson(paymentAdapter.toJson(payment));
+        assertEquals("ff00", read.getPaymentPreimage());
+        assertEquals(1_000, read.getValueSat());
+        assertEquals(3, read.getFeeSat());
+        assertNull(read.getDestination());
+    }
+}
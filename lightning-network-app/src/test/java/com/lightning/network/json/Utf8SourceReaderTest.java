@@ -0,0 +1,48 @@
+package com.lightning.network.json;
+
+import okio.Buffer;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.Reader;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class Utf8SourceReaderTest {
+    
+    @Test
+    public void testDecodesMultiByteSequencesAcrossWindowBoundaries() throws Exception {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 400; i++) {
+            text.append("café €").append(i).append(" 😀 ");
+        }
+        String expected = text.toString();
+        
+        // Odd read sizes split surrogate pairs between calls
+        for (int chunk : new int[]{1, 7, 1024}) {
+            assertEquals(expected, readAll(new Utf8SourceReader(new Buffer().writeUtf8(expected)), chunk));
+        }
+    }
+    
+    @Test
+    public void testMalformedBytesBecomeReplacementCharacters() throws Exception {
+        Buffer source = new Buffer().write(new byte[]{'a', (byte) 0xff, 'b', (byte) 0xc3, 'c', (byte) 0xe2, (byte) 0x82});
+        
+        assertEquals("a�b�c�", readAll(new Utf8SourceReader(source), 16));
+    }
+    
+    @Test
+    public void testEmptySourceIsEndOfStream() throws Exception {
+        assertEquals(-1, new Utf8SourceReader(new Buffer()).read(new char[8], 0, 8));
+    }
+    
+    private static String readAll(Reader reader, int chunk) throws IOException {
+        StringBuilder result = new StringBuilder();
+        char[] buffer = new char[chunk];
+        int read;
+        while ((read = reader.read(buffer, 0, chunk)) != -1) {
+            result.append(buffer, 0, read);
+        }
+        return result.toString();
+    }
+}
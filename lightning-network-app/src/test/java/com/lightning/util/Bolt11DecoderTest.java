@@ -0,0 +1,219 @@
+package com.lightning.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class Bolt11DecoderTest {
+    private static final BigInteger PRIVATE_KEY = new BigInteger(
+            "e126f68f7eafcc8b74f54d269fe206be715000f94dac067d1c04a8ca3b2db734", 16);
+    private static final String PAYEE = "03e7156ae33b0a208d0744199163177e909e80176e55d97a2f221ede0f934dd9ad";
+    private static final String PAYMENT_HASH = "0001020304050607080900010203040506070809000102030405060708090102";
+    
+    @Test
+    public void testPublicKeyDerivation() {
+        // Key pair used by the BOLT11 specification examples
+        assertEquals(PAYEE, hex(Secp256k1.publicKey(PRIVATE_KEY)));
+    }
+    
+    @Test
+    public void testRecoversSignerForRandomKeys() throws Exception {
+        SecureRandom random = new SecureRandom();
+        MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+        for (int i = 0; i < 25; i++) {
+            BigInteger key = new BigInteger(256, random).mod(Secp256k1.N.subtract(BigInteger.ONE)).add(BigInteger.ONE);
+            byte[] hash = sha256.digest(key.toByteArray());
+            byte[] signature = Secp256k1Signer.sign(hash, key);
+            assertArrayEquals(Secp256k1.publicKey(key),
+                    Secp256k1.recoverPublicKey(hash, Arrays.copyOf(signature, 64), signature[64]));
+        }
+    }
+    
+    @Test
+    public void testSpecificationExample() {
+        // "Please consider supporting this project" donation example from BOLT11
+        Bolt11Invoice invoice = Bolt11Decoder.decode("lnbc1pvjluezsp5zyg3zyg3zyg3zyg3zyg3zyg3zyg3zyg3zyg3zyg3zyg3zyg3zygs"
+                + "pp5qqqsyqcyq5rqwzqfqqqsyqcyq5rqwzqfqqqsyqcyq5rqwzqfqypqdpl2pkx2ctnv5sxxmmwwd5kgetjypeh2ursdae8g6twvus8g"
+                + "6rfwvs8qun0dfjkxaq9qrsgq357wnc5r2ueh7ck6q93dj32dlqnls087fxdwk8qakdyafkq3yap9us6v52vjjsrvywa6rt52cm9r9zq"
+                + "t8r2t7mlcwspyetp5h2tztugp9lfyql");
+        assertEquals(PAYEE, invoice.getDestination());
+        assertEquals(PAYMENT_HASH, invoice.getPaymentHash());
+        assertEquals("Please consider supporting this project", invoice.getDescription());
+        assertEquals(1496314658L, invoice.getTimestamp());
+        assertFalse(invoice.hasAmount());
+    }
+    
+    @Test
+    public void testRoundTripWithRecoveredPayee() throws Exception {
+        byte[] routeHop = ByteBuffer.allocate(51)
+                .put(Secp256k1.publicKey(BigInteger.valueOf(42)))
+                .putLong((700_000L << 40) | (1_234L << 16) | 1)
+                .putInt(1000)
+                .putInt(250)
+                .putShort((short) 40)
+                .array();
+        
+        ByteArrayOutputStream data = new ByteArrayOutputStream();
+        writeInt(data, 1_700_000_000L, 7);
+        writeField(data, 1, unhex(PAYMENT_HASH));
+        writeField(data, 13, "coffee ☕".getBytes(StandardCharsets.UTF_8));
+        writeIntField(data, 6, 600);
+        writeIntField(data, 24, 144);
+        writeField(data, 3, routeHop);
+        
+        String request = sign("lnbc2500u", data.toByteArray());
+        Bolt11Invoice invoice = Bolt11Decoder.decode(request);
+        
+        assertEquals("bc", invoice.getNetwork());
+        assertEquals(250_000_000L, invoice.getAmountMsat());
+        assertEquals(250_000L, invoice.getAmountSat());
+        assertEquals(1_700_000_000L, invoice.getTimestamp());
+        assertEquals(PAYMENT_HASH, invoice.getPaymentHash());
+        assertEquals(PAYEE, invoice.getDestination());
+        assertEquals("coffee ☕", invoice.getDescription());
+        assertEquals(600, invoice.getExpirySeconds());
+        assertTrue(invoice.isExpired(1_700_000_600L));
+        assertFalse(invoice.isExpired(1_700_000_599L));
+        assertEquals(144, invoice.getMinFinalCltvExpiry());
+        
+        assertEquals(1, invoice.getRouteHints().size());
+        Bolt11Invoice.RouteHop hop = invoice.getRouteHints().get(0).get(0);
+        assertEquals(hex(Secp256k1.publicKey(BigInteger.valueOf(42))), hop.getPubkey());
+        assertEquals("700000x1234x1", hop.getShortChannelIdString());
+        assertEquals(1000, hop.getFeeBaseMsat());
+        assertEquals(250, hop.getFeeProportionalMillionths());
+        assertEquals(40, hop.getCltvExpiryDelta());
+        
+        // Upper case and the URI prefix are accepted
+        assertEquals(PAYEE, Bolt11Decoder.decode("lightning:" + request.toUpperCase()).getDestination());
+    }
+    
+    @Test
+    public void testAmountlessRequestUsesDefaults() throws Exception {
+        ByteArrayOutputStream data = new ByteArrayOutputStream();
+        writeInt(data, 1_496_314_658L, 7);
+        writeField(data, 1, unhex(PAYMENT_HASH));
+        writeField(data, 19, unhex(PAYEE));
+        
+        Bolt11Invoice invoice = Bolt11Decoder.decode(sign("lntb", data.toByteArray()));
+        assertEquals("tb", invoice.getNetwork());
+        assertFalse(invoice.hasAmount());
+        assertEquals(3600, invoice.getExpirySeconds());
+        assertEquals(18, invoice.getMinFinalCltvExpiry());
+        assertNull(invoice.getDescription());
+    }
+    
+    @Test
+    public void testAmountMultipliers() throws Exception {
+        assertEquals(100_000_000_000L, decodeWithAmount("lnbc1").getAmountMsat());
+        assertEquals(1_000L, decodeWithAmount("lnbc10n").getAmountMsat());
+        assertEquals(1L, decodeWithAmount("lnbc10p").getAmountMsat());
+        assertThrows(IllegalArgumentException.class, () -> decodeWithAmount("lnbc15p"));
+    }
+    
+    @Test
+    public void testRejectsTamperedRequests() throws Exception {
+        ByteArrayOutputStream data = new ByteArrayOutputStream();
+        writeInt(data, 1_700_000_000L, 7);
+        writeField(data, 1, unhex(PAYMENT_HASH));
+        String request = sign("lnbc1m", data.toByteArray());
+        
+        // Corrupting a character breaks the checksum
+        char[] chars = request.toCharArray();
+        chars[20] = chars[20] == 'q' ? 'p' : 'q';
+        assertThrows(IllegalArgumentException.class, () -> Bolt11Decoder.decode(new String(chars)));
+        
+        // A payee field that does not match the signer is rejected
+        ByteArrayOutputStream wrongPayee = new ByteArrayOutputStream();
+        writeInt(wrongPayee, 1_700_000_000L, 7);
+        writeField(wrongPayee, 1, unhex(PAYMENT_HASH));
+        writeField(wrongPayee, 19, Secp256k1.publicKey(BigInteger.valueOf(7)));
+        String forged = sign("lnbc1m", wrongPayee.toByteArray());
+        assertThrows(IllegalArgumentException.class, () -> Bolt11Decoder.decode(forged));
+        
+        assertThrows(IllegalArgumentException.class, () -> Bolt11Decoder.decode("bc1qw508d6qejxtdg4y5r3zarvary0c5xw7kv8f3t4"));
+    }
+    
+    /**
+     * Build a request with only a payment hash under the given human-readable part
+     */
+    private static Bolt11Invoice decodeWithAmount(String hrp) throws Exception {
+        ByteArrayOutputStream data = new ByteArrayOutputStream();
+        writeInt(data, 1_700_000_000L, 7);
+        writeField(data, 1, unhex(PAYMENT_HASH));
+        return Bolt11Decoder.decode(sign(hrp, data.toByteArray()));
+    }
+    
+    /**
+     * Append the signature over hrp and data and bech32-encode the request
+     */
+    private static String sign(String hrp, byte[] data) throws Exception {
+        MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+        sha256.update(hrp.getBytes(StandardCharsets.UTF_8));
+        byte[] hash = sha256.digest(Bech32.convertBits(data, 0, data.length, 5, 8, true));
+        byte[] signature = Bech32.convertBits(Secp256k1Signer.sign(hash, PRIVATE_KEY), 0, 65, 8, 5, true);
+        
+        byte[] all = Arrays.copyOf(data, data.length + signature.length);
+        System.arraycopy(signature, 0, all, data.length, signature.length);
+        return Bech32.encode(hrp, all);
+    }
+    
+    /**
+     * Write a tagged field holding bytes
+     */
+    private static void writeField(ByteArrayOutputStream out, int type, byte[] bytes) {
+        byte[] values = Bech32.convertBits(bytes, 0, bytes.length, 8, 5, true);
+        out.write(type);
+        writeInt(out, values.length, 2);
+        out.write(values, 0, values.length);
+    }
+    
+    /**
+     * Write a tagged field holding an integer in the fewest 5-bit groups
+     */
+    private static void writeIntField(ByteArrayOutputStream out, int type, long value) {
+        int groups = Math.max(1, (64 - Long.numberOfLeadingZeros(value) + 4) / 5);
+        out.write(type);
+        writeInt(out, groups, 2);
+        writeInt(out, value, groups);
+    }
+    
+    /**
+     * Write a big-endian integer as 5-bit groups
+     */
+    private static void writeInt(ByteArrayOutputStream out, long value, int groups) {
+        for (int i = groups - 1; i >= 0; i--) {
+            out.write((int) ((value >>> (5 * i)) & 31));
+        }
+    }
+    
+    /**
+     * Decode hex to bytes
+     */
+    private static byte[] unhex(String hex) {
+        byte[] bytes = new byte[hex.length() / 2];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) Integer.parseInt(hex.substring(i * 2, i * 2 + 2), 16);
+        }
+        return bytes;
+    }
+    
+    /**
+     * Encode bytes as lower-case hex
+     */
+    private static String hex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder();
+        for (byte b : bytes) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+}
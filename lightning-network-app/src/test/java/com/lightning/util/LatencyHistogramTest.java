@@ -0,0 +1,74 @@
+package com.lightning.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LatencyHistogramTest {
+    
+    @Test
+    public void testBucketsCoverRangeInOrder() {
+        int previous = -1;
+        for (long micros = 0; micros < 1_000_000; micros += 7) {
+            int bucket = LatencyHistogram.bucketOf(micros);
+            assertTrue(bucket >= previous);
+            assertTrue(LatencyHistogram.highestEquivalentValue(bucket) >= micros);
+            previous = bucket;
+        }
+        
+        // Relative error stays within 1/64 across the range
+        for (long micros = 128; micros < Long.MAX_VALUE / 4 && micros > 0; micros = micros * 3 + 1) {
+            long upper = LatencyHistogram.highestEquivalentValue(LatencyHistogram.bucketOf(micros));
+            if (micros < 1L << 40) {
+                assertTrue(upper - micros <= micros / 64 + 1, "value " + micros);
+            }
+        }
+    }
+    
+    @Test
+    public void testPercentilesOfUniformSamples() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int millis = 1; millis <= 1000; millis++) {
+            histogram.record(Duration.ofMillis(millis));
+        }
+        
+        assertEquals(1000, histogram.getCount());
+        assertWithin(Duration.ofMillis(500), histogram.getPercentile(50));
+        assertWithin(Duration.ofMillis(990), histogram.getPercentile(99));
+        assertEquals(Duration.ofMillis(1000), histogram.getPercentile(100));
+        assertEquals(Duration.ofMillis(1000), histogram.getMax());
+        assertEquals(Duration.ofNanos(500_500_000), histogram.getMean());
+    }
+    
+    @Test
+    public void testTailIsVisibleBehindFastRequests() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        Random random = new Random(42);
+        for (int i = 0; i < 9_900; i++) {
+            histogram.recordNanos(2_000_000 + random.nextInt(1_000_000));
+        }
+        for (int i = 0; i < 100; i++) {
+            histogram.record(Duration.ofMillis(250));
+        }
+        
+        assertTrue(histogram.getPercentile(50).toMillis() < 4);
+        assertTrue(histogram.getPercentile(98.9).toMillis() < 4);
+        assertWithin(Duration.ofMillis(250), histogram.getPercentile(99.5));
+        
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+        assertEquals(Duration.ZERO, histogram.getPercentile(99));
+    }
+    
+    /**
+     * Assert a percentile is within the histogram's precision of the expected value
+     */
+    private static void assertWithin(Duration expected, Duration actual) {
+        long tolerance = expected.toNanos() / 64 + 1000;
+        assertTrue(Math.abs(expected.toNanos() - actual.toNanos()) <= tolerance,
+                "expected " + expected + " but was " + actual);
+    }
+}
@@ -0,0 +1,99 @@
+package com.lightning.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RefreshingCacheTest {
+    private static final long SECOND = 1_000_000_000L;
+    
+    private final AtomicLong now = new AtomicLong();
+    private final AtomicInteger loads = new AtomicInteger();
+    
+    // Background refreshes run inline so the test can observe them synchronously
+    private final RefreshingCache<Integer> cache = new RefreshingCache<>("test",
+            Duration.ofSeconds(10), Duration.ofSeconds(60), Runnable::run, now::get);
+    
+    @Test
+    public void testFreshValueIsServedFromCache() throws Exception {
+        assertEquals(1, (int) cache.get(loads::incrementAndGet));
+        now.addAndGet(5 * SECOND);
+        assertEquals(1, (int) cache.get(loads::incrementAndGet));
+        
+        RefreshingCache.Stats stats = cache.getStats();
+        assertEquals(1, stats.getMisses());
+        assertEquals(1, stats.getHits());
+        assertEquals(5000, stats.getAgeMillis());
+        assertEquals(1, loads.get());
+    }
+    
+    @Test
+    public void testStaleValueIsServedWhileRefreshing() throws Exception {
+        cache.get(loads::incrementAndGet);
+        now.addAndGet(20 * SECOND);
+        
+        // The stale value is returned and the refresh replaces it for the next read
+        assertEquals(1, (int) cache.get(loads::incrementAndGet));
+        assertEquals(2, (int) cache.get(loads::incrementAndGet));
+        assertEquals(1, cache.getStats().getStaleHits());
+        assertEquals(0, cache.getStats().getAgeMillis());
+    }
+    
+    @Test
+    public void testOnlyOneBackgroundRefreshRuns() throws Exception {
+        CompletableFuture<Integer> pending = new CompletableFuture<>();
+        cache.put(1);
+        now.addAndGet(20 * SECOND);
+        
+        AtomicInteger started = new AtomicInteger();
+        for (int i = 0; i < 5; i++) {
+            assertEquals(1, (int) cache.getAsync(() -> {
+                started.incrementAndGet();
+                return pending;
+            }).join());
+        }
+        assertEquals(1, started.get());
+        
+        pending.complete(2);
+        assertEquals(2, (int) cache.getAsync(() -> CompletableFuture.completedFuture(3)).join());
+    }
+    
+    @Test
+    public void testExpiredValueIsLoadedByCaller() throws Exception {
+        cache.get(loads::incrementAndGet);
+        now.addAndGet(80 * SECOND);
+        
+        assertEquals(2, (int) cache.get(loads::incrementAndGet));
+        assertEquals(2, cache.getStats().getMisses());
+    }
+    
+    @Test
+    public void testFailedRefreshKeepsStaleValue() throws Exception {
+        cache.put(1);
+        now.addAndGet(20 * SECOND);
+        
+        assertEquals(1, (int) cache.get(() -> {
+            throw new IOException("node offline");
+        }));
+        assertEquals(1, cache.getStats().getRefreshFailures());
+        assertEquals(1, (int) cache.peek());
+    }
+    
+    @Test
+    public void testInvalidateDiscardsInFlightLoad() {
+        CompletableFuture<Integer> pending = new CompletableFuture<>();
+        CompletableFuture<Integer> result = cache.getAsync(() -> pending);
+        
+        cache.invalidate();
+        pending.complete(1);
+        
+        assertEquals(1, (int) result.join());
+        assertNull(cache.peek());
+    }
+}
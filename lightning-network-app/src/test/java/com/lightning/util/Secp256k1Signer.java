@@ -0,0 +1,65 @@
+package com.lightning.util;
+
+import java.math.BigInteger;
+import java.security.SecureRandom;
+import java.util.Arrays;
+
+/**
+ * Recoverable ECDSA signing over {@link Secp256k1}, for building payment requests in tests.
+ *
+ * The nonce point comes from {@link Secp256k1#publicKey}, whose compressed encoding carries
+ * both x and the parity of y, so no curve arithmetic is needed here. Not constant time.
+ */
+final class Secp256k1Signer {
+    private static final SecureRandom RANDOM = new SecureRandom();
+    
+    private Secp256k1Signer() {
+    }
+    
+    /**
+     * Sign a hash with a random nonce, returning r, s and the recovery id in 65 bytes.
+     * The signature is normalised to low s.
+     */
+    static byte[] sign(byte[] hash, BigInteger privateKey) {
+        BigInteger e = new BigInteger(1, hash);
+        while (true) {
+            BigInteger k = new BigInteger(256, RANDOM);
+            if (k.signum() == 0 || k.compareTo(Secp256k1.N) >= 0) {
+                continue;
+            }
+            byte[] point = Secp256k1.publicKey(k);
+            BigInteger x = new BigInteger(1, Arrays.copyOfRange(point, 1, 33));
+            BigInteger r = x.mod(Secp256k1.N);
+            if (r.signum() == 0) {
+                continue;
+            }
+            BigInteger s = k.modInverse(Secp256k1.N).multiply(e.add(r.multiply(privateKey))).mod(Secp256k1.N);
+            if (s.signum() == 0) {
+                continue;
+            }
+            
+            int recoveryId = (point[0] == 0x03 ? 1 : 0) | (x.compareTo(Secp256k1.N) >= 0 ? 2 : 0);
+            if (s.compareTo(Secp256k1.N.shiftRight(1)) > 0) {
+                s = Secp256k1.N.subtract(s);
+                recoveryId ^= 1;
+            }
+            
+            byte[] signature = new byte[65];
+            System.arraycopy(toBytes32(r), 0, signature, 0, 32);
+            System.arraycopy(toBytes32(s), 0, signature, 32, 32);
+            signature[64] = (byte) recoveryId;
+            return signature;
+        }
+    }
+    
+    /**
+     * Big-endian unsigned 32-byte encoding
+     */
+    private static byte[] toBytes32(BigInteger value) {
+        byte[] bytes = value.toByteArray();
+        byte[] result = new byte[32];
+        int length = Math.min(bytes.length, 32);
+        System.arraycopy(bytes, bytes.length - length, result, 32 - length, length);
+        return result;
+    }
+}
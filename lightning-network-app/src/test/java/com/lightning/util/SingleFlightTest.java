@@ -0,0 +1,125 @@
+package com.lightning.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SingleFlightTest {
+    
+    @Test
+    public void testConcurrentCallsShareOneExecution() throws Exception {
+        SingleFlight flights = new SingleFlight();
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            results.add(executor.submit(() -> flights.execute("getinfo", () -> {
+                calls.incrementAndGet();
+                started.countDown();
+                release.await();
+                return "info";
+            })));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            
+            for (int i = 0; i < 3; i++) {
+                results.add(executor.submit(() -> flights.execute("getinfo", () -> {
+                    calls.incrementAndGet();
+                    return "duplicate";
+                })));
+            }
+            
+            // Wait until the followers have joined the in-flight call
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (flights.getCoalescedCount() < 3 && System.nanoTime() < deadline) {
+                Thread.sleep(5);
+            }
+            release.countDown();
+            
+            for (Future<String> result : results) {
+                assertEquals("info", result.get(5, TimeUnit.SECONDS));
+            }
+            assertEquals(1, calls.get());
+            assertEquals(1, flights.getExecutionCount());
+            assertEquals(3, flights.getCoalescedCount());
+            assertEquals(0, flights.getInFlightCount());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+    
+    @Test
+    public void testKeyIsReleasedAfterCompletion() throws Exception {
+        SingleFlight flights = new SingleFlight();
+        AtomicInteger calls = new AtomicInteger();
+        
+        assertEquals(1, (int) flights.execute("balance", calls::incrementAndGet));
+        assertEquals(2, (int) flights.execute("balance", calls::incrementAndGet));
+        assertEquals(0, flights.getCoalescedCount());
+    }
+    
+    @Test
+    public void testFailureIsSharedAndReleased() throws Exception {
+        SingleFlight flights = new SingleFlight();
+        CompletableFuture<String> source = new CompletableFuture<>();
+        
+        CompletableFuture<String> first = flights.executeAsync("invoices", () -> source);
+        CompletableFuture<String> second = flights.executeAsync("invoices", () -> {
+            throw new AssertionError("should join the in-flight call");
+        });
+        source.completeExceptionally(new IOException("node offline"));
+        
+        assertTrue(first.isCompletedExceptionally());
+        assertTrue(second.isCompletedExceptionally());
+        assertEquals(0, flights.getInFlightCount());
+        
+        IOException error = assertThrows(IOException.class,
+                () -> flights.execute("invoices", () -> {
+                    throw new IOException("still offline");
+                }));
+        assertEquals("still offline", error.getMessage());
+    }
+    
+    @Test
+    public void testCancellingOneCallerKeepsCallForOthers() {
+        SingleFlight flights = new SingleFlight();
+        CompletableFuture<String> source = new CompletableFuture<>();
+        
+        CompletableFuture<String> first = flights.executeAsync("getinfo", () -> source);
+        CompletableFuture<String> second = flights.executeAsync("getinfo", () -> source);
+        
+        first.cancel(true);
+        assertFalse(source.isCancelled());
+        
+        source.complete("info");
+        assertEquals("info", second.join());
+    }
+    
+    @Test
+    public void testCancellingAllCallersCancelsCall() {
+        SingleFlight flights = new SingleFlight();
+        CompletableFuture<String> source = new CompletableFuture<>();
+        
+        CompletableFuture<String> first = flights.executeAsync("getinfo", () -> source);
+        CompletableFuture<String> second = flights.executeAsync("getinfo", () -> source);
+        
+        first.cancel(true);
+        second.cancel(true);
+        
+        assertTrue(source.isCancelled());
+        assertEquals(0, flights.getInFlightCount());
+    }
+}
@@ -0,0 +1,54 @@
+package com.lightning.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TokenBucketTest {
+    private static final long MILLI = 1_000_000L;
+    
+    private final AtomicLong now = new AtomicLong();
+    private final TokenBucket bucket = new TokenBucket(10, 3, now::get);
+    
+    @Test
+    public void testBurstPassesThenRateApplies() {
+        for (int i = 0; i < 3; i++) {
+            assertTrue(bucket.tryAcquire());
+        }
+        assertFalse(bucket.tryAcquire());
+        assertEquals(100 * MILLI, bucket.nanosUntilAvailable());
+        
+        now.addAndGet(100 * MILLI);
+        assertTrue(bucket.tryAcquire());
+        assertFalse(bucket.tryAcquire());
+    }
+    
+    @Test
+    public void testRefillStopsAtCapacity() {
+        bucket.tryAcquire();
+        now.addAndGet(10_000 * MILLI);
+        
+        assertEquals(3, bucket.getTokens(), 1e-9);
+        assertEquals(0, bucket.nanosUntilAvailable());
+    }
+    
+    @Test
+    public void testNonPositiveRateIsUnlimited() {
+        bucket.setRate(0, 1);
+        for (int i = 0; i < 1_000; i++) {
+            assertTrue(bucket.tryAcquire());
+        }
+        assertEquals(0, bucket.nanosUntilAvailable());
+    }
+    
+    @Test
+    public void testShrinkingBurstDropsExtraTokens() {
+        bucket.setRate(10, 1);
+        
+        assertTrue(bucket.tryAcquire());
+        assertFalse(bucket.tryAcquire());
+        assertEquals(10, bucket.getRatePerSecond(), 1e-9);
+    }
+}